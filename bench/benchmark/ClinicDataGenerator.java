@@ -0,0 +1,88 @@
+package benchmark;
+
+import adt.OrderedMap;
+import entity.Doctor;
+import entity.Patient;
+import entity.Treatment;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+/**
+ * Builds deterministic synthetic clinic datasets for the benchmarks.
+ * The same size always produces the same data, so runs are comparable.
+ */
+public final class ClinicDataGenerator {
+
+    private static final String[] FIRST_NAMES = {
+        "Ahmad", "Siti", "Wei Jie", "Mei Ling", "Ravi", "Priya", "Daniel", "Nurul",
+        "Jason", "Aisyah", "Kumar", "Hui Min", "Farid", "Chloe", "Arjun", "Li Ting"
+    };
+    private static final String[] LAST_NAMES = {
+        "Tan", "Lim", "Lee", "Wong", "Abdullah", "Ismail", "Raj", "Chong",
+        "Ng", "Goh", "Yusof", "Subramaniam", "Teo", "Chan", "Hassan", "Ong"
+    };
+    private static final String[] SPECIALTIES = {
+        "General Practice", "Cardiology", "Dermatology", "Pediatrics", "Orthopedics"
+    };
+
+    public static final LocalDateTime BASE_DATE = LocalDateTime.of(2025, 1, 1, 9, 0);
+
+    private ClinicDataGenerator() {
+    }
+
+    public static String patientId(int i) {
+        return "P" + i;
+    }
+
+    public static String treatmentId(int i) {
+        return "T" + i;
+    }
+
+    public static String nameFor(int i) {
+        return FIRST_NAMES[i % FIRST_NAMES.length] + " "
+                + LAST_NAMES[(i / FIRST_NAMES.length) % LAST_NAMES.length];
+    }
+
+    public static OrderedMap<String, Patient> patients(int count) {
+        Random random = new Random(42);
+        OrderedMap<String, Patient> patients = new OrderedMap<>();
+        for (int i = 0; i < count; i++) {
+            Patient p = new Patient(patientId(i), nameFor(i), 1 + random.nextInt(90),
+                    random.nextBoolean() ? "Male" : "Female",
+                    "01" + (10000000 + random.nextInt(89999999)),
+                    "No. " + i + ", Jalan Clinic", random.nextInt(10) == 0);
+            patients.put(p.getPatientId(), p);
+        }
+        return patients;
+    }
+
+    public static OrderedMap<String, Doctor> doctors(int count) {
+        OrderedMap<String, Doctor> doctors = new OrderedMap<>();
+        for (int i = 0; i < count; i++) {
+            Doctor d = new Doctor("D" + i, "Dr. " + nameFor(i * 7), SPECIALTIES[i % SPECIALTIES.length],
+                    "03" + (20000000 + i), "doctor" + i + "@clinic.my", "Clinic Block " + (i % 5),
+                    (i % 2 == 0) ? "Male" : "Female", 1 + (i % 30));
+            doctors.put(d.getDoctorID(), d);
+        }
+        return doctors;
+    }
+
+    /**
+     * Treatments spread over one year, in shuffled date order so that
+     * date range queries cannot rely on insertion order
+     */
+    public static OrderedMap<String, Treatment> treatments(int count, OrderedMap<String, Patient> patients,
+                                                           OrderedMap<String, Doctor> doctors) {
+        Random random = new Random(7);
+        OrderedMap<String, Treatment> treatments = new OrderedMap<>();
+        for (int i = 0; i < count; i++) {
+            Patient patient = patients.get(random.nextInt(patients.size()));
+            Doctor doctor = doctors.get(random.nextInt(doctors.size()));
+            LocalDateTime date = BASE_DATE.plusMinutes(random.nextInt(365 * 24 * 60));
+            Treatment t = new Treatment(treatmentId(i), "C" + i, patient, doctor, date,
+                    "Synthetic treatment " + i, random.nextInt(20) == 0);
+            treatments.put(t.getTreatmentID(), t);
+        }
+        return treatments;
+    }
+}
@@ -0,0 +1,99 @@
+package benchmark;
+
+import adt.OrderedMap;
+import control.PatientMaintenance;
+import control.TreatmentMaintenance;
+import dao.DoctorDAO;
+import dao.PatientDAO;
+import dao.TreatmentDAO;
+import entity.Doctor;
+import entity.Patient;
+import entity.Treatment;
+import java.io.File;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the control-layer search paths, run against synthetic data
+ * written through the normal DAOs.
+ *
+ * The DAOs use paths relative to the working directory, so this must run from
+ * a scratch directory (the Ant "bench" target uses build/bench/work) and never
+ * from the project root, where it would overwrite the real data files.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ControllerSearchBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private PatientMaintenance patientMaintenance;
+    private TreatmentMaintenance treatmentMaintenance;
+    private String[] nameTerms;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if (new File("src/adt").isDirectory()) {
+            throw new IllegalStateException("Refusing to overwrite project data: run benchmarks from a scratch directory");
+        }
+        new File("src/data").mkdirs();
+
+        OrderedMap<String, Patient> patients = ClinicDataGenerator.patients(size);
+        OrderedMap<String, Doctor> doctors = ClinicDataGenerator.doctors(Math.max(10, size / 1000));
+        OrderedMap<String, Treatment> treatments = ClinicDataGenerator.treatments(size, patients, doctors);
+
+        new PatientDAO().saveToFile(patients);
+        DoctorDAO.saveDoctors(doctors);
+        new TreatmentDAO().saveToFile(treatments);
+
+        patientMaintenance = new PatientMaintenance();
+        treatmentMaintenance = new TreatmentMaintenance();
+
+        nameTerms = new String[64];
+        for (int i = 0; i < nameTerms.length; i++) {
+            nameTerms[i] = ClinicDataGenerator.nameFor(i * 37);
+        }
+    }
+
+    @Benchmark
+    public OrderedMap<String, Patient> searchPatientsById() {
+        cursor = (cursor + 1) % size;
+        return patientMaintenance.searchPatients(ClinicDataGenerator.patientId(cursor));
+    }
+
+    @Benchmark
+    public OrderedMap<String, Patient> searchPatientsByName() {
+        cursor = (cursor + 1) % nameTerms.length;
+        return patientMaintenance.searchPatients(nameTerms[cursor]);
+    }
+
+    @Benchmark
+    public OrderedMap<String, Patient> searchPatientsByPartialName() {
+        return patientMaintenance.searchPatients("ling t");
+    }
+
+    @Benchmark
+    public OrderedMap<String, Treatment> treatmentsInOneWeek() {
+        cursor = (cursor + 1) % 50;
+        LocalDateTime start = ClinicDataGenerator.BASE_DATE.plusWeeks(cursor);
+        return treatmentMaintenance.getTreatmentsByDateRange(start, start.plusWeeks(1));
+    }
+}
@@ -0,0 +1,140 @@
+package benchmark;
+
+import adt.OpenAddressingOrderedMap;
+import adt.OrderedMap;
+import entity.Patient;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Micro benchmarks for the core OrderedMap operations on patient records.
+ *
+ * Reports throughput and sampled latency (p50/p90/p99...) for each operation;
+ * the Ant "bench" target adds the GC profiler for allocation rate per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class OrderedMapBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private static final Comparator<Patient> BY_AGE = Comparator.comparingInt(Patient::getAge);
+    private static final Comparator<Patient> BY_NAME = Comparator.comparing(Patient::getName);
+
+    private OrderedMap<String, Patient> patients;
+    private OpenAddressingOrderedMap<String, Patient> openAddressingPatients;
+    private String[] keys;
+    private Patient extraPatient;
+    private Patient ageReference;
+    private Patient minAge;
+    private Patient maxAge;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        patients = ClinicDataGenerator.patients(size);
+        openAddressingPatients = new OpenAddressingOrderedMap<>(size);
+        keys = new String[size];
+        for (int i = 0; i < size; i++) {
+            Patient p = patients.get(i);
+            keys[i] = p.getPatientId();
+            openAddressingPatients.put(p.getPatientId(), p);
+        }
+        extraPatient = new Patient("P-extra", "Extra Patient", 30, "Male", "0123456789", "Nowhere", false);
+        ageReference = new Patient("", "", 45, "", "", "", false);
+        minAge = new Patient("", "", 30, "", "", "", false);
+        maxAge = new Patient("", "", 35, "", "", "", false);
+    }
+
+    private String nextKey() {
+        cursor = (cursor + 1) % size;
+        return keys[cursor];
+    }
+
+    @Benchmark
+    public Patient getByKey() {
+        return patients.get(nextKey());
+    }
+
+    @Benchmark
+    public Patient getByKeyOpenAddressing() {
+        return openAddressingPatients.get(nextKey());
+    }
+
+    @Benchmark
+    public boolean containsMissingKey() {
+        return patients.containsKey("missing-" + (cursor++ & 1023));
+    }
+
+    @Benchmark
+    public Patient getByIndex() {
+        cursor = (cursor + 1) % size;
+        return patients.get(cursor);
+    }
+
+    @Benchmark
+    public Patient putThenRemove() {
+        patients.put(extraPatient.getPatientId(), extraPatient);
+        return patients.remove(extraPatient.getPatientId());
+    }
+
+    @Benchmark
+    public Patient removeThenReinsert() {
+        String key = nextKey();
+        Patient removed = patients.remove(key);
+        patients.put(key, removed);
+        return removed;
+    }
+
+    @Benchmark
+    public OrderedMap<String, Patient> filterByAge() {
+        return patients.filter(ageReference, BY_AGE);
+    }
+
+    @Benchmark
+    public OrderedMap<String, Patient> rangeSearchByAge() {
+        return patients.rangeSearch(minAge, maxAge, BY_AGE);
+    }
+
+    /**
+     * Sorting mutates the map, so each invocation sorts a fresh unsorted copy
+     */
+    @State(Scope.Thread)
+    public static class SortState {
+        OrderedMap<String, Patient> unsorted;
+
+        @Setup(Level.Invocation)
+        public void copy(OrderedMapBenchmark bench) {
+            unsorted = new OrderedMap<>();
+            for (Patient p : bench.patients) {
+                unsorted.put(p.getPatientId(), p);
+            }
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 10)
+    public OrderedMap<String, Patient> sortByName(SortState state) {
+        state.unsorted.sort(BY_NAME);
+        return state.unsorted;
+    }
+}
@@ -1,5 +1,7 @@
 import boundary.*;
 import control.*;
+import dao.DataRepository;
+import dao.WriteBehindPersister;
 import utility.*;
 
 
@@ -13,6 +15,10 @@ public class ClinicManagement {
     
     public static void main(String[] args) {
             PatientMaintenance patientController = new PatientMaintenance();
+            if (Boolean.getBoolean("clinic.showLoadTimes")) {
+                System.out.println("\nData load times:");
+                System.out.print(DataRepository.getInstance().getLoadReport());
+            }
 
             int choice;
             do {
@@ -30,6 +36,15 @@ public class ClinicManagement {
                 }
             } while (choice != 0);
 
+            if (Boolean.getBoolean("clinic.mapStats")) {
+                System.out.println("\nData set table statistics:");
+                System.out.print(DataRepository.getInstance().getMapStatsReport());
+            }
+            if (WriteBehindPersister.isEnabled()) {
+                WriteBehindPersister.getInstance().shutdown();
+                System.out.print("\nBackground saves: " + WriteBehindPersister.getInstance().getReport());
+            }
+            DataRepository.getInstance().close();
             System.out.println("Exiting Clinic Management System...");
     }
 }
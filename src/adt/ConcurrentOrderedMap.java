@@ -0,0 +1,617 @@
+package adt;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A thread-safe implementation of OrderedMapInterface for data that is shared between
+ * threads (e.g. the UI, a background saver and a report generator).
+ *
+ * - Key lookups (get, containsKey) take no lock. Hash chains are immutable: a put
+ *   prepends a new link and a remove copies the links in front of the removed one,
+ *   so a reader always walks a complete chain, old or new.
+ * - Positional reads, iteration, toArray, filter and searches work on a snapshot of
+ *   the entry order. The snapshot is built once after each structural change and
+ *   shared by all readers until the next one, so repeated reads take no lock.
+ * - Changes are made under the write lock of a StampedLock; peek and top use its
+ *   optimistic read mode.
+ *
+ * Iterators are weakly consistent: they show the entries as of the moment they were
+ * created (with values read live) and never throw ConcurrentModificationException.
+ *
+ * Keys must not be null.
+ *
+ * @param <K> the type of keys maintained by this ADT
+ * @param <V> the type of mapped values
+ */
+public class ConcurrentOrderedMap<K, V> implements OrderedMapInterface<K, V>, Iterable<V>, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final double LOAD_FACTOR = 0.75;
+
+    // One node per entry, linked in order; prev/next are only touched under the write lock
+    private static final class Node<K, V> {
+        final K key;
+        volatile V value;
+        Node<K, V> prev;
+        Node<K, V> next;
+
+        Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    // Immutable hash chain link
+    private static final class Link<K, V> {
+        final int hash;
+        final Node<K, V> node;
+        final Link<K, V> next;
+
+        Link(int hash, Node<K, V> node, Link<K, V> next) {
+            this.hash = hash;
+            this.node = node;
+            this.next = next;
+        }
+    }
+
+    // The entry order at one modification count
+    private static final class Snapshot<K, V> {
+        final Node<K, V>[] nodes;
+        final int modCount;
+
+        Snapshot(Node<K, V>[] nodes, int modCount) {
+            this.nodes = nodes;
+            this.modCount = modCount;
+        }
+    }
+
+    private transient volatile AtomicReferenceArray<Link<K, V>> table;
+    private transient Node<K, V> head;
+    private transient Node<K, V> tail;
+    private transient volatile int size;
+    private transient volatile int modCount;
+    private transient volatile Snapshot<K, V> snapshot;
+    private transient StampedLock lock;
+
+    public ConcurrentOrderedMap() {
+        this.table = new AtomicReferenceArray<>(DEFAULT_CAPACITY);
+        this.lock = new StampedLock();
+    }
+
+    // ===============================
+    // CORE UTILITY METHODS
+    // ===============================
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static <K, V> Node<K, V> find(AtomicReferenceArray<Link<K, V>> tab, int hash, Object key) {
+        for (Link<K, V> link = tab.get(hash & (tab.length() - 1)); link != null; link = link.next) {
+            if (link.hash == hash && link.node.key.equals(key)) {
+                return link.node;
+            }
+        }
+        return null;
+    }
+
+    // Caller holds the write lock
+    private void resize() {
+        AtomicReferenceArray<Link<K, V>> newTable = new AtomicReferenceArray<>(table.length() * 2);
+        int mask = newTable.length() - 1;
+        for (Node<K, V> node = head; node != null; node = node.next) {
+            int h = hash(node.key);
+            newTable.set(h & mask, new Link<>(h, node, newTable.get(h & mask)));
+        }
+        table = newTable;
+    }
+
+    // Caller holds the write lock
+    private void linkLast(Node<K, V> node) {
+        if (tail == null) {
+            head = tail = node;
+        } else {
+            tail.next = node;
+            node.prev = tail;
+            tail = node;
+        }
+    }
+
+    // Caller holds the write lock
+    private void addToTable(Node<K, V> node) {
+        AtomicReferenceArray<Link<K, V>> tab = table;
+        int h = hash(node.key);
+        int index = h & (tab.length() - 1);
+        tab.set(index, new Link<>(h, node, tab.get(index)));
+        size++;
+        modCount++;
+        if (size > tab.length() * LOAD_FACTOR) {
+            resize();
+        }
+    }
+
+    // Caller holds the write lock
+    private V unlink(Node<K, V> node) {
+        AtomicReferenceArray<Link<K, V>> tab = table;
+        int h = hash(node.key);
+        int index = h & (tab.length() - 1);
+
+        // Copy the links in front of the removed one; the rest of the chain is shared
+        Link<K, V> first = tab.get(index);
+        Link<K, V> rest = null;
+        for (Link<K, V> link = first; link != null; link = link.next) {
+            if (link.node == node) {
+                rest = link.next;
+                break;
+            }
+        }
+        for (Link<K, V> link = first; link.node != node; link = link.next) {
+            rest = new Link<>(link.hash, link.node, rest);
+        }
+        tab.set(index, rest);
+
+        if (node.prev != null) {
+            node.prev.next = node.next;
+        } else {
+            head = node.next;
+        }
+        if (node.next != null) {
+            node.next.prev = node.prev;
+        } else {
+            tail = node.prev;
+        }
+        size--;
+        modCount++;
+        return node.value;
+    }
+
+    /**
+     * Returns the current entry order, building it if a change has been made since
+     * the last snapshot
+     */
+    private Snapshot<K, V> snapshot() {
+        Snapshot<K, V> current = snapshot;
+        if (current != null && current.modCount == modCount) {
+            return current;
+        }
+        long stamp = lock.readLock();
+        try {
+            return buildSnapshot();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Generic arrays cannot be created directly; every Node array comes from here
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <K, V> Node<K, V>[] newNodeArray(int length) {
+        return (Node<K, V>[]) new Node[length];
+    }
+
+    // Caller holds the read or write lock
+    private Snapshot<K, V> buildSnapshot() {
+        Snapshot<K, V> current = snapshot;
+        if (current != null && current.modCount == modCount) {
+            return current;
+        }
+        Node<K, V>[] nodes = newNodeArray(size);
+        int i = 0;
+        for (Node<K, V> node = head; node != null; node = node.next) {
+            nodes[i++] = node;
+        }
+        current = new Snapshot<>(nodes, modCount);
+        snapshot = current;
+        return current;
+    }
+
+    // ===============================
+    // MAP OPERATIONS
+    // ===============================
+
+    @Override
+    public V put(K key, V value) {
+        if (key == null) throw new NullPointerException("Key must not be null");
+
+        long stamp = lock.writeLock();
+        try {
+            Node<K, V> node = find(table, hash(key), key);
+            if (node != null) {
+                V oldValue = node.value;
+                node.value = value;
+                return oldValue;
+            }
+            node = new Node<>(key, value);
+            linkLast(node);
+            addToTable(node);
+            return null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Returns the value mapped to the key, without locking
+     */
+    @Override
+    public V get(K key) {
+        if (key == null) return null;
+        Node<K, V> node = find(table, hash(key), key);
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * Returns true if the key is mapped, without locking
+     */
+    @Override
+    public boolean containsKey(K key) {
+        return key != null && find(table, hash(key), key) != null;
+    }
+
+    @Override
+    public V remove(K key) {
+        if (key == null) return null;
+
+        long stamp = lock.writeLock();
+        try {
+            Node<K, V> node = find(table, hash(key), key);
+            return node == null ? null : unlink(node);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // ===============================
+    // LIST OPERATIONS
+    // ===============================
+
+    @Override
+    public V get(int index) {
+        return nodeAt(snapshot().nodes, index).value;
+    }
+
+    @Override
+    public K getKey(int index) {
+        return nodeAt(snapshot().nodes, index).key;
+    }
+
+    private static <K, V> Node<K, V> nodeAt(Node<K, V>[] nodes, int index) {
+        if (index < 0 || index >= nodes.length) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + nodes.length);
+        }
+        return nodes[index];
+    }
+
+    @Override
+    public V set(int index, V value) {
+        long stamp = lock.writeLock();
+        try {
+            Node<K, V> node = nodeAt(buildSnapshot().nodes, index);
+            V oldValue = node.value;
+            node.value = value;
+            return oldValue;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void add(int index, K key, V value) {
+        if (key == null) throw new NullPointerException("Key must not be null");
+
+        long stamp = lock.writeLock();
+        try {
+            if (index < 0 || index > size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            if (find(table, hash(key), key) != null) {
+                throw new IllegalArgumentException("Key already exists: " + key);
+            }
+
+            Node<K, V> node = new Node<>(key, value);
+            if (index == size) {
+                linkLast(node);
+            } else {
+                Node<K, V> current = buildSnapshot().nodes[index];
+                node.next = current;
+                node.prev = current.prev;
+                if (current.prev != null) {
+                    current.prev.next = node;
+                } else {
+                    head = node;
+                }
+                current.prev = node;
+            }
+            addToTable(node);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public V removeAt(int index) {
+        long stamp = lock.writeLock();
+        try {
+            return unlink(nodeAt(buildSnapshot().nodes, index));
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // ===============================
+    // QUEUE OPERATIONS (FIFO)
+    // ===============================
+
+    @Override
+    public boolean offer(K key, V value) {
+        put(key, value);
+        return true;
+    }
+
+    @Override
+    public V poll() {
+        long stamp = lock.writeLock();
+        try {
+            return head == null ? null : unlink(head);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public V peek() {
+        Node<K, V> node = readEnd(true);
+        return node == null ? null : node.value;
+    }
+
+    // ===============================
+    // STACK OPERATIONS (LIFO)
+    // ===============================
+
+    @Override
+    public void push(K key, V value) {
+        put(key, value);
+    }
+
+    @Override
+    public V pop() {
+        long stamp = lock.writeLock();
+        try {
+            if (tail == null) {
+                throw new RuntimeException("Stack is empty");
+            }
+            return unlink(tail);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public V top() {
+        Node<K, V> node = readEnd(false);
+        if (node == null) {
+            throw new RuntimeException("Stack is empty");
+        }
+        return node.value;
+    }
+
+    /**
+     * Reads the head or tail node, optimistically first and under the read lock if a
+     * writer got in the way
+     */
+    private Node<K, V> readEnd(boolean first) {
+        long stamp = lock.tryOptimisticRead();
+        Node<K, V> node = first ? head : tail;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                node = first ? head : tail;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return node;
+    }
+
+    // ===============================
+    // UTILITY METHODS
+    // ===============================
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            table = new AtomicReferenceArray<>(DEFAULT_CAPACITY);
+            head = tail = null;
+            size = 0;
+            modCount++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V[] toArray(V[] array) {
+        Node<K, V>[] nodes = snapshot().nodes;
+        if (array.length < nodes.length) {
+            array = (V[]) java.lang.reflect.Array.newInstance(array.getClass().getComponentType(), nodes.length);
+        }
+        for (int i = 0; i < nodes.length; i++) {
+            array[i] = nodes[i].value;
+        }
+        return array;
+    }
+
+    /**
+     * Returns a weakly consistent iterator over the values in order
+     */
+    @Override
+    public Iterator<V> iterator() {
+        final Node<K, V>[] nodes = snapshot().nodes;
+        return new Iterator<V>() {
+            private int next;
+            private Node<K, V> lastReturned;
+
+            @Override
+            public boolean hasNext() {
+                return next < nodes.length;
+            }
+
+            @Override
+            public V next() {
+                if (next >= nodes.length) {
+                    throw new NoSuchElementException("No more elements in iteration");
+                }
+                lastReturned = nodes[next++];
+                return lastReturned.value;
+            }
+
+            @Override
+            public void remove() {
+                if (lastReturned == null) {
+                    throw new IllegalStateException("No element to remove");
+                }
+                ConcurrentOrderedMap.this.remove(lastReturned.key);
+                lastReturned = null;
+            }
+        };
+    }
+
+    /**
+     * Sort the entries with a stable merge sort; readers keep seeing the old order
+     * until the sort is complete
+     */
+    @Override
+    public void sort(Comparator<V> comparator) {
+        long stamp = lock.writeLock();
+        try {
+            if (size <= 1) return;
+
+            Node<K, V>[] nodes = buildSnapshot().nodes.clone();
+            OrderedMap.sortArray(nodes, nodes.length, (a, b) -> comparator.compare(a.value, b.value));
+
+            head = nodes[0];
+            tail = nodes[nodes.length - 1];
+            head.prev = null;
+            tail.next = null;
+            for (int i = 1; i < nodes.length; i++) {
+                nodes[i].prev = nodes[i - 1];
+                nodes[i - 1].next = nodes[i];
+            }
+            modCount++;
+            snapshot = new Snapshot<>(nodes, modCount);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean isSorted(Comparator<V> comparator) {
+        Node<K, V>[] nodes = snapshot().nodes;
+        for (int i = 1; i < nodes.length; i++) {
+            if (comparator.compare(nodes[i - 1].value, nodes[i].value) > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Filter elements based on a condition using a predicate-style comparator
+     * @return a new (unshared) OrderedMap containing the matching entries
+     */
+    @Override
+    public OrderedMap<K, V> filter(V referenceValue, Comparator<V> condition) {
+        OrderedMap.Builder<K, V> filtered = new OrderedMap.Builder<>();
+        for (Node<K, V> node : snapshot().nodes) {
+            V value = node.value;
+            if (condition.compare(value, referenceValue) == 0) {
+                filtered.put(node.key, value);
+            }
+        }
+        return filtered.build();
+    }
+
+    /**
+     * Range search for elements within a specified range (both ends inclusive)
+     * @return a new (unshared) OrderedMap containing the entries within the range
+     */
+    @Override
+    public OrderedMap<K, V> rangeSearch(V min, V max, Comparator<V> comparator) {
+        OrderedMap.Builder<K, V> results = new OrderedMap.Builder<>();
+        for (Node<K, V> node : snapshot().nodes) {
+            V value = node.value;
+            if (comparator.compare(value, min) >= 0 && comparator.compare(value, max) <= 0) {
+                results.put(node.key, value);
+            }
+        }
+        return results.build();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        Node<K, V>[] nodes = snapshot().nodes;
+        for (int i = 0; i < nodes.length; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(nodes[i].value);
+        }
+        return sb.append("]").toString();
+    }
+
+    // ===============================
+    // SERIALIZATION
+    // ===============================
+
+    /**
+     * Writes the entry count followed by the key/value pairs of a consistent snapshot
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        Node<K, V>[] nodes = snapshot().nodes;
+        out.writeInt(nodes.length);
+        for (Node<K, V> node : nodes) {
+            out.writeObject(node.key);
+            out.writeObject(node.value);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        int count = in.readInt();
+        if (count < 0) {
+            throw new InvalidObjectException("Negative size: " + count);
+        }
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity * LOAD_FACTOR < count && capacity < (1 << 30)) {
+            capacity *= 2;
+        }
+        this.table = new AtomicReferenceArray<>(capacity);
+        this.lock = new StampedLock();
+        for (int i = 0; i < count; i++) {
+            put((K) in.readObject(), (V) in.readObject());
+        }
+    }
+}
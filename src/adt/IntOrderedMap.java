@@ -0,0 +1,318 @@
+package adt;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An insertion-ordered map with primitive int keys, for indexes keyed by a number
+ * (e.g. years of experience) where OrderedMap&lt;Integer, V&gt; would box every key and
+ * allocate a node per entry.
+ *
+ * Keys and values live in parallel arrays in insertion order and a power-of-two slot
+ * table (linear probing) maps each key to its position, the same layout as
+ * {@link OpenAddressingOrderedMap}. Removed entries leave a hole that is skipped on
+ * iteration and compacted away on growth or before the next positional access.
+ *
+ * Because get(int) is taken by the key lookup, positional access is named
+ * {@link #keyAt} / {@link #valueAt}.
+ *
+ * @param <V> the type of mapped values
+ */
+public class IntOrderedMap<V> implements Iterable<V> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    // Marks a removed entry in the values array
+    private static final Object HOLE = new Object();
+
+    private int[] keys;
+    private Object[] values;
+    private int[] slots; // entry position + 1, or 0 for an empty slot
+    private int mask;
+    private int used;    // positions [0, used) have been handed out
+    private int size;    // number of live entries
+    private int modCount;
+
+    public IntOrderedMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty map sized to hold the given number of entries without growing
+     */
+    public IntOrderedMap(int expectedSize) {
+        int capacity = Math.max(expectedSize, DEFAULT_CAPACITY);
+        this.keys = new int[capacity];
+        this.values = new Object[capacity];
+        this.slots = new int[slotCapacityFor(capacity)];
+        this.mask = slots.length - 1;
+    }
+
+    // ===============================
+    // CORE UTILITY METHODS
+    // ===============================
+
+    private static int spread(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // Smallest power of two that keeps the slot table at most half full
+    private static int slotCapacityFor(int entries) {
+        int n = Integer.highestOneBit(Math.max(entries, 2) * 2 - 1) << 1;
+        return n < 0 ? 1 << 30 : n;
+    }
+
+    // Returns the slot holding the key, or -1 if the key is absent
+    private int findSlot(int key) {
+        int slot = spread(key) & mask;
+        int entry;
+        while ((entry = slots[slot]) != 0) {
+            if (keys[entry - 1] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void insertSlot(int key, int pos) {
+        int slot = spread(key) & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = pos + 1;
+    }
+
+    // Backward-shift deletion, so no tombstones are needed in the slot table
+    private void deleteSlot(int slot) {
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (slots[next] != 0) {
+            int home = spread(keys[slots[next] - 1]) & mask;
+            boolean movable = (next > gap) ? (home <= gap || home > next) : (home <= gap && home > next);
+            if (movable) {
+                slots[gap] = slots[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        slots[gap] = 0;
+    }
+
+    // Moves the live entries to positions [0, size), growing the arrays to newCapacity
+    private void compact(int newCapacity) {
+        int[] newKeys = newCapacity == keys.length ? keys : new int[newCapacity];
+        Object[] newValues = newCapacity == values.length ? values : new Object[newCapacity];
+
+        int target = 0;
+        for (int pos = 0; pos < used; pos++) {
+            if (values[pos] != HOLE) {
+                newKeys[target] = keys[pos];
+                newValues[target] = values[pos];
+                target++;
+            }
+        }
+        for (int pos = target; pos < used && newValues == values; pos++) {
+            newValues[pos] = null;
+        }
+
+        keys = newKeys;
+        values = newValues;
+        used = size;
+
+        int slotCapacity = slotCapacityFor(keys.length);
+        if (slots.length != slotCapacity) {
+            slots = new int[slotCapacity];
+            mask = slotCapacity - 1;
+        } else {
+            for (int i = 0; i < slots.length; i++) {
+                slots[i] = 0;
+            }
+        }
+        for (int pos = 0; pos < used; pos++) {
+            insertSlot(keys[pos], pos);
+        }
+    }
+
+    private int positionOf(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (used != size) {
+            compact(keys.length);
+        }
+        return index;
+    }
+
+    // ===============================
+    // MAP OPERATIONS
+    // ===============================
+
+    /**
+     * Associates the value with the key
+     * @return the previous value for the key, or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        int slot = findSlot(key);
+        if (slot >= 0) {
+            int pos = slots[slot] - 1;
+            V oldValue = (V) values[pos];
+            values[pos] = value;
+            return oldValue;
+        }
+
+        if (used == keys.length) {
+            compact(size < keys.length / 2 ? keys.length : keys.length * 2);
+        }
+        int pos = used++;
+        keys[pos] = key;
+        values[pos] = value;
+        insertSlot(key, pos);
+        size++;
+        modCount++;
+        return null;
+    }
+
+    /**
+     * @return the value for the key, or null if the key is absent
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int slot = findSlot(key);
+        return slot < 0 ? null : (V) values[slots[slot] - 1];
+    }
+
+    public boolean containsKey(int key) {
+        return findSlot(key) >= 0;
+    }
+
+    /**
+     * Removes the key
+     * @return the value that was mapped to the key, or null if it was absent
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int slot = findSlot(key);
+        if (slot < 0) return null;
+
+        int pos = slots[slot] - 1;
+        V oldValue = (V) values[pos];
+        deleteSlot(slot);
+        values[pos] = HOLE;
+        size--;
+        modCount++;
+        while (used > 0 && values[used - 1] == HOLE) {
+            values[--used] = null;
+        }
+        return oldValue;
+    }
+
+    // ===============================
+    // LIST OPERATIONS
+    // ===============================
+
+    /**
+     * @return the key at the given position in insertion order
+     */
+    public int keyAt(int index) {
+        return keys[positionOf(index)];
+    }
+
+    /**
+     * @return the value at the given position in insertion order
+     */
+    @SuppressWarnings("unchecked")
+    public V valueAt(int index) {
+        return (V) values[positionOf(index)];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        for (int pos = 0; pos < used; pos++) {
+            values[pos] = null;
+        }
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = 0;
+        }
+        used = 0;
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * @return the keys in insertion order
+     */
+    public int[] keys() {
+        int[] result = new int[size];
+        int i = 0;
+        for (int pos = 0; pos < used; pos++) {
+            if (values[pos] != HOLE) {
+                result[i++] = keys[pos];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns an iterator over the values in insertion order
+     */
+    @Override
+    public Iterator<V> iterator() {
+        return new Iterator<V>() {
+            private int pos = skipHoles(0);
+            private final int expectedModCount = modCount;
+
+            private int skipHoles(int from) {
+                while (from < used && values[from] == HOLE) {
+                    from++;
+                }
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() {
+                checkForConcurrentModification();
+                return pos < used;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public V next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException("No more elements in iteration");
+                }
+                V value = (V) values[pos];
+                pos = skipHoles(pos + 1);
+                return value;
+            }
+
+            private void checkForConcurrentModification() {
+                if (expectedModCount != modCount) {
+                    throw new ConcurrentModificationException("Collection modified during iteration");
+                }
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        boolean first = true;
+        for (int pos = 0; pos < used; pos++) {
+            if (values[pos] == HOLE) continue;
+            if (!first) sb.append(", ");
+            sb.append(keys[pos]).append('=').append(values[pos]);
+            first = false;
+        }
+        return sb.append("]").toString();
+    }
+}
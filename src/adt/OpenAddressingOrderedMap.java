@@ -0,0 +1,766 @@
+package adt;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An alternative implementation of OrderedMapInterface backed by open addressing.
+ *
+ * Entries live in parallel key/value/hash arrays kept in insertion order, and a
+ * power-of-two slot table (linear probing) maps each key to its entry position.
+ * Compared with OrderedMap there is no Node object per entry, no modulo per lookup
+ * and probes walk a contiguous int array, so lookups are cheaper and each entry
+ * costs a few array cells instead of a six-field node.
+ *
+ * Removed entries leave a hole in the entry arrays; holes are skipped on iteration
+ * and compacted away on growth or before the next positional access.
+ *
+ * Keys must not be null.
+ *
+ * @param <K> the type of keys maintained by this ADT
+ * @param <V> the type of mapped values
+ */
+public class OpenAddressingOrderedMap<K, V> implements OrderedMapInterface<K, V>, Iterable<V>, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    // Entries in order; keys[i] == null marks a removed entry (hole)
+    private Object[] keys;
+    private Object[] values;
+    private transient int[] hashes;
+
+    // Slot table: entry position + 1, or 0 for an empty slot
+    private transient int[] slots;
+    private transient int mask;
+
+    private int first;  // position of the first live entry
+    private int used;   // positions [0, used) have been handed out
+    private int size;   // number of live entries
+
+    private transient int modCount;
+    private transient int layoutVersion; // bumped whenever entries change position
+
+    public OpenAddressingOrderedMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty map sized to hold the given number of entries without growing
+     * @param expectedSize the number of entries expected
+     */
+    public OpenAddressingOrderedMap(int expectedSize) {
+        int capacity = Math.max(expectedSize, DEFAULT_CAPACITY);
+        this.keys = new Object[capacity];
+        this.values = new Object[capacity];
+        this.hashes = new int[capacity];
+        this.slots = new int[slotCapacityFor(capacity)];
+        this.mask = slots.length - 1;
+    }
+
+    // ===============================
+    // CORE UTILITY METHODS
+    // ===============================
+
+    private static int spread(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Smallest power of two that keeps the slot table at most half full
+     */
+    private static int slotCapacityFor(int entries) {
+        int n = Integer.highestOneBit(Math.max(entries, 2) * 2 - 1) << 1;
+        return n < 0 ? 1 << 30 : n;
+    }
+
+    /**
+     * Returns the slot holding the given key, or -1 if the key is absent
+     */
+    private int findSlot(Object key, int hash) {
+        int slot = hash & mask;
+        int entry;
+        while ((entry = slots[slot]) != 0) {
+            int pos = entry - 1;
+            if (hashes[pos] == hash && key.equals(keys[pos])) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void insertSlot(int hash, int pos) {
+        int slot = hash & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = pos + 1;
+    }
+
+    /**
+     * Empties a slot using backward-shift deletion, so no tombstones are needed
+     */
+    private void deleteSlot(int slot) {
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (slots[next] != 0) {
+            int home = hashes[slots[next] - 1] & mask;
+            // Move the entry back if its home does not lie cyclically in (gap, next]
+            boolean movable = (next > gap) ? (home <= gap || home > next) : (home <= gap && home > next);
+            if (movable) {
+                slots[gap] = slots[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        slots[gap] = 0;
+    }
+
+    private void rebuildSlots(int slotCapacity) {
+        if (slots == null || slots.length != slotCapacity) {
+            slots = new int[slotCapacity];
+            mask = slotCapacity - 1;
+        } else {
+            for (int i = 0; i < slots.length; i++) {
+                slots[i] = 0;
+            }
+        }
+        for (int pos = first; pos < used; pos++) {
+            if (keys[pos] != null) {
+                insertSlot(hashes[pos], pos);
+            }
+        }
+    }
+
+    /**
+     * Moves all live entries to positions [0, size) and optionally grows the entry arrays
+     */
+    private void compact(int newCapacity) {
+        Object[] newKeys = keys;
+        Object[] newValues = values;
+        int[] newHashes = hashes;
+        if (newCapacity != keys.length) {
+            newKeys = new Object[newCapacity];
+            newValues = new Object[newCapacity];
+            newHashes = new int[newCapacity];
+        }
+
+        int target = 0;
+        for (int pos = first; pos < used; pos++) {
+            if (keys[pos] != null) {
+                newKeys[target] = keys[pos];
+                newValues[target] = values[pos];
+                newHashes[target] = hashes[pos];
+                target++;
+            }
+        }
+        for (int pos = target; pos < used && newKeys == keys; pos++) {
+            newKeys[pos] = null;
+            newValues[pos] = null;
+        }
+
+        keys = newKeys;
+        values = newValues;
+        hashes = newHashes;
+        first = 0;
+        used = size;
+        layoutVersion++;
+        rebuildSlots(slotCapacityFor(keys.length));
+    }
+
+    private boolean hasHoles() {
+        return used - first != size;
+    }
+
+    /**
+     * Makes room for one more entry at the end of the entry arrays
+     */
+    private void ensureTailRoom() {
+        if (used < keys.length) return;
+
+        // Reclaim holes in place if they make up a large share, otherwise grow
+        if (size < keys.length / 2) {
+            compact(keys.length);
+        } else {
+            compact(keys.length * 2);
+        }
+    }
+
+    /**
+     * Translates a list index to an entry position
+     */
+    private int positionOf(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (hasHoles()) {
+            compact(keys.length);
+        }
+        return first + index;
+    }
+
+    private void removePosition(int slot, int pos) {
+        deleteSlot(slot);
+        keys[pos] = null;
+        values[pos] = null;
+        size--;
+        modCount++;
+
+        // Keep first/used tight so queue and stack use never leaves holes behind
+        if (size == 0) {
+            first = 0;
+            used = 0;
+            return;
+        }
+        while (keys[first] == null) {
+            first++;
+        }
+        while (keys[used - 1] == null) {
+            used--;
+        }
+    }
+
+    // ===============================
+    // MAP OPERATIONS
+    // ===============================
+
+    /**
+     * Associates the specified value with the specified key
+     * @param key the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     * @return the previous value associated with key, or null if there was no mapping
+     * @throws IllegalArgumentException if key is null
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+
+        int hash = spread(key);
+        int slot = findSlot(key, hash);
+        if (slot >= 0) {
+            int pos = slots[slot] - 1;
+            V oldValue = (V) values[pos];
+            values[pos] = value;
+            return oldValue;
+        }
+
+        ensureTailRoom();
+        int pos = used++;
+        keys[pos] = key;
+        values[pos] = value;
+        hashes[pos] = hash;
+        insertSlot(hash, pos);
+        size++;
+        modCount++;
+        return null;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped
+     * @param key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or null if no mapping exists
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        if (key == null) return null;
+
+        int slot = findSlot(key, spread(key));
+        return slot < 0 ? null : (V) values[slots[slot] - 1];
+    }
+
+    /**
+     * Returns true if this map contains a mapping for the specified key
+     */
+    @Override
+    public boolean containsKey(K key) {
+        return key != null && findSlot(key, spread(key)) >= 0;
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present
+     * @param key key whose mapping is to be removed from the map
+     * @return the previous value associated with key, or null if there was no mapping
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(K key) {
+        if (key == null) return null;
+
+        int slot = findSlot(key, spread(key));
+        if (slot < 0) return null;
+
+        int pos = slots[slot] - 1;
+        V oldValue = (V) values[pos];
+        removePosition(slot, pos);
+        return oldValue;
+    }
+
+    // ===============================
+    // LIST OPERATIONS
+    // ===============================
+
+    /**
+     * Returns the element at the specified position in this list
+     * @param index index of the element to return
+     * @return the element at the specified position
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(int index) {
+        return (V) values[positionOf(index)];
+    }
+
+    /**
+     * Returns the key of the element at the specified position in this list
+     * @param index index of the element whose key is to be returned
+     * @return the key of the element at the specified position
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public K getKey(int index) {
+        return (K) keys[positionOf(index)];
+    }
+
+    /**
+     * Replaces the element at the specified position with the specified element
+     * @param index index of the element to replace
+     * @param value element to be stored at the specified position
+     * @return the element previously at the specified position
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V set(int index, V value) {
+        int pos = positionOf(index);
+        V oldValue = (V) values[pos];
+        values[pos] = value;
+        return oldValue;
+    }
+
+    /**
+     * Inserts the specified element at the specified position
+     * @param index index at which the specified element is to be inserted
+     * @param key the key for the element
+     * @param value element to be inserted
+     */
+    @Override
+    public void add(int index, K key, V value) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+        if (containsKey(key)) {
+            throw new IllegalArgumentException("Key already exists: " + key);
+        }
+
+        if (index == size) {
+            put(key, value);
+            return;
+        }
+
+        int hash = spread(key);
+
+        // Inserting at the front can reuse the space freed by earlier polls
+        if (index == 0 && first > 0) {
+            int pos = --first;
+            keys[pos] = key;
+            values[pos] = value;
+            hashes[pos] = hash;
+            insertSlot(hash, pos);
+            size++;
+            modCount++;
+            return;
+        }
+
+        if (hasHoles() || used == keys.length) {
+            compact(size + 1 > keys.length ? keys.length * 2 : keys.length);
+        }
+
+        // Shift the tail of the list one position to the right and re-point its slots
+        int pos = first + index;
+        System.arraycopy(keys, pos, keys, pos + 1, used - pos);
+        System.arraycopy(values, pos, values, pos + 1, used - pos);
+        System.arraycopy(hashes, pos, hashes, pos + 1, used - pos);
+        keys[pos] = key;
+        values[pos] = value;
+        hashes[pos] = hash;
+        used++;
+        size++;
+        modCount++;
+        rebuildSlots(slots.length);
+    }
+
+    /**
+     * Removes the element at the specified position
+     * @param index the index of the element to be removed
+     * @return the element that was removed from the list
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V removeAt(int index) {
+        return remove((K) keys[positionOf(index)]);
+    }
+
+    // ===============================
+    // QUEUE OPERATIONS (FIFO)
+    // ===============================
+
+    /**
+     * Inserts the specified element into this queue.
+     * @return true (as specified by the Queue interface)
+     */
+    @Override
+    public boolean offer(K key, V value) {
+        put(key, value);
+        return true;
+    }
+
+    /**
+     * Retrieves and removes the head of this queue, or returns null if empty
+     * @return the head of this queue, or null if this queue is empty
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V poll() {
+        if (isEmpty()) {
+            return null;
+        }
+        return remove((K) keys[first]);
+    }
+
+    /**
+     * Retrieves, but does not remove, the head of this queue, or returns null if empty
+     * @return the head of this queue, or null if this queue is empty
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V peek() {
+        return isEmpty() ? null : (V) values[first];
+    }
+
+    // ===============================
+    // STACK OPERATIONS (LIFO)
+    // ===============================
+
+    /**
+     * Pushes an element onto the top of this stack (at the tail)
+     * @param key the key for the element
+     * @param value the element to be pushed onto this stack
+     */
+    @Override
+    public void push(K key, V value) {
+        put(key, value);
+    }
+
+    /**
+     * Removes the object at the top of this stack and returns that object
+     * @return the object at the top of this stack
+     * @throws RuntimeException if this stack is empty
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V pop() {
+        if (isEmpty()) {
+            throw new RuntimeException("Stack is empty");
+        }
+        return remove((K) keys[used - 1]);
+    }
+
+    /**
+     * Looks at the object at the top of this stack without removing it
+     * @return the object at the top of this stack
+     * @throws RuntimeException if this stack is empty
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V top() {
+        if (isEmpty()) {
+            throw new RuntimeException("Stack is empty");
+        }
+        return (V) values[used - 1];
+    }
+
+    // ===============================
+    // UTILITY METHODS
+    // ===============================
+
+    /**
+     * Returns the number of elements in this collection
+     * @return the number of elements in this collection
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns true if this collection contains no elements
+     * @return true if this collection contains no elements
+     */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all elements from this collection
+     */
+    @Override
+    public void clear() {
+        this.keys = new Object[DEFAULT_CAPACITY];
+        this.values = new Object[DEFAULT_CAPACITY];
+        this.hashes = new int[DEFAULT_CAPACITY];
+        this.slots = new int[slotCapacityFor(DEFAULT_CAPACITY)];
+        this.mask = slots.length - 1;
+        this.first = 0;
+        this.used = 0;
+        this.size = 0;
+        this.modCount++;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V[] toArray(V[] array) {
+        if (array.length < size) {
+            array = (V[]) java.lang.reflect.Array.newInstance(array.getClass().getComponentType(), size);
+        }
+        int i = 0;
+        for (int pos = first; pos < used; pos++) {
+            if (keys[pos] != null) {
+                array[i++] = (V) values[pos];
+            }
+        }
+        return array;
+    }
+
+    /**
+     * Returns an iterator over the values in this collection in insertion order
+     * @return an Iterator over the values in this collection
+     */
+    @Override
+    public Iterator<V> iterator() {
+        return new OpenAddressingIterator();
+    }
+
+    private class OpenAddressingIterator implements Iterator<V> {
+        private int cursor = first;
+        private int lastReturned = -1;
+        private int passed;  // live entries already returned
+        private int expectedModCount = modCount;
+        private int expectedLayout = layoutVersion;
+
+        @Override
+        public boolean hasNext() {
+            checkForConcurrentModification();
+            if (expectedLayout != layoutVersion) {
+                // A positional read compacted the arrays; there are no holes any more
+                cursor = first + passed;
+                if (lastReturned >= 0) {
+                    lastReturned = cursor - 1;
+                }
+                expectedLayout = layoutVersion;
+            }
+            while (cursor < used && keys[cursor] == null) {
+                cursor++;
+            }
+            return cursor < used;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("No more elements in iteration");
+            }
+            lastReturned = cursor++;
+            passed++;
+            return (V) values[lastReturned];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void remove() {
+            checkForConcurrentModification();
+            if (lastReturned < 0) {
+                throw new IllegalStateException("No element to remove");
+            }
+            hasNext(); // re-sync positions if the layout moved
+            // Removal by key leaves a hole, so positions of later entries stay put
+            OpenAddressingOrderedMap.this.remove((K) keys[lastReturned]);
+            passed--;
+            expectedModCount = modCount;
+            lastReturned = -1;
+        }
+
+        private void checkForConcurrentModification() {
+            if (expectedModCount != modCount) {
+                throw new ConcurrentModificationException("Collection modified during iteration");
+            }
+        }
+    }
+
+    /**
+     * Sort the collection using a stable merge sort over entry positions
+     * @param comparator the comparator to determine the order of elements
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void sort(Comparator<V> comparator) {
+        if (size <= 1) return;
+        if (hasHoles() || first != 0) {
+            compact(keys.length);
+        }
+
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+
+        // Bottom-up merge sort with a single scratch buffer
+        int[] buffer = new int[size];
+        for (int width = 1; width < size; width *= 2) {
+            for (int left = 0; left < size - width; left += 2 * width) {
+                int mid = left + width;
+                int right = Math.min(left + 2 * width, size);
+                if (comparator.compare((V) values[order[mid - 1]], (V) values[order[mid]]) <= 0) {
+                    continue; // already in order
+                }
+                int i = left, j = mid, k = left;
+                while (i < mid && j < right) {
+                    if (comparator.compare((V) values[order[i]], (V) values[order[j]]) <= 0) {
+                        buffer[k++] = order[i++];
+                    } else {
+                        buffer[k++] = order[j++];
+                    }
+                }
+                while (i < mid) buffer[k++] = order[i++];
+                while (j < right) buffer[k++] = order[j++];
+                System.arraycopy(buffer, left, order, left, right - left);
+            }
+        }
+
+        Object[] sortedKeys = new Object[keys.length];
+        Object[] sortedValues = new Object[values.length];
+        int[] sortedHashes = new int[hashes.length];
+        for (int i = 0; i < size; i++) {
+            sortedKeys[i] = keys[order[i]];
+            sortedValues[i] = values[order[i]];
+            sortedHashes[i] = hashes[order[i]];
+        }
+        keys = sortedKeys;
+        values = sortedValues;
+        hashes = sortedHashes;
+        modCount++;
+        layoutVersion++;
+        rebuildSlots(slots.length);
+    }
+
+    /**
+     * Check if the collection is sorted according to the given comparator
+     * @param comparator the comparator to check ordering
+     * @return true if sorted, false otherwise
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean isSorted(Comparator<V> comparator) {
+        V previous = null;
+        boolean started = false;
+        for (int pos = first; pos < used; pos++) {
+            if (keys[pos] == null) continue;
+            V current = (V) values[pos];
+            if (started && comparator.compare(previous, current) > 0) {
+                return false;
+            }
+            previous = current;
+            started = true;
+        }
+        return true;
+    }
+
+    /**
+     * Filter elements based on a condition using a predicate-style comparator
+     * @param referenceValue the value to compare against
+     * @param condition a comparator that returns 0 for elements to keep
+     * @return a new OpenAddressingOrderedMap containing filtered elements
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public OpenAddressingOrderedMap<K, V> filter(V referenceValue, Comparator<V> condition) {
+        OpenAddressingOrderedMap<K, V> filtered = new OpenAddressingOrderedMap<>();
+        for (int pos = first; pos < used; pos++) {
+            if (keys[pos] != null && condition.compare((V) values[pos], referenceValue) == 0) {
+                filtered.put((K) keys[pos], (V) values[pos]);
+            }
+        }
+        return filtered;
+    }
+
+    /**
+     * Range search for elements within a specified range
+     * @param min the minimum value (inclusive)
+     * @param max the maximum value (inclusive)
+     * @param comparator the comparator for range checking
+     * @return a new OpenAddressingOrderedMap containing elements within the range
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public OpenAddressingOrderedMap<K, V> rangeSearch(V min, V max, Comparator<V> comparator) {
+        OpenAddressingOrderedMap<K, V> results = new OpenAddressingOrderedMap<>();
+        for (int pos = first; pos < used; pos++) {
+            if (keys[pos] == null) continue;
+            V value = (V) values[pos];
+            if (comparator.compare(value, min) >= 0 && comparator.compare(value, max) <= 0) {
+                results.put((K) keys[pos], value);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Returns a string representation of this collection
+     * @return a string representation of this collection
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        boolean firstValue = true;
+        for (int pos = first; pos < used; pos++) {
+            if (keys[pos] == null) continue;
+            if (!firstValue) {
+                sb.append(", ");
+            }
+            sb.append(values[pos]);
+            firstValue = false;
+        }
+        return sb.append("]").toString();
+    }
+
+    /**
+     * Recomputes the transient hash and slot tables after deserialization,
+     * since key hash codes are not guaranteed to be stable across runs
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        hashes = new int[keys.length];
+        for (int pos = first; pos < used; pos++) {
+            if (keys[pos] != null) {
+                hashes[pos] = spread(keys[pos]);
+            }
+        }
+        rebuildSlots(slotCapacityFor(keys.length));
+    }
+}
@@ -1,10 +1,22 @@
 package adt;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.Comparator;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * A versatile Abstract Data Type that combines the functionality of:
@@ -22,6 +34,14 @@ import java.util.NoSuchElementException;
 public class OrderedMap<K, V> implements OrderedMapInterface<K, V>, Iterable<V>, Serializable {
     private static final long serialVersionUID = 1L;
 
+    // Serialized form: the entry count, followed by the key/value pairs in order (see writeObject).
+    // "head" is declared only so that maps saved before this format (which wrote the linked
+    // nodes) can still be read; it is always written as null.
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("size", int.class),
+        new ObjectStreamField("head", Node.class)
+    };
+
     // Internal node structure for the doubly-linked list
     private static class Node<K, V> implements Serializable {
         private static final long serialVersionUID = 1L;
@@ -38,6 +58,12 @@ public class OrderedMap<K, V> implements OrderedMapInterface<K, V>, Iterable<V>,
         }
     }
 
+    // Generic arrays cannot be created directly; every Node array comes from here
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <K, V> Node<K, V>[] newNodeArray(int length) {
+        return (Node<K, V>[]) new Node[length];
+    }
+
     // Hash table for O(1) key-based lookups
     private Node<K, V>[] table;
     private static final int DEFAULT_CAPACITY = 16;
@@ -49,20 +75,135 @@ public class OrderedMap<K, V> implements OrderedMapInterface<K, V>, Iterable<V>,
     private Node<K, V> head;
     private Node<K, V> tail;
 
+    // Bumped by every change to the entries or their order, for fail-fast iteration
+    private transient int modCount;
+
+    // Positional index: nodes in list order starting at positionOffset, rebuilt lazily
+    // so that loops over get(i)/set(i) cost O(n) in total instead of O(n^2)
+    private transient Node<K, V>[] positionIndex;
+    private transient int positionOffset;
+    private transient boolean positionIndexValid;
+
+    // Named sorted secondary indexes (see addIndex); not serialized, owners re-attach them after loading
+    private transient SortedIndex<K, V>[] indexes;
+    private transient int indexCount;
+
+    // Operation counters, kept only when the JVM runs with -Dclinic.mapStats=true. The flag
+    // is a static final so the JIT drops the counting code entirely when it is off.
+    static final boolean STATS_ENABLED = Boolean.getBoolean("clinic.mapStats");
+    private transient Counters counters = STATS_ENABLED ? new Counters() : null;
+
+    private static final class Counters {
+        long lookups;
+        long hits;
+        long probes;
+        long puts;
+        long removes;
+        int resizes;
+        long resizeNanos;
+    }
+
     // Constructor
-    @SuppressWarnings("unchecked")
     public OrderedMap() {
         this.capacity = DEFAULT_CAPACITY;
-        this.table = new Node[capacity];
+        this.table = newNodeArray(capacity);
         this.size = 0;
         this.head = null;
         this.tail = null;
     }
 
+    /**
+     * Creates an empty map whose table already holds the given number of entries
+     * without resizing
+     * @param expectedSize the number of entries expected
+     */
+    public OrderedMap(int expectedSize) {
+        this.capacity = capacityFor(expectedSize);
+        this.table = newNodeArray(capacity);
+    }
+
+    /**
+     * Creates a shallow copy of another map, with the same keys in the same order.
+     * The table is sized once for the whole copy. Secondary indexes are not copied.
+     * @param other the map to copy
+     */
+    public OrderedMap(OrderedMap<? extends K, ? extends V> other) {
+        this(other.size);
+        for (Node<? extends K, ? extends V> n = other.head; n != null; n = n.next) {
+            put(n.key, n.value);
+        }
+    }
+
+    /**
+     * Collects entries and then builds an OrderedMap with its table allocated once, for
+     * loading a number of entries that is not known up front. put keeps the same
+     * semantics as OrderedMap.put: a repeated key keeps its first position and takes the
+     * last value.
+     */
+    public static final class Builder<K, V> {
+        private Object[] keys;
+        private Object[] values;
+        private int count;
+
+        public Builder() {
+            this(DEFAULT_CAPACITY);
+        }
+
+        public Builder(int expectedSize) {
+            int initial = Math.max(expectedSize, 1);
+            this.keys = new Object[initial];
+            this.values = new Object[initial];
+        }
+
+        public Builder<K, V> put(K key, V value) {
+            if (count == keys.length) {
+                int grown = count + (count >> 1) + 1;
+                Object[] newKeys = new Object[grown];
+                Object[] newValues = new Object[grown];
+                System.arraycopy(keys, 0, newKeys, 0, count);
+                System.arraycopy(values, 0, newValues, 0, count);
+                keys = newKeys;
+                values = newValues;
+            }
+            keys[count] = key;
+            values[count] = value;
+            count++;
+            return this;
+        }
+
+        /**
+         * @return the number of entries collected so far, counting repeated keys
+         */
+        public int size() {
+            return count;
+        }
+
+        /**
+         * @return a new map holding the collected entries; the builder can be reused afterwards
+         */
+        @SuppressWarnings("unchecked")
+        public OrderedMap<K, V> build() {
+            OrderedMap<K, V> map = new OrderedMap<>(count);
+            for (int i = 0; i < count; i++) {
+                map.put((K) keys[i], (V) values[i]);
+            }
+            return map;
+        }
+    }
+
     // ===============================
     // CORE UTILITY METHODS
     // ===============================
 
+    // Smallest table size that holds the given number of entries without resizing
+    private static int capacityFor(int expectedSize) {
+        int needed = DEFAULT_CAPACITY;
+        while (needed * LOAD_FACTOR < expectedSize && needed < (1 << 30)) {
+            needed *= 2;
+        }
+        return needed;
+    }
+
     private int hash(K key) {
         if (key == null) return 0;
 
@@ -71,10 +212,14 @@ public class OrderedMap<K, V> implements OrderedMapInterface<K, V>, Iterable<V>,
         return Math.abs(hash % capacity);
     }
 
-    @SuppressWarnings("unchecked")
     private void resize() {
-        capacity *= 2;
-        Node<K, V>[] newTable = new Node[capacity];
+        resizeTo(capacity * 2);
+    }
+
+    private void resizeTo(int newCapacity) {
+        long start = STATS_ENABLED ? System.nanoTime() : 0;
+        capacity = newCapacity;
+        Node<K, V>[] newTable = newNodeArray(capacity);
         table = newTable;
         
         
@@ -91,6 +236,11 @@ public class OrderedMap<K, V> implements OrderedMapInterface<K, V>, Iterable<V>,
 
             current = current.next;
         }
+
+        if (STATS_ENABLED) {
+            counters.resizes++;
+            counters.resizeNanos += System.nanoTime() - start;
+        }
     }
 
     // ===============================
@@ -105,6 +255,7 @@ public class OrderedMap<K, V> implements OrderedMapInterface<K, V>, Iterable<V>,
      */
     @Override
     public V put(K key, V value) {
+        if (STATS_ENABLED) counters.puts++;
         int index = hash(key);
         Node<K, V> current = table[index];
 
@@ -113,6 +264,7 @@ public class OrderedMap<K, V> implements OrderedMapInterface<K, V>, Iterable<V>,
             if (current.key == key || (current.key != null && current.key.equals(key))) {
                 V oldValue = current.value;
                 current.value = value;
+                updateIndexes(key, value);
                 return oldValue;
             }
             current = current.hashNext; // use hashNext for hash traversal
@@ -134,7 +286,10 @@ public class OrderedMap<K, V> implements OrderedMapInterface<K, V>, Iterable<V>,
             tail = newNode;
         }
 
+        appendToPositionIndex(newNode);
         size++;
+        modCount++;
+        updateIndexes(key, value);
 
         // Resize if necessary
         if (size > capacity * LOAD_FACTOR) {
@@ -144,6 +299,45 @@ public class OrderedMap<K, V> implements OrderedMapInterface<K, V>, Iterable<V>,
         return null;
     }
 
+    /**
+     * Grows the table, if needed, so that it holds the given number of entries without
+     * further resizing; one rehash instead of one per doubling
+     * @param expectedSize the total number of entries expected
+     */
+    public void ensureCapacity(int expectedSize) {
+        int needed = capacityFor(expectedSize);
+        if (needed > capacity) {
+            resizeTo(needed);
+        }
+    }
+
+    /**
+     * Puts every entry of another map, in its order, resizing the table at most once
+     * @param other the map whose entries are to be added
+     */
+    public void putAll(OrderedMap<? extends K, ? extends V> other) {
+        ensureCapacity(size + other.size);
+        for (Node<? extends K, ? extends V> n = other.head; n != null; n = n.next) {
+            put(n.key, n.value);
+        }
+    }
+
+    /**
+     * Puts keys[i] -&gt; values[i] for every i, resizing the table at most once
+     * @param keys the keys to add
+     * @param values the values, parallel to keys
+     * @throws IllegalArgumentException if the arrays differ in length
+     */
+    public void putAll(K[] keys, V[] values) {
+        if (keys.length != values.length) {
+            throw new IllegalArgumentException("Keys and values differ in length: " + keys.length + " vs " + values.length);
+        }
+        ensureCapacity(size + keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            put(keys[i], values[i]);
+        }
+    }
+
     /**
      * Returns the value to which the specified key is mapped
      * @param key the key whose associated value is to be returned
@@ -153,14 +347,18 @@ public class OrderedMap<K, V> implements OrderedMapInterface<K, V>, Iterable<V>,
     public V get(K key) {
         int index = hash(key);
         Node<K, V> current = table[index];
+        int probes = 0;
 
         // Traverse the hash chain
         while (current != null) {
+            probes++;
             if (current.key == key || (current.key != null && current.key.equals(key))) {
+                if (STATS_ENABLED) countLookup(probes, true);
                 return current.value;
             }
             current = current.hashNext;
         }
+        if (STATS_ENABLED) countLookup(probes, false);
         return null;
     }
 
@@ -173,16 +371,26 @@ public class OrderedMap<K, V> implements OrderedMapInterface<K, V>, Iterable<V>,
 
         int index = hash(key);
         Node<K, V> current = table[index];
+        int probes = 0;
 
         while (current != null) {
+            probes++;
             if (current.key != null && current.key.equals(key)) {
+                if (STATS_ENABLED) countLookup(probes, true);
                 return true; 
             }
             current = current.hashNext;
         }
+        if (STATS_ENABLED) countLookup(probes, false);
         return false;
     }
 
+    private void countLookup(int probes, boolean hit) {
+        counters.lookups++;
+        counters.probes += probes;
+        if (hit) counters.hits++;
+    }
+
     /**
      * Removes the mapping for the specified key from this map if present
      * @param key key whose mapping is to be removed from the map
@@ -204,9 +412,13 @@ public class OrderedMap<K, V> implements OrderedMapInterface<K, V>, Iterable<V>,
                 }
 
                 // Remove from linked list
+                removeFromPositionIndex(current);
                 removeFromList(current);
+                removeFromIndexes(current.key);
 
                 size--;
+                modCount++;
+                if (STATS_ENABLED) counters.removes++;
                 return current.value;
             }
             hashPrev = current;
@@ -231,11 +443,22 @@ public class OrderedMap<K, V> implements OrderedMapInterface<K, V>, Iterable<V>,
             throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
         }
 
-        Node<K, V> current = head;
-        for (int i = 0; i < index; i++) {
-            current = current.next;
+        return nodeAt(index).value;
+    }
+
+    /**
+     * Returns the key of the element at the specified position in this list
+     * @param index index of the element whose key is to be returned
+     * @return the key of the element at the specified position
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    @Override
+    public K getKey(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
         }
-        return current.value;
+
+        return nodeAt(index).key;
     }
 
     /**
@@ -250,12 +473,10 @@ public class OrderedMap<K, V> implements OrderedMapInterface<K, V>, Iterable<V>,
             throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
         }
 
-        Node<K, V> current = head;
-        for (int i = 0; i < index; i++) {
-            current = current.next;
-        }
+        Node<K, V> current = nodeAt(index);
         V oldValue = current.value;
         current.value = value;
+        updateIndexes(current.key, value);
         return oldValue;
     }
 
@@ -292,12 +513,11 @@ public class OrderedMap<K, V> implements OrderedMapInterface<K, V>, Iterable<V>,
             if (tail == null) {
                 tail = newNode;
             }
+            prependToPositionIndex(newNode);
         } else {
-            Node<K, V> current = head;
-            // Traverse to the node currently at the target index
-            for (int i = 0; i < index; i++) {
-                current = current.next;
-            }
+            // Locate the node currently at the target index
+            Node<K, V> current = nodeAt(index);
+            positionIndexValid = false;
 
             // Insert newNode before current
             newNode.next = current;
@@ -314,6 +534,8 @@ public class OrderedMap<K, V> implements OrderedMapInterface<K, V>, Iterable<V>,
         table[hashIndex] = newNode;
         
         size++;
+        modCount++;
+        updateIndexes(key, value);
 
         // Resize if necessary
         if (size > capacity * LOAD_FACTOR) {
@@ -332,12 +554,7 @@ public class OrderedMap<K, V> implements OrderedMapInterface<K, V>, Iterable<V>,
             throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
         }
 
-        Node<K, V> current = head;
-        for (int i = 0; i < index; i++) {
-            current = current.next;
-        }
-
-        return remove(current.key);
+        return remove(nodeAt(index).key);
     }
 
     // ===============================
@@ -423,6 +640,98 @@ public class OrderedMap<K, V> implements OrderedMapInterface<K, V>, Iterable<V>,
     // UTILITY METHODS
     // ===============================
 
+    /**
+     * Returns the node at the given position, using the positional index.
+     * The first and last positions are answered directly from head/tail.
+     */
+    private Node<K, V> nodeAt(int index) {
+        if (index == 0) return head;
+        if (index == size - 1) return tail;
+
+        if (!positionIndexValid) {
+            rebuildPositionIndex();
+        }
+        return positionIndex[positionOffset + index];
+    }
+
+    private void rebuildPositionIndex() {
+        if (positionIndex == null || positionIndex.length < size) {
+            positionIndex = newNodeArray(size + (size >> 1) + 1);
+        } else {
+            // Drop stale references so removed nodes can be collected
+            for (int i = 0; i < positionIndex.length; i++) {
+                positionIndex[i] = null;
+            }
+        }
+
+        Node<K, V> current = head;
+        int i = 0;
+        while (current != null) {
+            positionIndex[i++] = current;
+            current = current.next;
+        }
+        positionOffset = 0;
+        positionIndexValid = true;
+    }
+
+    /**
+     * Keeps the positional index in sync when a node is linked at the tail.
+     * Must be called before size is incremented.
+     */
+    private void appendToPositionIndex(Node<K, V> node) {
+        if (!positionIndexValid) return;
+
+        int end = positionOffset + size;
+        if (end == positionIndex.length) {
+            // Out of room at the back: compact to the front, growing if needed
+            Node<K, V>[] target = positionIndex;
+            if (size + 1 > positionIndex.length - (positionIndex.length >> 2)) {
+                target = newNodeArray(positionIndex.length + (positionIndex.length >> 1) + 1);
+            }
+            System.arraycopy(positionIndex, positionOffset, target, 0, size);
+            if (target == positionIndex) {
+                for (int i = size; i < target.length; i++) {
+                    target[i] = null;
+                }
+            }
+            positionIndex = target;
+            positionOffset = 0;
+            end = size;
+        }
+        positionIndex[end] = node;
+    }
+
+    /**
+     * Keeps the positional index in sync when a node is linked at the head.
+     * Must be called before size is incremented.
+     */
+    private void prependToPositionIndex(Node<K, V> node) {
+        if (!positionIndexValid) return;
+
+        if (positionOffset == 0) {
+            positionIndexValid = false;
+            return;
+        }
+        positionIndex[--positionOffset] = node;
+    }
+
+    /**
+     * Keeps the positional index in sync when a node is unlinked. Removing the
+     * head or tail (queue and stack operations) is O(1); any other removal
+     * marks the index for a lazy rebuild. Must be called before the node is unlinked.
+     */
+    private void removeFromPositionIndex(Node<K, V> node) {
+        if (!positionIndexValid) return;
+
+        if (node == head) {
+            positionIndex[positionOffset++] = null;
+        } else if (node == tail) {
+            positionIndex[positionOffset + size - 1] = null;
+        } else {
+            positionIndexValid = false;
+        }
+    }
+
     private void removeFromList(Node<K, V> node) {
         if (node.prev != null) {
             node.prev.next = node.next;
@@ -460,15 +769,20 @@ public class OrderedMap<K, V> implements OrderedMapInterface<K, V>, Iterable<V>,
     /**
      * Removes all elements from this collection
      */
-    @SuppressWarnings("unchecked")
     @Override
     public void clear() {
         // Clear the hash table
         this.capacity = DEFAULT_CAPACITY;
-        this.table = new Node[capacity];
+        this.table = newNodeArray(capacity);
         // Clear the linked list
         this.head = this.tail = null;
         this.size = 0;
+        this.modCount++;
+        this.positionIndex = null;
+        this.positionIndexValid = false;
+        for (int i = 0; i < indexCount; i++) {
+            indexes[i].clear();
+        }
     }
 
     @SuppressWarnings("unchecked")
@@ -499,12 +813,12 @@ public class OrderedMap<K, V> implements OrderedMapInterface<K, V>, Iterable<V>,
     private class OrderedMapIterator implements Iterator<V> {
         private Node<K, V> current;
         private Node<K, V> lastReturned;
-        private int expectedSize;
+        private int expectedModCount;
 
         public OrderedMapIterator() {
             this.current = head;
             this.lastReturned = null;
-            this.expectedSize = size; // Capture the expected size for fail-fast behavior
+            this.expectedModCount = modCount; // Capture the modification count for fail-fast behavior
         }
 
         /**
@@ -543,7 +857,7 @@ public class OrderedMap<K, V> implements OrderedMapInterface<K, V>, Iterable<V>,
 
             // Remove the last returned element
             OrderedMap.this.remove(lastReturned.key);
-            expectedSize = size; // Update expected size after removal
+            expectedModCount = modCount; // Accept our own removal
             lastReturned = null; 
         }
 
@@ -551,144 +865,433 @@ public class OrderedMap<K, V> implements OrderedMapInterface<K, V>, Iterable<V>,
          * Check if the collection has been modified during iteration
          */
         private void checkForConcurrentModification() {
-            if (expectedSize != size) {
+            if (expectedModCount != modCount) {
                 throw new ConcurrentModificationException("Collection modified during iteration");
             }
         }
     }
 
 
-    @SuppressWarnings("unchecked")
-    private Node<K,V>[] createNodeArray() {
-        Node<K, V>[] array = new Node[size];
-        Node<K, V> current = head;
-        int index = 0;
+    // ===============================
+    // STREAMS
+    // ===============================
 
-        while (current != null) {
-            array[index++] = current;
-            current = current.next;
+    /**
+     * Returns a sequential Stream over the values in list order. Pipelines such as
+     * {@code map.stream().filter(...).count()} are evaluated lazily, without building
+     * intermediate maps. The map must not be modified while the stream is in use.
+     * @return a sequential stream of the values
+     */
+    public Stream<V> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Returns a possibly parallel Stream over the values; the values are split by
+     * position, so the work divides evenly across threads
+     * @return a parallel stream of the values
+     */
+    public Stream<V> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    /**
+     * Returns a sized Spliterator over the values in list order, backed by the
+     * positional index so it splits in O(1)
+     */
+    @Override
+    public Spliterator<V> spliterator() {
+        if (!positionIndexValid) {
+            rebuildPositionIndex();
         }
-        return array;
+        return new ValueSpliterator(positionIndex, positionOffset, positionOffset + size);
     }
 
+    private class ValueSpliterator implements Spliterator<V> {
+        private final Node<K, V>[] nodes;
+        private int index;
+        private final int fence;
+        private final int expectedModCount;
+
+        ValueSpliterator(Node<K, V>[] nodes, int index, int fence) {
+            this.nodes = nodes;
+            this.index = index;
+            this.fence = fence;
+            this.expectedModCount = modCount;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super V> action) {
+            if (index >= fence) return false;
+            checkForConcurrentModification();
+            action.accept(nodes[index++].value);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super V> action) {
+            for (int i = index; i < fence; i++) {
+                checkForConcurrentModification();
+                action.accept(nodes[i].value);
+            }
+            index = fence;
+        }
+
+        @Override
+        public Spliterator<V> trySplit() {
+            int mid = (index + fence) >>> 1;
+            if (mid <= index) return null;
+            Spliterator<V> prefix = new ValueSpliterator(nodes, index, mid);
+            index = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+        }
+
+        private void checkForConcurrentModification() {
+            if (expectedModCount != modCount) {
+                throw new ConcurrentModificationException("Collection modified during iteration");
+            }
+        }
+    }
+
+    // ===============================
+    // SORTING
+    // ===============================
+
+    // Runs shorter than this are extended with binary insertion sort before merging
+    private static final int MIN_RUN = 32;
+    // Maps at least this large are sorted on the common fork/join pool
+    private static final int PARALLEL_SORT_THRESHOLD = 1 << 13;
+
+    // Merge scratch space, kept between sorts so repeated sorting does not allocate
+    private transient Object[] sortBuffer;
+
     /**
-     * Sort the collection using merge sort algorithm
+     * Sort the collection using a stable, adaptive merge sort.
+     * Ascending and strictly descending runs already present in the data are detected
+     * and merged, so an already (or reverse) sorted map costs a single pass. The nodes are
+     * sorted in the positional index array and merged through one reusable buffer;
+     * large maps are split across the common fork/join pool.
      * @param comparator the comparator to determine the order of elements
      */
     @Override
     public void sort(Comparator<V> comparator) {
         if (size <= 1) return;
 
-        Node<K, V>[] nodeArray = createNodeArray();
-        mergeSort(nodeArray, 0, size - 1, comparator);
-        rebuildLinkedList(nodeArray);
+        Node<K, V>[] nodes = prepareSort();
+        try {
+            sortRange(nodes, 0, size, (a, b) -> comparator.compare(a.value, b.value));
+        } finally {
+            clearSortBuffer();
+        }
+        rebuildLinkedList(nodes);
     }
 
-    private void mergeSort(Node<K, V>[] array, int left, int right, Comparator<V> comparator) {
-        if (left < right) {
-            int mid = left + (right - left) / 2;
+    /**
+     * Sorts by a key taken from each value, calling the extractor once per element
+     * instead of twice per comparison (decorate-sort-undecorate). Useful when the key
+     * needs a lookup, e.g. an appointment's patient name. The sort is stable and
+     * null keys sort first.
+     * @param sortKey extracts the sort key from a value
+     * @param keyOrder the order of the keys
+     */
+    public <C> void sortByKey(Function<? super V, ? extends C> sortKey, Comparator<? super C> keyOrder) {
+        if (size <= 1) return;
 
-            mergeSort(array, left, mid, comparator);
-            mergeSort(array, mid + 1, right, comparator);
-            merge(array, left, mid, right, comparator);
+        Node<K, V>[] nodes = prepareSort();
+        Keyed<C, K, V>[] keyed = newKeyedArray(size);
+        for (int i = 0; i < size; i++) {
+            keyed[i] = new Keyed<>(sortKey.apply(nodes[i].value), nodes[i]);
         }
-    }
-
-    @SuppressWarnings("unchecked")
-    private void merge(Node<K, V>[] array, int left, int mid, int right, Comparator<V> comparator) {
-        int leftSize = mid - left + 1;
-        int rightSize = right - mid;
 
-        Node <K, V>[] leftArray = new Node[leftSize];
-        Node <K, V>[] rightArray = new Node[rightSize];
+        Comparator<? super C> order = Comparator.nullsFirst(keyOrder);
+        try {
+            sortRange(keyed, 0, size, (a, b) -> order.compare(a.key, b.key));
+        } finally {
+            clearSortBuffer();
+        }
+        for (int i = 0; i < size; i++) {
+            nodes[i] = keyed[i].node;
+        }
+        rebuildLinkedList(nodes);
+    }
 
-        // Copy data to temporary arrays
-        arraycopy(array, left, leftArray, 0, leftSize);
-        arraycopy(array, mid + 1, rightArray, 0, rightSize);
+    /**
+     * Sorts by a key taken from each value, in the key's natural order
+     * @see #sortByKey(Function, Comparator)
+     */
+    public <C extends Comparable<? super C>> void sortByKey(Function<? super V, ? extends C> sortKey) {
+        sortByKey(sortKey, Comparator.<C>naturalOrder());
+    }
 
-        int i = 0, j = 0, k = left;
+    /**
+     * Sorts by a string key ignoring case, in the same order as {@link String#compareToIgnoreCase}.
+     * Each key is case-folded once up front rather than on every comparison.
+     * @param sortKey extracts the string to sort by from a value
+     * @param ascending false to sort in descending order (equal keys keep their relative order)
+     */
+    public void sortByKeyIgnoreCase(Function<? super V, String> sortKey, boolean ascending) {
+        Comparator<String> order = ascending ? Comparator.naturalOrder() : Comparator.reverseOrder();
+        sortByKey(value -> foldCase(sortKey.apply(value)), order);
+    }
 
-        // Merge back temporary arrays
-        while (i < leftSize && j < rightSize) {
-            if (comparator.compare(leftArray[i].value,  rightArray[j].value) <= 0) {
-                array[k] = leftArray[i];
-                i++;
-            } else {
-                array[k] = rightArray[j];
-                j++;
+    /**
+     * Folds each character the way String.CASE_INSENSITIVE_ORDER compares it, so that
+     * comparing folded strings with compareTo matches compareToIgnoreCase
+     */
+    private static String foldCase(String text) {
+        if (text == null) return null;
+
+        char[] folded = null;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            char f = Character.toLowerCase(Character.toUpperCase(c));
+            if (f != c) {
+                if (folded == null) folded = text.toCharArray();
+                folded[i] = f;
             }
-            k++;
         }
+        return folded == null ? text : new String(folded);
+    }
+
+    // A node paired with its precomputed sort key
+    private static final class Keyed<C, K, V> {
+        final C key;
+        final Node<K, V> node;
 
-        // Copy remaining elements
-        while (i < leftSize) {
-            array[k] = leftArray[i];
-            i++;
-            k++;
+        Keyed(C key, Node<K, V> node) {
+            this.key = key;
+            this.node = node;
         }
+    }
 
-        while (j < rightSize) {
-            array[k] = rightArray[j];
-            j++;
-            k++;
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <C, K, V> Keyed<C, K, V>[] newKeyedArray(int length) {
+        return (Keyed<C, K, V>[]) new Keyed[length];
+    }
+
+    /**
+     * Brings the positional index up to date at offset 0 and makes sure the scratch
+     * buffer can hold the whole map
+     * @return the positional index array, holding the nodes in positions [0, size)
+     */
+    private Node<K, V>[] prepareSort() {
+        if (!positionIndexValid || positionOffset != 0) {
+            rebuildPositionIndex();
         }
+        // The index is reordered in place; it only matches the list again once relinked
+        positionIndexValid = false;
+        if (sortBuffer == null || sortBuffer.length < size) {
+            sortBuffer = new Object[positionIndex.length];
+        }
+        return positionIndex;
     }
 
     /**
-     * Private method to copy elements from source array to destination array
-     * @param src the source array
-     * @param srcPos starting position in the source array
-     * @param dest the destination array
-     * @param destPos starting position in the destination data
-     * @param length the number of array elements to be copied
+     * Sorts items[0, count) with the same stable adaptive sort, for other maps in this
+     * package that keep their entries in an array
      */
-    private void arraycopy(Node<K, V>[] src, int srcPos, Node<K, V>[] dest, int destPos, int length) {
-        // Validate parameters
-        if (src == null || dest == null) {
-            throw new NullPointerException("Source or destination array is null");
+    static <T> void sortArray(T[] items, int count, Comparator<? super T> comparator) {
+        if (count <= 1) return;
+
+        Object[] buffer = new Object[count];
+        if (count >= PARALLEL_SORT_THRESHOLD && ForkJoinPool.getCommonPoolParallelism() > 1) {
+            ForkJoinPool.commonPool().invoke(new SortTask<>(items, buffer, 0, count, comparator));
+        } else {
+            adaptiveSort(items, buffer, 0, count, comparator);
         }
-        
-        if (srcPos < 0 || destPos < 0 || length < 0) {
-            throw new IndexOutOfBoundsException("Negative array index");
+    }
+
+    // Drop references so removed entries are not kept alive by the buffer
+    private void clearSortBuffer() {
+        for (int i = 0; i < size; i++) {
+            sortBuffer[i] = null;
         }
-        
-        if (srcPos + length > src.length) {
-            throw new IndexOutOfBoundsException("Source array index out of bounds");
+    }
+
+    private <T> void sortRange(T[] items, int from, int to, Comparator<? super T> comparator) {
+        if (to - from >= PARALLEL_SORT_THRESHOLD && ForkJoinPool.getCommonPoolParallelism() > 1) {
+            ForkJoinPool.commonPool().invoke(new SortTask<>(items, sortBuffer, from, to, comparator));
+        } else {
+            adaptiveSort(items, sortBuffer, from, to, comparator);
         }
-        
-        if (destPos + length > dest.length) {
-            throw new IndexOutOfBoundsException("Destination array index out of bounds");
+    }
+
+    /**
+     * Sorts the halves of a range in parallel, then merges them
+     */
+    private static class SortTask<T> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final T[] items;
+        private final Object[] buffer;
+        private final int from;
+        private final int to;
+        private final Comparator<? super T> comparator;
+
+        SortTask(T[] items, Object[] buffer, int from, int to, Comparator<? super T> comparator) {
+            this.items = items;
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            this.comparator = comparator;
         }
-        
-        // Copy elements one by one
-        for (int i = 0; i < length; i++) {
-            dest[destPos + i] = src[srcPos + i];
+
+        @Override
+        protected void compute() {
+            if (to - from < PARALLEL_SORT_THRESHOLD) {
+                adaptiveSort(items, buffer, from, to, comparator);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new SortTask<>(items, buffer, from, mid, comparator),
+                      new SortTask<>(items, buffer, mid, to, comparator));
+            merge(items, buffer, from, mid, to, comparator);
         }
     }
 
     /**
-     * Rebuild the linked list from sorted node array
-     * @param nodeArray the sorted array of nodes
+     * Natural merge sort of items[from, to): collects the existing runs, then merges
+     * neighbouring runs until one is left
      */
-    private void rebuildLinkedList(Node<K, V>[] nodeArray) {
-        if (nodeArray.length == 0) return;
+    private static <T> void adaptiveSort(T[] items, Object[] buffer, int from, int to,
+                                         Comparator<? super T> comparator) {
+        // Run boundaries: runStarts[i] is where run i begins, the last entry is "to"
+        int[] runStarts = new int[(to - from) / MIN_RUN + 2];
+        int runCount = 0;
+        int start = from;
+        while (start < to) {
+            int end = runEnd(items, start, to, comparator);
+            if (end - start < MIN_RUN) {
+                int forced = Math.min(to, start + MIN_RUN);
+                binaryInsertionSort(items, start, end, forced, comparator);
+                end = forced;
+            }
+            runStarts[runCount++] = start;
+            start = end;
+        }
+        runStarts[runCount] = to;
+
+        mergeRuns(items, buffer, runStarts, 0, runCount, comparator);
+    }
+
+    /**
+     * Merges runs [firstRun, lastRun) depth-first, so the ranges being merged are still in cache
+     */
+    private static <T> void mergeRuns(T[] items, Object[] buffer, int[] runStarts,
+                                      int firstRun, int lastRun, Comparator<? super T> comparator) {
+        if (lastRun - firstRun <= 1) return;
+
+        int midRun = (firstRun + lastRun) >>> 1;
+        mergeRuns(items, buffer, runStarts, firstRun, midRun, comparator);
+        mergeRuns(items, buffer, runStarts, midRun, lastRun, comparator);
+        merge(items, buffer, runStarts[firstRun], runStarts[midRun], runStarts[lastRun], comparator);
+    }
+
+    /**
+     * Returns the end of the run starting at start; a strictly descending run is
+     * reversed in place (strictness keeps the sort stable)
+     */
+    private static <T> int runEnd(T[] items, int start, int to, Comparator<? super T> comparator) {
+        int end = start + 1;
+        if (end == to) return end;
 
-        // Reset all next/previous pointers
-        for (Node<K, V> node : nodeArray) {
-            node.next = null;
-            node.prev = null;
+        if (comparator.compare(items[end], items[start]) < 0) {
+            while (end + 1 < to && comparator.compare(items[end + 1], items[end]) < 0) {
+                end++;
+            }
+            end++;
+            for (int i = start, j = end - 1; i < j; i++, j--) {
+                T tmp = items[i];
+                items[i] = items[j];
+                items[j] = tmp;
+            }
+        } else {
+            while (end + 1 < to && comparator.compare(items[end + 1], items[end]) >= 0) {
+                end++;
+            }
+            end++;
         }
+        return end;
+    }
 
-        // Rebuild the linked list
-        head = nodeArray[0];
-        tail = nodeArray[nodeArray.length - 1];
+    /**
+     * Extends the sorted prefix items[from, sorted) to cover items[from, to)
+     */
+    private static <T> void binaryInsertionSort(T[] items, int from, int sorted, int to,
+                                                Comparator<? super T> comparator) {
+        for (int i = sorted; i < to; i++) {
+            T pivot = items[i];
+            int low = from, high = i;
+            // Insert after equal elements to stay stable
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (comparator.compare(pivot, items[mid]) < 0) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            System.arraycopy(items, low, items, low + 1, i - low);
+            items[low] = pivot;
+        }
+    }
 
-        for (int i = 0; i < nodeArray.length; i++) {
-            if (i > 0) {
-                nodeArray[i].prev = nodeArray[i - 1];
-                nodeArray[i - 1].next = nodeArray[i];
+    /**
+     * Merges the sorted ranges items[from, mid) and items[mid, to), using buffer[from, mid)
+     * as scratch space so concurrent merges of disjoint ranges never overlap
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> void merge(T[] items, Object[] buffer, int from, int mid, int to,
+                                  Comparator<? super T> comparator) {
+        // Already in order: nothing to do
+        if (comparator.compare(items[mid - 1], items[mid]) <= 0) return;
+
+        System.arraycopy(items, from, buffer, from, mid - from);
+        int i = from, j = mid, k = from;
+        while (i < mid && j < to) {
+            T left = (T) buffer[i];
+            if (comparator.compare(left, items[j]) <= 0) {
+                items[k++] = left;
+                i++;
+            } else {
+                items[k++] = items[j++];
             }
         }
+        // Whatever is left of the right run is already in place
+        System.arraycopy(buffer, i, items, k, mid - i);
+    }
+
+    /**
+     * Relink the list in the order of the sorted positional index
+     * @param nodeArray the positional index, sorted in positions [0, size)
+     */
+    private void rebuildLinkedList(Node<K, V>[] nodeArray) {
+        head = nodeArray[0];
+        tail = nodeArray[size - 1];
+        head.prev = null;
+        tail.next = null;
+
+        for (int i = 1; i < size; i++) {
+            nodeArray[i].prev = nodeArray[i - 1];
+            nodeArray[i - 1].next = nodeArray[i];
+        }
+
+        modCount++;
+
+        // The sorted array is exactly the new positional index
+        positionIndex = nodeArray;
+        positionOffset = 0;
+        positionIndexValid = true;
     }
 
     /**
@@ -699,7 +1302,7 @@ public class OrderedMap<K, V> implements OrderedMapInterface<K, V>, Iterable<V>,
      */
     @Override
     public OrderedMap<K, V> filter(V referenceValue, Comparator<V> condition) {
-        OrderedMap<K, V> filtered = new OrderedMap<>();
+        Builder<K, V> filtered = new Builder<>();
         Node<K, V> current = head;
 
 
@@ -710,7 +1313,7 @@ public class OrderedMap<K, V> implements OrderedMapInterface<K, V>, Iterable<V>,
             }
             current = current.next;
         }
-        return filtered;
+        return filtered.build();
     }
 
     /**
@@ -722,7 +1325,7 @@ public class OrderedMap<K, V> implements OrderedMapInterface<K, V>, Iterable<V>,
      */
     @Override
     public OrderedMap<K, V> rangeSearch(V min, V max, Comparator<V> comparator) {
-        OrderedMap<K, V> results = new OrderedMap<>();
+        Builder<K, V> results = new Builder<>();
         Node<K, V> current = head;
 
         while (current != null) {
@@ -732,7 +1335,108 @@ public class OrderedMap<K, V> implements OrderedMapInterface<K, V>, Iterable<V>,
             }
             current = current.next;
         }
-        return results;
+        return results.build();
+    }
+
+    // ===============================
+    // SECONDARY INDEXES
+    // ===============================
+
+    /**
+     * Attaches a named index that keeps the entries ordered by a sort key taken from
+     * each value, e.g. {@code addIndex("date", Treatment::getTreatmentDate)}. The index
+     * is kept up to date by put/remove and answers {@link #rangeSearchByIndex} without
+     * scanning the map or changing its order. Values with a null sort key are not indexed.
+     * Indexes are not serialized; they must be attached again after a map is loaded.
+     * @param name name to query the index by; if an index of that name exists it is kept as is
+     * @param sortKey extracts the sort key from a value; the key must not change while the value is in the map
+     *                (call {@link #reindex} after changing it)
+     */
+    public void addIndex(String name, Function<? super V, ? extends Comparable<?>> sortKey) {
+        if (findIndex(name) != null) return;
+
+        SortedIndex<K, V> index = new SortedIndex<>(name, sortKey);
+        for (Node<K, V> current = head; current != null; current = current.next) {
+            index.put(current.key, current.value);
+        }
+        if (indexes == null) {
+            indexes = newIndexArray(2);
+        } else if (indexCount == indexes.length) {
+            SortedIndex<K, V>[] grown = newIndexArray(indexCount * 2);
+            System.arraycopy(indexes, 0, grown, 0, indexCount);
+            indexes = grown;
+        }
+        indexes[indexCount++] = index;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <K, V> SortedIndex<K, V>[] newIndexArray(int length) {
+        return (SortedIndex<K, V>[]) new SortedIndex[length];
+    }
+
+    /**
+     * @return true if an index with the given name is attached
+     */
+    public boolean hasIndex(String name) {
+        return findIndex(name) != null;
+    }
+
+    /**
+     * Detaches the named index, if present
+     */
+    public void removeIndex(String name) {
+        for (int i = 0; i < indexCount; i++) {
+            if (indexes[i].getName().equals(name)) {
+                System.arraycopy(indexes, i + 1, indexes, i, indexCount - i - 1);
+                indexes[--indexCount] = null;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Re-reads the sort keys of the value stored under the key, after the value was changed in place
+     */
+    public void reindex(K key) {
+        if (indexCount == 0 || !containsKey(key)) return;
+        updateIndexes(key, get(key));
+    }
+
+    /**
+     * Range search over a secondary index in O(log n + k)
+     * @param indexName name the index was attached under
+     * @param min the minimum sort key (inclusive), or null for no lower bound
+     * @param max the maximum sort key (inclusive), or null for no upper bound
+     * @return a new OrderedMap with the matching entries, in sort key order
+     * @throws IllegalArgumentException if no index with that name is attached
+     */
+    public <C extends Comparable<? super C>> OrderedMap<K, V> rangeSearchByIndex(String indexName, C min, C max) {
+        SortedIndex<K, V> index = findIndex(indexName);
+        if (index == null) {
+            throw new IllegalArgumentException("No index named " + indexName);
+        }
+        return index.range(min, max);
+    }
+
+    private SortedIndex<K, V> findIndex(String name) {
+        for (int i = 0; i < indexCount; i++) {
+            if (indexes[i].getName().equals(name)) {
+                return indexes[i];
+            }
+        }
+        return null;
+    }
+
+    private void updateIndexes(K key, V value) {
+        for (int i = 0; i < indexCount; i++) {
+            indexes[i].put(key, value);
+        }
+    }
+
+    private void removeFromIndexes(K key) {
+        for (int i = 0; i < indexCount; i++) {
+            indexes[i].remove(key);
+        }
     }
 
     /**
@@ -778,4 +1482,107 @@ public class OrderedMap<K, V> implements OrderedMapInterface<K, V>, Iterable<V>,
         sb.append("]");
         return sb.toString();
     }
-}
\ No newline at end of file
+
+    // ===============================
+    // INSTRUMENTATION
+    // ===============================
+
+    // Shallow sizes assuming a 64-bit JVM with compressed references
+    private static final int OBJECT_BYTES = 48;
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int REFERENCE_BYTES = 4;
+    private static final int NODE_BYTES = 32;
+
+    /**
+     * Reports the table's chain lengths, load and estimated footprint, plus the operation
+     * counters when -Dclinic.mapStats=true. Walks the whole table, so it is meant for
+     * diagnostics, not for hot paths.
+     * @return a snapshot of this map's hash table health
+     */
+    public OrderedMapStats stats() {
+        int usedBuckets = 0;
+        int maxChain = 0;
+        for (Node<K, V> bucket : table) {
+            int chain = 0;
+            for (Node<K, V> n = bucket; n != null; n = n.hashNext) {
+                chain++;
+            }
+            if (chain > 0) {
+                usedBuckets++;
+                maxChain = Math.max(maxChain, chain);
+            }
+        }
+
+        long bytes = OBJECT_BYTES
+                + ARRAY_HEADER_BYTES + (long) REFERENCE_BYTES * table.length
+                + (long) NODE_BYTES * size;
+        if (positionIndex != null) {
+            bytes += ARRAY_HEADER_BYTES + (long) REFERENCE_BYTES * positionIndex.length;
+        }
+        if (sortBuffer != null) {
+            bytes += ARRAY_HEADER_BYTES + (long) REFERENCE_BYTES * sortBuffer.length;
+        }
+
+        Counters c = STATS_ENABLED ? counters : new Counters();
+        return new OrderedMapStats(size, capacity, usedBuckets, maxChain, bytes, STATS_ENABLED,
+                c.lookups, c.hits, c.probes, c.puts, c.removes, c.resizes, c.resizeNanos);
+    }
+
+    // ===============================
+    // SERIALIZATION
+    // ===============================
+
+    /**
+     * Writes the entries as a flat sequence instead of the linked nodes, so the
+     * stream does not recurse once per node and large maps cannot overflow the stack
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("size", size);
+        fields.put("head", null);
+        out.writeFields();
+
+        Node<K, V> current = head;
+        while (current != null) {
+            out.writeObject(current.key);
+            out.writeObject(current.value);
+            current = current.next;
+        }
+    }
+
+    /**
+     * Rebuilds the hash table and list from the entries, with the table sized up front
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        int count = fields.get("size", 0);
+        this.counters = STATS_ENABLED ? new Counters() : null;
+        Node<K, V> legacyHead = (Node<K, V>) fields.get("head", null);
+
+        this.capacity = capacityFor(count);
+        this.table = newNodeArray(capacity);
+        this.size = 0;
+        this.head = null;
+        this.tail = null;
+
+        if (legacyHead != null) {
+            // Older files stored the linked nodes themselves; relink them into a fresh table
+            Node<K, V> current = legacyHead;
+            while (current != null) {
+                put(current.key, current.value);
+                current = current.next;
+            }
+            return;
+        }
+
+        if (count < 0) {
+            throw new InvalidObjectException("Negative size: " + count);
+        }
+        for (int i = 0; i < count; i++) {
+            K key = (K) in.readObject();
+            V value = (V) in.readObject();
+            put(key, value);
+        }
+    }
+}
@@ -15,7 +15,7 @@ import java.util.Comparator;
  * @param <K> the type of keys maintained by this ADT
  * @param <V> the type of mapped values
  */
-public interface OrderedMapInterface<K, V> {
+public interface OrderedMapInterface<K, V> extends OrderedMapView<K, V> {
 
     // ===============================
     // MAP OPERATIONS
@@ -32,23 +32,6 @@ public interface OrderedMapInterface<K, V> {
      */
     V put(K key, V value);
 
-    /**
-     * Returns the value to which the specified key is mapped,
-     * or null if this map contains no mapping for the key.
-     * 
-     * @param key the key whose associated value is to be returned
-     * @return the value to which the specified key is mapped, or null if no mapping exists
-     */
-    V get(K key);
-
-    /**
-     * Returns true if this map contains a mapping for the specified key.
-     * 
-     * @param key key whose presence in this map is to be tested
-     * @return true if this map contains a mapping for the specified key
-     */
-    boolean containsKey(K key);
-
     /**
      * Removes the mapping for the specified key from this map if present.
      * 
@@ -61,15 +44,6 @@ public interface OrderedMapInterface<K, V> {
     // LIST OPERATIONS
     // ===============================
 
-    /**
-     * Returns the element at the specified position in this list.
-     * 
-     * @param index index of the element to return
-     * @return the element at the specified position in this list
-     * @throws IndexOutOfBoundsException if the index is out of range (index < 0 || index >= size())
-     */
-    V get(int index);
-
     /**
      * Replaces the element at the specified position in this list with the specified element.
      * 
@@ -167,34 +141,12 @@ public interface OrderedMapInterface<K, V> {
     // COLLECTION OPERATIONS
     // ===============================
 
-    /**
-     * Returns the number of key-value mappings in this map.
-     * 
-     * @return the number of key-value mappings in this map
-     */
-    int size();
-
-    /**
-     * Returns true if this map contains no key-value mappings.
-     * 
-     * @return true if this map contains no key-value mappings
-     */
-    boolean isEmpty();
-
     /**
      * Removes all of the mappings from this map.
      * The map will be empty after this call returns.
      */
     void clear();
 
-    /**
-     * Returns an array containing all of the values in this collection in insertion order.
-     * 
-     * @return an array containing all of the values in this collection
-     */
-//    V[] toArray();
-    V[] toArray(V[] array);
-
     // ===============================
     // UTILITY OPERATIONS
     // ===============================
@@ -229,7 +181,6 @@ public interface OrderedMapInterface<K, V> {
     @Override
     int hashCode();
 
-
     /**
      * Sorts the elements in this collection according to the order induced by the specified comparator.
      *
@@ -237,13 +188,6 @@ public interface OrderedMapInterface<K, V> {
      */
     void sort(Comparator<V> comparator);
 
-    /**
-     * Check if the collection is sorted according to the given comparator
-     * @param comparator the comparator to check ordering
-     * @return true if sorted, false otherwise
-     */
-    boolean isSorted(Comparator<V> comparator);
-
     /**
      * Filters the elements in this collection based on the specified condition and reference value.
      *
@@ -0,0 +1,137 @@
+package adt;
+
+/**
+ * A point-in-time report on the health and footprint of one {@link OrderedMap}'s
+ * hash table, see {@link OrderedMap#stats()}.
+ *
+ * The chain lengths, load and size estimate are computed from the table when the
+ * report is taken. The operation and resize counters are only kept while the JVM
+ * runs with -Dclinic.mapStats=true; otherwise they read 0 and
+ * {@link #isCounting()} is false.
+ */
+public final class OrderedMapStats {
+
+    private final int size;
+    private final int capacity;
+    private final int usedBuckets;
+    private final int maxChain;
+    private final long estimatedBytes;
+
+    private final boolean counting;
+    private final long lookups;
+    private final long hits;
+    private final long probes;
+    private final long puts;
+    private final long removes;
+    private final int resizes;
+    private final long resizeNanos;
+
+    OrderedMapStats(int size, int capacity, int usedBuckets, int maxChain, long estimatedBytes,
+                    boolean counting, long lookups, long hits, long probes, long puts,
+                    long removes, int resizes, long resizeNanos) {
+        this.size = size;
+        this.capacity = capacity;
+        this.usedBuckets = usedBuckets;
+        this.maxChain = maxChain;
+        this.estimatedBytes = estimatedBytes;
+        this.counting = counting;
+        this.lookups = lookups;
+        this.hits = hits;
+        this.probes = probes;
+        this.puts = puts;
+        this.removes = removes;
+        this.resizes = resizes;
+        this.resizeNanos = resizeNanos;
+    }
+
+    public int getSize() { return size; }
+    public int getCapacity() { return capacity; }
+
+    /**
+     * @return entries per bucket
+     */
+    public double getLoadFactor() {
+        return capacity == 0 ? 0 : (double) size / capacity;
+    }
+
+    /**
+     * @return number of buckets holding at least one entry
+     */
+    public int getUsedBuckets() { return usedBuckets; }
+
+    /**
+     * @return the longest hash chain
+     */
+    public int getMaxChain() { return maxChain; }
+
+    /**
+     * @return average chain length over the non-empty buckets; 1.0 means no collisions
+     */
+    public double getAverageChain() {
+        return usedBuckets == 0 ? 0 : (double) size / usedBuckets;
+    }
+
+    /**
+     * @return estimated bytes held by the map itself (table, nodes, position index),
+     *         not counting the keys and values
+     */
+    public long getEstimatedBytes() { return estimatedBytes; }
+
+    /**
+     * @return whether the operation counters below are being kept
+     */
+    public boolean isCounting() { return counting; }
+
+    /**
+     * @return key lookups (get, containsKey) since the map was created or loaded
+     */
+    public long getLookups() { return lookups; }
+
+    /**
+     * @return lookups that found their key
+     */
+    public long getHits() { return hits; }
+
+    /**
+     * @return average chain nodes visited per lookup
+     */
+    public double getAverageProbes() {
+        return lookups == 0 ? 0 : (double) probes / lookups;
+    }
+
+    public long getPuts() { return puts; }
+    public long getRemoves() { return removes; }
+
+    /**
+     * @return number of times the table was rebuilt at a larger capacity
+     */
+    public int getResizes() { return resizes; }
+
+    /**
+     * @return total time spent rehashing, in milliseconds
+     */
+    public double getResizeMillis() {
+        return resizeNanos / 1_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("size=").append(size)
+          .append(" capacity=").append(capacity)
+          .append(String.format(" load=%.2f", getLoadFactor()))
+          .append(" maxChain=").append(maxChain)
+          .append(String.format(" avgChain=%.2f", getAverageChain()))
+          .append(" ~").append((estimatedBytes + 1023) / 1024).append("KB");
+        if (counting) {
+            sb.append(" lookups=").append(lookups)
+              .append(" hits=").append(hits)
+              .append(String.format(" avgProbes=%.2f", getAverageProbes()))
+              .append(" puts=").append(puts)
+              .append(" removes=").append(removes)
+              .append(" resizes=").append(resizes)
+              .append(String.format(" resizeTime=%.1fms", getResizeMillis()));
+        }
+        return sb.toString();
+    }
+}
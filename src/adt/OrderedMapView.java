@@ -0,0 +1,79 @@
+package adt;
+
+import java.util.Comparator;
+
+/**
+ * The read side of {@link OrderedMapInterface}: key lookup, positional access and
+ * size, without any operation that changes the collection.
+ *
+ * Query methods can return this type when callers only read the result, which lets
+ * them hand back a light array-backed {@link ResultList} instead of a full map.
+ *
+ * @param <K> the type of keys maintained by this ADT
+ * @param <V> the type of mapped values
+ */
+public interface OrderedMapView<K, V> extends Iterable<V> {
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or null if this map contains no mapping for the key.
+     * 
+     * @param key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or null if no mapping exists
+     */
+    V get(K key);
+
+    /**
+     * Returns true if this map contains a mapping for the specified key.
+     * 
+     * @param key key whose presence in this map is to be tested
+     * @return true if this map contains a mapping for the specified key
+     */
+    boolean containsKey(K key);
+
+    /**
+     * Returns the element at the specified position in this list.
+     * 
+     * @param index index of the element to return
+     * @return the element at the specified position in this list
+     * @throws IndexOutOfBoundsException if the index is out of range (index < 0 || index >= size())
+     */
+    V get(int index);
+
+    /**
+     * Returns the key of the element at the specified position in this list.
+     * 
+     * @param index index of the element whose key is to be returned
+     * @return the key of the element at the specified position in this list
+     * @throws IndexOutOfBoundsException if the index is out of range (index < 0 || index >= size())
+     */
+    K getKey(int index);
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     * 
+     * @return the number of key-value mappings in this map
+     */
+    int size();
+
+    /**
+     * Returns true if this map contains no key-value mappings.
+     * 
+     * @return true if this map contains no key-value mappings
+     */
+    boolean isEmpty();
+
+    /**
+     * Returns an array containing all of the values in this collection in insertion order.
+     * 
+     * @return an array containing all of the values in this collection
+     */
+    V[] toArray(V[] array);
+
+    /**
+     * Check if the collection is sorted according to the given comparator
+     * @param comparator the comparator to check ordering
+     * @return true if sorted, false otherwise
+     */
+    boolean isSorted(Comparator<V> comparator);
+}
@@ -0,0 +1,607 @@
+package adt;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * An immutable, insertion-ordered map whose updates return a new map and leave the
+ * old one untouched (a persistent map).
+ *
+ * Keys live in a hash array mapped trie (HAMT): a 32-way trie indexed by 5 bits of
+ * the key's hash per level, where each node stores only its occupied slots. The
+ * insertion order is kept in a second 32-way trie indexed by an insertion sequence
+ * number. put and remove copy just the O(log32 n) nodes on the path they change and
+ * share every other node with the previous version, so keeping an old version around
+ * (a snapshot) is O(1) and costs memory only for the paths changed since.
+ *
+ * Removed entries leave an empty cell in the order trie; the trie is rebuilt once
+ * the empty cells outnumber the entries. Each order trie node counts its entries, so
+ * positional access is also O(log32 n).
+ *
+ * Keys must not be null. Values are shared, not copied, between versions.
+ *
+ * @param <K> the type of keys maintained by this ADT
+ * @param <V> the type of mapped values
+ */
+public final class PersistentOrderedMap<K, V> implements OrderedMapView<K, V> {
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private static final PersistentOrderedMap<?, ?> EMPTY =
+            new PersistentOrderedMap<>(HashNode.EMPTY, null, 0, 0, 0);
+
+    private static final class Entry<K, V> {
+        final K key;
+        final V value;
+        final int hash;
+        final int seq;
+
+        Entry(K key, V value, int hash, int seq) {
+            this.key = key;
+            this.value = value;
+            this.hash = hash;
+            this.seq = seq;
+        }
+    }
+
+    // HAMT node: bit i of the bitmap is set when slot i is occupied; slots holds the
+    // occupied ones in order, each an Entry, a HashNode or a CollisionNode
+    private static final class HashNode {
+        static final HashNode EMPTY = new HashNode(0, new Object[0]);
+
+        final int bitmap;
+        final Object[] slots;
+
+        HashNode(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        int indexOf(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        HashNode withSlot(int index, Object slot) {
+            Object[] copy = slots.clone();
+            copy[index] = slot;
+            return new HashNode(bitmap, copy);
+        }
+
+        HashNode withInserted(int bit, int index, Object slot) {
+            Object[] copy = new Object[slots.length + 1];
+            System.arraycopy(slots, 0, copy, 0, index);
+            copy[index] = slot;
+            System.arraycopy(slots, index, copy, index + 1, slots.length - index);
+            return new HashNode(bitmap | bit, copy);
+        }
+
+        HashNode withRemoved(int bit, int index) {
+            Object[] copy = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, copy, 0, index);
+            System.arraycopy(slots, index + 1, copy, index, slots.length - index - 1);
+            return new HashNode(bitmap & ~bit, copy);
+        }
+    }
+
+    // Entries whose full 32-bit hashes are equal
+    private static final class CollisionNode {
+        final int hash;
+        final Entry<?, ?>[] entries;
+
+        CollisionNode(int hash, Entry<?, ?>[] entries) {
+            this.hash = hash;
+            this.entries = entries;
+        }
+    }
+
+    // Order trie node; slots hold child nodes or, at the bottom level, entries (null when removed)
+    private static final class OrderNode {
+        final Object[] slots;
+        final int count; // entries below this node
+
+        OrderNode(Object[] slots, int count) {
+            this.slots = slots;
+            this.count = count;
+        }
+    }
+
+    /**
+     * Receives the keys whose values differ between two versions; see {@link #diff}
+     */
+    public interface DiffVisitor<K, V> {
+        /**
+         * @param key the key that differs
+         * @param before its value in this map, or null if absent
+         * @param after its value in the other map, or null if absent
+         */
+        void changed(K key, V before, V after);
+    }
+
+    private final HashNode root;
+    private final OrderNode order;
+    private final int orderShift; // shift of the order trie's root level
+    private final int nextSeq;    // sequence numbers [0, nextSeq) have been handed out
+    private final int size;
+
+    private PersistentOrderedMap(HashNode root, OrderNode order, int orderShift, int nextSeq, int size) {
+        this.root = root;
+        this.order = order;
+        this.orderShift = orderShift;
+        this.nextSeq = nextSeq;
+        this.size = size;
+    }
+
+    /**
+     * @return the empty map
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentOrderedMap<K, V> empty() {
+        return (PersistentOrderedMap<K, V>) EMPTY;
+    }
+
+    /**
+     * Builds a persistent copy of the given map, keeping its order
+     * @param map the map to copy
+     * @return a map holding the same entries
+     */
+    public static <K, V> PersistentOrderedMap<K, V> copyOf(OrderedMapView<K, V> map) {
+        PersistentOrderedMap<K, V> result = empty();
+        for (int i = 0; i < map.size(); i++) {
+            result = result.put(map.getKey(i), map.get(i));
+        }
+        return result;
+    }
+
+    // ===============================
+    // CORE UTILITY METHODS
+    // ===============================
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int hashOf(Object slot) {
+        return (slot instanceof Entry) ? ((Entry<?, ?>) slot).hash : ((CollisionNode) slot).hash;
+    }
+
+    private static int bitFor(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    // Combines two slots with different keys that landed in the same slot at shift - BITS
+    private static Object merge(Object a, Object b, int shift) {
+        int hashA = hashOf(a);
+        int hashB = hashOf(b);
+        if (shift >= 32) {
+            // Only entries can reach here with equal full hashes; a collision node never
+            // shares a path this deep with something of a different hash
+            return new CollisionNode(hashA, new Entry<?, ?>[] { (Entry<?, ?>) a, (Entry<?, ?>) b });
+        }
+        int bitA = bitFor(hashA, shift);
+        int bitB = bitFor(hashB, shift);
+        if (bitA == bitB) {
+            return new HashNode(bitA, new Object[] { merge(a, b, shift + BITS) });
+        }
+        Object[] slots = (Integer.compareUnsigned(bitA, bitB) < 0) ? new Object[] { a, b } : new Object[] { b, a };
+        return new HashNode(bitA | bitB, slots);
+    }
+
+    // ===============================
+    // HAMT OPERATIONS
+    // ===============================
+
+    @SuppressWarnings("unchecked")
+    private Entry<K, V> findEntry(Object key) {
+        int h = hash(key);
+        HashNode node = root;
+        for (int shift = 0; ; shift += BITS) {
+            int bit = bitFor(h, shift);
+            if ((node.bitmap & bit) == 0) return null;
+            Object slot = node.slots[node.indexOf(bit)];
+            if (slot instanceof HashNode) {
+                node = (HashNode) slot;
+            } else if (slot instanceof Entry) {
+                Entry<K, V> e = (Entry<K, V>) slot;
+                return (e.hash == h && e.key.equals(key)) ? e : null;
+            } else {
+                CollisionNode c = (CollisionNode) slot;
+                if (c.hash != h) return null;
+                for (Entry<?, ?> e : c.entries) {
+                    if (e.key.equals(key)) return (Entry<K, V>) e;
+                }
+                return null;
+            }
+        }
+    }
+
+    // Returns the node with the entry added or replaced (an entry with the same key and seq)
+    private static Object insert(Object slot, Entry<?, ?> entry, int shift) {
+        if (slot instanceof HashNode) {
+            HashNode node = (HashNode) slot;
+            int bit = bitFor(entry.hash, shift);
+            int index = node.indexOf(bit);
+            if ((node.bitmap & bit) == 0) {
+                return node.withInserted(bit, index, entry);
+            }
+            return node.withSlot(index, insert(node.slots[index], entry, shift + BITS));
+        }
+        if (slot instanceof Entry) {
+            Entry<?, ?> existing = (Entry<?, ?>) slot;
+            if (existing.hash == entry.hash && existing.key.equals(entry.key)) {
+                return entry;
+            }
+            return merge(existing, entry, shift);
+        }
+        CollisionNode c = (CollisionNode) slot;
+        if (c.hash != entry.hash) {
+            return merge(c, entry, shift);
+        }
+        for (int i = 0; i < c.entries.length; i++) {
+            if (c.entries[i].key.equals(entry.key)) {
+                Entry<?, ?>[] copy = c.entries.clone();
+                copy[i] = entry;
+                return new CollisionNode(c.hash, copy);
+            }
+        }
+        Entry<?, ?>[] grown = new Entry<?, ?>[c.entries.length + 1];
+        System.arraycopy(c.entries, 0, grown, 0, c.entries.length);
+        grown[c.entries.length] = entry;
+        return new CollisionNode(c.hash, grown);
+    }
+
+    // Returns the node without the key: null when nothing is left, or a lone entry
+    // below the root so the parent can pull it up and keep the trie shallow
+    private static Object delete(Object slot, Object key, int h, int shift) {
+        if (slot instanceof Entry) {
+            return null;
+        }
+        if (slot instanceof CollisionNode) {
+            CollisionNode c = (CollisionNode) slot;
+            if (c.entries.length == 2) {
+                return c.entries[c.entries[0].key.equals(key) ? 1 : 0];
+            }
+            Entry<?, ?>[] shrunk = new Entry<?, ?>[c.entries.length - 1];
+            int j = 0;
+            for (Entry<?, ?> e : c.entries) {
+                if (!e.key.equals(key)) shrunk[j++] = e;
+            }
+            return new CollisionNode(c.hash, shrunk);
+        }
+
+        HashNode node = (HashNode) slot;
+        int bit = bitFor(h, shift);
+        int index = node.indexOf(bit);
+        Object child = delete(node.slots[index], key, h, shift + BITS);
+        HashNode result;
+        if (child == null) {
+            if (node.slots.length == 1 && shift > 0) return null;
+            result = node.withRemoved(bit, index);
+        } else {
+            result = node.withSlot(index, child);
+        }
+        if (shift > 0 && result.slots.length == 1 && !(result.slots[0] instanceof HashNode)) {
+            return result.slots[0];
+        }
+        return result;
+    }
+
+    // ===============================
+    // ORDER TRIE OPERATIONS
+    // ===============================
+
+    // Returns the order trie with cell seq set to entry (or cleared when entry is null)
+    private static OrderNode setOrder(OrderNode node, int shift, int seq, Entry<?, ?> entry) {
+        Object[] slots = (node == null) ? new Object[WIDTH] : node.slots.clone();
+        int count = (node == null) ? 0 : node.count;
+        int index = (seq >>> shift) & MASK;
+        if (shift == 0) {
+            count += (entry != null ? 1 : 0) - (slots[index] != null ? 1 : 0);
+            slots[index] = entry;
+        } else {
+            OrderNode child = (OrderNode) slots[index];
+            OrderNode updated = setOrder(child, shift - BITS, seq, entry);
+            count += updated.count - (child == null ? 0 : child.count);
+            slots[index] = updated;
+        }
+        return new OrderNode(slots, count);
+    }
+
+    // Returns the bottom-level node holding cell seq, or null if that part of the trie is absent
+    private OrderNode orderLeaf(int seq) {
+        OrderNode node = order;
+        for (int shift = orderShift; shift > 0 && node != null; shift -= BITS) {
+            node = (OrderNode) node.slots[(seq >>> shift) & MASK];
+        }
+        return node;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Entry<K, V> entryAt(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        OrderNode node = order;
+        for (int shift = orderShift; ; shift -= BITS) {
+            for (Object slot : node.slots) {
+                if (slot == null) continue;
+                int below = (shift == 0) ? 1 : ((OrderNode) slot).count;
+                if (index < below) {
+                    if (shift == 0) return (Entry<K, V>) slot;
+                    node = (OrderNode) slot;
+                    break;
+                }
+                index -= below;
+            }
+        }
+    }
+
+    // Re-inserts all entries with fresh sequence numbers, dropping the empty cells
+    private PersistentOrderedMap<K, V> compact() {
+        PersistentOrderedMap<K, V> result = empty();
+        for (Entry<K, V> e : entries()) {
+            result = result.put(e.key, e.value);
+        }
+        return result;
+    }
+
+    // ===============================
+    // MAP OPERATIONS
+    // ===============================
+
+    /**
+     * Returns a map with the key mapped to the value; a new key goes last in order
+     * and an existing key keeps its position. This map is not changed.
+     * @return the new version, or this map if the key already maps to the same value
+     */
+    public PersistentOrderedMap<K, V> put(K key, V value) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+        Entry<K, V> existing = findEntry(key);
+        if (existing != null) {
+            if (existing.value == value) return this;
+            Entry<K, V> entry = new Entry<>(existing.key, value, existing.hash, existing.seq);
+            HashNode newRoot = (HashNode) insert(root, entry, 0);
+            return new PersistentOrderedMap<>(newRoot, setOrder(order, orderShift, entry.seq, entry),
+                    orderShift, nextSeq, size);
+        }
+
+        if (nextSeq == Integer.MAX_VALUE) {
+            return compact().put(key, value);
+        }
+        Entry<K, V> entry = new Entry<>(key, value, hash(key), nextSeq);
+        HashNode newRoot = (HashNode) insert(root, entry, 0);
+
+        OrderNode newOrder = order;
+        int shift = orderShift;
+        if (newOrder == null) {
+            shift = 0;
+        } else if ((nextSeq >>> shift) >= WIDTH) {
+            // The trie is full: add a level above the current root
+            Object[] slots = new Object[WIDTH];
+            slots[0] = newOrder;
+            newOrder = new OrderNode(slots, newOrder.count);
+            shift += BITS;
+        }
+        newOrder = setOrder(newOrder, shift, nextSeq, entry);
+        return new PersistentOrderedMap<>(newRoot, newOrder, shift, nextSeq + 1, size + 1);
+    }
+
+    /**
+     * Returns a map without the key. This map is not changed.
+     * @return the new version, or this map if the key is absent
+     */
+    public PersistentOrderedMap<K, V> remove(K key) {
+        if (key == null) return this;
+        Entry<K, V> existing = findEntry(key);
+        if (existing == null) return this;
+        if (size == 1) return empty();
+
+        HashNode newRoot = (HashNode) delete(root, key, existing.hash, 0);
+        OrderNode newOrder = setOrder(order, orderShift, existing.seq, null);
+        PersistentOrderedMap<K, V> result =
+                new PersistentOrderedMap<>(newRoot, newOrder, orderShift, nextSeq, size - 1);
+        int holes = nextSeq - result.size;
+        return (holes > WIDTH && holes > result.size) ? result.compact() : result;
+    }
+
+    @Override
+    public V get(K key) {
+        if (key == null) return null;
+        Entry<K, V> e = findEntry(key);
+        return e == null ? null : e.value;
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return key != null && findEntry(key) != null;
+    }
+
+    @Override
+    public V get(int index) {
+        return entryAt(index).value;
+    }
+
+    @Override
+    public K getKey(int index) {
+        return entryAt(index).key;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Reports every key whose value differs between this map and the other one,
+     * comparing values by identity. Subtries the two versions share are skipped, so
+     * comparing a snapshot with a version derived from it costs time in proportion to
+     * the changes between them rather than the size of the map.
+     * @param other the map to compare against
+     * @param visitor receives each differing key with its value here and there
+     */
+    public void diff(PersistentOrderedMap<K, V> other, DiffVisitor<K, V> visitor) {
+        diffSlots(root, other.root, other, visitor, 0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void diffSlots(Object a, Object b, PersistentOrderedMap<K, V> other, DiffVisitor<K, V> visitor, int shift) {
+        if (a == b) return;
+        if (a instanceof HashNode && b instanceof HashNode) {
+            HashNode na = (HashNode) a;
+            HashNode nb = (HashNode) b;
+            int bits = na.bitmap | nb.bitmap;
+            while (bits != 0) {
+                int bit = Integer.lowestOneBit(bits);
+                bits &= ~bit;
+                Object sa = (na.bitmap & bit) != 0 ? na.slots[na.indexOf(bit)] : null;
+                Object sb = (nb.bitmap & bit) != 0 ? nb.slots[nb.indexOf(bit)] : null;
+                diffSlots(sa, sb, other, visitor, shift + BITS);
+            }
+            return;
+        }
+        // The shapes differ, so fall back to looking the entries up on the other side
+        if (a != null) {
+            forEachEntry(a, e -> {
+                Entry<K, V> match = other.findEntry(e.key);
+                if (match == null || match.value != e.value) {
+                    visitor.changed((K) e.key, (V) e.value, match == null ? null : match.value);
+                }
+            });
+        }
+        if (b != null) {
+            forEachEntry(b, e -> {
+                if (findEntry(e.key) == null) {
+                    visitor.changed((K) e.key, null, (V) e.value);
+                }
+            });
+        }
+    }
+
+    private static void forEachEntry(Object slot, Consumer<Entry<?, ?>> action) {
+        if (slot instanceof Entry) {
+            action.accept((Entry<?, ?>) slot);
+        } else if (slot instanceof CollisionNode) {
+            for (Entry<?, ?> e : ((CollisionNode) slot).entries) {
+                action.accept(e);
+            }
+        } else {
+            for (Object child : ((HashNode) slot).slots) {
+                forEachEntry(child, action);
+            }
+        }
+    }
+
+    // ===============================
+    // LIST OPERATIONS
+    // ===============================
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V[] toArray(V[] array) {
+        if (array.length < size) {
+            array = (V[]) java.lang.reflect.Array.newInstance(array.getClass().getComponentType(), size);
+        }
+        int i = 0;
+        for (V value : this) {
+            array[i++] = value;
+        }
+        return array;
+    }
+
+    @Override
+    public boolean isSorted(Comparator<V> comparator) {
+        V previous = null;
+        boolean first = true;
+        for (V value : this) {
+            if (!first && comparator.compare(previous, value) > 0) {
+                return false;
+            }
+            previous = value;
+            first = false;
+        }
+        return true;
+    }
+
+    private Iterable<Entry<K, V>> entries() {
+        return () -> new Iterator<Entry<K, V>>() {
+            private int seq = -1;
+            private OrderNode leaf;
+            private Entry<K, V> next = advance();
+
+            @SuppressWarnings("unchecked")
+            private Entry<K, V> advance() {
+                while (++seq < nextSeq) {
+                    if ((seq & MASK) == 0 || leaf == null) {
+                        leaf = orderLeaf(seq);
+                        if (leaf == null || leaf.count == 0) {
+                            seq |= MASK; // skip the whole empty leaf
+                            leaf = null;
+                            continue;
+                        }
+                    }
+                    Object slot = leaf.slots[seq & MASK];
+                    if (slot != null) return (Entry<K, V>) slot;
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Entry<K, V> next() {
+                if (next == null) {
+                    throw new NoSuchElementException("No more elements in iteration");
+                }
+                Entry<K, V> current = next;
+                next = advance();
+                return current;
+            }
+        };
+    }
+
+    /**
+     * Returns an iterator over the values in insertion order. The map never changes,
+     * so the iterator needs no concurrent-modification check.
+     */
+    @Override
+    public Iterator<V> iterator() {
+        Iterator<Entry<K, V>> it = entries().iterator();
+        return new Iterator<V>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public V next() {
+                return it.next().value;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        boolean first = true;
+        for (Entry<K, V> e : entries()) {
+            if (!first) sb.append(", ");
+            sb.append(e.key).append('=').append(e.value);
+            first = false;
+        }
+        return sb.append("]").toString();
+    }
+}
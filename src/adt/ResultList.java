@@ -0,0 +1,169 @@
+package adt;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A light, array-backed list for query results, readable through {@link OrderedMapView}.
+ *
+ * The key of each element is its position (0, 1, 2, ...), matching the running
+ * counter query methods used as keys, but no keys are stored and no hash table is
+ * built: a result costs one array. get(K) with an Integer key is the same as get(int).
+ *
+ * Elements are only appended; {@link #sort} reorders them in place.
+ *
+ * @param <V> the type of elements
+ */
+public class ResultList<V> implements OrderedMapView<Integer, V> {
+
+    private static final Object[] EMPTY = new Object[0];
+
+    private Object[] items;
+    private int size;
+
+    public ResultList() {
+        this.items = EMPTY;
+    }
+
+    /**
+     * Creates an empty list with room for the given number of elements
+     */
+    public ResultList(int expectedSize) {
+        this.items = expectedSize > 0 ? new Object[expectedSize] : EMPTY;
+    }
+
+    /**
+     * Wraps an array without copying it; the list takes ownership of the array
+     * @param array the elements, in order
+     * @return a list holding the array's elements
+     */
+    public static <V> ResultList<V> of(V[] array) {
+        ResultList<V> list = new ResultList<>();
+        list.items = array;
+        list.size = array.length;
+        return list;
+    }
+
+    /**
+     * Appends an element; its key is the previous size
+     */
+    public void add(V value) {
+        if (size == items.length) {
+            Object[] grown = new Object[Math.max(8, size + (size >> 1))];
+            System.arraycopy(items, 0, grown, 0, size);
+            items = grown;
+        }
+        items[size++] = value;
+    }
+
+    /**
+     * Returns the element stored under the given position key, or null if out of range
+     */
+    @Override
+    public V get(Integer key) {
+        return containsKey(key) ? get(key.intValue()) : null;
+    }
+
+    @Override
+    public boolean containsKey(Integer key) {
+        return key != null && key >= 0 && key < size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return (V) items[index];
+    }
+
+    @Override
+    public Integer getKey(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return index;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V[] toArray(V[] array) {
+        if (array.length < size) {
+            array = (V[]) java.lang.reflect.Array.newInstance(array.getClass().getComponentType(), size);
+        }
+        System.arraycopy(items, 0, array, 0, size);
+        return array;
+    }
+
+    /**
+     * Sorts the elements in place with a stable merge sort
+     */
+    @SuppressWarnings("unchecked")
+    public void sort(Comparator<? super V> comparator) {
+        OrderedMap.sortArray((V[]) items, size, comparator);
+    }
+
+    /**
+     * @return a copy of this list that can be sorted or appended to independently
+     */
+    public ResultList<V> copy() {
+        ResultList<V> copy = new ResultList<>(size);
+        System.arraycopy(items, 0, copy.items, 0, size);
+        copy.size = size;
+        return copy;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean isSorted(Comparator<V> comparator) {
+        for (int i = 1; i < size; i++) {
+            if (comparator.compare((V) items[i - 1], (V) items[i]) > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Iterator<V> iterator() {
+        return new Iterator<V>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public V next() {
+                if (next >= size) {
+                    throw new NoSuchElementException("No more elements in iteration");
+                }
+                return (V) items[next++];
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(items[i]);
+        }
+        return sb.append("]").toString();
+    }
+}
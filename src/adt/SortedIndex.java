@@ -0,0 +1,176 @@
+package adt;
+
+import java.util.function.Function;
+
+/**
+ * A named secondary index over the entries of an {@link OrderedMap}, ordered by a
+ * sort key taken from each value (for example a date).
+ *
+ * The entries are kept in a skip list, so adding or removing an entry and finding
+ * the start of a range cost O(log n); a range query then visits only the k entries
+ * it returns. Entries with equal sort keys stay in the order they were indexed.
+ * Values whose sort key is null are not indexed.
+ *
+ * Instances are created and kept up to date by the owning map; see
+ * {@link OrderedMap#addIndex}.
+ *
+ * @param <K> the type of keys of the owning map
+ * @param <V> the type of values of the owning map
+ */
+class SortedIndex<K, V> {
+
+    private static final int MAX_LEVEL = 16;
+
+    private static class Node<K, V> {
+        final Comparable<Object> sortKey;
+        final long sequence;
+        final K key;
+        final V value;
+        final Node<K, V>[] next;
+
+        Node(Comparable<Object> sortKey, long sequence, K key, V value, int level) {
+            this.sortKey = sortKey;
+            this.sequence = sequence;
+            this.key = key;
+            this.value = value;
+            this.next = newNodeArray(level);
+        }
+    }
+
+    // Generic arrays cannot be created directly; every Node array comes from here
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <K, V> Node<K, V>[] newNodeArray(int length) {
+        return (Node<K, V>[]) new Node[length];
+    }
+
+    private final String name;
+    private final Function<? super V, ? extends Comparable<?>> extractor;
+    private final Node<K, V> head = new Node<>(null, 0, null, null, MAX_LEVEL);
+    private final OrderedMap<K, Node<K, V>> nodesByKey = new OrderedMap<>();
+    private final Node<K, V>[] update = newNodeArray(MAX_LEVEL);
+    private int level = 1;
+    private long nextSequence;
+    private int randomSeed = 0x2545F491;
+
+    SortedIndex(String name, Function<? super V, ? extends Comparable<?>> extractor) {
+        this.name = name;
+        this.extractor = extractor;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    int size() {
+        return nodesByKey.size();
+    }
+
+    /**
+     * Indexes a new entry, or re-indexes an existing key under its (possibly changed) value
+     */
+    @SuppressWarnings("unchecked")
+    void put(K key, V value) {
+        remove(key);
+
+        Comparable<Object> sortKey = value == null ? null : (Comparable<Object>) extractor.apply(value);
+        if (sortKey == null) return;
+
+        long sequence = nextSequence++;
+        Node<K, V> x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && compare(x.next[i], sortKey, sequence) < 0) {
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+
+        int nodeLevel = randomLevel();
+        if (nodeLevel > level) {
+            for (int i = level; i < nodeLevel; i++) {
+                update[i] = head;
+            }
+            level = nodeLevel;
+        }
+
+        Node<K, V> node = new Node<>(sortKey, sequence, key, value, nodeLevel);
+        for (int i = 0; i < nodeLevel; i++) {
+            node.next[i] = update[i].next[i];
+            update[i].next[i] = node;
+        }
+        nodesByKey.put(key, node);
+    }
+
+    /**
+     * Drops the entry for the key, if it is indexed
+     */
+    void remove(K key) {
+        Node<K, V> node = nodesByKey.remove(key);
+        if (node == null) return;
+
+        Node<K, V> x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && compare(x.next[i], node.sortKey, node.sequence) < 0) {
+                x = x.next[i];
+            }
+            if (x.next[i] == node) {
+                x.next[i] = node.next[i];
+            }
+        }
+        while (level > 1 && head.next[level - 1] == null) {
+            level--;
+        }
+    }
+
+    void clear() {
+        for (int i = 0; i < MAX_LEVEL; i++) {
+            head.next[i] = null;
+        }
+        nodesByKey.clear();
+        level = 1;
+    }
+
+    /**
+     * Collects the entries whose sort key lies between min and max (both inclusive),
+     * in sort key order. A null bound leaves that end of the range open.
+     */
+    @SuppressWarnings("unchecked")
+    OrderedMap<K, V> range(Comparable<?> min, Comparable<?> max) {
+        Comparable<Object> low = (Comparable<Object>) min;
+        Node<K, V> x = head;
+        if (low != null) {
+            for (int i = level - 1; i >= 0; i--) {
+                while (x.next[i] != null && x.next[i].sortKey.compareTo(low) < 0) {
+                    x = x.next[i];
+                }
+            }
+        }
+
+        OrderedMap.Builder<K, V> results = new OrderedMap.Builder<>();
+        for (Node<K, V> node = x.next[0]; node != null; node = node.next[0]) {
+            if (max != null && node.sortKey.compareTo(max) > 0) break;
+            results.put(node.key, node.value);
+        }
+        return results.build();
+    }
+
+    private static int compare(Node<?, ?> node, Comparable<Object> sortKey, long sequence) {
+        int cmp = node.sortKey.compareTo(sortKey);
+        return cmp != 0 ? cmp : Long.compare(node.sequence, sequence);
+    }
+
+    // A node reaches each further level with probability 1/4 (xorshift; quality is not important here)
+    private int randomLevel() {
+        int x = randomSeed;
+        x ^= x << 13;
+        x ^= x >>> 17;
+        x ^= x << 5;
+        randomSeed = x;
+
+        int nodeLevel = 1;
+        while ((x & 3) == 0 && nodeLevel < MAX_LEVEL) {
+            nodeLevel++;
+            x >>>= 2;
+        }
+        return nodeLevel;
+    }
+}
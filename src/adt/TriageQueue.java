@@ -0,0 +1,583 @@
+package adt;
+
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A multi-level priority queue for triage: every entry has a key, a level
+ * (0 = most urgent) and an arrival time, and the queue serves the entry with the
+ * smallest effective time, arrival + level * agingMillis.
+ *
+ * The aging term means an entry at a less urgent level is overtaken only by entries
+ * that arrive less than agingMillis * (level difference) after it, so a long wait
+ * eventually puts it first and no level starves. With agingMillis &lt;= 0 the levels
+ * are strict: a level is only served when all more urgent levels are empty. Entries
+ * with the same effective time keep their arrival order (more urgent level first).
+ *
+ * Each level is an indexable skip list ordered by (arrival, sequence), so offer,
+ * poll and remove cost O(log n), and a key lookup goes through a hash map in O(1).
+ * The position of a key in the service order is counted from the skip list link
+ * widths in O(levels * log n). {@link #levelView} hands out a level without copying it.
+ *
+ * Keys must not be null.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of queued values
+ */
+public class TriageQueue<K, V> implements Iterable<V> {
+
+    private static final int MAX_HEIGHT = 16;
+
+    private static final class Node<K, V> {
+        final K key;
+        V value;
+        final int level;
+        final long arrival;
+        final long sequence;
+        final Node<K, V>[] next;
+        final int[] span; // number of bottom-level steps covered by next[i]
+
+        Node(K key, V value, int level, long arrival, long sequence, int height) {
+            this.key = key;
+            this.value = value;
+            this.level = level;
+            this.arrival = arrival;
+            this.sequence = sequence;
+            this.next = newNodeArray(height);
+            this.span = new int[height];
+        }
+
+        boolean before(long otherArrival, long otherSequence) {
+            return arrival < otherArrival || (arrival == otherArrival && sequence < otherSequence);
+        }
+    }
+
+    // Generic arrays cannot be created directly; every Node array comes from here
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <K, V> Node<K, V>[] newNodeArray(int length) {
+        return (Node<K, V>[]) new Node[length];
+    }
+
+    // One triage level: an indexable skip list of its entries in (arrival, sequence) order
+    private static final class Level<K, V> {
+        final Node<K, V> head = new Node<>(null, null, -1, 0, 0, MAX_HEIGHT);
+        final Node<K, V>[] update = newNodeArray(MAX_HEIGHT);
+        final int[] rank = new int[MAX_HEIGHT];
+        int height = 1;
+        int size;
+
+        void insert(Node<K, V> node) {
+            Node<K, V> x = head;
+            for (int i = height - 1; i >= 0; i--) {
+                rank[i] = (i == height - 1) ? 0 : rank[i + 1];
+                while (x.next[i] != null && x.next[i].before(node.arrival, node.sequence)) {
+                    rank[i] += x.span[i];
+                    x = x.next[i];
+                }
+                update[i] = x;
+            }
+
+            int nodeHeight = node.next.length;
+            if (nodeHeight > height) {
+                for (int i = height; i < nodeHeight; i++) {
+                    rank[i] = 0;
+                    update[i] = head;
+                    head.span[i] = size;
+                }
+                height = nodeHeight;
+            }
+
+            for (int i = 0; i < nodeHeight; i++) {
+                node.next[i] = update[i].next[i];
+                update[i].next[i] = node;
+                node.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+                update[i].span[i] = (rank[0] - rank[i]) + 1;
+            }
+            for (int i = nodeHeight; i < height; i++) {
+                update[i].span[i]++;
+            }
+            size++;
+        }
+
+        void delete(Node<K, V> node) {
+            Node<K, V> x = head;
+            for (int i = height - 1; i >= 0; i--) {
+                while (x.next[i] != null && x.next[i].before(node.arrival, node.sequence)) {
+                    x = x.next[i];
+                }
+                update[i] = x;
+            }
+            for (int i = 0; i < height; i++) {
+                if (update[i].next[i] == node) {
+                    update[i].span[i] += node.span[i] - 1;
+                    update[i].next[i] = node.next[i];
+                } else {
+                    update[i].span[i]--;
+                }
+            }
+            while (height > 1 && head.next[height - 1] == null) {
+                height--;
+            }
+            size--;
+        }
+
+        Node<K, V> first() {
+            return head.next[0];
+        }
+
+        // Number of entries that arrived before the bound (or at it, when inclusive)
+        int countArrivedBefore(long bound, boolean inclusive) {
+            Node<K, V> x = head;
+            int traversed = 0;
+            for (int i = height - 1; i >= 0; i--) {
+                while (x.next[i] != null
+                        && (x.next[i].arrival < bound || (inclusive && x.next[i].arrival == bound))) {
+                    traversed += x.span[i];
+                    x = x.next[i];
+                }
+            }
+            return traversed;
+        }
+
+        // Zero-based position of the node within this level
+        int rankOf(Node<K, V> node) {
+            Node<K, V> x = head;
+            int traversed = 0;
+            for (int i = height - 1; i >= 0; i--) {
+                while (x.next[i] != null && !node.before(x.next[i].arrival, x.next[i].sequence)) {
+                    traversed += x.span[i];
+                    x = x.next[i];
+                }
+                if (x == node) return traversed - 1;
+            }
+            return traversed - 1;
+        }
+
+        Node<K, V> nodeAt(int index) {
+            Node<K, V> x = head;
+            int traversed = 0;
+            int target = index + 1;
+            for (int i = height - 1; i >= 0; i--) {
+                while (x.next[i] != null && traversed + x.span[i] <= target) {
+                    traversed += x.span[i];
+                    x = x.next[i];
+                }
+                if (traversed == target) return x;
+            }
+            return x;
+        }
+
+        void clear() {
+            for (int i = 0; i < MAX_HEIGHT; i++) {
+                head.next[i] = null;
+                head.span[i] = 0;
+            }
+            height = 1;
+            size = 0;
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <K, V> Level<K, V>[] newLevelArray(int length) {
+        return (Level<K, V>[]) new Level[length];
+    }
+
+    private final Level<K, V>[] levels;
+    private final long agingMillis;
+    private final OrderedMap<K, Node<K, V>> nodesByKey = new OrderedMap<>();
+    private long nextSequence;
+    private int randomSeed = 0x2545F491;
+    private int modCount;
+
+    /**
+     * @param levelCount number of triage levels; level 0 is the most urgent
+     * @param agingMillis how much earlier an entry must have arrived to be served ahead of
+     *                    an entry one level more urgent; 0 or less for strict levels
+     */
+    public TriageQueue(int levelCount, long agingMillis) {
+        if (levelCount < 1) {
+            throw new IllegalArgumentException("At least one level is required: " + levelCount);
+        }
+        this.levels = newLevelArray(levelCount);
+        for (int i = 0; i < levelCount; i++) {
+            levels[i] = new Level<>();
+        }
+        this.agingMillis = agingMillis;
+    }
+
+    // ===============================
+    // CORE UTILITY METHODS
+    // ===============================
+
+    // A node reaches each further height with probability 1/4 (xorshift; quality is not important here)
+    private int randomHeight() {
+        int x = randomSeed;
+        x ^= x << 13;
+        x ^= x >>> 17;
+        x ^= x << 5;
+        randomSeed = x;
+
+        int height = 1;
+        while ((x & 3) == 0 && height < MAX_HEIGHT) {
+            height++;
+            x >>>= 2;
+        }
+        return height;
+    }
+
+    private Level<K, V> levelAt(int level) {
+        if (level < 0 || level >= levels.length) {
+            throw new IllegalArgumentException("No such level: " + level + " (levels: " + levels.length + ")");
+        }
+        return levels[level];
+    }
+
+    private boolean aging() {
+        return agingMillis > 0;
+    }
+
+    // True if a is served before b
+    private boolean servedBefore(Node<K, V> a, Node<K, V> b) {
+        if (aging()) {
+            long ea = a.arrival + a.level * agingMillis;
+            long eb = b.arrival + b.level * agingMillis;
+            if (ea != eb) return ea < eb;
+        }
+        if (a.level != b.level) return a.level < b.level;
+        return a.before(b.arrival, b.sequence);
+    }
+
+    // The head of the level that is served next, or null if the queue is empty
+    private Node<K, V> nextNode() {
+        Node<K, V> best = null;
+        for (Level<K, V> level : levels) {
+            Node<K, V> candidate = level.first();
+            if (candidate != null && (best == null || servedBefore(candidate, best))) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    private V unlink(Node<K, V> node) {
+        levels[node.level].delete(node);
+        nodesByKey.remove(node.key);
+        modCount++;
+        return node.value;
+    }
+
+    // ===============================
+    // QUEUE OPERATIONS
+    // ===============================
+
+    /**
+     * Queues the value at the given level, arriving now
+     * @see #offer(Object, Object, int, long)
+     */
+    public void offer(K key, V value, int level) {
+        offer(key, value, level, System.currentTimeMillis());
+    }
+
+    /**
+     * Queues the value at the given level with an explicit arrival time. A key that is
+     * already queued keeps its level and place and only has its value replaced.
+     * @param key the key of the entry
+     * @param value the value to queue
+     * @param level the triage level, 0 being the most urgent
+     * @param arrivalMillis the arrival time in epoch milliseconds
+     */
+    public void offer(K key, V value, int level, long arrivalMillis) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+        Node<K, V> existing = nodesByKey.get(key);
+        if (existing != null) {
+            existing.value = value;
+            return;
+        }
+        Level<K, V> target = levelAt(level);
+        Node<K, V> node = new Node<>(key, value, level, arrivalMillis, nextSequence++, randomHeight());
+        target.insert(node);
+        nodesByKey.put(key, node);
+        modCount++;
+    }
+
+    /**
+     * Removes and returns the value that is served next, or null if the queue is empty
+     */
+    public V poll() {
+        Node<K, V> node = nextNode();
+        return node == null ? null : unlink(node);
+    }
+
+    /**
+     * Returns the value that is served next without removing it, or null if the queue is empty
+     */
+    public V peek() {
+        Node<K, V> node = nextNode();
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * Removes and returns the earliest arrival at one level, or null if that level is empty
+     */
+    public V pollLevel(int level) {
+        Node<K, V> node = levelAt(level).first();
+        return node == null ? null : unlink(node);
+    }
+
+    /**
+     * Returns the earliest arrival at one level without removing it, or null if that level is empty
+     */
+    public V peekLevel(int level) {
+        Node<K, V> node = levelAt(level).first();
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * Removes the entry for the key wherever it is in the queue
+     * @return the removed value, or null if the key was not queued
+     */
+    public V remove(K key) {
+        Node<K, V> node = (key == null) ? null : nodesByKey.get(key);
+        return node == null ? null : unlink(node);
+    }
+
+    public boolean contains(K key) {
+        return key != null && nodesByKey.containsKey(key);
+    }
+
+    public V get(K key) {
+        Node<K, V> node = (key == null) ? null : nodesByKey.get(key);
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * @return the level the key is queued at, or -1 if it is not queued
+     */
+    public int levelOf(K key) {
+        Node<K, V> node = (key == null) ? null : nodesByKey.get(key);
+        return node == null ? -1 : node.level;
+    }
+
+    /**
+     * Returns how many entries are served before the key, so 0 means it is next
+     * @return the zero-based position, or -1 if the key is not queued
+     */
+    public int positionOf(K key) {
+        Node<K, V> node = (key == null) ? null : nodesByKey.get(key);
+        if (node == null) return -1;
+
+        int position = levels[node.level].rankOf(node);
+        for (int j = 0; j < levels.length; j++) {
+            if (j == node.level) continue;
+            if (!aging()) {
+                if (j < node.level) position += levels[j].size;
+                continue;
+            }
+            // Entries at level j are ahead when arrival + j * aging is earlier, or equal and j is more urgent
+            long bound = node.arrival + (node.level - j) * agingMillis;
+            position += levels[j].countArrivedBefore(bound, j < node.level);
+        }
+        return position;
+    }
+
+    public int size() {
+        return nodesByKey.size();
+    }
+
+    /**
+     * @return the number of entries at one level
+     */
+    public int size(int level) {
+        return levelAt(level).size;
+    }
+
+    public boolean isEmpty() {
+        return nodesByKey.isEmpty();
+    }
+
+    public int levelCount() {
+        return levels.length;
+    }
+
+    public void clear() {
+        for (Level<K, V> level : levels) {
+            level.clear();
+        }
+        nodesByKey.clear();
+        modCount++;
+    }
+
+    /**
+     * Copies one level, in arrival order, into a new OrderedMap (e.g. for saving it)
+     */
+    public OrderedMap<K, V> copyOfLevel(int level) {
+        Level<K, V> source = levelAt(level);
+        OrderedMap<K, V> copy = new OrderedMap<>(source.size);
+        for (Node<K, V> n = source.first(); n != null; n = n.next[0]) {
+            copy.put(n.key, n.value);
+        }
+        return copy;
+    }
+
+    // ===============================
+    // VIEWS
+    // ===============================
+
+    /**
+     * Returns a read-only view of one level in arrival order. The view is not a copy:
+     * it reflects later changes, and positional access costs O(log n).
+     */
+    public OrderedMapView<K, V> levelView(int level) {
+        final Level<K, V> source = levelAt(level);
+        return new OrderedMapView<K, V>() {
+            @Override
+            public V get(K key) {
+                Node<K, V> node = (key == null) ? null : nodesByKey.get(key);
+                return (node != null && levels[node.level] == source) ? node.value : null;
+            }
+
+            @Override
+            public boolean containsKey(K key) {
+                Node<K, V> node = (key == null) ? null : nodesByKey.get(key);
+                return node != null && levels[node.level] == source;
+            }
+
+            @Override
+            public V get(int index) {
+                return nodeAt(index).value;
+            }
+
+            @Override
+            public K getKey(int index) {
+                return nodeAt(index).key;
+            }
+
+            private Node<K, V> nodeAt(int index) {
+                if (index < 0 || index >= source.size) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + source.size);
+                }
+                return source.nodeAt(index);
+            }
+
+            @Override
+            public int size() {
+                return source.size;
+            }
+
+            @Override
+            public boolean isEmpty() {
+                return source.size == 0;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public V[] toArray(V[] array) {
+                if (array.length < source.size) {
+                    array = (V[]) java.lang.reflect.Array.newInstance(array.getClass().getComponentType(), source.size);
+                }
+                int i = 0;
+                for (Node<K, V> n = source.first(); n != null; n = n.next[0]) {
+                    array[i++] = n.value;
+                }
+                return array;
+            }
+
+            @Override
+            public boolean isSorted(Comparator<V> comparator) {
+                for (Node<K, V> n = source.first(); n != null && n.next[0] != null; n = n.next[0]) {
+                    if (comparator.compare(n.value, n.next[0].value) > 0) return false;
+                }
+                return true;
+            }
+
+            @Override
+            public Iterator<V> iterator() {
+                return new Iterator<V>() {
+                    private Node<K, V> next = source.first();
+                    private final int expectedModCount = modCount;
+
+                    @Override
+                    public boolean hasNext() {
+                        if (expectedModCount != modCount) {
+                            throw new ConcurrentModificationException("Queue modified during iteration");
+                        }
+                        return next != null;
+                    }
+
+                    @Override
+                    public V next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException("No more elements in iteration");
+                        }
+                        V value = next.value;
+                        next = next.next[0];
+                        return value;
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Returns an iterator over all queued values in the order they would be served
+     */
+    @Override
+    public Iterator<V> iterator() {
+        return new Iterator<V>() {
+            // Cursor into each level; the next value is the best of the cursors
+            private final Node<K, V>[] cursors = newNodeArray(levels.length);
+            private final int expectedModCount = modCount;
+
+            {
+                for (int i = 0; i < levels.length; i++) {
+                    cursors[i] = levels[i].first();
+                }
+            }
+
+            private int bestCursor() {
+                int best = -1;
+                for (int i = 0; i < cursors.length; i++) {
+                    if (cursors[i] != null && (best < 0 || servedBefore(cursors[i], cursors[best]))) {
+                        best = i;
+                    }
+                }
+                return best;
+            }
+
+            @Override
+            public boolean hasNext() {
+                if (expectedModCount != modCount) {
+                    throw new ConcurrentModificationException("Queue modified during iteration");
+                }
+                return bestCursor() >= 0;
+            }
+
+            @Override
+            public V next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException("No more elements in iteration");
+                }
+                int best = bestCursor();
+                V value = cursors[best].value;
+                cursors[best] = cursors[best].next[0];
+                return value;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        boolean first = true;
+        for (V value : this) {
+            if (!first) sb.append(", ");
+            sb.append(value);
+            first = false;
+        }
+        return sb.append("]").toString();
+    }
+}
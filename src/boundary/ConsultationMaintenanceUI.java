@@ -575,6 +575,7 @@ public class ConsultationMaintenanceUI {
         }
 
         boolean done = false;
+        boolean changed = false;
         while (!done) {
             System.out.println("\nCurrent Consultation Details:");
             System.out.println("Diagnosis: " + (consultation.getDiagnosis() != null ? consultation.getDiagnosis().getName() : "None"));
@@ -637,6 +638,7 @@ public class ConsultationMaintenanceUI {
                     }
                     if (newDiagnosis != null) {
                         consultation.setDiagnosis(newDiagnosis);
+                        changed = true;
                         System.out.println("Diagnosis updated.");
                     }
                     break;
@@ -644,6 +646,7 @@ public class ConsultationMaintenanceUI {
                 case 2: {
                     String newNotes = InputHandler.getOptionalString("Enter new notes (or leave empty to skip)");
                     consultation.setNotes(newNotes);
+                    changed = true;
                     System.out.println("Notes updated.");
                     break;
                 }
@@ -682,6 +685,7 @@ public class ConsultationMaintenanceUI {
                         }
                         if (!alreadyHas) {
                             consultation.getServicesUsed().put(String.valueOf(consultation.getServicesUsed().size() + 1), addedService);
+                            changed = true;
                             System.out.println("Service added.");
                         } else {
                             System.out.println("Service already present in this consultation.");
@@ -706,6 +710,7 @@ public class ConsultationMaintenanceUI {
                         System.out.println("Invalid service number.");
                     } else {
                         usedADT.removeAt(removeIndex - 1);
+                        changed = true;
                         System.out.println("Service removed.");
                     }
                     break;
@@ -796,6 +801,7 @@ public class ConsultationMaintenanceUI {
                                 DateTimeFormatterUtil.formatForDisplay(followUpDate));
                     }
                     consultation.setFollowUpDate(followUpDate);
+                    changed = true;
 
                     System.out.println("Follow-up updated.");
                     break;
@@ -808,6 +814,12 @@ public class ConsultationMaintenanceUI {
             }
         }
 
+        if (!changed) {
+            System.out.println("No changes made.");
+            return;
+        }
+        // Saves the edits and makes them the committed version that reports read
+        maintenance.updateConsultation(consultation);
         System.out.println("Consultation updated.");
     }
 
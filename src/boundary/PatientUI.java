@@ -611,7 +611,7 @@ public class PatientUI {
         System.out.println("\n┌────┬───────────────┬────────────────────┬─────┬─────────┬───────────────┬────────────┐");
         System.out.printf("│ #  │ Patient ID    │ Name               │ Age │ Gender  │ Contact       │ Emergency  │%n");
         System.out.println("├────┼───────────────┼────────────────────┼─────┼─────────┼───────────────┼────────────┤");
-        OrderedMap<String, Patient> queue = queueType.equals("emergency")
+        OrderedMapView<String, Patient> queue = queueType.equals("emergency")
                 ? patientMaintenance.getEmergencyQueue()
                 : patientMaintenance.getNormalQueue();
         int position = 1;
@@ -828,10 +828,11 @@ public class PatientUI {
             System.out.println("=".repeat(40));
             System.out.println("1. Patient Registration Summary Report");
             System.out.println("2. Patient Visit Activity Report");
+            System.out.println("3. Monthly Patient Visit Activity Report");
             System.out.println("0. Back to Main Menu");
             System.out.println("=".repeat(40));
 
-            choice = InputHandler.getInt("Select report type", 0, 2);
+            choice = InputHandler.getInt("Select report type", 0, 3);
 
             switch (choice) {
                 case 1:
@@ -840,6 +841,9 @@ public class PatientUI {
                 case 2:
                     displayPatientVisitSummaryReport();
                     break;
+                case 3:
+                    displayMonthlyVisitSummaryReport();
+                    break;
                 case 0:
                     System.out.println("Returning to main menu...");
                     break;
@@ -934,14 +938,25 @@ public class PatientUI {
     }
 
     public void displayPatientVisitSummaryReport() {
-        OrderedMap<String,Object> rpt = patientMaintenance.generatePatientVisitSummaryReport();
+        displayPatientVisitSummaryReport(patientMaintenance.generatePatientVisitSummaryReport(),
+                "PATIENT VISIT SUMMARY REPORT");
+    }
+
+    public void displayMonthlyVisitSummaryReport() {
+        int year = InputHandler.getInt("Enter year ", 2000, java.time.LocalDate.now().getYear());
+        int month = InputHandler.getInt("Enter month ", 1, 12);
+        displayPatientVisitSummaryReport(patientMaintenance.generatePatientVisitSummaryReport(year, month),
+                String.format("PATIENT VISIT SUMMARY REPORT FOR %d-%02d", year, month));
+    }
+
+    private void displayPatientVisitSummaryReport(OrderedMap<String,Object> rpt, String title) {
         String now = java.time.ZonedDateTime.now()
                 .format(java.time.format.DateTimeFormatter.ofPattern("EEEE, MMM dd yyyy, hh:mm a"));
 
         line();
         System.out.println(center("TUNKU ABDUL RAHMAN UNIVERSITY OF MANAGEMENT AND TECHNOLOGY"));
         System.out.println(center("PATIENT MANAGEMENT SUBSYSTEM"));
-        System.out.println(center("PATIENT VISIT SUMMARY REPORT"));
+        System.out.println(center(title));
         line();
         System.out.println(rightInDash("generated at: " + now));
         dash(); blank();
@@ -957,13 +972,8 @@ public class PatientUI {
 
         String[] months = new String[vpm.size()];
         int mCount = 0;
-        for (VisitHistory vh : patientMaintenance.getAllVisitHistories()){
-            String m = vh.getVisitDate().getYear() + "-" + String.format("%02d", vh.getVisitDate().getMonthValue());
-            if (vpm.containsKey(m)) {
-                boolean seen = false; for (int j=0;j<mCount;j++) if (months[j].equals(m)) { seen = true; break; }
-                if (!seen) months[mCount++] = m;
-            }
-        }
+        // The report lists the months most recent first already
+        for (int i=0;i<vpm.size();i++) months[mCount++] = vpm.getKey(i);
 
         String[] topRows = new String[Math.max(1, top.size())];
         int tCount = 0;
@@ -1,6 +1,7 @@
 package boundary;
 
 import adt.OrderedMap;
+import adt.OrderedMapView;
 import control.PharmacyMaintenance;
 import entity.*;
 import java.time.LocalDateTime;
@@ -515,7 +516,7 @@ public class PharmacyUI {
     }
 
     public void viewAllTransactions() {
-        OrderedMap<String, Transaction> transactionMap = pharmacyMaintenance.getTransactionMap();
+        OrderedMapView<String, Transaction> transactionMap = pharmacyMaintenance.getTransactionMap();
         if (transactionMap.isEmpty()) {
             System.out.println("No transactions found.");
             return;
@@ -1,6 +1,7 @@
 package boundary;
 
 import adt.OrderedMap;
+import adt.ResultList;
 import control.ScheduleMaintenance;
 import utility.IDGenerator;
 import utility.InputHandler;
@@ -54,7 +55,7 @@ public class ScheduleUI {
     }
 
     private void listAllSchedulesFlow() {
-        OrderedMap<Integer, Schedule> schedules = scheduleMaintenance.getAllSchedules();
+        ResultList<Schedule> schedules = scheduleMaintenance.getAllSchedules();
         showScheduleTable(schedules);
         sortScheduleTableFlow(schedules);
     }
@@ -95,11 +96,11 @@ public class ScheduleUI {
         System.out.println(" 2. Show schedules for this date by doctor");
         int choice = InputHandler.getInt("Choose option", 1, 2);
         if (choice == 1) {
-            OrderedMap<Integer, Schedule> schedules = scheduleMaintenance.getSchedulesByDate(date);
+            ResultList<Schedule> schedules = scheduleMaintenance.getSchedulesByDate(date);
             showScheduleTable(schedules);
             sortScheduleTableFlow(schedules);
         } else {
-            OrderedMap<Integer, String> doctorIDs = scheduleMaintenance.getDoctorIDsByDate(date);
+            ResultList<String> doctorIDs = scheduleMaintenance.getDoctorIDsByDate(date);
             if (doctorIDs.size() == 0) {
                 System.out.println("No doctors have schedules on this date.");
                 return;
@@ -110,7 +111,7 @@ public class ScheduleUI {
             }
             int doctorChoice = InputHandler.getInt("Select doctor number to view slots", 1, doctorIDs.size());
             String doctorID = doctorIDs.get(doctorChoice - 1);
-            OrderedMap<Integer, Schedule> schedules = scheduleMaintenance.getSchedulesByDateAndDoctor(date, doctorID);
+            ResultList<Schedule> schedules = scheduleMaintenance.getSchedulesByDateAndDoctor(date, doctorID);
             showScheduleTable(schedules);
             sortScheduleTableFlow(schedules);
         }
@@ -119,7 +120,7 @@ public class ScheduleUI {
     // Search by Doctor
     private void searchByDoctorFlow() {
         String doctorID = InputHandler.getString("Enter Doctor ID: ").trim();
-        OrderedMap<Integer, Schedule> schedules = scheduleMaintenance.getSchedulesByDoctor(doctorID);
+        ResultList<Schedule> schedules = scheduleMaintenance.getSchedulesByDoctor(doctorID);
 
         if (schedules.size() == 0) {
             System.out.println("No schedules found for this doctor.");
@@ -134,7 +135,7 @@ public class ScheduleUI {
     // Search by Status
     private void searchByStatusFlow() {
         String statusStr = InputHandler.getString("Enter status (true/false): ").trim();
-        OrderedMap<Integer, Schedule> schedules = scheduleMaintenance.getSchedulesByStatus(statusStr);
+        ResultList<Schedule> schedules = scheduleMaintenance.getSchedulesByStatus(statusStr);
 
         if (schedules.size() == 0) {
             System.out.println("No schedules found for this status.");
@@ -166,7 +167,7 @@ public class ScheduleUI {
         String doctorID = InputHandler.getString("Enter Doctor ID: ").trim();
 
         // Show existing schedules for this doctor on that day
-        OrderedMap<Integer, Schedule> existingSchedules = scheduleMaintenance.getSchedulesByDateAndDoctor(date, doctorID);
+        ResultList<Schedule> existingSchedules = scheduleMaintenance.getSchedulesByDateAndDoctor(date, doctorID);
         if (existingSchedules.size() > 0) {
             System.out.println("\nExisting schedules for Doctor " + doctorID + " on " + date + ":");
             showScheduleTable(existingSchedules);
@@ -179,13 +180,12 @@ public class ScheduleUI {
 
     // 4. Remove
     private void removeFlow() {
-        OrderedMap<Integer, Schedule> schedules = scheduleMaintenance.getAllSchedules();
-        OrderedMap<Integer, Schedule> removableSchedules = new OrderedMap<>();
-        int idx = 0;
+        ResultList<Schedule> schedules = scheduleMaintenance.getAllSchedules();
+        ResultList<Schedule> removableSchedules = new ResultList<>();
         for (int i = 0; i < schedules.size(); i++) {
             Schedule s = schedules.get(i);
             if (s.getStatus()) { // Only show schedules with status == true
-                removableSchedules.put(idx++, s);
+                removableSchedules.add(s);
             }
         }
 
@@ -226,13 +226,12 @@ public class ScheduleUI {
 
         String date = String.format("%04d-%02d-%02d", year, month, day);
 
-        OrderedMap<Integer, Schedule> schedules = scheduleMaintenance.getSchedulesByDate(date);
-        OrderedMap<Integer, Schedule> availableSchedules = new OrderedMap<>();
-        int idx = 0;
+        ResultList<Schedule> schedules = scheduleMaintenance.getSchedulesByDate(date);
+        ResultList<Schedule> availableSchedules = new ResultList<>();
         for (int i = 0; i < schedules.size(); i++) {
             Schedule s = schedules.get(i);
             if (s.getStatus()) {
-                availableSchedules.put(idx++, s);
+                availableSchedules.add(s);
             }
         }
 
@@ -257,7 +256,7 @@ public class ScheduleUI {
     }
 
     // Universally styled table display
-    private void showScheduleTable(OrderedMap<Integer, Schedule> schedules) {
+    private void showScheduleTable(ResultList<Schedule> schedules) {
         if (schedules == null || schedules.size() == 0) {
             System.out.println("No schedules to display.");
             return;
@@ -280,7 +279,7 @@ public class ScheduleUI {
     }
 
     // Sort menu for any shown table
-    private void sortScheduleTableFlow(OrderedMap<Integer, Schedule> schedules) {
+    private void sortScheduleTableFlow(ResultList<Schedule> schedules) {
         if (schedules == null || schedules.size() == 0) return;
         System.out.println("\n┌" + "─".repeat(40) + "┐");
         System.out.println("│ Sort by:                               │");
@@ -293,7 +292,7 @@ public class ScheduleUI {
         System.out.println("└" + "─".repeat(40) + "┘");
         int sortOption = InputHandler.getInt("Choose sort option", 0, 4);
         if (sortOption != 0) {
-            OrderedMap<Integer, Schedule> sorted = scheduleMaintenance.sortSchedules(schedules, sortOption);
+            ResultList<Schedule> sorted = scheduleMaintenance.sortSchedules(schedules, sortOption);
             System.out.println("\nSorted Schedule Table:");
             showScheduleTable(sorted);
         }
@@ -304,7 +303,7 @@ public class ScheduleUI {
         String scheduleID = IDGenerator.generateScheduleID();
         System.out.println("Generated Schedule ID: " + scheduleID);
         String timeSlotInput;
-        OrderedMap<Integer, String> validSlots;
+        ResultList<String> validSlots;
         while (true) {
             timeSlotInput = InputHandler.getString("Enter Time Slot (e.g. 09:00–10:00)").trim();
             validSlots = scheduleMaintenance.parseAndValidateTimeSlots(timeSlotInput);
@@ -352,7 +351,7 @@ public class ScheduleUI {
                 line(70);
                 return;
             }
-            OrderedMap<Integer, Schedule> allSchedules = scheduleMaintenance.getAllSchedules();
+            ResultList<Schedule> allSchedules = scheduleMaintenance.getAllSchedules();
             OrderedMap<String, Boolean> printed = new OrderedMap<>();
             int totalSchedules = 0;
             int maxCount = 0;
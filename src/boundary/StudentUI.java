@@ -192,19 +192,7 @@ public class StudentUI {
     }
 
     private int computeQueuePosition(String pid) {
-        int pos = 1;
-        // Emergency queue first
-        for (int i = 0; i < patientMaintenance.getEmergencyQueueSize(); i++) {
-            Patient p = patientMaintenance.getEmergencyQueue().get(i);
-            if (p.getPatientId().equals(pid)) return pos;
-            pos++;
-        }
-        for (int i = 0; i < patientMaintenance.getNormalQueueSize(); i++) {
-            Patient p = patientMaintenance.getNormalQueue().get(i);
-            if (p.getPatientId().equals(pid)) return pos;
-            pos++;
-        }
-        return -1;
+        return patientMaintenance.getQueuePosition(pid);
     }
 
     private void viewVisitHistory() {
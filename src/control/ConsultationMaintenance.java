@@ -3,19 +3,22 @@
  */
 package control;
 
+import adt.OpenAddressingOrderedMap;
 import adt.OrderedMap;
+import adt.OrderedMapInterface;
+import adt.PersistentOrderedMap;
+import adt.ResultList;
 import dao.AppointmentDAO;
 import dao.ConsultationDAO;
-import dao.ConsultationServiceDAO;
-import dao.DiagnosisDAO;
-import dao.DoctorDAO;
-import dao.PatientDAO;
+import dao.DataRepository;
 import dao.ScheduleDAO;
+import dao.ScheduleIndex;
 import entity.Appointment;
 import entity.Consultation;
 import entity.ConsultationService;
 import entity.Diagnosis;
 import entity.Patient;
+import entity.Payment;
 import entity.Doctor;
 import entity.Schedule;
 import utility.IDGenerator;
@@ -27,13 +30,13 @@ import java.util.Comparator;
 public class ConsultationMaintenance {
     private static class UndoAction {
         String type; // "ADD", "REMOVE", "UPDATE"
-        Consultation before;
-        Consultation after;
+        String consultationId;
+        PersistentOrderedMap<String, Consultation> before; // all consultations as they were before the action
         LocalDateTime timestamp;
-        UndoAction(String type, Consultation before, Consultation after) {
+        UndoAction(String type, String consultationId, PersistentOrderedMap<String, Consultation> before) {
             this.type = type;
+            this.consultationId = consultationId;
             this.before = before;
-            this.after = after;
             this.timestamp = LocalDateTime.now();
         }
     }
@@ -46,107 +49,140 @@ public class ConsultationMaintenance {
     private final OrderedMap<String, Doctor> doctorMap;
     private final OrderedMap<String, Schedule> scheduleMap;
 
-    private final ConsultationDAO consultationDAO = new ConsultationDAO();
-    private final PatientDAO patientDAO = new PatientDAO();
-    private final DiagnosisDAO diagnosisDAO = new DiagnosisDAO();
-    private final ConsultationServiceDAO consultationServiceDAO = new ConsultationServiceDAO();
-    private final AppointmentDAO appointmentDAO = new AppointmentDAO();
-    private final DoctorDAO doctorDAO = new DoctorDAO();
-    private final ScheduleDAO scheduleDAO = new ScheduleDAO();
+    private final DataRepository repository = DataRepository.getInstance();
+    private final ConsultationDAO consultationDAO = repository.getConsultationDAO();
+    private final AppointmentDAO appointmentDAO = repository.getAppointmentDAO();
+    private final ScheduleDAO scheduleDAO = repository.getScheduleDAO();
+    private final ScheduleIndex scheduleIndex = repository.getScheduleIndex();
 
-    // Undo stack
+    // Undo stack. Each entry keeps a whole version of the consultations, but versions
+    // share every unchanged entry, so an entry costs one consultation copy plus a few trie nodes
     private final OrderedMap<Integer, UndoAction> undoHistory = new OrderedMap<>();
-    private static final int MAX_UNDO_SIZE = 20;
+    private static final int MAX_UNDO_SIZE = 100;
+    private int undoSequence; // keys stay unique after the oldest entries are dropped
 
     // search
-    private OrderedMap<String, OrderedMap<String, Consultation>> patientNameIndex = new OrderedMap<>();
-    private OrderedMap<String, OrderedMap<String, Consultation>> doctorNameIndex = new OrderedMap<>();
+    private OrderedMapInterface<String, OrderedMap<String, Consultation>> patientNameIndex = new OpenAddressingOrderedMap<>();
+    private OrderedMapInterface<String, OrderedMap<String, Consultation>> doctorNameIndex = new OpenAddressingOrderedMap<>();
 
     public static final String[] VALID_APPOINTMENT_STATUSES = {
             "Scheduled", "In Progress", "Completed", "Cancelled"
     };
 
     public ConsultationMaintenance() {
-        this.consultationMap = consultationDAO.retrieveFromFile();
-        this.patientMap = patientDAO.retrieveFromFile();
-        this.appointmentMap = appointmentDAO.retrieveFromFile();
-        this.serviceMap = consultationServiceDAO.retrieveFromFile();
-        this.diagnosisMap = diagnosisDAO.retrieveFromFile();
-        this.doctorMap = doctorDAO.loadDoctors();
-        this.scheduleMap = scheduleDAO.retrieveFromFile();
-
-        IDGenerator.loadCounter("counter.dat");
-
-        String highestAppointmentID = "A000";
-        for (Appointment appt : appointmentMap) {
-            String id = appt.getAppointmentId();
-            if (id.compareTo(highestAppointmentID) > 0) {
-                highestAppointmentID = id;
+        this.consultationMap = repository.getConsultations();
+        this.patientMap = repository.getPatients();
+        this.appointmentMap = repository.getAppointments();
+        this.serviceMap = repository.getConsultationServices();
+        this.diagnosisMap = repository.getDiagnoses();
+        this.doctorMap = repository.getDoctors();
+        this.scheduleMap = repository.getSchedules();
+
+
+        // Scans the records only on the first run with block-reserved IDs
+        IDGenerator.seedFromExisting(IDGenerator.APPOINTMENT, appointmentMap, Appointment::getAppointmentId);
+        IDGenerator.seedFromExisting(IDGenerator.CONSULTATION, consultationMap, Consultation::getConsultationId);
+        IDGenerator.seedFromExisting(IDGenerator.DIAGNOSIS, diagnosisMap, Diagnosis::getId);
+
+        // The committed version is kept in the repository, so every controller sees the same one
+        if (repository.getConsultationVersion() == null) {
+            PersistentOrderedMap<String, Consultation> committed = PersistentOrderedMap.empty();
+            for (Consultation c : consultationMap) {
+                committed = committed.put(c.getConsultationId(), copyConsultation(c));
             }
+            repository.setConsultationVersion(committed);
         }
-        IDGenerator.updateAppointmentCounterFromHighestID(highestAppointmentID);
-        IDGenerator.saveCounters("counter.dat");
-
-        String highestConsultationId = "C000";
-        for (Consultation c : consultationMap) {
-            String id = c.getConsultationId();
-            if (id.compareTo(highestConsultationId) > 0) {
-                highestConsultationId = id;
-            }
-        }
-        IDGenerator.updateConsultationCounterFromHighestID(highestConsultationId);
-        IDGenerator.saveCounters("counter.dat");
-
         buildNameIndices();
     }
 
-    // Helper: Deep copy
+    // Helper: Deep copy of the parts a consultation owns; patient, doctor, appointment
+    // and the diagnosis and service catalogue entries are shared records
     private Consultation copyConsultation(Consultation c) {
         if (c == null) return null;
-        return new Consultation(
+        Payment payment = c.getPayment();
+        Consultation copy = new Consultation(
                 c.getConsultationId(),
                 c.getAppointment(),
                 c.getPatient(),
                 c.getDoctor(),
                 c.getConsultationTime(),
-                c.getServicesUsed(),
+                copyMap(c.getServicesUsed()),
                 c.getDiagnosis(),
                 c.getNotes(),
-                c.getPayment(),
+                payment == null ? null : new Payment(payment.getPaymentId(), payment.getConsultationId(),
+                        payment.getTotalAmount(), payment.getPaidAmount(), payment.getPaymentStatus(),
+                        copyMap(payment.getPaymentBreakdown())),
                 c.isFollowUpNeeded(),
                 c.getFollowUpDate()
         );
+        copy.setFollowUpAppointment(c.getFollowUpAppointment());
+        return copy;
     }
-    private void logUndoAction(UndoAction action) {
-        undoHistory.push(undoHistory.size(), action);
+
+    private static <V> OrderedMap<String, V> copyMap(OrderedMap<String, V> map) {
+        if (map == null) return null;
+        OrderedMap<String, V> copy = new OrderedMap<>();
+        for (int i = 0; i < map.size(); i++) {
+            copy.put(map.getKey(i), map.get(i));
+        }
+        return copy;
+    }
+    // Records a change to one consultation (after == null for a removal) as a new committed version
+    private void commitChange(String type, String id, Consultation after) {
+        PersistentOrderedMap<String, Consultation> committed = repository.getConsultationVersion();
+        PersistentOrderedMap<String, Consultation> next =
+                (after == null) ? committed.remove(id) : committed.put(id, copyConsultation(after));
+        undoHistory.push(undoSequence++, new UndoAction(type, id, committed));
         if (undoHistory.size() > MAX_UNDO_SIZE) undoHistory.removeAt(0);
+        repository.setConsultationVersion(next);
+    }
+
+    // Puts the action's consultation back as it was before the action. Only that one is
+    // touched, so changes made since through other controllers are kept.
+    private void restoreBefore(UndoAction action) {
+        String id = action.consultationId;
+        Consultation then = action.before.get(id);
+        PersistentOrderedMap<String, Consultation> committed = repository.getConsultationVersion();
+        Consultation live = consultationMap.get(id);
+        if (live != null) removeFromIndices(live);
+        if (then == null) {
+            consultationMap.remove(id);
+            committed = committed.remove(id);
+        } else {
+            Consultation restored = copyConsultation(then);
+            consultationMap.put(id, restored);
+            updateIndicesForAddition(restored);
+            committed = committed.put(id, then);
+        }
+        repository.setConsultationVersion(committed);
+        consultationDAO.saveToFile(consultationMap);
     }
 
     // === Undo API ===
     public String undoLastAction() {
         if (undoHistory.size() == 0) return "No action to undo.";
         UndoAction action = undoHistory.pop();
+        restoreBefore(action);
         switch (action.type) {
             case "ADD":
-                consultationMap.remove(action.after.getConsultationId());
-                removeFromIndices(action.after);
-                consultationDAO.saveToFile(consultationMap);
                 return "Undo Add: Consultation removed.";
             case "REMOVE":
-                consultationMap.put(action.before.getConsultationId(), copyConsultation(action.before));
-                updateIndicesForAddition(action.before);
-                consultationDAO.saveToFile(consultationMap);
                 return "Undo Remove: Consultation restored.";
             case "UPDATE":
-                consultationMap.put(action.before.getConsultationId(), copyConsultation(action.before));
-                updateIndicesForAddition(action.before);
-                consultationDAO.saveToFile(consultationMap);
                 return "Undo Update: Consultation reverted.";
             default:
                 return "Unknown action type.";
         }
     }
 
+    /**
+     * Returns the consultations as of the last change made through any controller.
+     * The snapshot never changes, so a report can read it while edits continue.
+     */
+    public PersistentOrderedMap<String, Consultation> getConsultationSnapshot() {
+        return repository.getConsultationVersion();
+    }
+
     public String getUndoInfo() {
         if (undoHistory.isEmpty()) return "No operations available to undo.";
         StringBuilder sb = new StringBuilder();
@@ -154,8 +190,7 @@ public class ConsultationMaintenance {
         for (int i = undoHistory.size() - 1; i >= 0 && i >= undoHistory.size() - 5; i--) {
             UndoAction action = undoHistory.get(i);
             sb.append("- ").append(action.type)
-                    .append(" on consultation ").append(action.after != null ? action.after.getConsultationId() :
-                            action.before != null ? action.before.getConsultationId() : "(unknown)")
+                    .append(" on consultation ").append(action.consultationId)
                     .append(" at ").append(action.timestamp)
                     .append("\n");
         }
@@ -240,9 +275,8 @@ public class ConsultationMaintenance {
         consultationMap.put(consultation.getConsultationId(), consultation);
         updateIndicesForAddition(consultation);
         consultationDAO.saveToFile(consultationMap);
-        IDGenerator.saveCounters("counter.dat");
 
-        logUndoAction(new UndoAction("ADD", null, copyConsultation(consultation)));
+        commitChange("ADD", consultation.getConsultationId(), consultation);
     }
 
     public Consultation getConsultation(String id) {
@@ -251,16 +285,17 @@ public class ConsultationMaintenance {
 
     // Update method for undo (used for updateConsultation)
     public void updateConsultation(Consultation updated) {
-        Consultation before = copyConsultation(getConsultation(updated.getConsultationId()));
         consultationMap.put(updated.getConsultationId(), updated);
         updateIndicesForAddition(updated);
         consultationDAO.saveToFile(consultationMap);
-        logUndoAction(new UndoAction("UPDATE", before, copyConsultation(updated)));
+        commitChange("UPDATE", updated.getConsultationId(), updated);
     }
 
     public void updateFollowUpScheduleSlot(Consultation consultation, LocalDateTime newFollowUpDate) {
         LocalDateTime now = LocalDateTime.now();
         LocalDateTime oldFollowUpDate = consultation.getFollowUpDate();
+        String freedKey = null;
+        String bookedKey = null;
 
         // Free the old slot if valid
         if (oldFollowUpDate != null && oldFollowUpDate.isAfter(now)) {
@@ -274,8 +309,9 @@ public class ConsultationMaintenance {
             Schedule oldSched = scheduleMap.get(key);
             if (oldSched != null && !oldSched.getStatus()) {
                 oldSched.setStatus(true);
+                scheduleIndex.statusChanged(key);
                 scheduleMap.put(key, oldSched);
-                scheduleDAO.saveToFile(scheduleMap);
+                freedKey = key;
             }
         }
 
@@ -291,10 +327,18 @@ public class ConsultationMaintenance {
             Schedule newSched = scheduleMap.get(key);
             if (newSched != null && newSched.getStatus()) {
                 newSched.setStatus(false);
+                scheduleIndex.statusChanged(key);
                 scheduleMap.put(key, newSched);
-                scheduleDAO.saveToFile(scheduleMap);
+                bookedKey = key;
             }
         }
+
+        // One save for both slots
+        if (freedKey != null && bookedKey != null) {
+            scheduleDAO.saveChanges(scheduleMap, new String[] { freedKey, bookedKey });
+        } else if (freedKey != null || bookedKey != null) {
+            scheduleDAO.saveChange(scheduleMap, freedKey != null ? freedKey : bookedKey);
+        }
     }
 
     public boolean removeConsultation(String id) {
@@ -302,7 +346,7 @@ public class ConsultationMaintenance {
         removeFromIndices(removed);
         consultationDAO.saveToFile(consultationMap);
         if (removed != null) {
-            logUndoAction(new UndoAction("REMOVE", copyConsultation(removed), null));
+            commitChange("REMOVE", id, null);
         }
         return removed != null;
     }
@@ -327,12 +371,12 @@ public class ConsultationMaintenance {
         Schedule sched = scheduleMap.get(key);
         if (sched != null && sched.getStatus()) {
             sched.setStatus(false); // Mark as booked
+            scheduleIndex.statusChanged(key);
             scheduleMap.put(key, sched); // Update map
             scheduleDAO.saveToFile(scheduleMap); // Persist changes
         }
 
         appointmentDAO.saveToFile(appointmentMap);
-        IDGenerator.saveCounters("counter.dat");
     }
 
     public boolean removeAppointment(String appointmentId) {
@@ -380,6 +424,7 @@ public class ConsultationMaintenance {
             Schedule sched = scheduleMap.get(key);
             if (sched != null && !sched.getStatus()) {
                 sched.setStatus(true); // Mark as available
+                scheduleIndex.statusChanged(key);
                 scheduleMap.put(key, sched);
                 scheduleDAO.saveToFile(scheduleMap);
             }
@@ -410,7 +455,7 @@ public class ConsultationMaintenance {
 
     public ConsultationService[] getAllServices() {
         // return serviceMap.toArray(new ConsultationService[0]);
-        return consultationServiceDAO.retrieveFromFile().toArray(new ConsultationService[0]);
+        return serviceMap.toArray(new ConsultationService[0]);
     }
 
     // Diagnosis access
@@ -420,38 +465,20 @@ public class ConsultationMaintenance {
 
     public Diagnosis[] getAllDiagnoses() {
         // return diagnosisMap.toArray(new Diagnosis[0]);
-        return diagnosisDAO.retrieveFromFile().toArray(new Diagnosis[0]);
+        return diagnosisMap.toArray(new Diagnosis[0]);
     }
 
     // Schedule
     public String[] getAvailableSlotsForDoctor(String doctorId) {
         if (doctorId == null) return new String[0];
 
-        // Collect available slots for doctor
-        OrderedMap<String, String> slotMap = new OrderedMap<>();
-        int slotCounter = 1;
-        LocalDateTime now = LocalDateTime.now();
-
-        for (int i = 0; i < scheduleMap.size(); i++) {
-            Schedule sched = scheduleMap.get(i);
-            if (sched.getDoctorID().equals(doctorId) && sched.getStatus()) {
-                String displaySlot = sched.getDate() + " " + sched.getTimeslot();
-                try {
-                    String[] slotParts = sched.getTimeslot().split("[-–—]");
-                    String startTime = slotParts[0].trim();
-                    String[] dateParts = sched.getDate().split("-");
-                    String formattedDate = dateParts.length == 3
-                            ? dateParts[2] + "/" + dateParts[1] + "/" + dateParts[0]
-                            : sched.getDate();
-                    String dateTimeStr = formattedDate + " " + startTime;
-                    LocalDateTime slotDateTime = utility.DateTimeFormatterUtil.parseDisplayFormat(dateTimeStr);
-                    if (slotDateTime.isAfter(now)) {
-                        slotMap.put("slot" + slotCounter++, displaySlot);
-                    }
-                } catch (Exception ex) {}
-            }
+        // Future available slots come straight from the doctor's timeline in the schedule index
+        Schedule[] free = scheduleIndex.getAvailableForDoctor(doctorId, Schedule.toEpochMinute(LocalDateTime.now()));
+        String[] slots = new String[free.length];
+        for (int i = 0; i < free.length; i++) {
+            slots[i] = free[i].getDate() + " " + free[i].getTimeslot();
         }
-        return slotMap.toArray(new String[0]);
+        return slots;
     }
 
     // --- Searching and Sorting for Consultations ---
@@ -492,11 +519,11 @@ public class ConsultationMaintenance {
     }
 
     public void sortConsultationsByPatientName() {
-        consultationMap.sort(Comparator.comparing(c -> c.getPatient().getName(), String.CASE_INSENSITIVE_ORDER));
+        consultationMap.sortByKeyIgnoreCase(c -> c.getPatient().getName(), true);
     }
 
     public void sortConsultationsByDoctorName() {
-        consultationMap.sort(Comparator.comparing(c -> c.getDoctor().getName(), String.CASE_INSENSITIVE_ORDER));
+        consultationMap.sortByKeyIgnoreCase(c -> c.getDoctor().getName(), true);
     }
 
     public void sortConsultationsByDate() {
@@ -535,23 +562,18 @@ public class ConsultationMaintenance {
     }
 
     public void sortAppointmentsByPatientName() {
-        appointmentMap.sort((a1, a2) -> {
-            Patient p1 = getPatient(a1.getPatientId());
-            Patient p2 = getPatient(a2.getPatientId());
-            String n1 = (p1 != null) ? p1.getName() : "";
-            String n2 = (p2 != null) ? p2.getName() : "";
-            return n1.compareToIgnoreCase(n2);
-        });
+        // One patient lookup per appointment rather than two per comparison
+        appointmentMap.sortByKeyIgnoreCase(a -> {
+            Patient p = getPatient(a.getPatientId());
+            return (p != null) ? p.getName() : "";
+        }, true);
     }
 
     public void sortAppointmentsByDoctorName() {
-        appointmentMap.sort((a1, a2) -> {
-            Doctor d1 = getDoctor(a1.getDoctorId());
-            Doctor d2 = getDoctor(a2.getDoctorId());
-            String n1 = (d1 != null) ? d1.getName() : "";
-            String n2 = (d2 != null) ? d2.getName() : "";
-            return n1.compareToIgnoreCase(n2);
-        });
+        appointmentMap.sortByKeyIgnoreCase(a -> {
+            Doctor d = getDoctor(a.getDoctorId());
+            return (d != null) ? d.getName() : "";
+        }, true);
     }
 
     public void sortAppointmentsByDate() {
@@ -559,7 +581,7 @@ public class ConsultationMaintenance {
     }
 
     public void printConsultationSummaryReport() {
-        Consultation[] consultations = consultationMap.toArray(new Consultation[0]);
+        PersistentOrderedMap<String, Consultation> consultations = getConsultationSnapshot();
         String now = java.time.ZonedDateTime.now()
                 .format(java.time.format.DateTimeFormatter.ofPattern("EEEE, MMM dd yyyy, hh:mm a"));
 
@@ -574,10 +596,10 @@ public class ConsultationMaintenance {
 
         System.out.println(center("CONSULTATION OVERVIEW", 80));
         dash();
-        System.out.printf("  %-30s │ %-30s%n", "Total consultations", consultations.length);
+        System.out.printf("  %-30s │ %-30s%n", "Total consultations", consultations.size());
         dash();
 
-        if (consultations.length == 0) {
+        if (consultations.size() == 0) {
             System.out.println("No consultation records to show. Please add consultation data first.");
             line();
             return;
@@ -611,13 +633,13 @@ public class ConsultationMaintenance {
                 this.id = id; this.name = name; this.count = count;
             }
         }
-        OrderedMap<Integer, PatientRow> rows = new OrderedMap<>();
+        ResultList<PatientRow> rows = new ResultList<>();
         String[] pidArray = patientIds.toArray(new String[0]);
         for (String pid : pidArray) {
             Patient patient = patientMap.get(pid);
             String pname = patient != null ? patient.getName() : "Unknown";
             int count = byPatient.get(pid) != null ? byPatient.get(pid) : 0;
-            rows.put(rows.size(), new PatientRow(pid, pname, count));
+            rows.add(new PatientRow(pid, pname, count));
         }
         rows.sort((a, b) -> b.count - a.count);
 
@@ -665,13 +687,13 @@ public class ConsultationMaintenance {
                 this.id = id; this.name = name; this.count = count;
             }
         }
-        OrderedMap<Integer, DoctorRow> doctorRows = new OrderedMap<>();
+        ResultList<DoctorRow> doctorRows = new ResultList<>();
         String[] didArray = doctorIds.toArray(new String[0]);
         for (String did : didArray) {
             Doctor doctor = doctorMap.get(did);
             String dname = doctor != null ? doctor.getName() : "Unknown";
             int count = byDoctor.get(did) != null ? byDoctor.get(did) : 0;
-            doctorRows.put(doctorRows.size(), new DoctorRow(did, dname, count));
+            doctorRows.add(new DoctorRow(did, dname, count));
         }
         doctorRows.sort((a, b) -> b.count - a.count);
 
@@ -695,7 +717,7 @@ public class ConsultationMaintenance {
     }
 
     public void printServiceUsageReport() {
-        Consultation[] consultations = consultationMap.toArray(new Consultation[0]);
+        PersistentOrderedMap<String, Consultation> consultations = getConsultationSnapshot();
         String now = java.time.ZonedDateTime.now()
                 .format(java.time.format.DateTimeFormatter.ofPattern("EEEE, MMM dd yyyy, hh:mm a"));
 
@@ -708,7 +730,7 @@ public class ConsultationMaintenance {
         System.out.println(rightInDash("generated at: " + now));
         dash(); blank();
 
-        if (consultations.length == 0) {
+        if (consultations.size() == 0) {
             System.out.println("No consultation records to show. Please add consultation data first.");
             line();
             return;
@@ -740,13 +762,13 @@ public class ConsultationMaintenance {
             int count;
             ServiceRow(String id, String name, int count) { this.id = id; this.name = name; this.count = count; }
         }
-        OrderedMap<Integer, ServiceRow> rows = new OrderedMap<>();
+        ResultList<ServiceRow> rows = new ResultList<>();
         String[] sidArray = serviceIdsADT.toArray(new String[0]);
         for (String sid : sidArray) {
             ConsultationService service = serviceMap.get(sid);
             String serviceName = service != null ? service.getServiceName() : "Unknown";
             int count = serviceUsage.get(sid) != null ? serviceUsage.get(sid) : 0;
-            rows.put(rows.size(), new ServiceRow(sid, serviceName, count));
+            rows.add(new ServiceRow(sid, serviceName, count));
         }
         rows.sort((a, b) -> b.count - a.count);
 
@@ -819,13 +841,13 @@ public class ConsultationMaintenance {
             int count;
             DoctorRow(String id, String name, int count) { this.id = id; this.name = name; this.count = count; }
         }
-        OrderedMap<Integer, DoctorRow> doctorRows = new OrderedMap<>();
+        ResultList<DoctorRow> doctorRows = new ResultList<>();
         String[] didArray = doctorIds.toArray(new String[0]);
         for (String did : didArray) {
             Doctor doctor = doctorMap.get(did);
             String dname = doctor != null ? doctor.getName() : "Unknown";
             int count = byDoctor.get(did) != null ? byDoctor.get(did) : 0;
-            doctorRows.put(doctorRows.size(), new DoctorRow(did, dname, count));
+            doctorRows.add(new DoctorRow(did, dname, count));
         }
         doctorRows.sort((a, b) -> b.count - a.count);
 
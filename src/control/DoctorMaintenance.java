@@ -1,6 +1,12 @@
 package control;
 
+import adt.IntOrderedMap;
+import adt.OpenAddressingOrderedMap;
 import adt.OrderedMap;
+import adt.OrderedMapInterface;
+import adt.PersistentOrderedMap;
+import adt.ResultList;
+import dao.DataRepository;
 import dao.DoctorDAO;
 import entity.Doctor;
 import entity.Schedule;
@@ -10,8 +16,7 @@ public class DoctorMaintenance {
     // Undo Feature
     private static class UndoAction {
         String type; // "REGISTER", "REMOVE", "UPDATE"
-        Doctor doctorBefore;
-        Doctor doctorAfter;
+        PersistentOrderedMap<String, Doctor> before; // all doctors as they were before the action
         String field;      // for update
         String prevValue;  // for update
         String newValue;   // for update
@@ -19,37 +24,34 @@ public class DoctorMaintenance {
 
     private OrderedMap<String, Doctor> doctorRegistry;
     private OrderedMap<Integer, UndoAction> undoHistory;
+    private int undoSequence; // keys stay unique after the oldest entries are dropped
     private OrderedMap<Integer, String> recentDoctorActions;
+    // Frozen copies of the doctors as of the last change; undo versions share the unchanged ones
+    private PersistentOrderedMap<String, Doctor> committed = PersistentOrderedMap.empty();
     private ScheduleMaintenance scheduleMaintenance;
 
-    private OrderedMap<String, OrderedMap<String, Doctor>> nameIndex;
-    private OrderedMap<String, OrderedMap<String, Doctor>> specialtyIndex;
-    private OrderedMap<String, OrderedMap<String, Doctor>> genderIndex;
-    private OrderedMap<Integer, OrderedMap<String, Doctor>> experienceIndex;
+    private OrderedMapInterface<String, OrderedMap<String, Doctor>> nameIndex;
+    private OrderedMapInterface<String, OrderedMap<String, Doctor>> specialtyIndex;
+    private OrderedMapInterface<String, OrderedMap<String, Doctor>> genderIndex;
+    private IntOrderedMap<OrderedMap<String, Doctor>> experienceIndex;
 
     public DoctorMaintenance() {
-        IDGenerator.loadCounter("counter.dat");
-        this.doctorRegistry = DoctorDAO.loadDoctors();
+        this.doctorRegistry = DataRepository.getInstance().getDoctors();
         this.undoHistory = new OrderedMap<>();
         this.recentDoctorActions = new OrderedMap<>();
         this.scheduleMaintenance = new ScheduleMaintenance();
 
         // Initialize indices
-        nameIndex = new OrderedMap<>();
-        specialtyIndex = new OrderedMap<>();
-        genderIndex = new OrderedMap<>();
-        experienceIndex = new OrderedMap<>();
+        nameIndex = new OpenAddressingOrderedMap<>();
+        specialtyIndex = new OpenAddressingOrderedMap<>();
+        genderIndex = new OpenAddressingOrderedMap<>();
+        experienceIndex = new IntOrderedMap<>();
 
-        String highestID = "DC000";
         for (Doctor doctor : doctorRegistry) {
-            String id = doctor.getDoctorID();
-            if (id.compareTo(highestID) > 0) {
-                highestID = id;
-            }
             indexDoctor(doctor);
+            committed = committed.put(doctor.getDoctorID(), copyDoctor(doctor));
         }
-        IDGenerator.updateDoctorCounterFromHighestID(highestID);
-        IDGenerator.saveCounters("counter.dat");
+        IDGenerator.seedFromExisting(IDGenerator.DOCTOR, doctorRegistry, Doctor::getDoctorID);
     }
 
     private void indexDoctor(Doctor d) {
@@ -99,7 +101,7 @@ public class DoctorMaintenance {
         }
     }
 
-    private void addToIndex(OrderedMap<String, OrderedMap<String, Doctor>> index, String key, String docId, Doctor d) {
+    private void addToIndex(OrderedMapInterface<String, OrderedMap<String, Doctor>> index, String key, String docId, Doctor d) {
         OrderedMap<String, Doctor> bucket = index.get(key);
         if (bucket == null) {
             bucket = new OrderedMap<>();
@@ -108,7 +110,7 @@ public class DoctorMaintenance {
         bucket.put(docId, d);
     }
 
-    private void removeFromIndex(OrderedMap<String, OrderedMap<String, Doctor>> index, String key, String docId) {
+    private void removeFromIndex(OrderedMapInterface<String, OrderedMap<String, Doctor>> index, String key, String docId) {
         OrderedMap<String, Doctor> bucket = index.get(key);
         if (bucket != null) {
             bucket.remove(docId);
@@ -116,9 +118,28 @@ public class DoctorMaintenance {
         }
     }
 
-    private void logUndoAction(UndoAction action) {
-        undoHistory.push(undoHistory.size(), action);
-        if (undoHistory.size() > 20) undoHistory.remove(0);
+    // Records a change to one doctor (after == null for a removal) as a new committed version
+    private void logUndoAction(UndoAction action, String doctorID, Doctor after) {
+        action.before = committed;
+        committed = (after == null) ? committed.remove(doctorID) : committed.put(doctorID, copyDoctor(after));
+        undoHistory.push(undoSequence++, action);
+        if (undoHistory.size() > 100) undoHistory.removeAt(0);
+    }
+
+    // Brings the registry back to an earlier version; only the doctors that differ are touched
+    private void restoreVersion(PersistentOrderedMap<String, Doctor> target) {
+        committed.diff(target, (id, now, then) -> {
+            removeFromIndices(doctorRegistry.get(id));
+            if (then == null) {
+                doctorRegistry.remove(id);
+            } else {
+                Doctor restored = copyDoctor(then);
+                doctorRegistry.put(id, restored);
+                indexDoctor(restored);
+            }
+        });
+        committed = target;
+        DoctorDAO.saveDoctors(doctorRegistry);
     }
 
     private void logAction(String action) {
@@ -141,11 +162,9 @@ public class DoctorMaintenance {
         doctorRegistry.put(doctor.getDoctorID(), doctor);
         indexDoctor(doctor);
         DoctorDAO.saveDoctors(doctorRegistry);
-        IDGenerator.saveCounters("counter.dat");
         UndoAction action = new UndoAction();
         action.type = "REGISTER";
-        action.doctorAfter = copyDoctor(doctor);
-        logUndoAction(action);
+        logUndoAction(action, doctor.getDoctorID(), doctor);
         logAction("Registered doctor [" + doctor.getDoctorID() + "] " + doctor.getName());
         return true;
     }
@@ -160,7 +179,6 @@ public class DoctorMaintenance {
 
         UndoAction action = new UndoAction();
         action.type = "UPDATE";
-        action.doctorBefore = copyDoctor(doctor); // before update
         action.field = field;
 
         String oldValue = null;
@@ -209,19 +227,17 @@ public class DoctorMaintenance {
         }
 
         // update indices: remove old, add updated
-        removeFromIndices(action.doctorBefore);
+        removeFromIndices(committed.get(doctorID)); // the last committed copy still has the old values
         indexDoctor(doctor);
 
         DoctorDAO.saveDoctors(doctorRegistry);
-        IDGenerator.saveCounters("counter.dat");
         action.prevValue = oldValue;
-        action.doctorAfter = copyDoctor(doctor); // after update
-        logUndoAction(action);
+        logUndoAction(action, doctorID, doctor);
         logAction("Updated doctor [" + doctorID + "]: " + field + " changed from '" + oldValue + "' to '" + newValue + "'");
     }
 
     public boolean removeDoctor(String doctorID) {
-        OrderedMap<Integer, Schedule> futureSchedules = scheduleMaintenance.getSchedulesByDoctor(doctorID);
+        ResultList<Schedule> futureSchedules = scheduleMaintenance.getSchedulesByDoctor(doctorID);
         boolean hasFuture = false;
         String today = java.time.LocalDate.now().toString();
         for (int i = 0; i < futureSchedules.size(); i++) {
@@ -239,11 +255,9 @@ public class DoctorMaintenance {
         if (removed) {
             removeFromIndices(removedDoctor);
             DoctorDAO.saveDoctors(doctorRegistry);
-            IDGenerator.saveCounters("counter.dat");
             UndoAction action = new UndoAction();
             action.type = "REMOVE";
-            action.doctorBefore = copyDoctor(removedDoctor);
-            logUndoAction(action);
+            logUndoAction(action, doctorID, null);
             logAction("Removed doctor [" + doctorID + "]");
         }
         return removed;
@@ -253,25 +267,13 @@ public class DoctorMaintenance {
     public String undoLastAction() {
         if (undoHistory.size() == 0) return "No action to undo.";
         UndoAction action = undoHistory.pop();
+        restoreVersion(action.before);
         switch (action.type) {
             case "REGISTER":
-                Doctor regDoc = action.doctorAfter;
-                doctorRegistry.remove(regDoc.getDoctorID());
-                removeFromIndices(regDoc);
-                DoctorDAO.saveDoctors(doctorRegistry);
                 return "Undo Register: Doctor removed.";
             case "REMOVE":
-                Doctor remDoc = action.doctorBefore;
-                doctorRegistry.put(remDoc.getDoctorID(), copyDoctor(remDoc));
-                indexDoctor(remDoc);
-                DoctorDAO.saveDoctors(doctorRegistry);
                 return "Undo Remove: Doctor restored.";
             case "UPDATE":
-                Doctor updDoc = action.doctorBefore;
-                removeFromIndices(doctorRegistry.get(updDoc.getDoctorID())); // remove updated
-                doctorRegistry.put(updDoc.getDoctorID(), copyDoctor(updDoc));
-                indexDoctor(updDoc);
-                DoctorDAO.saveDoctors(doctorRegistry);
                 return "Undo Update: Doctor reverted.";
             default:
                 return "Unknown action type.";
@@ -312,34 +314,22 @@ public class DoctorMaintenance {
 
     // ...sorts and other methods unchanged...
     public Doctor[] sortByName(boolean ascending) {
-        doctorRegistry.sort((d1, d2) -> {
-            int cmp = d1.getName().compareToIgnoreCase(d2.getName());
-            return ascending ? cmp : -cmp;
-        });
+        doctorRegistry.sortByKeyIgnoreCase(Doctor::getName, ascending);
         return doctorRegistry.toArray(new Doctor[doctorRegistry.size()]);
     }
 
     public Doctor[] sortBySpecialty(boolean ascending) {
-        doctorRegistry.sort((d1, d2) -> {
-            int cmp = d1.getSpecialty().compareToIgnoreCase(d2.getSpecialty());
-            return ascending ? cmp : -cmp;
-        });
+        doctorRegistry.sortByKeyIgnoreCase(Doctor::getSpecialty, ascending);
         return doctorRegistry.toArray(new Doctor[doctorRegistry.size()]);
     }
 
     public Doctor[] sortByGender(boolean ascending) {
-        doctorRegistry.sort((d1, d2) -> {
-            int cmp = d1.getGender().compareToIgnoreCase(d2.getGender());
-            return ascending ? cmp : -cmp;
-        });
+        doctorRegistry.sortByKeyIgnoreCase(Doctor::getGender, ascending);
         return doctorRegistry.toArray(new Doctor[doctorRegistry.size()]);
     }
 
     public Doctor[] sortByID(boolean ascending) {
-        doctorRegistry.sort((d1, d2) -> {
-            int cmp = d1.getDoctorID().compareToIgnoreCase(d2.getDoctorID());
-            return ascending ? cmp : -cmp;
-        });
+        doctorRegistry.sortByKeyIgnoreCase(Doctor::getDoctorID, ascending);
         return doctorRegistry.toArray(new Doctor[doctorRegistry.size()]);
     }
 
@@ -362,7 +352,7 @@ public class DoctorMaintenance {
     }
 
     public Schedule[] getSchedulesForDoctor(String doctorID) {
-        OrderedMap<Integer, Schedule> schedules = scheduleMaintenance.getSchedulesByDoctor(doctorID);
+        ResultList<Schedule> schedules = scheduleMaintenance.getSchedulesByDoctor(doctorID);
         return schedules.toArray(new Schedule[schedules.size()]);
     }
 
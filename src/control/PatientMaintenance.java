@@ -8,28 +8,31 @@ import adt.*;
 import dao.*;
 import entity.*;
 import java.time.LocalDateTime;
+import java.util.function.Predicate;
 import utility.IDGenerator;
 
 public class PatientMaintenance {
-    private final OrderedMap<String, Patient> normalQueue;
-    private final OrderedMap<String, Patient> emergencyQueue;
+    // Emergency patients are level 0, everyone else level 1; see TriageQueue for the aging rule
+    private static final int EMERGENCY_LEVEL = 0;
+    private static final int NORMAL_LEVEL = 1;
+    // A normal patient who has waited this much longer is served ahead of a new emergency
+    private static final long QUEUE_AGING_MILLIS = 30 * 60 * 1000L;
+    private final TriageQueue<String, Patient> patientQueue = new TriageQueue<>(2, QUEUE_AGING_MILLIS);
     private OrderedMap<String, Patient> patientRegistry;
-    private final OrderedMap<String, VisitHistory> visitHistoryMap;
+    // Saves its own changes; memory-mapped when run with -Dclinic.storage=mapped
+    private final EntityTable<VisitHistory> visitHistoryMap;
     private final PatientDAO patientDAO;
-    private final VisitHistoryDAO visitHistoryDAO;
     private static final int MAX_QUEUE_SIZE = 20;
     private OrderedMap<String, Consultation> consultationMap;
     private OrderedMap<String, Treatment> treatmentMap;
-    private final ConsultationDAO consultationDAO;
-    private final TreatmentDAO treatmentDAO;
     private ConsultationMaintenance consultationMaintenance;
     private TreatmentMaintenance treatmentMaintenance;
     private final PatientQueueDAO patientEmergencyQueueDAO = new PatientQueueDAO(1);
     private final PatientQueueDAO patientNormalQueueDAO = new PatientQueueDAO(2);
 
-    private OrderedMap<String, OrderedMap<String, Patient>> nameIndex = new OrderedMap<>();
-    private OrderedMap<String, OrderedMap<String, Patient>> genderIndex = new OrderedMap<>();
-    private OrderedMap<String, OrderedMap<String, Patient>> ageIndex = new OrderedMap<>();
+    private OrderedMapInterface<String, OrderedMap<String, Patient>> nameIndex = new OpenAddressingOrderedMap<>();
+    private OrderedMapInterface<String, OrderedMap<String, Patient>> genderIndex = new OpenAddressingOrderedMap<>();
+    private OrderedMapInterface<String, OrderedMap<String, Patient>> ageIndex = new OpenAddressingOrderedMap<>();
 
     private static PatientMaintenance instance;
 
@@ -107,7 +110,7 @@ public class PatientMaintenance {
                     removeFromNameIndex(action.patientAfter);
                     removeFromGenderIndex(action.patientAfter);
                     removeFromAgeIndex(action.patientAfter);
-                    saveChanges();
+                    saveChange(action.patientAfter.getPatientId());
                     return "Undo Register: Patient removed.";
                 }
                 return "Undo failed: missing data.";
@@ -118,22 +121,33 @@ public class PatientMaintenance {
                     addToNameIndex(action.patientBefore);
                     addToGenderIndex(action.patientBefore);
                     addToAgeIndex(action.patientBefore);
-                    saveChanges();
+                    saveChange(action.patientBefore.getPatientId());
                     return "Undo Delete: Patient restored.";
                 }
                 return "Undo failed: missing data.";
             case "UPDATE":
                 if (action.patientBefore != null) {
-                    // replace current with previous snapshot
-                    patientRegistry.put(action.patientBefore.getPatientId(), copyPatient(action.patientBefore));
-                    // rebuild indexes for that patient
-                    removeFromNameIndex(action.patientAfter);
-                    removeFromGenderIndex(action.patientAfter);
-                    removeFromAgeIndex(action.patientAfter);
-                    addToNameIndex(action.patientBefore);
-                    addToGenderIndex(action.patientBefore);
-                    addToAgeIndex(action.patientBefore);
-                    saveChanges();
+                    Patient current = patientRegistry.get(action.patientBefore.getPatientId());
+                    if (current == null) {
+                        current = copyPatient(action.patientBefore);
+                        patientRegistry.put(current.getPatientId(), current);
+                    } else {
+                        removeFromNameIndex(current);
+                        removeFromGenderIndex(current);
+                        removeFromAgeIndex(current);
+                    }
+                    // restore the fields in place so consultations and treatments that
+                    // share this patient instance see the reverted details
+                    current.setName(action.patientBefore.getName());
+                    current.setAge(action.patientBefore.getAge());
+                    current.setGender(action.patientBefore.getGender());
+                    current.setContactNumber(action.patientBefore.getContactNumber());
+                    current.setAddress(action.patientBefore.getAddress());
+                    current.setEmergency(action.patientBefore.isEmergency());
+                    addToNameIndex(current);
+                    addToGenderIndex(current);
+                    addToAgeIndex(current);
+                    saveChange(current.getPatientId());
                     return "Undo Update: Patient reverted.";
                 }
                 return "Undo failed: missing data.";
@@ -143,44 +157,30 @@ public class PatientMaintenance {
     }
 
     public PatientMaintenance() {
-        this.normalQueue = patientNormalQueueDAO.retrieveFromFile();
-        this.emergencyQueue = patientEmergencyQueueDAO.retrieveFromFile();
-        this.patientDAO = new PatientDAO();
-        this.visitHistoryDAO = new VisitHistoryDAO();
-        this.consultationDAO = new ConsultationDAO();
-        this.treatmentDAO = new TreatmentDAO();
-        this.consultationMaintenance = new ConsultationMaintenance();
-        this.treatmentMaintenance = new TreatmentMaintenance();
-
-        OrderedMap<String, Patient> loadedPatients = patientDAO.retrieveFromFile();
-        if (loadedPatients != null) {
-            this.patientRegistry = (OrderedMap<String, Patient>) loadedPatients;
-        } else {
-            this.patientRegistry = new OrderedMap<>();
+        // Saved queues keep their order; waiting time is counted from when they are loaded
+        OrderedMap<String, Patient> savedEmergency = patientEmergencyQueueDAO.retrieveFromFile();
+        for (int i = 0; i < savedEmergency.size(); i++) {
+            patientQueue.offer(savedEmergency.getKey(i), savedEmergency.get(i), EMERGENCY_LEVEL);
         }
-
-        OrderedMap<String, VisitHistory> loadedVisitHistory = visitHistoryDAO.retrieveFromFile();
-        if (loadedVisitHistory != null) {
-            this.visitHistoryMap = (OrderedMap<String, VisitHistory>) loadedVisitHistory;
-        } else {
-            this.visitHistoryMap = new OrderedMap<>();
+        OrderedMap<String, Patient> savedNormal = patientNormalQueueDAO.retrieveFromFile();
+        for (int i = 0; i < savedNormal.size(); i++) {
+            patientQueue.offer(savedNormal.getKey(i), savedNormal.get(i), NORMAL_LEVEL);
         }
+        DataRepository repository = DataRepository.getInstance();
+        this.patientDAO = repository.getPatientDAO();
+        this.consultationMaintenance = new ConsultationMaintenance();
+        this.treatmentMaintenance = new TreatmentMaintenance();
 
-        OrderedMap<String, Consultation> loadedConsultations = consultationDAO.retrieveFromFile();
-        if (loadedConsultations != null) {
-            this.consultationMap = (OrderedMap<String, Consultation>) loadedConsultations;
-        } else {
-            this.consultationMap = new OrderedMap<>();
-        }
+        // Shared with the other controllers; each file is only read once per run
+        this.patientRegistry = repository.getPatients();
+        this.visitHistoryMap = repository.getVisitHistory();
+        this.consultationMap = repository.getConsultations();
+        this.treatmentMap = repository.getTreatments();
 
-        OrderedMap<String, Treatment> loadedTreatments = treatmentDAO.retrieveFromFile();
-        if (loadedTreatments != null) {
-            this.treatmentMap = (OrderedMap<String, Treatment>) loadedTreatments;
-        } else {
-            this.treatmentMap = new OrderedMap<>();
-        }
+        // Scans the records only on the first run with block-reserved IDs
+        IDGenerator.seedFromExisting(IDGenerator.PATIENT, patientRegistry, Patient::getPatientId);
+        IDGenerator.seedFromExisting(IDGenerator.VISIT, visitHistoryMap, VisitHistory::getVisitId);
 
-        IDGenerator.loadCounter("counter.dat");
         rebuildNameIndex();
         rebuildGenderIndex();
         rebuildAgeIndex();
@@ -240,8 +240,7 @@ public class PatientMaintenance {
         addToGenderIndex(newPatient);
         addToAgeIndex(newPatient);
 
-        saveChanges();
-        IDGenerator.saveCounters("counter.dat");
+        saveChange(patientId);
         logRegisterPatient(patientId);
         return true;
     }
@@ -283,7 +282,7 @@ public class PatientMaintenance {
         addToGenderIndex(patient);
         addToAgeIndex(patient);
 
-        saveChanges();
+        saveChange(patientId);
         return true;
     }
 
@@ -301,10 +300,9 @@ public class PatientMaintenance {
         removeFromGenderIndex(removedPatient);
         removeFromAgeIndex(removedPatient);
 
-        emergencyQueue.remove(patientId);
-        normalQueue.remove(patientId);
+        patientQueue.remove(patientId);
         patientRegistry.remove(patientId);
-        saveChanges();
+        saveChange(patientId);
         return true;
     }
 
@@ -498,13 +496,10 @@ public class PatientMaintenance {
      */
     public OrderedMap<String, Patient> getAllPatients() {
         // Create a copy to avoid modifying the original registry
-        OrderedMap<String, Patient> sortedPatients = new OrderedMap<>();
-        for (Patient patient : patientRegistry) {
-            sortedPatients.put(patient.getPatientId(), patient);
-        }
+        OrderedMap<String, Patient> sortedPatients = new OrderedMap<>(patientRegistry);
 
         // Sort by patient name
-        sortedPatients.sort((p1, p2) -> p1.getName().compareToIgnoreCase(p2.getName()));
+        sortedPatients.sortByKeyIgnoreCase(Patient::getName, true);
 
         return sortedPatients;
     }
@@ -516,6 +511,13 @@ public class PatientMaintenance {
         patientDAO.saveToFile(patientRegistry);
     }
 
+    /**
+     * Save the change to a single patient record
+     */
+    private void saveChange(String patientId) {
+        patientDAO.saveChange(patientRegistry, patientId);
+    }
+
     // ===============================
     // QUEUE MANAGEMENT SECTION
     // ===============================
@@ -530,33 +532,31 @@ public class PatientMaintenance {
         }
 
         if (getTotalQueueSize() < MAX_QUEUE_SIZE) {
-            if (patient.isEmergency()) {
-                emergencyQueue.offer(patientId, patient);
-                patientEmergencyQueueDAO.saveToFile(emergencyQueue);
-            } else {
-                normalQueue.offer(patientId, patient);
-                patientNormalQueueDAO.saveToFile(normalQueue);
-            }
+            int level = patient.isEmergency() ? EMERGENCY_LEVEL : NORMAL_LEVEL;
+            patientQueue.offer(patientId, patient, level);
+            saveQueue(level);
         } else {
             System.out.println("Queue is full. Cannot enqueue patient.");
         }
     }
 
+    private void saveQueue(int level) {
+        PatientQueueDAO dao = (level == EMERGENCY_LEVEL) ? patientEmergencyQueueDAO : patientNormalQueueDAO;
+        dao.saveToFile(patientQueue.copyOfLevel(level));
+    }
+
     /**
-     * Serve next patient from queues
+     * Serve next patient from queues: emergencies first, unless a normal patient has
+     * waited long enough to be promoted
      */
     public Patient serveNextPatient() {
-        // Use OrderedMap's poll() method for proper queue behavior (FIFO)
-        Patient nextPatient = emergencyQueue.poll();
-
+        Patient nextPatient = patientQueue.peek();
         if (nextPatient == null) {
-            nextPatient = normalQueue.poll();
-            patientNormalQueueDAO.saveToFile(normalQueue);
-        } else {
-            patientEmergencyQueueDAO.saveToFile(emergencyQueue);
+            return null;
         }
-
-
+        int level = patientQueue.levelOf(nextPatient.getPatientId());
+        patientQueue.poll();
+        saveQueue(level);
         return nextPatient;
     }
 
@@ -564,74 +564,53 @@ public class PatientMaintenance {
      * Peek at next patient without removing
      */
     public Patient peekNextPatient() {
-        Patient nextPatient = emergencyQueue.peek();
-        if (nextPatient == null) {
-            nextPatient = normalQueue.peek();
-        }
-        return nextPatient;
+        return patientQueue.peek();
     }
 
     /**
-     * Get emergency queue contents for display
+     * Get emergency queue contents for display; a live view, not a copy
      */
-    public OrderedMap<String, Patient> getEmergencyQueue() {
-        return getAllQueuedPatients().filter(null, (patient, reference) -> {
-            if (patient == null) return -1;
-            return patient.isEmergency() ? 0 : -1;
-        });
+    public OrderedMapView<String, Patient> getEmergencyQueue() {
+        return patientQueue.levelView(EMERGENCY_LEVEL);
     }
 
     /**
-     * Get normal queue contents for display
+     * Get normal queue contents for display; a live view, not a copy
      */
-    public OrderedMap<String, Patient> getNormalQueue() {
-        return getAllQueuedPatients().filter(null, (patient, reference) -> {
-            if (patient == null) return -1;
-            return !patient.isEmergency() ? 0 : -1;
-        });
+    public OrderedMapView<String, Patient> getNormalQueue() {
+        return patientQueue.levelView(NORMAL_LEVEL);
     }
 
     /**
-     * Helper method to get all patients currently in any queue
+     * Returns the patient's place in the order patients will be served (1 = next)
+     * @return the position, or -1 if the patient is not queued
      */
-    private OrderedMap<String, Patient> getAllQueuedPatients() {
-        OrderedMap<String, Patient> allQueued = new OrderedMap<>();
-
-        // Add all patients from emergency queue
-        for (Patient patient : emergencyQueue) {
-            allQueued.put(patient.getPatientId(), patient);
-        }
-
-        // Add all patients from normal queue
-        for (Patient patient : normalQueue) {
-            allQueued.put(patient.getPatientId(), patient);
-        }
-
-        return allQueued;
+    public int getQueuePosition(String patientId) {
+        int position = patientQueue.positionOf(patientId);
+        return position < 0 ? -1 : position + 1;
     }
 
     /**
      * Clear all queues
      */
     public void clearAllQueues() {
-        normalQueue.clear();
-        emergencyQueue.clear();
+        patientQueue.clear();
     }
 
     public boolean isPatientInQueue(String patientId) {
-        return emergencyQueue.containsKey(patientId) || normalQueue.containsKey(patientId);
+        return patientQueue.contains(patientId);
     }
 
     public int getEmergencyQueueSize() {
-        return emergencyQueue.size();
+        return patientQueue.size(EMERGENCY_LEVEL);
     }
 
     public int getNormalQueueSize() {
-        return normalQueue.size();
+        return patientQueue.size(NORMAL_LEVEL);
     }
 
     public int getTotalQueueSize() {
-        return emergencyQueue.size() + normalQueue.size();
+        return patientQueue.size();
     }
 
     // ===============================
@@ -657,8 +636,6 @@ public class PatientMaintenance {
         );
 
         visitHistoryMap.put(visitId, visitHistory);
-        visitHistoryDAO.saveToFile(visitHistoryMap);
-        IDGenerator.saveCounters("counter.dat");
         return true;
     }
 
@@ -699,14 +676,10 @@ public class PatientMaintenance {
      * Get all visit histories
      */
     public OrderedMap<String, VisitHistory> getAllVisitHistories() {
-        OrderedMap<String, VisitHistory> copy = new OrderedMap<>();
-
-        // Use OrderedMap indexed access to copy all entries
-        for (int i = 0; i < visitHistoryMap.size(); i++) {
-            VisitHistory visit = visitHistoryMap.get(i);
-            if (visit != null) {
-                copy.put(visit.getVisitId(), visit);
-            }
+        // Visits are keyed by visit ID, so this keeps the same entries
+        OrderedMap<String, VisitHistory> copy = new OrderedMap<>(visitHistoryMap.size());
+        for (VisitHistory visit : visitHistoryMap) {
+            copy.put(visit.getVisitId(), visit);
         }
 
         // Sort by visit date (most recent first)
@@ -715,6 +688,27 @@ public class PatientMaintenance {
         return copy;
     }
 
+    /**
+     * Get the visits of one month, most recent first; with segmented storage only that
+     * month is read
+     */
+    public OrderedMap<String, VisitHistory> getVisitHistoriesInMonth(int year, int month) {
+        OrderedMap<String, VisitHistory> visits;
+        if (visitHistoryMap instanceof SegmentedEntityTable) {
+            visits = ((SegmentedEntityTable<VisitHistory>) visitHistoryMap).getMonth(year, month);
+        } else {
+            visits = new OrderedMap<>();
+            for (VisitHistory visit : visitHistoryMap) {
+                LocalDateTime date = visit.getVisitDate();
+                if (date != null && date.getYear() == year && date.getMonthValue() == month) {
+                    visits.put(visit.getVisitId(), visit);
+                }
+            }
+        }
+        visits.sort((v1, v2) -> v2.getVisitDate().compareTo(v1.getVisitDate()));
+        return visits;
+    }
+
     /**
      * Update visit history with comprehensive validation
      */
@@ -743,7 +737,7 @@ public class PatientMaintenance {
             updated = true;
         }
         if (updated) {
-            visitHistoryDAO.saveToFile(visitHistoryMap);
+            visitHistoryMap.put(visitId, vh);
         }
         return updated;
     }
@@ -757,12 +751,7 @@ public class PatientMaintenance {
         }
 
         try {
-            VisitHistory removed = visitHistoryMap.remove(visitId);
-            if (removed != null) {
-                visitHistoryDAO.saveToFile(visitHistoryMap);
-                return true;
-            }
-            return false;
+            return visitHistoryMap.remove(visitId) != null;
         } catch (Exception e) {
             System.err.println("Error removing visit history: " + e.getMessage());
             return false;
@@ -781,56 +770,38 @@ public class PatientMaintenance {
         reportData.put("patientsInQueue", getTotalQueueSize());
         reportData.put("emergencyQueueSize", getEmergencyQueueSize());
         reportData.put("normalQueueSize", getNormalQueueSize());
-        // Gender breakdown using filter
+        // Gender breakdown, counted with streams instead of building filtered maps
         OrderedMap<String, Integer> genderStats = new OrderedMap<>();
-        // Filter for males
-        OrderedMap<String, Patient> malePatients = patientRegistry.filter(
-                new Patient("", "", 0, "Male", "", "", false),
-                (p1, p2) -> p1.getGender().equalsIgnoreCase(p2.getGender()) ? 0 : -1
-        );
-        genderStats.put("Male", malePatients.size());
-        // Filter for females
-        OrderedMap<String, Patient> femalePatients = patientRegistry.filter(
-                new Patient("", "", 0, "Female", "", "", false),
-                (p1, p2) -> p1.getGender().equalsIgnoreCase(p2.getGender()) ? 0 : -1
-        );
-        genderStats.put("Female", femalePatients.size());
+        genderStats.put("Male", countPatients(p -> "Male".equalsIgnoreCase(p.getGender())));
+        genderStats.put("Female", countPatients(p -> "Female".equalsIgnoreCase(p.getGender())));
         reportData.put("genderBreakdown", genderStats);
-        // Age group breakdown using filter
+        // Age group breakdown
         OrderedMap<String, Integer> ageGroups = new OrderedMap<>();
-        // Filter for each age group
-        OrderedMap<String, Patient> group0to18 = patientRegistry.filter(
-                new Patient("", "", 18, "", "", "", false),
-                (p1, p2) -> p1.getAge() <= 18 ? 0 : -1
-        );
-        ageGroups.put("0-18", group0to18.size());
-        OrderedMap<String, Patient> group19to35 = patientRegistry.filter(
-                new Patient("", "", 35, "", "", "", false),
-                (p1, p2) -> (p1.getAge() >= 19 && p1.getAge() <= 35) ? 0 : -1
-        );
-        ageGroups.put("19-35", group19to35.size());
-
-        OrderedMap<String, Patient> group36to50 = patientRegistry.filter(
-                new Patient("", "", 50, "", "", "", false),
-                (p1, p2) -> (p1.getAge() >= 36 && p1.getAge() <= 50) ? 0 : -1
-        );
-        ageGroups.put("36-50", group36to50.size());
-        OrderedMap<String, Patient> group51to65 = patientRegistry.filter(
-                new Patient("", "", 65, "", "", "", false),
-                (p1, p2) -> (p1.getAge() >= 51 && p1.getAge() <= 65) ? 0 : -1
-        );
-        ageGroups.put("51-65", group51to65.size());
-
-        OrderedMap<String, Patient> group65Plus = patientRegistry.filter(
-                new Patient("", "", 66, "", "", "", false),
-                (p1, p2) -> p1.getAge() > 65 ? 0 : -1
-        );
-        ageGroups.put("65+", group65Plus.size());
+        ageGroups.put("0-18", countPatients(p -> p.getAge() <= 18));
+        ageGroups.put("19-35", countPatients(p -> p.getAge() >= 19 && p.getAge() <= 35));
+        ageGroups.put("36-50", countPatients(p -> p.getAge() >= 36 && p.getAge() <= 50));
+        ageGroups.put("51-65", countPatients(p -> p.getAge() >= 51 && p.getAge() <= 65));
+        ageGroups.put("65+", countPatients(p -> p.getAge() > 65));
         reportData.put("ageGroupBreakdown", ageGroups);
         return reportData;
     }
 
+    private int countPatients(Predicate<Patient> condition) {
+        return (int) patientRegistry.stream().filter(condition).count();
+    }
+
     public OrderedMap<String, Object> generatePatientVisitSummaryReport() {
+        return summarizeVisits(getAllVisitHistories());
+    }
+
+    /**
+     * Generate the visit summary report for one month, reading only that month's visits
+     */
+    public OrderedMap<String, Object> generatePatientVisitSummaryReport(int year, int month) {
+        return summarizeVisits(getVisitHistoriesInMonth(year, month));
+    }
+
+    private OrderedMap<String, Object> summarizeVisits(OrderedMap<String, VisitHistory> allV) {
         OrderedMap<String, Object> report = new OrderedMap<>();
 
         // 1) aggregate
@@ -843,7 +814,6 @@ public class PatientMaintenance {
         OrderedMap<String, Integer> visitsPerMonth = new OrderedMap<>();
         OrderedMap<String, Integer> countByPatient = new OrderedMap<>();
 
-        OrderedMap<String, VisitHistory> allV = getAllVisitHistories();
         int total = allV.size();
 
         for (int i = 0; i < allV.size(); i++) {
@@ -4,16 +4,17 @@
 package control;
 
 import adt.OrderedMap;
+import dao.DataRepository;
 import dao.PaymentDAO;
 import entity.Payment;
 
 public class PaymentMaintenance {
     private final OrderedMap<String, Payment> paymentMap;
-    private final PaymentDAO paymentDAO = new PaymentDAO();
+    private final PaymentDAO paymentDAO = DataRepository.getInstance().getPaymentDAO();
     private static PaymentMaintenance instance;
 
     public PaymentMaintenance() {
-        this.paymentMap = paymentDAO.retrieveFromFile();
+        this.paymentMap = DataRepository.getInstance().getPayments();
     }
 
     public static PaymentMaintenance getInstance() {
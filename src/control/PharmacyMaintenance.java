@@ -4,7 +4,10 @@
 
 package control;
 
+import adt.OpenAddressingOrderedMap;
 import adt.OrderedMap;
+import adt.OrderedMapInterface;
+import adt.OrderedMapView;
 import dao.*;
 import entity.*;
 
@@ -16,27 +19,31 @@ import utility.IDGenerator;
 public class PharmacyMaintenance {
     private final OrderedMap<String, Medicine> medicineMap;
     private final OrderedMap<String, Prescription> pendingPrescriptionMap;
-    private OrderedMap<String, Prescription> processedPrescriptionMap;
-    private final OrderedMap<String, Transaction> transactionMap;
+    private final OrderedMap<String, Prescription> processedPrescriptionMap;
+    private final SegmentedEntityTable<Transaction> transactionMap;
     private final OrderedMap<String, Treatment> treatmentMap;
-    private final TreatmentDAO treatmentDAO = new TreatmentDAO();
-    private final MedicineDAO medicineDAO = new MedicineDAO();
-    private final PrescriptionDAO pendingPrescriptionDAO = new PrescriptionDAO(1);
-    private final TransactionDAO transactionDAO = new TransactionDAO();
-    private final PrescriptionDAO processedPrescriptionDAO = new PrescriptionDAO(2);
+    private final DataRepository repository = DataRepository.getInstance();
+    private final MedicineDAO medicineDAO = repository.getMedicineDAO();
+    private final PrescriptionDAO pendingPrescriptionDAO = repository.getPendingPrescriptionDAO();
+    private final PrescriptionDAO processedPrescriptionDAO = repository.getProcessedPrescriptionDAO();
     public static final String STATUS_PENDING = "PENDING";
     public static final String STATUS_COMPLETED = "COMPLETED";
     public static final String STATUS_REJECTED = "REJECTED";
 
-    private OrderedMap<String, OrderedMap<String, Medicine>> medicineIndex = new OrderedMap<>();
+    private OrderedMapInterface<String, OrderedMap<String, Medicine>> medicineIndex = new OpenAddressingOrderedMap<>();
 
     public PharmacyMaintenance() {
-        this.medicineMap = medicineDAO.retrieveFromFile();
-        this.pendingPrescriptionMap = pendingPrescriptionDAO.retrieveFromFile();
-        this.processedPrescriptionMap = processedPrescriptionDAO.retrieveFromFile();
-        this.transactionMap = transactionDAO.retrieveFromFile();
-        this.treatmentMap = treatmentDAO.retrieveFromFile();
-        IDGenerator.loadCounter("counter.dat");
+        this.medicineMap = repository.getMedicines();
+        this.pendingPrescriptionMap = repository.getPendingPrescriptions();
+        this.processedPrescriptionMap = repository.getProcessedPrescriptions();
+        this.transactionMap = repository.getTransactions();
+        this.treatmentMap = repository.getTreatments();
+
+        // Scans the records only on the first run with block-reserved IDs
+        IDGenerator.seedFromExisting(IDGenerator.MEDICINE, medicineMap, Medicine::getId);
+        IDGenerator.seedFromExisting(IDGenerator.PRESCRIPTION, pendingPrescriptionMap, Prescription::getPrescriptionID);
+        IDGenerator.seedFromExisting(IDGenerator.PRESCRIPTION, processedPrescriptionMap, Prescription::getPrescriptionID);
+        IDGenerator.seedFromExisting(IDGenerator.TRANSACTION, transactionMap, Transaction::getTransactionID);
         undoStack = new OrderedMap<>();
     }
 
@@ -243,8 +250,7 @@ public class PharmacyMaintenance {
                 "[ADD] Medicine ID: " + newMedicine.getId() + " at " +
                         java.time.LocalDateTime.now().format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss")));
         pushUndoCommand("ADD", newMedicine.getId(), null);
-        medicineDAO.saveToFile(medicineMap);
-        IDGenerator.saveCounters("counter.dat");
+        medicineDAO.saveChange(medicineMap, newMedicine.getId());
     }
 
     /*
@@ -332,7 +338,7 @@ public class PharmacyMaintenance {
                             java.time.LocalDateTime.now().format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss")));
         }
 
-        medicineDAO.saveToFile(medicineMap);
+        medicineDAO.saveChange(medicineMap, medID);
     }
 
     /*
@@ -347,7 +353,7 @@ public class PharmacyMaintenance {
             updateIndicesForRemoval(removed);
             pushUndoCommand("DELETE", medID, medicineCopy);
         }
-        medicineDAO.saveToFile(medicineMap);
+        medicineDAO.saveChange(medicineMap, medID);
     }
 
 
@@ -357,8 +363,7 @@ public class PharmacyMaintenance {
      */
     public void enqueuePrescription(Prescription prescription) {
         pendingPrescriptionMap.offer(prescription.getPrescriptionID(), prescription);
-        pendingPrescriptionDAO.saveToFile(pendingPrescriptionMap);
-        IDGenerator.saveCounters("counter.dat");
+        pendingPrescriptionDAO.saveChange(pendingPrescriptionMap, prescription.getPrescriptionID());
     }
 
     /*
@@ -427,7 +432,7 @@ public class PharmacyMaintenance {
      */
     public void savePrescriptionFile(Prescription prescription) {
         try {
-            pendingPrescriptionDAO.saveToFile(pendingPrescriptionMap);
+            pendingPrescriptionDAO.saveChange(pendingPrescriptionMap, prescription.getPrescriptionID());
         } catch (Exception e) {
             System.out.println("Error saving prescription file: " + e.getMessage());
         }
@@ -449,10 +454,10 @@ public class PharmacyMaintenance {
     public boolean removePrescription(String prescID) {
         if (pendingPrescriptionMap.containsKey(prescID)) {
             pendingPrescriptionMap.remove(prescID);
-            pendingPrescriptionDAO.saveToFile(pendingPrescriptionMap);
+            pendingPrescriptionDAO.saveChange(pendingPrescriptionMap, prescID);
         } else if (processedPrescriptionMap.containsKey(prescID)) {
             processedPrescriptionMap.remove(prescID);
-            processedPrescriptionDAO.saveToFile(processedPrescriptionMap);
+            processedPrescriptionDAO.saveChange(processedPrescriptionMap, prescID);
         } else {
             return false;
         }
@@ -502,7 +507,6 @@ public class PharmacyMaintenance {
                 Medicine med = medicineMap.get(pm.getMedicineID());
                 med.setQuantity(med.getQuantity() - pm.getQuantity());
                 transaction.addMedicine(pm);
-                addTransaction(transaction.getTransactionID(),transaction);
             }
 
             prescription.setStatus(STATUS_COMPLETED);
@@ -513,10 +517,25 @@ public class PharmacyMaintenance {
         }
 
         processedPrescriptionMap.put(prescription.getPrescriptionID(), prescription);
-        pendingPrescriptionDAO.saveToFile(pendingPrescriptionMap);
-        processedPrescriptionDAO.saveToFile(processedPrescriptionMap);
-        medicineDAO.saveToFile(medicineMap);
-        transactionDAO.saveToFile(transactionMap);
+        final boolean dispensed = allProcessed;
+        // Stock, transaction and prescription files are replaced together, so a crash cannot
+        // leave medicine dispensed without its transaction or the prescription still pending
+        SnapshotTransaction.run(() -> {
+            if (dispensed) {
+                addTransaction(transaction.getTransactionID(), transaction);
+            }
+            pendingPrescriptionDAO.saveChange(pendingPrescriptionMap, prescription.getPrescriptionID());
+            processedPrescriptionDAO.saveChange(processedPrescriptionMap, prescription.getPrescriptionID());
+            if (dispensed) {
+                // Only the dispensed medicines changed
+                String[] dispensedIds = new String[prescription.getMedicines().size()];
+                int i = 0;
+                for (PrescribedMedicine pm : prescription.getMedicines()) {
+                    dispensedIds[i++] = pm.getMedicineID();
+                }
+                medicineDAO.saveChanges(medicineMap, dispensedIds);
+            }
+        });
         return allProcessed;
     }
 
@@ -526,8 +545,7 @@ public class PharmacyMaintenance {
      * @param transaction the transaction to be added
      */
     public void addTransaction(String transactionID, Transaction transaction) {
-        transactionMap.put(transactionID, transaction);
-        transactionDAO.saveToFile(transactionMap);
+        transactionMap.put(transactionID, transaction); // saves the transaction's month
     }
 
     /*
@@ -548,7 +566,7 @@ public class PharmacyMaintenance {
      * Getters for the transaction map
      * @return transactionMap
      */
-    public OrderedMap<String, Transaction> getTransactionMap() {
+    public OrderedMapView<String, Transaction> getTransactionMap() {
         return transactionMap;
     }
 
@@ -610,7 +628,7 @@ public class PharmacyMaintenance {
     }
 
     private void buildMedicineHashIndex(){
-        medicineIndex = new OrderedMap<>();
+        medicineIndex = new OpenAddressingOrderedMap<>();
 
         for (Medicine med : medicineMap){
             if (med == null) continue;
@@ -622,7 +640,7 @@ public class PharmacyMaintenance {
         }
     }
 
-    private void addToIndex(OrderedMap<String, OrderedMap<String, Medicine>> index, String key, Medicine med, String medId) {
+    private void addToIndex(OrderedMapInterface<String, OrderedMap<String, Medicine>> index, String key, Medicine med, String medId) {
         OrderedMap<String, Medicine> medicineMap = index.get(key);
         if (medicineMap == null) {
             medicineMap = new OrderedMap<>();
@@ -651,7 +669,7 @@ public class PharmacyMaintenance {
         }
     }
 
-    private void removeFromIndex(OrderedMap<String, OrderedMap<String, Medicine>> index,
+    private void removeFromIndex(OrderedMapInterface<String, OrderedMap<String, Medicine>> index,
                                  String key, String medId) {
         OrderedMap<String, Medicine> medicineMap = index.get(key);
         if (medicineMap != null) {
@@ -669,14 +687,10 @@ public class PharmacyMaintenance {
      * @return a OrderedMap containing the transactions within the specified month
      */
     public OrderedMap<String, Transaction> getTransactionsInMonth(int year, int month) {
-        LocalDateTime start = LocalDateTime.of(year, month, 1, 0, 0);
-        LocalDateTime end = start.withDayOfMonth(start.toLocalDate().lengthOfMonth()).withHour(23).withMinute(59).withSecond(59);
-        Transaction min = new Transaction();
-        min.setDate(start);
-        Transaction max = new Transaction();
-        max.setDate(end);
-        Comparator<Transaction> dateComparator = (t1, t2) -> t1.getDate().compareTo(t2.getDate());
-        return transactionMap.rangeSearch(min, max, dateComparator);
+        // Reads only that month's segment
+        OrderedMap<String, Transaction> transactions = transactionMap.getMonth(year, month);
+        transactions.sort(Comparator.comparing(Transaction::getDate));
+        return transactions;
     }
 
     /*
@@ -705,7 +719,7 @@ public class PharmacyMaintenance {
             return false;
         }
         medicine.setQuantity(medicine.getQuantity() + quantity);
-        medicineDAO.saveToFile(medicineMap);
+        medicineDAO.saveChange(medicineMap, medId);
         return true;
     }
 
@@ -788,8 +802,7 @@ public class PharmacyMaintenance {
         processedPrescriptionMap.remove(prescID);
         presc.setStatus(STATUS_PENDING);
         pendingPrescriptionMap.put(prescID, presc);
-        processedPrescriptionDAO.saveToFile(processedPrescriptionMap);
-        pendingPrescriptionDAO.saveToFile(pendingPrescriptionMap);
-        processedPrescriptionMap = processedPrescriptionDAO.retrieveFromFile();
+        processedPrescriptionDAO.saveChange(processedPrescriptionMap, prescID);
+        pendingPrescriptionDAO.saveChange(pendingPrescriptionMap, prescID);
     }
 }
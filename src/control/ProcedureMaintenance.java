@@ -4,6 +4,7 @@
 
 package control;
 import adt.OrderedMap;
+import dao.DataRepository;
 import dao.ProcedureDAO;
 import entity.*;
 import utility.IDGenerator;
@@ -14,15 +15,10 @@ public class ProcedureMaintenance {
     
 
     public ProcedureMaintenance() {
-        this.procedureDAO = new ProcedureDAO();
-        this.procedures = procedureDAO.retrieveFromFile();
-        
-        // Load ID counter if exists
-        try {
-            IDGenerator.loadCounter("counter.dat");
-        } catch (Exception e) {
-            System.out.println("Could not load ID counter, using defaults");
-        }
+        this.procedureDAO = DataRepository.getInstance().getProcedureDAO();
+        this.procedures = DataRepository.getInstance().getProcedures();
+        // Scans the procedures only on the first run with block-reserved IDs
+        IDGenerator.seedFromExisting(IDGenerator.PROCEDURE, procedures, Procedure::getProcedureID);
     }
 
     // ===============================
@@ -54,7 +50,6 @@ public class ProcedureMaintenance {
         
         // Save to file after creating
         saveToFile();
-        IDGenerator.saveCounters("counter.dat");
         
         return procedure;
     }
@@ -199,7 +194,7 @@ public class ProcedureMaintenance {
      */
     public boolean loadFromFile() {
         try {
-            this.procedures = procedureDAO.retrieveFromFile();
+            this.procedures = DataRepository.getInstance().reloadProcedures();
             return true;
         } catch (Exception e) {
             System.err.println("Error loading procedures from file: " + e.getMessage());
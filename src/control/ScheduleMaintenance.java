@@ -5,7 +5,10 @@
 package control;
 
 import adt.OrderedMap;
+import adt.ResultList;
+import dao.DataRepository;
 import dao.ScheduleDAO;
+import dao.ScheduleIndex;
 import entity.Schedule;
 import utility.IDGenerator;
 
@@ -17,23 +20,16 @@ import java.time.format.DateTimeFormatter;
 public class ScheduleMaintenance {
     private OrderedMap<String, Schedule> scheduleList;
     private final ScheduleDAO scheduleDAO;
+    private final ScheduleIndex scheduleIndex;
 
     public ScheduleMaintenance() {
-        IDGenerator.loadCounter("counter.dat");
+        DataRepository repository = DataRepository.getInstance();
+        this.scheduleDAO = repository.getScheduleDAO();
+        this.scheduleList = repository.getSchedules();
+        this.scheduleIndex = repository.getScheduleIndex();
 
-        this.scheduleDAO = new ScheduleDAO();
-        this.scheduleList = scheduleDAO.retrieveFromFile();
-
-        String highestID = "S000";
-        for (int i = 0; i < scheduleList.size(); i++) {
-            Schedule schedule = scheduleList.get(i);
-            String id = schedule.getScheduleID();
-            if (id != null && id.compareTo(highestID) > 0) {
-                highestID = id;
-            }
-        }
-        IDGenerator.updateScheduleCounterFromHighestID(highestID);
-        IDGenerator.saveCounters("counter.dat");
+        // Scans the schedules only on the first run with block-reserved IDs
+        IDGenerator.seedFromExisting(IDGenerator.SCHEDULE, scheduleList, Schedule::getScheduleID);
     }
 
     // Show calendar for selected year and month, marking * for scheduled days
@@ -57,155 +53,75 @@ public class ScheduleMaintenance {
     }
 
     public boolean isScheduledDate(String date) {
-        for (int i = 0; i < scheduleList.size(); i++) {
-            Schedule s = scheduleList.get(i);
-            if (s.getDate().equals(date)) {
-                return true;
-            }
-        }
-        return false;
+        return scheduleIndex.hasDate(date);
     }
 
     // List all schedules
-    public OrderedMap<Integer, Schedule> getAllSchedules() {
-        OrderedMap<Integer, Schedule> result = new OrderedMap<>();
-        for (int i = 0; i < scheduleList.size(); i++) {
-            result.put(i, scheduleList.get(i));
-        }
-        return result;
+    public ResultList<Schedule> getAllSchedules() {
+        return ResultList.of(scheduleList.toArray(new Schedule[scheduleList.size()]));
     }
 
     // By date
-    public OrderedMap<Integer, Schedule> getSchedulesByDate(String date) {
-        OrderedMap<Integer, Schedule> result = new OrderedMap<>();
-        int idx = 0;
-        for (int i = 0; i < scheduleList.size(); i++) {
-            Schedule s = scheduleList.get(i);
-            if (s.getDate().equals(date)) {
-                result.put(idx++, s);
-            }
-        }
-        return result;
+    public ResultList<Schedule> getSchedulesByDate(String date) {
+        return toResult(scheduleIndex.getByDate(date));
     }
 
     // By doctor
-    public OrderedMap<Integer, Schedule> getSchedulesByDoctor(String doctorID) {
-        OrderedMap<Integer, Schedule> result = new OrderedMap<>();
-        int idx = 0;
-        for (int i = 0; i < scheduleList.size(); i++) {
-            Schedule s = scheduleList.get(i);
-            if (s.getDoctorID().equalsIgnoreCase(doctorID)) {
-                result.put(idx++, s);
-            }
-        }
-        return result;
+    public ResultList<Schedule> getSchedulesByDoctor(String doctorID) {
+        return toResult(scheduleIndex.getByDoctor(doctorID));
     }
-    public OrderedMap<Integer, String> getDoctorIDsByDate(String date) {
-        OrderedMap<Integer, String> doctorIDs = new OrderedMap<>();
-        int idx = 0;
-        for (int i = 0; i < scheduleList.size(); i++) {
-            Schedule s = scheduleList.get(i);
-            if (s.getDate().equals(date) && !containsIgnoreCase(doctorIDs, s.getDoctorID())) {
-                doctorIDs.put(idx++, s.getDoctorID());
-            }
-        }
-        return doctorIDs;
+    public ResultList<String> getDoctorIDsByDate(String date) {
+        return ResultList.of(scheduleIndex.getDoctorIDsOnDate(date));
     }
 
-    private boolean containsIgnoreCase(OrderedMap<Integer, String> adt, String value) {
-        for (int i = 0; i < adt.size(); i++) {
-            if (adt.get(i).equalsIgnoreCase(value)) return true;
-        }
-        return false;
-    }
     // By date and doctor
-    public OrderedMap<Integer, Schedule> getSchedulesByDateAndDoctor(String date, String doctorID) {
-        OrderedMap<Integer, Schedule> result = new OrderedMap<>();
-        int idx = 0;
-        for (int i = 0; i < scheduleList.size(); i++) {
-            Schedule s = scheduleList.get(i);
-            if (s.getDate().equals(date) && s.getDoctorID().equalsIgnoreCase(doctorID)) {
-                result.put(idx++, s);
-            }
-        }
-        return result;
+    public ResultList<Schedule> getSchedulesByDateAndDoctor(String date, String doctorID) {
+        return toResult(scheduleIndex.getByDoctorAndDate(doctorID, date));
     }
 
     // By status
-    public OrderedMap<Integer, Schedule> getSchedulesByStatus(String statusStr) {
+    public ResultList<Schedule> getSchedulesByStatus(String statusStr) {
         boolean status = statusStr.equalsIgnoreCase("true");
-        OrderedMap<Integer, Schedule> result = new OrderedMap<>();
-        int idx = 0;
-        for (int i = 0; i < scheduleList.size(); i++) {
-            Schedule s = scheduleList.get(i);
-            if (s.getStatus() == status) {
-                result.put(idx++, s);
-            }
-        }
-        return result;
+        return toResult(scheduleIndex.getByStatus(status));
     }
 
     // By status and date
-    public OrderedMap<Integer, Schedule> getSchedulesByStatusAndDate(String statusStr, String date) {
+    public ResultList<Schedule> getSchedulesByStatusAndDate(String statusStr, String date) {
         boolean status = statusStr.equalsIgnoreCase("true");
-        OrderedMap<Integer, Schedule> result = new OrderedMap<>();
-        int idx = 0;
-        for (int i = 0; i < scheduleList.size(); i++) {
-            Schedule s = scheduleList.get(i);
-            if (s.getStatus() == status && s.getDate().equals(date)) {
-                result.put(idx++, s);
+        ResultList<Schedule> result = new ResultList<>();
+        if (!scheduleIndex.hasStatusOnDate(status, date)) return result;
+        for (Schedule s : scheduleIndex.getByDate(date)) {
+            if (s.getStatus() == status) {
+                result.add(s);
             }
         }
         return result;
     }
 
-    // Sorting: 1-Date, 2-Doctor, 3-TimeSlot, 4-Status
-    public OrderedMap<Integer, Schedule> sortSchedules(OrderedMap<Integer, Schedule> schedules, int sortOption) {
-        if (sortOption == 0 || schedules.size() <= 1) return schedules;
-        return mergeSort(schedules, sortOption);
-    }
-
-    private OrderedMap<Integer, Schedule> mergeSort(OrderedMap<Integer, Schedule> schedules, int sortOption) {
-        int n = schedules.size();
-        if (n <= 1) return schedules;
-        int mid = n / 2;
-        OrderedMap<Integer, Schedule> left = new OrderedMap<>();
-        OrderedMap<Integer, Schedule> right = new OrderedMap<>();
-        for (int i = 0; i < mid; i++) left.put(i, schedules.get(i));
-        for (int i = mid; i < n; i++) right.put(i - mid, schedules.get(i));
-        left = mergeSort(left, sortOption);
-        right = mergeSort(right, sortOption);
-        return merge(left, right, sortOption);
+    // The index hands back a fresh array per query, so it can be wrapped as is
+    private ResultList<Schedule> toResult(Schedule[] schedules) {
+        return ResultList.of(schedules);
     }
 
-    private OrderedMap<Integer, Schedule> merge(OrderedMap<Integer, Schedule> left, OrderedMap<Integer, Schedule> right, int sortOption) {
-        OrderedMap<Integer, Schedule> result = new OrderedMap<>();
-        int i = 0, j = 0, k = 0;
-        while (i < left.size() && j < right.size()) {
-            Schedule s1 = left.get(i);
-            Schedule s2 = right.get(j);
-            boolean chooseLeft = false;
-            switch (sortOption) {
-                case 1: // Date
-                    chooseLeft = s1.getDate().compareTo(s2.getDate()) <= 0;
-                    break;
-                case 2: // Doctor
-                    chooseLeft = s1.getDoctorID().compareTo(s2.getDoctorID()) <= 0;
-                    break;
-                case 3: // Time Slot
-                    chooseLeft = s1.getTimeslot().compareTo(s2.getTimeslot()) <= 0;
-                    break;
-                case 4: // Status
-                    chooseLeft = (s1.getStatus() && !s2.getStatus()) || (s1.getStatus() == s2.getStatus());
-                    break;
-                default:
-                    chooseLeft = true;
-            }
-            result.put(k++, chooseLeft ? left.get(i++) : right.get(j++));
+    // Sorting: 1-Date, 2-Doctor, 3-TimeSlot, 4-Status (available first)
+    public ResultList<Schedule> sortSchedules(ResultList<Schedule> schedules, int sortOption) {
+        if (sortOption < 1 || sortOption > 4 || schedules.size() <= 1) return schedules;
+        ResultList<Schedule> sorted = schedules.copy();
+        switch (sortOption) {
+            case 1:
+                sorted.sort((s1, s2) -> s1.getDate().compareTo(s2.getDate()));
+                break;
+            case 2:
+                sorted.sort((s1, s2) -> s1.getDoctorID().compareTo(s2.getDoctorID()));
+                break;
+            case 3:
+                sorted.sort((s1, s2) -> s1.getTimeslot().compareTo(s2.getTimeslot()));
+                break;
+            default:
+                sorted.sort((s1, s2) -> Boolean.compare(s2.getStatus(), s1.getStatus()));
+                break;
         }
-        while (i < left.size()) result.put(k++, left.get(i++));
-        while (j < right.size()) result.put(k++, right.get(j++));
-        return result;
+        return sorted;
     }
 
 
@@ -221,14 +137,7 @@ public class ScheduleMaintenance {
         for (int i = 1; i < dayOfWeek; i++) System.out.print("    ");
         for (int day = 1; day <= monthLength; day++) {
             String date = String.format("%04d-%02d-%02d", year, month, day);
-            boolean hasSchedule = false;
-            for (int i = 0; i < scheduleList.size(); i++) {
-                Schedule s = scheduleList.get(i);
-                if (s.getDoctorID().equalsIgnoreCase(doctorID) && s.getDate().equals(date)) {
-                    hasSchedule = true;
-                    break;
-                }
-            }
+            boolean hasSchedule = scheduleIndex.hasDoctorOnDate(doctorID, date);
             System.out.printf("%2d%s ", day, hasSchedule ? "*" : " ");
             if ((day + dayOfWeek - 1) % 7 == 0) System.out.println();
         }
@@ -248,14 +157,7 @@ public class ScheduleMaintenance {
         for (int i = 1; i < dayOfWeek; i++) System.out.print("    ");
         for (int day = 1; day <= monthLength; day++) {
             String date = String.format("%04d-%02d-%02d", year, month, day);
-            boolean hasSchedule = false;
-            for (int i = 0; i < scheduleList.size(); i++) {
-                Schedule s = scheduleList.get(i);
-                if (s.getStatus() == status && s.getDate().equals(date)) {
-                    hasSchedule = true;
-                    break;
-                }
-            }
+            boolean hasSchedule = scheduleIndex.hasStatusOnDate(status, date);
             System.out.printf("%2d%s ", day, hasSchedule ? "*" : " ");
             if ((day + dayOfWeek - 1) % 7 == 0) System.out.println();
         }
@@ -264,7 +166,7 @@ public class ScheduleMaintenance {
 
     // Assign schedule(s)
     public boolean assignSchedule(String doctorID, String date, String timeSlotInput, boolean available) {
-        OrderedMap<Integer, String> validSlots = parseAndValidateTimeSlots(timeSlotInput);
+        ResultList<String> validSlots = parseAndValidateTimeSlots(timeSlotInput);
         if (validSlots == null || validSlots.size() == 0)
             return false;
         boolean allAssigned = true;
@@ -286,8 +188,8 @@ public class ScheduleMaintenance {
             return false;
         }
         scheduleList.put(key, schedule);
-        scheduleDAO.saveToFile(scheduleList);
-        IDGenerator.saveCounters("counter.dat");
+        scheduleIndex.add(key, schedule);
+        scheduleDAO.saveChange(scheduleList, key);
         return true;
     }
 
@@ -296,14 +198,11 @@ public class ScheduleMaintenance {
         return scheduleList.get(key);
     }
 
-    public OrderedMap<Integer, String> getTimeSlotsForDate(String doctorID, String date) {
-        OrderedMap<Integer, String> slots = new OrderedMap<>();
-        int idx = 0;
-        for (int i = 0; i < scheduleList.size(); i++) {
-            Schedule s = scheduleList.get(i);
-            if (s.getDoctorID().equalsIgnoreCase(doctorID) && s.getDate().equals(date)) {
-                slots.put(idx++, s.getTimeslot());
-            }
+    public ResultList<String> getTimeSlotsForDate(String doctorID, String date) {
+        Schedule[] onDate = scheduleIndex.getByDoctorAndDate(doctorID, date);
+        ResultList<String> slots = new ResultList<>(onDate.length);
+        for (Schedule s : onDate) {
+            slots.add(s.getTimeslot());
         }
         return slots;
     }
@@ -313,8 +212,9 @@ public class ScheduleMaintenance {
         Schedule schedule = getSchedule(doctorID, date, timeSlot);
         if (schedule != null && schedule.getStatus()) { // only if available
             schedule.setStatus(false); // Mark as leave/unavailable
-            scheduleDAO.saveToFile(scheduleList);
-            IDGenerator.saveCounters("counter.dat");
+            String key = generateKey(doctorID, date, timeSlot);
+            scheduleIndex.statusChanged(key);
+            scheduleDAO.saveChange(scheduleList, key);
             return true;
         }
         System.out.println("Cannot mark as leave: Slot is already unavailable or does not exist.");
@@ -327,8 +227,8 @@ public class ScheduleMaintenance {
         Schedule schedule = scheduleList.get(key);
         if (schedule != null && schedule.getStatus()) { // only if available
             scheduleList.remove(key);
-            scheduleDAO.saveToFile(scheduleList);
-            IDGenerator.saveCounters("counter.dat");
+            scheduleIndex.remove(key);
+            scheduleDAO.saveChange(scheduleList, key);
             return true;
         }
         System.out.println("Cannot remove: Slot is not available or does not exist.");
@@ -336,8 +236,8 @@ public class ScheduleMaintenance {
     }
 
     // Slot parsing and validation
-    public OrderedMap<Integer, String> parseAndValidateTimeSlots(String input) {
-        OrderedMap<Integer, String> slots = new OrderedMap<>();
+    public ResultList<String> parseAndValidateTimeSlots(String input) {
+        ResultList<String> slots = new ResultList<>();
         input = input.trim();
 
         // Format 1: HH:mm–HH:mm (en dash)
@@ -347,7 +247,7 @@ public class ScheduleMaintenance {
             LocalTime start = parseLocalTime(parts[0]);
             LocalTime end = parseLocalTime(parts[1]);
             if (start != null && end != null && isOneHour(start, end)) {
-                slots.put(0, formatSlot(start, end));
+                slots.add(formatSlot(start, end));
                 return slots;
             } else {
                 return null;
@@ -360,11 +260,10 @@ public class ScheduleMaintenance {
             int startHour = Integer.parseInt(input.substring(0,2));
             int endHour = Integer.parseInt(input.substring(3,5));
             if (startHour < endHour) {
-                int idx = 0;
                 for (int h = startHour; h < endHour; h++) {
                     LocalTime start = LocalTime.of(h, 0);
                     LocalTime end = LocalTime.of(h+1, 0);
-                    slots.put(idx++, formatSlot(start, end));
+                    slots.add(formatSlot(start, end));
                 }
                 return slots;
             }
@@ -380,12 +279,11 @@ public class ScheduleMaintenance {
                 int minutes = (int) java.time.Duration.between(start, end).toMinutes();
                 if (minutes % 60 == 0 && minutes > 0) {
                     int slotsCount = minutes / 60;
-                    int idx = 0;
                     for (int i = 0; i < slotsCount; i++) {
                         LocalTime s = start.plusHours(i);
                         LocalTime e = s.plusHours(1);
                         if (e.isAfter(end)) break;
-                        slots.put(idx++, formatSlot(s, e));
+                        slots.add(formatSlot(s, e));
                     }
                     return slots;
                 }
@@ -402,12 +300,11 @@ public class ScheduleMaintenance {
                 int minutes = (int) java.time.Duration.between(start, end).toMinutes();
                 if (minutes % 60 == 0 && minutes > 0) {
                     int slotsCount = minutes / 60;
-                    int idx = 0;
                     for (int i = 0; i < slotsCount; i++) {
                         LocalTime s = start.plusHours(i);
                         LocalTime e = s.plusHours(1);
                         if (e.isAfter(end)) break;
-                        slots.put(idx++, formatSlot(s, e));
+                        slots.add(formatSlot(s, e));
                     }
                     return slots;
                 }
@@ -442,10 +339,8 @@ public class ScheduleMaintenance {
         return doctorID + "_" + date + "_" + timeSlot;
     }
     public OrderedMap<String, Integer> getScheduleCountPerDoctor() {
-        OrderedMap<Integer, Schedule> allSchedules = getAllSchedules();
         OrderedMap<String, Integer> countPerDoctor = new OrderedMap<>();
-        for (int i = 0; i < allSchedules.size(); i++) {
-            Schedule s = allSchedules.get(i);
+        for (Schedule s : scheduleList) {
             String docId = s.getDoctorID();
             Integer count = countPerDoctor.get(docId);
             countPerDoctor.put(docId, count == null ? 1 : count + 1);
@@ -454,16 +349,9 @@ public class ScheduleMaintenance {
     }
 
     public OrderedMap<String, Integer> getScheduleCountByStatus() {
-        OrderedMap<Integer, Schedule> allSchedules = getAllSchedules();
-        int available = 0, leave = 0;
-        for (int i = 0; i < allSchedules.size(); i++) {
-            Schedule s = allSchedules.get(i);
-            if (s.getStatus()) available++;
-            else leave++;
-        }
         OrderedMap<String, Integer> statusMap = new OrderedMap<>();
-        statusMap.put("Available", available);
-        statusMap.put("Leave", leave);
+        statusMap.put("Available", scheduleIndex.countByStatus(true));
+        statusMap.put("Leave", scheduleIndex.countByStatus(false));
         return statusMap;
     }
 }
\ No newline at end of file
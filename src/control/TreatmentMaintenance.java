@@ -4,8 +4,12 @@
 
 package control;
 
+import adt.OpenAddressingOrderedMap;
 import adt.OrderedMap;
-import dao.ProcedureDAO;
+import adt.OrderedMapInterface;
+import adt.TriageQueue;
+import dao.DataRepository;
+import dao.SnapshotTransaction;
 import dao.TreatmentDAO;
 import entity.*;
 import java.time.LocalDateTime;
@@ -39,8 +43,10 @@ public class TreatmentMaintenance {
     
     private OrderedMap<String, Treatment> treatments;
 
-    private OrderedMap<String, Treatment> emergencyQueue;
-    private OrderedMap<String, Treatment> regularQueue;
+    // Critical treatments are level 0, regular ones level 1; each level is served by scheduled time
+    private static final int CRITICAL_LEVEL = 0;
+    private static final int REGULAR_LEVEL = 1;
+    private TriageQueue<String, Treatment> treatmentQueue;
 
     private OrderedMap<String, String> recentTreatments;
     private OrderedMap<String, UndoCommand> undoStack; // Stack for undo operations
@@ -50,26 +56,28 @@ public class TreatmentMaintenance {
     private final ConsultationMaintenance consultationController;
     private final PharmacyMaintenance prescriptionController;
 
+    private final DataRepository repository;
     private TreatmentDAO treatmentDAO;
-    private ProcedureDAO procedureDAO;
     private PaymentMaintenance paymentMaintenance;
 
     // Hash-based indices for O(1) lookup
-    private OrderedMap<String, OrderedMap<String, Treatment>> patientIndex;
-    private OrderedMap<String, OrderedMap<String, Treatment>> statusIndex;
-    private OrderedMap<String, OrderedMap<String, Treatment>> procedureIndex;
-    private OrderedMap<String, OrderedMap<String, Treatment>> patientNameIndex;
+    private OrderedMapInterface<String, OrderedMap<String, Treatment>> patientIndex;
+    private OrderedMapInterface<String, OrderedMap<String, Treatment>> statusIndex;
+    private OrderedMapInterface<String, OrderedMap<String, Treatment>> procedureIndex;
+    private OrderedMapInterface<String, OrderedMap<String, Treatment>> patientNameIndex;
     
     private OrderedMap<String, OrderedMap<String, Treatment>> searchCache = new OrderedMap<>();
 
+    // Secondary index on the shared treatment map, ordered by treatment date
+    private static final String DATE_INDEX = "treatmentDate";
+
 
     public TreatmentMaintenance() {
-        this.treatmentDAO = new TreatmentDAO();
-        this.procedureDAO = new ProcedureDAO();
+        this.repository = DataRepository.getInstance();
+        this.treatmentDAO = repository.getTreatmentDAO();
         this.treatments = new OrderedMap<>();
         this.paymentMaintenance = PaymentMaintenance.getInstance();
-        this.emergencyQueue = new OrderedMap<>();
-        this.regularQueue = new OrderedMap<>();
+        this.treatmentQueue = new TriageQueue<>(2, 0);
         this.recentTreatments = new OrderedMap<>();
 
         this.prescriptions = new OrderedMap<>();
@@ -78,17 +86,18 @@ public class TreatmentMaintenance {
         this.prescriptionController = new PharmacyMaintenance();
 
         loadAllData();
+        // Scans the treatments only on the first run with block-reserved IDs
+        IDGenerator.seedFromExisting(IDGenerator.TREATMENT, treatments, Treatment::getTreatmentID);
         
         // Initialize undo stack
         undoStack = new OrderedMap<>();
-        IDGenerator.loadCounter("counter.dat");
     }
 
     private void buildHashIndices() {
-        patientIndex = new OrderedMap<>();
-        statusIndex = new OrderedMap<>();
-        procedureIndex = new OrderedMap<>();
-        patientNameIndex = new OrderedMap<>();
+        patientIndex = new OpenAddressingOrderedMap<>();
+        statusIndex = new OpenAddressingOrderedMap<>();
+        procedureIndex = new OpenAddressingOrderedMap<>();
+        patientNameIndex = new OpenAddressingOrderedMap<>();
         
         for (Treatment treatment : treatments) {
             if (treatment == null) continue;
@@ -126,8 +135,9 @@ public class TreatmentMaintenance {
         }
     }
 
-    private void addToIndex(OrderedMap<String, OrderedMap<String, Treatment>> index, 
+    private void addToIndex(OrderedMapInterface<String, OrderedMap<String, Treatment>> index, 
                             String key, String treatmentId, Treatment treatment) {
+        if (key == null) return;
         OrderedMap<String, Treatment> treatmentMap = index.get(key);
         if (treatmentMap == null) {
             treatmentMap = new OrderedMap<>();
@@ -216,7 +226,7 @@ public class TreatmentMaintenance {
     /**
      * Helper method to remove treatment from index
      */
-    private void removeFromIndex(OrderedMap<String, OrderedMap<String, Treatment>> index, 
+    private void removeFromIndex(OrderedMapInterface<String, OrderedMap<String, Treatment>> index, 
                                  String key, String treatmentId) {
         OrderedMap<String, Treatment> treatmentMap = index.get(key);
         if (treatmentMap != null) {
@@ -324,8 +334,7 @@ public class TreatmentMaintenance {
                 removeFromAllIndices(treatment);
                 
                 // Remove from queues if present
-                emergencyQueue.remove(treatmentId);
-                regularQueue.remove(treatmentId);
+                treatmentQueue.remove(treatmentId);
                 
                 System.out.println("Undid ADD: Removed treatment " + treatmentId);
                 return true;
@@ -386,9 +395,9 @@ public class TreatmentMaintenance {
                 // Add back to appropriate queue based on type
                 if (deletedTreatment.getType() != null && 
                     deletedTreatment.getType().toUpperCase().contains("EMERGENCY")) {
-                    emergencyQueue.put(treatmentId, deletedTreatment);
+                    enqueueTreatment(deletedTreatment, CRITICAL_LEVEL);
                 } else {
-                    regularQueue.put(treatmentId, deletedTreatment);
+                    enqueueTreatment(deletedTreatment, REGULAR_LEVEL);
                 }
                 
                 System.out.println("Undid DELETE: Restored treatment " + treatmentId);
@@ -679,14 +688,17 @@ public class TreatmentMaintenance {
     
 
     public boolean saveAllData() {
-        boolean success = true;
-        success &= treatmentDAO.saveToFile(treatments);
-        success &= treatmentDAO.saveRecentActivities(recentTreatments);
-        return success;
+        boolean[] success = { true };
+        // The treatments and the activity log describing them are replaced together
+        SnapshotTransaction.run(() -> {
+            success[0] &= treatmentDAO.saveToFile(treatments);
+            success[0] &= treatmentDAO.saveRecentActivities(recentTreatments);
+        });
+        return success[0];
     }
 
     public boolean loadAllData() {
-        treatments = treatmentDAO.retrieveFromFile();
+        treatments = repository.getTreatments();
         recentTreatments = treatmentDAO.retrieveRecentActivities();
 
         buildHashIndices();
@@ -695,22 +707,26 @@ public class TreatmentMaintenance {
         return true;
     }
 
+    // Only open treatments are queued, so read them from the status index instead of scanning all
     private void rebuildQueues() {
-        emergencyQueue.clear();
-        regularQueue.clear();
-
-        for (Treatment treatment : treatments) {
-            if ("SCHEDULED".equals(treatment.getStatus()) ||
-                    "IN_PROGRESS".equals(treatment.getStatus())) {
-                if (treatment.isCritical()) {
-                    emergencyQueue.offer(treatment.getTreatmentID(), treatment);
-                } else {
-                    regularQueue.offer(treatment.getTreatmentID(), treatment);
-                }
+        treatmentQueue.clear();
+        for (String status : new String[] {"SCHEDULED", "IN_PROGRESS"}) {
+            OrderedMap<String, Treatment> open = statusIndex.get(status);
+            if (open == null) continue;
+            for (Treatment treatment : open) {
+                enqueueTreatment(treatment, treatment.isCritical() ? CRITICAL_LEVEL : REGULAR_LEVEL);
             }
         }
     }
 
+    private void enqueueTreatment(Treatment treatment, int level) {
+        LocalDateTime scheduled = treatment.getTreatmentDate();
+        long arrival = (scheduled != null)
+                ? scheduled.atZone(java.time.ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : System.currentTimeMillis();
+        treatmentQueue.offer(treatment.getTreatmentID(), treatment, level, arrival);
+    }
+
     /**
      * Create a new treatment from an existing consultation
      * @param consultationID ID of the consultation to base the treatment on
@@ -761,11 +777,7 @@ public class TreatmentMaintenance {
         treatments.put(treatmentID, treatment);
 
         // Add to appropriate queue
-        if (treatment.isCritical()) {
-            emergencyQueue.offer(treatmentID, treatment);
-        } else {
-            regularQueue.offer(treatmentID, treatment);
-        }
+        enqueueTreatment(treatment, treatment.isCritical() ? CRITICAL_LEVEL : REGULAR_LEVEL);
 
         updateIndicesForAddition(treatment);
 
@@ -780,7 +792,6 @@ public class TreatmentMaintenance {
         invalidateSearchCache();
 
         saveAllData();
-        IDGenerator.saveCounters("counter.dat");
 
         System.out.println("Treatment " + treatmentID + " added successfully.");
     }
@@ -837,8 +848,7 @@ public class TreatmentMaintenance {
             // Store copy for undo before modifying
             Treatment treatmentCopy = createTreatmentCopy(removed);
             
-            emergencyQueue.remove(treatmentID);
-            regularQueue.remove(treatmentID);
+            treatmentQueue.remove(treatmentID);
 
             if (removed.hasPrescription()) {
                 prescriptions.remove(removed.getPrescription().getPrescriptionID());
@@ -897,7 +907,7 @@ public class TreatmentMaintenance {
      * @return Treatment object if processed, null if no emergency treatments
      */
     public Treatment processNextEmergency() {
-        Treatment next = emergencyQueue.poll();
+        Treatment next = treatmentQueue.pollLevel(CRITICAL_LEVEL);
         if (next != null) {
             next.complete(); // Mark treatment as completed
             updateAppointmentStatusForTreatment(next);
@@ -918,7 +928,7 @@ public class TreatmentMaintenance {
      * @return Treatment object if processed, null if no regular treatments 
      */
     public Treatment processNextRegular() {
-        Treatment next = regularQueue.poll();
+        Treatment next = treatmentQueue.pollLevel(REGULAR_LEVEL);
         if (next != null) {
             next.complete(); // Mark treatment as completed
             updateAppointmentStatusForTreatment(next);
@@ -1136,16 +1146,9 @@ public class TreatmentMaintenance {
     public OrderedMap<String, Treatment> getTreatmentsByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
         if (startDate == null || endDate == null) return new OrderedMap<>();
 
-        // Sort by date first for efficient range search
-        treatments.sort(Comparator.comparing(Treatment::getTreatmentDate));
-        
-        // Create dummy treatments for range bounds
-        Treatment startDummy = new Treatment("", "", (Patient)null, (Doctor)null, startDate, "", false);
-        Treatment endDummy = new Treatment("", "", (Patient)null, (Doctor)null, endDate, "", false);
-        
-        // Use rangeSearch with proper comparator
-        return treatments.rangeSearch(startDummy, endDummy, 
-            Comparator.comparing(Treatment::getTreatmentDate));
+        // Range lookup on the date index; the treatments keep their own order
+        treatments.addIndex(DATE_INDEX, Treatment::getTreatmentDate);
+        return treatments.rangeSearchByIndex(DATE_INDEX, startDate, endDate);
     }
 
     /**
@@ -1196,12 +1199,8 @@ public class TreatmentMaintenance {
      * @return OrderedMap of sorted treatments
      */
     public OrderedMap<String, Treatment> sortTreatmentsByDate(boolean ascending) {
-        OrderedMap<String, Treatment> sortedTreatments = new OrderedMap<>();
-        
         // Copy all treatments to new OrderedMap
-        for (Treatment treatment : treatments) {
-            sortedTreatments.put(treatment.getTreatmentID(), treatment);
-        }
+        OrderedMap<String, Treatment> sortedTreatments = new OrderedMap<>(treatments);
         
         // Sort using OrderedMap sort method
         if (ascending) {
@@ -1219,20 +1218,15 @@ public class TreatmentMaintenance {
      * @return OrderedMap of sorted treatments
      */
     public OrderedMap<String, Treatment> sortTreatmentsByPatientName(boolean ascending) {
-        OrderedMap<String, Treatment> sortedTreatments = new OrderedMap<>();
-        
         // Copy all treatments to new OrderedMap
-        for (Treatment treatment : treatments) {
-            sortedTreatments.put(treatment.getTreatmentID(), treatment);
-        }
+        OrderedMap<String, Treatment> sortedTreatments = new OrderedMap<>(treatments);
         
         // Sort using OrderedMap sort method
         if (ascending) {
-            sortedTreatments.sort(Comparator.comparing(t -> 
-                t.getPatient() != null ? t.getPatient().getName() : ""));
+            sortedTreatments.sortByKey(t -> t.getPatient() != null ? t.getPatient().getName() : "");
         } else {
-            sortedTreatments.sort(Comparator.comparing((Treatment t) -> 
-                t.getPatient() != null ? t.getPatient().getName() : "").reversed());
+            sortedTreatments.sortByKey(t -> t.getPatient() != null ? t.getPatient().getName() : "",
+                    Comparator.reverseOrder());
         }
         
         return sortedTreatments;
@@ -1244,12 +1238,8 @@ public class TreatmentMaintenance {
      * @return OrderedMap of sorted treatments
      */
     public OrderedMap<String, Treatment> sortTreatmentsByStatus(boolean ascending) {
-        OrderedMap<String, Treatment> sortedTreatments = new OrderedMap<>();
-        
         // Copy all treatments to new OrderedMap
-        for (Treatment treatment : treatments) {
-            sortedTreatments.put(treatment.getTreatmentID(), treatment);
-        }
+        OrderedMap<String, Treatment> sortedTreatments = new OrderedMap<>(treatments);
         
         // Sort using OrderedMap sort method
         if (ascending) {
@@ -1267,12 +1257,8 @@ public class TreatmentMaintenance {
      * @return OrderedMap of sorted treatments
      */
     public OrderedMap<String, Treatment> sortTreatmentsByCriticalPriority(boolean criticalFirst) {
-        OrderedMap<String, Treatment> sortedTreatments = new OrderedMap<>();
-        
         // Copy all treatments to new OrderedMap
-        for (Treatment treatment : treatments) {
-            sortedTreatments.put(treatment.getTreatmentID(), treatment);
-        }
+        OrderedMap<String, Treatment> sortedTreatments = new OrderedMap<>(treatments);
         
         // Sort using OrderedMap sort method
         if (criticalFirst) {
@@ -1306,11 +1292,11 @@ public class TreatmentMaintenance {
     }
 
     /**
-     * Get all available procedures from the DAO
+     * Get all available procedures
      * @return OrderedMap of all procedures
      */
     public OrderedMap<String, Procedure> getAllAvailableProcedures() {
-        return procedureDAO.retrieveFromFile();
+        return repository.getProcedures();
     }
 
     /**
@@ -1319,8 +1305,7 @@ public class TreatmentMaintenance {
      * @return Procedure object if found, null otherwise
      */
     public Procedure getProcedureByID(String procedureID) {
-        OrderedMap<String, Procedure> procedures = procedureDAO.retrieveFromFile();
-        return procedures.get(procedureID);
+        return repository.getProcedures().get(procedureID);
     }
 
     /**
@@ -1472,11 +1457,7 @@ public class TreatmentMaintenance {
     }
 
     public Procedure[] getAvailableProcedures() {
-        if (procedureDAO == null) {
-            return new Procedure[0];
-        }
-        OrderedMap<String, Procedure> procedureMap = procedureDAO.retrieveFromFile();
-        return procedureMap.toArray(new Procedure[0]);
+        return repository.getProcedures().toArray(new Procedure[0]);
     }
 
 }
\ No newline at end of file
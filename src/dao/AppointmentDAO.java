@@ -5,11 +5,15 @@ import entity.Appointment;
 import java.io.*;
 
 public class AppointmentDAO {
-    private final String fileName = "src/data/appointment.dat";
+    private final String fileName = DataFiles.path("appointment.dat");
 
     public void saveToFile(OrderedMap<String, Appointment> appointments) {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(fileName))) {
-            oos.writeObject(appointments);
+        WriteBehindPersister.save(fileName, appointments, this::writeSnapshot);
+    }
+
+    private void writeSnapshot(OrderedMap<String, Appointment> appointments) {
+        try {
+            BinaryMapFile.write(fileName, appointments, EntityCodecs.APPOINTMENT);
         } catch (IOException e) {
             System.out.println("Error saving appointments to file. " + e.getMessage());
             e.printStackTrace();
@@ -18,8 +22,8 @@ public class AppointmentDAO {
 
     public OrderedMap<String, Appointment> retrieveFromFile() {
         OrderedMap<String, Appointment> appointments = new OrderedMap<>();
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(fileName))) {
-            appointments = (OrderedMap<String, Appointment>) ois.readObject();
+        try {
+            appointments = BinaryMapFile.load(fileName, EntityCodecs.APPOINTMENT);
         } catch (IOException | ClassNotFoundException e) {
             System.out.println("No existing appointment file found or error reading it. ");
         }
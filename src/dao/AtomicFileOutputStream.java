@@ -0,0 +1,124 @@
+package dao;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes a file so that it is either fully replaced or left as it was.
+ *
+ * Bytes go to a temporary file next to the target. {@link #commit()} syncs the
+ * temporary file and renames it over the target; closing without committing (e.g.
+ * because serialization failed) deletes it and leaves the target untouched. Inside a
+ * {@link SnapshotTransaction} the rename is left to the transaction, so several files
+ * are replaced together. Inside a {@link SnapshotCapture} (a write-behind save) the
+ * bytes are kept in memory and handed to the capture instead.
+ *
+ * Typical use, with the commit as the last statement of the try block:
+ * <pre>
+ * try (AtomicFileOutputStream file = new AtomicFileOutputStream(fileName);
+ *      ObjectOutputStream oos = new ObjectOutputStream(file)) {
+ *     oos.writeObject(map);
+ *     oos.flush();
+ *     file.commit();
+ * }
+ * </pre>
+ */
+public class AtomicFileOutputStream extends OutputStream {
+
+    private final File target;
+    private final boolean joinTransaction;
+    // Under a capture the bytes go to buffer; otherwise to the temporary file
+    private final SnapshotCapture capture;
+    private final ByteArrayOutputStream buffer;
+    private final File temp;
+    private final FileOutputStream file;
+    private final OutputStream out;
+    private boolean closed;
+    private boolean committed;
+
+    public AtomicFileOutputStream(String fileName) throws IOException {
+        this(fileName, true);
+    }
+
+    /**
+     * @param joinTransaction false to replace the file on commit even inside a
+     *                        {@link SnapshotTransaction}, for state that must not roll back
+     */
+    public AtomicFileOutputStream(String fileName, boolean joinTransaction) throws IOException {
+        this.joinTransaction = joinTransaction;
+        this.target = new File(fileName);
+        this.capture = joinTransaction ? SnapshotCapture.current() : null;
+        if (capture != null) {
+            this.buffer = new ByteArrayOutputStream();
+            this.temp = null;
+            this.file = null;
+            this.out = buffer;
+        } else {
+            this.buffer = null;
+            this.temp = SnapshotTransaction.newTempFile(target);
+            this.file = new FileOutputStream(temp);
+            this.out = file;
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Makes the written bytes the content of the target file: syncs them and renames the
+     * temporary file over the target, or hands it to the current transaction or capture
+     */
+    public void commit() throws IOException {
+        if (committed) return;
+        if (closed) {
+            throw new IOException("Stream for " + target + " closed before commit");
+        }
+        if (capture != null) {
+            closed = true;
+            capture.addFile(target, buffer.toByteArray());
+            committed = true;
+            return;
+        }
+        file.flush();
+        file.getFD().sync();
+        file.close();
+        closed = true;
+
+        SnapshotTransaction transaction = joinTransaction ? SnapshotTransaction.current() : null;
+        if (transaction != null) {
+            transaction.addFile(target, temp);
+        } else {
+            SnapshotTransaction.replace(temp, target);
+        }
+        committed = true;
+    }
+
+    /**
+     * Closes the stream; if {@link #commit()} was not called the written bytes are discarded
+     */
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            out.close();
+        }
+        if (!committed && temp != null) {
+            temp.delete();
+        }
+    }
+}
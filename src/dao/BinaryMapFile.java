@@ -0,0 +1,144 @@
+package dao;
+
+import adt.OrderedMap;
+import java.io.*;
+
+/**
+ * Reads and writes a whole OrderedMap in the compact binary record format.
+ *
+ * File layout: magic number, record type (UTF), schema version (short), entry count (int),
+ * then each entry as its key (UTF) followed by the record written by the entity's codec.
+ * Files that do not start with the magic number are legacy Java-serialized snapshots,
+ * which {@link #read} reports by returning null so the DAO can fall back to ObjectInputStream.
+ */
+public final class BinaryMapFile {
+
+    public static final int MAGIC = 0x434C4D42; // "CLMB"
+
+    private BinaryMapFile() {
+    }
+
+    /**
+     * Writes every entry of the map, in order
+     * @param fileName path of the file to (over)write
+     * @param map entries to write
+     * @param codec codec for the values
+     */
+    public static <V> void write(String fileName, OrderedMap<String, V> map, EntityCodec<V> codec) throws IOException {
+        try (AtomicFileOutputStream file = new AtomicFileOutputStream(fileName);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            out.writeInt(MAGIC);
+            out.writeUTF(codec.recordType());
+            out.writeShort(codec.version());
+            out.writeInt(map.size());
+            for (int i = 0; i < map.size(); i++) {
+                out.writeUTF(map.getKey(i));
+                codec.write(out, map.get(i));
+            }
+            out.flush();
+            file.commit();
+        }
+    }
+
+    /**
+     * Reads a map written by {@link #write}
+     * @param fileName path of the file to read
+     * @param codec codec for the values
+     * @return the loaded map, or null if the file is not in the binary format
+     */
+    public static <V> OrderedMap<String, V> read(String fileName, EntityCodec<V> codec) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName)))) {
+            return read(in, fileName, codec);
+        }
+    }
+
+    /**
+     * Reads a map from the content of a file written by {@link #write}, e.g. one still
+     * waiting to be written
+     * @param fileName the file the content belongs to, for error messages
+     */
+    static <V> OrderedMap<String, V> read(byte[] content, String fileName, EntityCodec<V> codec) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(content))) {
+            return read(in, fileName, codec);
+        }
+    }
+
+    private static <V> OrderedMap<String, V> read(DataInputStream in, String fileName, EntityCodec<V> codec) throws IOException {
+        if (!isBinary(in)) {
+            return null;
+        }
+        String recordType = in.readUTF();
+        if (!recordType.equals(codec.recordType())) {
+            throw new IOException(fileName + " holds " + recordType + " records, expected " + codec.recordType());
+        }
+        int version = in.readUnsignedShort();
+        if (version > codec.version()) {
+            throw new IOException(fileName + " was written by a newer version (" + version + ") of the "
+                    + recordType + " format");
+        }
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException(fileName + " has a negative entry count: " + count);
+        }
+        // The count comes from the file, so it only sizes the table once the entries are read
+        OrderedMap.Builder<String, V> builder = new OrderedMap.Builder<>(Math.min(count, 1 << 16));
+        for (int i = 0; i < count; i++) {
+            String key = in.readUTF();
+            builder.put(key, codec.read(in, version));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Reads a map in either format: binary if the file starts with the magic number,
+     * otherwise a legacy snapshot written with ObjectOutputStream
+     * @param fileName path of the file to read
+     * @param codec codec for the values
+     * @return the loaded map
+     */
+    @SuppressWarnings("unchecked")
+    public static <V> OrderedMap<String, V> load(String fileName, EntityCodec<V> codec) throws IOException, ClassNotFoundException {
+        OrderedMap<String, V> map = read(fileName, codec);
+        if (map != null) {
+            return map;
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(fileName)))) {
+            return (OrderedMap<String, V>) ois.readObject();
+        }
+    }
+
+    /**
+     * Checks the magic number, leaving the stream positioned after it when it matches
+     */
+    private static boolean isBinary(DataInputStream in) throws IOException {
+        in.mark(4);
+        int magic;
+        try {
+            magic = in.readInt();
+        } catch (EOFException e) {
+            return false;
+        }
+        if (magic != MAGIC) {
+            in.reset();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Encodes a single record; used for write-ahead log entries
+     */
+    static <V> byte[] encode(V value, EntityCodec<V> codec) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            codec.write(out, value);
+        }
+        return bytes.toByteArray();
+    }
+
+    static <V> V decode(byte[] bytes, int version, EntityCodec<V> codec) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            return codec.read(in, version);
+        }
+    }
+}
@@ -5,11 +5,18 @@ import entity.Consultation;
 import java.io.*;
 
 public class ConsultationDAO {
-    private final String fileName = "src/data/consultation.dat";
+    private final String fileName = DataFiles.path("consultation.dat");
 
     public void saveToFile(OrderedMap<String, Consultation> consultations) {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(fileName))) {
+        WriteBehindPersister.save(fileName, consultations, this::writeSnapshot);
+    }
+
+    private void writeSnapshot(OrderedMap<String, Consultation> consultations) {
+        try (AtomicFileOutputStream file = new AtomicFileOutputStream(fileName);
+             ObjectOutputStream oos = new ReferenceObjectOutputStream(file)) {
             oos.writeObject(consultations);
+            oos.flush();
+            file.commit();
         } catch (IOException e) {
             System.out.println("Error saving consultations to file. ");
         }
@@ -17,7 +24,7 @@ public class ConsultationDAO {
 
     public OrderedMap<String, Consultation> retrieveFromFile() {
         OrderedMap<String, Consultation> consultations = new OrderedMap<>();
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(fileName))) {
+        try (ObjectInputStream ois = new ReferenceObjectInputStream(new FileInputStream(fileName))) {
             consultations = (OrderedMap<String, Consultation>) ois.readObject();
             System.out.println("Consultations loaded from file. ");
         } catch (IOException | ClassNotFoundException e) {
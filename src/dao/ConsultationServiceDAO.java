@@ -5,11 +5,18 @@ import entity.ConsultationService;
 import java.io.*;
 
 public class ConsultationServiceDAO {
-    private final String fileName = "src/data/service.dat";
+    private final String fileName = DataFiles.path("service.dat");
 
     public void saveToFile(OrderedMap<String, ConsultationService> services) {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(fileName))) {
+        WriteBehindPersister.save(fileName, services, this::writeSnapshot);
+    }
+
+    private void writeSnapshot(OrderedMap<String, ConsultationService> services) {
+        try (AtomicFileOutputStream file = new AtomicFileOutputStream(fileName);
+             ObjectOutputStream oos = new ObjectOutputStream(file)) {
             oos.writeObject(services);
+            oos.flush();
+            file.commit();
         } catch (IOException e) {
             // System.out.println("Error saving services to file. ");
             System.out.println("Error saving services to file: " + e.getMessage());
@@ -0,0 +1,22 @@
+package dao;
+
+/**
+ * Where the data files live: src/data, or the directory given with
+ * -Dclinic.dataDir=&lt;directory&gt; (e.g. a test's temporary directory).
+ *
+ * The property is read once, when the first data file is opened.
+ */
+public final class DataFiles {
+
+    public static final String DIRECTORY = System.getProperty("clinic.dataDir", "src/data");
+
+    private DataFiles() {
+    }
+
+    /**
+     * @return the path of the named file or subdirectory of the data directory
+     */
+    public static String path(String name) {
+        return DIRECTORY + "/" + name;
+    }
+}
@@ -0,0 +1,316 @@
+package dao;
+
+import adt.OrderedMap;
+import adt.OrderedMapStats;
+import adt.PersistentOrderedMap;
+import entity.*;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide holder for the clinic's data sets.
+ *
+ * Each data file is read the first time it is asked for and the same map instance
+ * is handed to every controller afterwards, so creating several controllers (which
+ * create each other) no longer deserializes the same files again and keeps a single
+ * copy of each entity in memory. Changes made through one controller are seen by
+ * the others.
+ *
+ * The repository also owns one DAO per data file; controllers save through these so
+ * that only one writer (and one write-ahead log) exists per file.
+ */
+public final class DataRepository {
+
+    private static DataRepository instance;
+
+    // One DAO per data file
+    private final PatientDAO patientDAO = new PatientDAO();
+    private final ScheduleDAO scheduleDAO = new ScheduleDAO();
+    private final AppointmentDAO appointmentDAO = new AppointmentDAO();
+    private final ConsultationDAO consultationDAO = new ConsultationDAO();
+    private final ConsultationServiceDAO consultationServiceDAO = new ConsultationServiceDAO();
+    private final DiagnosisDAO diagnosisDAO = new DiagnosisDAO();
+    private final TreatmentDAO treatmentDAO = new TreatmentDAO();
+    private final ProcedureDAO procedureDAO = new ProcedureDAO();
+    private final VisitHistoryDAO visitHistoryDAO = new VisitHistoryDAO();
+    private final MedicineDAO medicineDAO = new MedicineDAO();
+    private final TransactionDAO transactionDAO = new TransactionDAO();
+    private final PrescriptionDAO pendingPrescriptionDAO = new PrescriptionDAO(1);
+    private final PrescriptionDAO processedPrescriptionDAO = new PrescriptionDAO(2);
+    private final PaymentDAO paymentDAO = new PaymentDAO();
+
+    // Loaded data sets, null until first requested
+    private OrderedMap<String, Patient> patients;
+    private OrderedMap<String, Doctor> doctors;
+    private OrderedMap<String, Schedule> schedules;
+    private ScheduleIndex scheduleIndex;
+    private OrderedMap<String, Appointment> appointments;
+    private OrderedMap<String, Consultation> consultations;
+    private OrderedMap<String, ConsultationService> consultationServices;
+    private OrderedMap<String, Diagnosis> diagnoses;
+    private OrderedMap<String, Treatment> treatments;
+    private OrderedMap<String, Procedure> procedures;
+    private EntityTable<VisitHistory> visitHistory;
+    private OrderedMap<String, Medicine> medicines;
+    private SegmentedEntityTable<Transaction> transactions;
+    private OrderedMap<String, Prescription> pendingPrescriptions;
+    private OrderedMap<String, Prescription> processedPrescriptions;
+    private OrderedMap<String, Payment> payments;
+
+    // Frozen copies of the consultations as of the last change, shared by every controller
+    private PersistentOrderedMap<String, Consultation> consultationVersion;
+
+    // Load time in nanoseconds per data set, in load order
+    private final OrderedMap<String, Long> loadTimes = new OrderedMap<>();
+
+    // The loaded maps by data set name, for the table health report
+    private final OrderedMap<String, OrderedMap<?, ?>> loadedMaps = new OrderedMap<>();
+
+    private DataRepository() {
+        // Finish or roll back data commits cut short by a crash before anything is loaded
+        SnapshotTransaction.recover();
+    }
+
+    public static synchronized DataRepository getInstance() {
+        if (instance == null) {
+            instance = new DataRepository();
+        }
+        return instance;
+    }
+
+    private <T> T load(String name, Supplier<T> loader) {
+        long start = System.nanoTime();
+        T data = loader.get();
+        loadTimes.put(name, System.nanoTime() - start);
+        if (data instanceof OrderedMap) {
+            loadedMaps.put(name, (OrderedMap<?, ?>) data);
+        } else if (data instanceof SnapshotEntityTable) {
+            loadedMaps.put(name, ((SnapshotEntityTable<?>) data).getMap());
+        }
+        return data;
+    }
+
+    // ===============================
+    // DATA SETS
+    // ===============================
+
+    public synchronized OrderedMap<String, Patient> getPatients() {
+        if (patients == null) patients = load("Patients", patientDAO::retrieveFromFile);
+        return patients;
+    }
+
+    public synchronized OrderedMap<String, Doctor> getDoctors() {
+        if (doctors == null) doctors = load("Doctors", DoctorDAO::loadDoctors);
+        return doctors;
+    }
+
+    public synchronized OrderedMap<String, Schedule> getSchedules() {
+        if (schedules == null) schedules = load("Schedules", scheduleDAO::retrieveFromFile);
+        return schedules;
+    }
+
+    /**
+     * @return indexes over {@link #getSchedules()}, built on first use
+     */
+    public synchronized ScheduleIndex getScheduleIndex() {
+        if (scheduleIndex == null) scheduleIndex = load("Schedule Index", () -> new ScheduleIndex(getSchedules()));
+        return scheduleIndex;
+    }
+
+    public synchronized OrderedMap<String, Appointment> getAppointments() {
+        if (appointments == null) appointments = load("Appointments", appointmentDAO::retrieveFromFile);
+        return appointments;
+    }
+
+    public synchronized OrderedMap<String, Consultation> getConsultations() {
+        if (consultations == null) consultations = load("Consultations", consultationDAO::retrieveFromFile);
+        return consultations;
+    }
+
+    /**
+     * @return the consultations as of the last change made through any
+     *         ConsultationMaintenance, or null until one has recorded a version
+     */
+    public synchronized PersistentOrderedMap<String, Consultation> getConsultationVersion() {
+        return consultationVersion;
+    }
+
+    public synchronized void setConsultationVersion(PersistentOrderedMap<String, Consultation> version) {
+        consultationVersion = version;
+    }
+
+    public synchronized OrderedMap<String, ConsultationService> getConsultationServices() {
+        if (consultationServices == null) consultationServices = load("Consultation Services", consultationServiceDAO::retrieveFromFile);
+        return consultationServices;
+    }
+
+    public synchronized OrderedMap<String, Diagnosis> getDiagnoses() {
+        if (diagnoses == null) diagnoses = load("Diagnoses", diagnosisDAO::retrieveFromFile);
+        return diagnoses;
+    }
+
+    public synchronized OrderedMap<String, Treatment> getTreatments() {
+        if (treatments == null) treatments = load("Treatments", treatmentDAO::retrieveFromFile);
+        return treatments;
+    }
+
+    public synchronized OrderedMap<String, Procedure> getProcedures() {
+        if (procedures == null) procedures = load("Procedures", procedureDAO::retrieveFromFile);
+        return procedures;
+    }
+
+    /**
+     * Discards the loaded procedures and reads them again from file
+     * @return the freshly loaded procedures
+     */
+    public synchronized OrderedMap<String, Procedure> reloadProcedures() {
+        procedures = null;
+        return getProcedures();
+    }
+
+    /**
+     * @return the visit history, memory-mapped when run with -Dclinic.storage=mapped
+     */
+    public synchronized EntityTable<VisitHistory> getVisitHistory() {
+        if (visitHistory == null) visitHistory = load("Visit History", visitHistoryDAO::openTable);
+        return visitHistory;
+    }
+
+    public synchronized OrderedMap<String, Medicine> getMedicines() {
+        if (medicines == null) medicines = load("Medicines", medicineDAO::retrieveFromFile);
+        return medicines;
+    }
+
+    /**
+     * @return the transactions, stored in monthly segments that are loaded as they are used
+     */
+    public synchronized SegmentedEntityTable<Transaction> getTransactions() {
+        if (transactions == null) transactions = load("Transactions", transactionDAO::openTable);
+        return transactions;
+    }
+
+    public synchronized OrderedMap<String, Prescription> getPendingPrescriptions() {
+        if (pendingPrescriptions == null) pendingPrescriptions = load("Pending Prescriptions", pendingPrescriptionDAO::retrieveFromFile);
+        return pendingPrescriptions;
+    }
+
+    public synchronized OrderedMap<String, Prescription> getProcessedPrescriptions() {
+        if (processedPrescriptions == null) processedPrescriptions = load("Processed Prescriptions", processedPrescriptionDAO::retrieveFromFile);
+        return processedPrescriptions;
+    }
+
+    public synchronized OrderedMap<String, Payment> getPayments() {
+        if (payments == null) payments = load("Payments", paymentDAO::retrieveFromFile);
+        return payments;
+    }
+
+    // ===============================
+    // DAOS
+    // ===============================
+
+    public PatientDAO getPatientDAO() { return patientDAO; }
+    public ScheduleDAO getScheduleDAO() { return scheduleDAO; }
+    public AppointmentDAO getAppointmentDAO() { return appointmentDAO; }
+    public ConsultationDAO getConsultationDAO() { return consultationDAO; }
+    public ConsultationServiceDAO getConsultationServiceDAO() { return consultationServiceDAO; }
+    public DiagnosisDAO getDiagnosisDAO() { return diagnosisDAO; }
+    public TreatmentDAO getTreatmentDAO() { return treatmentDAO; }
+    public ProcedureDAO getProcedureDAO() { return procedureDAO; }
+    public VisitHistoryDAO getVisitHistoryDAO() { return visitHistoryDAO; }
+    public MedicineDAO getMedicineDAO() { return medicineDAO; }
+    public TransactionDAO getTransactionDAO() { return transactionDAO; }
+    public PrescriptionDAO getPendingPrescriptionDAO() { return pendingPrescriptionDAO; }
+    public PrescriptionDAO getProcessedPrescriptionDAO() { return processedPrescriptionDAO; }
+    public PaymentDAO getPaymentDAO() { return paymentDAO; }
+
+    /**
+     * Closes the data sets that keep files open, such as a memory-mapped visit history.
+     * Call on exit, after background saves have finished; a data set asked for again
+     * afterwards is reopened.
+     */
+    public synchronized void close() {
+        closeTable("Visit History", visitHistory);
+        visitHistory = null;
+        closeTable("Transactions", transactions);
+        transactions = null;
+    }
+
+    private static void closeTable(String name, Object table) {
+        if (!(table instanceof Closeable)) return;
+        try {
+            ((Closeable) table).close();
+        } catch (IOException e) {
+            System.out.println("Error closing " + name + ": " + e.getMessage());
+        }
+    }
+
+    // ===============================
+    // LOAD TIMING
+    // ===============================
+
+    /**
+     * @param name data set name as shown in the load report, e.g. "Patients"
+     * @return how long the data set took to load in milliseconds, or -1 if it has not been loaded
+     */
+    public synchronized long getLoadTimeMillis(String name) {
+        Long nanos = loadTimes.get(name);
+        return nanos == null ? -1 : nanos / 1_000_000;
+    }
+
+    /**
+     * @return total time spent loading data sets so far, in milliseconds
+     */
+    public synchronized long getTotalLoadTimeMillis() {
+        long total = 0;
+        for (Long nanos : loadTimes) {
+            total += nanos;
+        }
+        return total / 1_000_000;
+    }
+
+    /**
+     * @return one line per loaded data set with its load time, followed by the total
+     */
+    public synchronized String getLoadReport() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < loadTimes.size(); i++) {
+            sb.append(String.format("%-25s %8.1f ms%n", loadTimes.getKey(i), loadTimes.get(i) / 1_000_000.0));
+        }
+        sb.append(String.format("%-25s %8d ms%n", "Total", getTotalLoadTimeMillis()));
+        return sb.toString();
+    }
+
+    // ===============================
+    // MAP STATISTICS
+    // ===============================
+
+    /**
+     * @return hash table health and footprint of each loaded data set, in load order;
+     *         operation counters are included when run with -Dclinic.mapStats=true
+     */
+    public synchronized OrderedMap<String, OrderedMapStats> getMapStats() {
+        OrderedMap<String, OrderedMapStats> stats = new OrderedMap<>(loadedMaps.size());
+        for (int i = 0; i < loadedMaps.size(); i++) {
+            stats.put(loadedMaps.getKey(i), loadedMaps.get(i).stats());
+        }
+        return stats;
+    }
+
+    /**
+     * @return one line per loaded data set with its table statistics, followed by the
+     *         total estimated size of the tables
+     */
+    public synchronized String getMapStatsReport() {
+        OrderedMap<String, OrderedMapStats> stats = getMapStats();
+        StringBuilder sb = new StringBuilder();
+        long totalBytes = 0;
+        for (int i = 0; i < stats.size(); i++) {
+            OrderedMapStats s = stats.get(i);
+            sb.append(String.format("%-25s %s%n", stats.getKey(i), s));
+            totalBytes += s.getEstimatedBytes();
+        }
+        sb.append(String.format("%-25s ~%dKB%n", "Total", (totalBytes + 1023) / 1024));
+        return sb.toString();
+    }
+}
@@ -5,10 +5,14 @@ import adt.OrderedMap;
 import entity.Diagnosis;
 
 public class DiagnosisDAO {
-    private static final String DATA_DIR = "src/data/";
+    private static final String DATA_DIR = DataFiles.DIRECTORY + "/";
     private static final String FILE_NAME = DATA_DIR + "diagnosis.dat";
 
     public void saveDiagnosis(OrderedMap<String, Diagnosis> diagnoses) {
+        WriteBehindPersister.save(FILE_NAME, diagnoses, this::writeSnapshot);
+    }
+
+    private void writeSnapshot(OrderedMap<String, Diagnosis> diagnoses) {
         try {
             // Ensure directory exists
             File directory = new File(DATA_DIR);
@@ -16,8 +20,11 @@ public class DiagnosisDAO {
                 directory.mkdirs();
             }
             
-            try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(FILE_NAME))) {
+            try (AtomicFileOutputStream file = new AtomicFileOutputStream(FILE_NAME);
+                 ObjectOutputStream oos = new ObjectOutputStream(file)) {
                 oos.writeObject(diagnoses);
+                oos.flush();
+                file.commit();
                 System.out.println("✅ Diagnosis data saved successfully to " + FILE_NAME);
             }
         } catch (IOException e) {
@@ -5,11 +5,15 @@ import entity.Doctor;
 import java.io.*;
 
 public class DoctorDAO {
-    private static final String FILE_NAME = "src/data/doctors.dat";
+    private static final String FILE_NAME = DataFiles.path("doctors.dat");
 
     public static void saveDoctors(OrderedMap<String, Doctor> doctors) {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(FILE_NAME))) {
-            oos.writeObject(doctors);
+        WriteBehindPersister.save(FILE_NAME, doctors, DoctorDAO::writeSnapshot);
+    }
+
+    private static void writeSnapshot(OrderedMap<String, Doctor> doctors) {
+        try {
+            BinaryMapFile.write(FILE_NAME, doctors, EntityCodecs.DOCTOR);
         } catch (IOException e) {
             System.out.println("Error saving doctors to file: " + e.getMessage());
         }
@@ -17,8 +21,8 @@ public class DoctorDAO {
 
     public static OrderedMap<String, Doctor> loadDoctors() {
         OrderedMap<String, Doctor> doctors = new OrderedMap<>();
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(FILE_NAME))) {
-            doctors = (OrderedMap<String, Doctor>) ois.readObject();
+        try {
+            doctors = BinaryMapFile.load(FILE_NAME, EntityCodecs.DOCTOR);
         } catch (IOException | ClassNotFoundException e) {
             System.out.println("No existing doctor file found or error reading it.");
         }
@@ -0,0 +1,36 @@
+package dao;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Reads and writes one entity type in the compact binary record format.
+ *
+ * Each codec names its record type and current schema version; both are stored
+ * in the file header so a codec can still read records written by older versions.
+ *
+ * @param <T> the entity type handled by this codec
+ */
+public interface EntityCodec<T> {
+
+    /**
+     * @return the record type stored in the file header, e.g. "Patient"
+     */
+    String recordType();
+
+    /**
+     * @return the schema version written by this codec
+     */
+    int version();
+
+    /**
+     * Writes one entity (never null) in the current schema version
+     */
+    void write(DataOutputStream out, T value) throws IOException;
+
+    /**
+     * Reads one entity that was written with the given schema version
+     */
+    T read(DataInputStream in, int version) throws IOException;
+}
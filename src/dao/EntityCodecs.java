@@ -0,0 +1,242 @@
+package dao;
+
+import entity.Appointment;
+import entity.Doctor;
+import entity.Medicine;
+import entity.Patient;
+import entity.PrescribedMedicine;
+import entity.Schedule;
+import entity.Transaction;
+import entity.VisitHistory;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Binary codecs for the entities stored by the DAOs.
+ *
+ * Fields are written in a fixed order with no class descriptors. Nullable strings
+ * and date-times carry a one-byte presence flag. When a field is added to an
+ * entity, bump the codec's version and read the new field only for that version.
+ */
+public final class EntityCodecs {
+
+    private EntityCodecs() {
+    }
+
+    // ===============================
+    // FIELD HELPERS
+    // ===============================
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    static void writeDateTime(DataOutputStream out, LocalDateTime value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(value.getNano());
+        }
+    }
+
+    static LocalDateTime readDateTime(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) return null;
+        long seconds = in.readLong();
+        int nanos = in.readInt();
+        return LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+
+    // ===============================
+    // ENTITY CODECS
+    // ===============================
+
+    public static final EntityCodec<Patient> PATIENT = new EntityCodec<>() {
+        public String recordType() { return "Patient"; }
+        public int version() { return 1; }
+
+        public void write(DataOutputStream out, Patient p) throws IOException {
+            writeString(out, p.getPatientId());
+            writeString(out, p.getName());
+            out.writeInt(p.getAge());
+            writeString(out, p.getGender());
+            writeString(out, p.getContactNumber());
+            writeString(out, p.getAddress());
+            out.writeBoolean(p.isEmergency());
+        }
+
+        public Patient read(DataInputStream in, int version) throws IOException {
+            return new Patient(readString(in), readString(in), in.readInt(), readString(in),
+                    readString(in), readString(in), in.readBoolean());
+        }
+    };
+
+    public static final EntityCodec<Doctor> DOCTOR = new EntityCodec<>() {
+        public String recordType() { return "Doctor"; }
+        public int version() { return 1; }
+
+        public void write(DataOutputStream out, Doctor d) throws IOException {
+            writeString(out, d.getDoctorID());
+            writeString(out, d.getName());
+            writeString(out, d.getSpecialty());
+            writeString(out, d.getPhone());
+            writeString(out, d.getEmail());
+            writeString(out, d.getAddress());
+            writeString(out, d.getGender());
+            out.writeInt(d.getYearsOfExperience());
+        }
+
+        public Doctor read(DataInputStream in, int version) throws IOException {
+            return new Doctor(readString(in), readString(in), readString(in), readString(in),
+                    readString(in), readString(in), readString(in), in.readInt());
+        }
+    };
+
+    public static final EntityCodec<Schedule> SCHEDULE = new EntityCodec<>() {
+        public String recordType() { return "Schedule"; }
+        public int version() { return 1; }
+
+        public void write(DataOutputStream out, Schedule s) throws IOException {
+            writeString(out, s.getScheduleID());
+            writeString(out, s.getDoctorID());
+            writeString(out, s.getDate());
+            writeString(out, s.getTimeslot());
+            out.writeBoolean(s.getStatus());
+        }
+
+        public Schedule read(DataInputStream in, int version) throws IOException {
+            return new Schedule(readString(in), readString(in), readString(in), readString(in), in.readBoolean());
+        }
+    };
+
+    public static final EntityCodec<Appointment> APPOINTMENT = new EntityCodec<>() {
+        public String recordType() { return "Appointment"; }
+        public int version() { return 1; }
+
+        public void write(DataOutputStream out, Appointment a) throws IOException {
+            writeString(out, a.getAppointmentId());
+            writeString(out, a.getPatientId());
+            writeString(out, a.getDoctorId());
+            writeDateTime(out, a.getAppointmentTime());
+            writeString(out, a.getStatus());
+            writeString(out, a.getAppointmentType());
+        }
+
+        public Appointment read(DataInputStream in, int version) throws IOException {
+            return new Appointment(readString(in), readString(in), readString(in), readDateTime(in),
+                    readString(in), readString(in));
+        }
+    };
+
+    public static final EntityCodec<Medicine> MEDICINE = new EntityCodec<>() {
+        public String recordType() { return "Medicine"; }
+        public int version() { return 1; }
+
+        public void write(DataOutputStream out, Medicine m) throws IOException {
+            writeString(out, m.getId());
+            writeString(out, m.getName());
+            out.writeInt(m.getQuantity());
+            out.writeDouble(m.getPrice());
+            writeString(out, m.getDescription());
+        }
+
+        public Medicine read(DataInputStream in, int version) throws IOException {
+            return new Medicine(readString(in), readString(in), in.readInt(), in.readDouble(), readString(in));
+        }
+    };
+
+    /**
+     * Transactions embed the medicines as they were at dispensing time, so each
+     * prescribed medicine carries its own copy of the medicine record
+     */
+    public static final EntityCodec<Transaction> TRANSACTION = new EntityCodec<>() {
+        public String recordType() { return "Transaction"; }
+        public int version() { return 1; }
+
+        public void write(DataOutputStream out, Transaction t) throws IOException {
+            writeString(out, t.getTransactionID());
+            writeString(out, t.getPatientId());
+            writeDateTime(out, t.getDate());
+            out.writeDouble(t.getTotalPrice());
+            out.writeInt(t.getMedicines().size());
+            for (int i = 0; i < t.getMedicines().size(); i++) {
+                writeString(out, t.getMedicines().getKey(i));
+                PrescribedMedicine pm = t.getMedicines().get(i);
+                MEDICINE.write(out, pm.getMedicine());
+                out.writeInt(pm.getQuantity());
+                writeString(out, pm.getDosage());
+                writeString(out, pm.getFrequency());
+                writeString(out, pm.getDescription());
+            }
+        }
+
+        public Transaction read(DataInputStream in, int version) throws IOException {
+            Transaction t = new Transaction(readString(in), readString(in), readDateTime(in), in.readDouble());
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = readString(in);
+                Medicine medicine = MEDICINE.read(in, version);
+                PrescribedMedicine pm = new PrescribedMedicine(medicine, in.readInt(), readString(in),
+                        readString(in), readString(in));
+                t.getMedicines().put(key, pm);
+            }
+            return t;
+        }
+    };
+
+    // How a visit's patient is stored; version 1 files only use NO_PATIENT and EMBEDDED_PATIENT
+    private static final byte NO_PATIENT = 0;
+    private static final byte EMBEDDED_PATIENT = 1;
+    private static final byte PATIENT_REFERENCE = 2;
+
+    /**
+     * Version 2 stores the patient as a reference (ID only) when the patient is in
+     * patients.dat, and links it to the shared instance on load
+     */
+    public static final EntityCodec<VisitHistory> VISIT_HISTORY = new EntityCodec<>() {
+        public String recordType() { return "VisitHistory"; }
+        public int version() { return 2; }
+
+        public void write(DataOutputStream out, VisitHistory v) throws IOException {
+            writeString(out, v.getVisitId());
+            Object patient = v.getPatient() == null ? null : EntityRef.toReference(v.getPatient());
+            if (patient == null) {
+                out.writeByte(NO_PATIENT);
+            } else if (patient instanceof Patient) {
+                out.writeByte(EMBEDDED_PATIENT);
+                PATIENT.write(out, (Patient) patient);
+            } else {
+                out.writeByte(PATIENT_REFERENCE);
+                out.writeUTF(v.getPatient().getPatientId());
+            }
+            writeDateTime(out, v.getVisitDate());
+            writeString(out, v.getVisitReason());
+            writeString(out, v.getStatus());
+        }
+
+        public VisitHistory read(DataInputStream in, int version) throws IOException {
+            String visitId = readString(in);
+            Patient patient;
+            switch (in.readByte()) {
+                case EMBEDDED_PATIENT:
+                    patient = (Patient) EntityRef.resolve(PATIENT.read(in, 1));
+                    break;
+                case PATIENT_REFERENCE:
+                    patient = (Patient) EntityRef.resolvePatient(in.readUTF());
+                    break;
+                default:
+                    patient = null;
+            }
+            return new VisitHistory(visitId, patient, readDateTime(in), readString(in), readString(in));
+        }
+    };
+}
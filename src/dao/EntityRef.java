@@ -0,0 +1,130 @@
+package dao;
+
+import adt.OrderedMap;
+import entity.Appointment;
+import entity.Doctor;
+import entity.Patient;
+import entity.Prescription;
+import java.io.Serializable;
+
+/**
+ * Stand-in written to a data file in place of a patient or doctor that is stored in
+ * its own file. Only the type and ID are written; on load the reference is swapped
+ * for the instance held by the {@link DataRepository}, so every consultation,
+ * treatment and visit record shares one copy of each entity and sees edits made to it.
+ *
+ * Appointments and prescriptions are written in full, since they can be removed
+ * while records still point to them; on load the copy is swapped for the canonical
+ * instance when there is one. References to them in files written before that are
+ * still resolved.
+ */
+final class EntityRef implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final byte PATIENT = 1;
+    private static final byte DOCTOR = 2;
+    private static final byte APPOINTMENT = 3;
+    private static final byte PRESCRIPTION = 4;
+
+    private final byte type;
+    private final String id;
+
+    private EntityRef(byte type, String id) {
+        this.type = type;
+        this.id = id;
+    }
+
+    /**
+     * Returns a reference for a patient or doctor that has a canonical copy in the
+     * repository, or the object itself otherwise (so it is written in full and nothing
+     * is lost)
+     */
+    static Object toReference(Object obj) {
+        DataRepository repository = DataRepository.getInstance();
+        if (obj instanceof Patient) {
+            String id = ((Patient) obj).getPatientId();
+            if (id != null && repository.getPatients().containsKey(id)) return new EntityRef(PATIENT, id);
+        } else if (obj instanceof Doctor) {
+            String id = ((Doctor) obj).getDoctorID();
+            if (id != null && repository.getDoctors().containsKey(id)) return new EntityRef(DOCTOR, id);
+        }
+        return obj;
+    }
+
+    /**
+     * Maps an object read from a file to its canonical instance. References are looked
+     * up by ID; full copies embedded by older files are replaced by the canonical
+     * instance when one exists, so they are de-duplicated as well.
+     */
+    static Object resolve(Object obj) {
+        if (obj instanceof EntityRef) {
+            return ((EntityRef) obj).resolve();
+        }
+        DataRepository repository = DataRepository.getInstance();
+        if (obj instanceof Patient) {
+            return canonical(repository.getPatients(), ((Patient) obj).getPatientId(), obj);
+        } else if (obj instanceof Doctor) {
+            return canonical(repository.getDoctors(), ((Doctor) obj).getDoctorID(), obj);
+        } else if (obj instanceof Appointment) {
+            return canonical(repository.getAppointments(), ((Appointment) obj).getAppointmentId(), obj);
+        } else if (obj instanceof Prescription) {
+            String id = ((Prescription) obj).getPrescriptionID();
+            return canonical(repository.getPendingPrescriptions(), id,
+                    canonical(repository.getProcessedPrescriptions(), id, obj));
+        }
+        return obj;
+    }
+
+    /**
+     * Looks up a patient by ID, as for a patient reference read from a file
+     */
+    static Object resolvePatient(String id) {
+        return new EntityRef(PATIENT, id).resolve();
+    }
+
+    private static Object canonical(OrderedMap<String, ?> map, String id, Object fallback) {
+        Object found = id == null ? null : map.get(id);
+        return found != null ? found : fallback;
+    }
+
+    private Object resolve() {
+        DataRepository repository = DataRepository.getInstance();
+        Object found;
+        switch (type) {
+            case PATIENT:
+                found = repository.getPatients().get(id);
+                if (found == null) {
+                    // Deleted since this file was written; keep the ID so the record still shows it
+                    System.out.println("Patient " + id + " no longer exists; showing a placeholder.");
+                    found = new Patient(id, "Unknown patient", 0, "", "", "", false);
+                }
+                return found;
+            case DOCTOR:
+                found = repository.getDoctors().get(id);
+                if (found == null) {
+                    System.out.println("Doctor " + id + " no longer exists; showing a placeholder.");
+                    found = new Doctor(id, "Unknown doctor", "", "", "", "", "", 0);
+                }
+                return found;
+            case APPOINTMENT:
+                found = repository.getAppointments().get(id);
+                if (found == null) {
+                    System.out.println("Appointment " + id + " no longer exists; showing a placeholder.");
+                    found = new Appointment(id, "", "", null, "Unknown", "");
+                }
+                return found;
+            case PRESCRIPTION:
+                found = repository.getPendingPrescriptions().get(id);
+                if (found == null) {
+                    found = repository.getProcessedPrescriptions().get(id);
+                }
+                if (found == null) {
+                    System.out.println("Prescription " + id + " no longer exists; showing a placeholder.");
+                    found = new Prescription(id, "");
+                }
+                return found;
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package dao;
+
+import adt.OrderedMapView;
+
+/**
+ * A keyed, ordered set of entities that persists its own changes: every put and
+ * remove is saved by the table, so callers do not save the whole data set afterwards.
+ *
+ * An entity changed in place must be put again for the change to be saved.
+ *
+ * @param <V> the entity type
+ */
+public interface EntityTable<V> extends OrderedMapView<String, V> {
+
+    /**
+     * Adds or replaces the entity stored under the key and saves the change. A replaced
+     * entity keeps its position.
+     * @return the previous entity for the key, or null if there was none
+     */
+    V put(String key, V value);
+
+    /**
+     * Removes the entity stored under the key and saves the change
+     * @return the removed entity, or null if the key was absent
+     */
+    V remove(String key);
+}
@@ -0,0 +1,94 @@
+package dao;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+/**
+ * Group commit for one fsync target (a log, the manifest, a directory).
+ *
+ * A writer takes a ticket with {@link #request()} after writing its data and then calls
+ * {@link #syncThrough}. The first waiting thread runs one sync that covers every ticket
+ * handed out so far; threads that arrive while it runs wait for it, or for the next one,
+ * instead of syncing themselves. Concurrent commits therefore share a single fsync.
+ */
+final class GroupSync {
+
+    /**
+     * Forces the target's written data to the storage device
+     */
+    interface SyncAction {
+        void sync() throws IOException;
+    }
+
+    private final SyncAction action;
+    private long requested;
+    private long completed;
+    private boolean syncing;
+
+    // Statistics
+    private long syncs;
+
+    GroupSync(SyncAction action) {
+        this.action = action;
+    }
+
+    /**
+     * @return a ticket covering everything written to the target before this call
+     */
+    synchronized long request() {
+        return ++requested;
+    }
+
+    /**
+     * Returns once the data covered by the ticket has been synced, syncing it if no
+     * other thread is already doing so
+     * @throws IOException if the sync run by this thread fails
+     */
+    void syncThrough(long ticket) throws IOException {
+        while (true) {
+            long upTo;
+            synchronized (this) {
+                try {
+                    while (syncing && completed < ticket) {
+                        wait();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted waiting for sync");
+                }
+                if (completed >= ticket) return;
+                syncing = true;
+                upTo = requested;
+            }
+
+            boolean synced = false;
+            try {
+                action.sync();
+                synced = true;
+            } finally {
+                synchronized (this) {
+                    syncing = false;
+                    if (synced) {
+                        completed = Math.max(completed, upTo);
+                        syncs++;
+                    }
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return tickets handed out, i.e. commits that asked for durability
+     */
+    synchronized long getRequestCount() {
+        return requested;
+    }
+
+    /**
+     * @return syncs actually run
+     */
+    synchronized long getSyncCount() {
+        return syncs;
+    }
+}
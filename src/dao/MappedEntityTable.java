@@ -0,0 +1,753 @@
+package dao;
+
+import adt.OrderedMap;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An {@link EntityTable} whose records live in a memory-mapped file, with only a
+ * primary-key index on the heap. Entities are decoded from the mapping each time they
+ * are read, so the heap holds about 20 bytes per entry however large the records are,
+ * and the operating system pages the file in and out as needed.
+ *
+ * File layout: a fixed header (magic, format, end of the last record, removed bytes,
+ * next sequence number, record type), then records appended one after another. A
+ * record is its total length (int), state (LIVE/DELETED byte), the codec's schema
+ * version (short), a sequence number (int), the key (UTF) and the codec's record.
+ * Each change is forced to the storage device as it is made: a new record is forced
+ * before the end offset in the header is updated to include it, and the header
+ * afterwards, so a record torn by a crash is never seen and a put or remove that
+ * has returned survives one.
+ *
+ * A put appends a new record and marks the old one deleted; the new record carries the
+ * old sequence number, which is what orders the entries when the file is next opened,
+ * so an entry keeps its position across updates. Space held by deleted records is
+ * reclaimed when the table is opened, before it is mapped, once it outweighs the live
+ * records.
+ *
+ * The file is limited to 2GB, the size of one mapping. Entities returned by the table
+ * are copies; changing one has no effect until it is put again.
+ *
+ * @param <V> the entity type
+ */
+public class MappedEntityTable<V> implements EntityTable<V>, Closeable {
+
+    private static final int MAGIC = 0x434C4D54; // "CLMT"
+    private static final short FORMAT = 1;
+
+    // Header fields
+    private static final int FORMAT_OFFSET = 4;
+    private static final int END_OFFSET = 8;
+    private static final int DEAD_OFFSET = 16;
+    private static final int SEQUENCE_OFFSET = 24;
+    private static final int TYPE_OFFSET = 32;
+    private static final int HEADER_SIZE = 128;
+
+    // Record fields, relative to the record's offset
+    private static final int STATE = 4;
+    private static final int VERSION = 5;
+    private static final int SEQUENCE = 7;
+    private static final int KEY = 11;
+    private static final byte LIVE = 1;
+    private static final byte DELETED = 0;
+
+    private static final int INITIAL_MAPPING = 1 << 20;
+    private static final int INITIAL_CAPACITY = 16;
+    // Deleted records are only compacted away once they take at least this much space
+    private static final long COMPACT_MIN_BYTES = 1 << 20;
+
+    private final String fileName;
+    private final EntityCodec<V> codec;
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int end;
+    private long dead;
+    private int nextSequence;
+
+    // Primary-key index, laid out like IntOrderedMap: record offset and key hash per
+    // position in entry order (offset 0 marks a removed entry), and a linear-probing
+    // slot table holding position + 1
+    private int[] offsets;
+    private int[] hashes;
+    private int[] slots;
+    private int mask;
+    private int used;
+    private int size;
+    private int modCount;
+
+    private MappedEntityTable(String fileName, EntityCodec<V> codec) throws IOException {
+        this.fileName = fileName;
+        this.codec = codec;
+        this.file = new RandomAccessFile(fileName, "rw");
+        this.channel = file.getChannel();
+        try {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException(fileName + " is larger than 2GB");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(INITIAL_MAPPING, (int) length));
+            if (length == 0) {
+                writeHeader(buffer, codec.recordType());
+                end = HEADER_SIZE;
+            } else {
+                readHeader(length);
+            }
+            allocateIndex(INITIAL_CAPACITY);
+            scan();
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens the table stored in the file, creating an empty one if the file does not exist
+     * @param fileName path of the table file
+     * @param codec codec for the entities
+     * @return the open table
+     * @throws IOException if the file cannot be mapped or holds another record type
+     */
+    public static <V> MappedEntityTable<V> open(String fileName, EntityCodec<V> codec) throws IOException {
+        File existing = new File(fileName);
+        if (existing.length() > HEADER_SIZE) {
+            compactIfWorthwhile(existing);
+        }
+        return new MappedEntityTable<>(fileName, codec);
+    }
+
+    /**
+     * Writes a new table file holding the entries of the map, replacing the file only
+     * once it is complete; used to import a data file written by {@link BinaryMapFile}
+     * @param fileName path of the table file to create
+     * @param map entries to write, in order
+     * @param codec codec for the entities
+     */
+    public static <V> void create(String fileName, OrderedMap<String, V> map, EntityCodec<V> codec) throws IOException {
+        File target = new File(fileName);
+        File temp = new File(fileName + ".tmp");
+        byte[] header = new byte[HEADER_SIZE];
+        ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+        writeHeader(headerBuffer, codec.recordType());
+
+        long end = HEADER_SIZE;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.write(header);
+            for (int i = 0; i < map.size(); i++) {
+                byte[] body = encode(map.getKey(i), map.get(i), codec);
+                out.writeInt(KEY + body.length);
+                out.writeByte(LIVE);
+                out.writeShort(codec.version());
+                out.writeInt(i);
+                out.write(body);
+                end += KEY + body.length;
+                if (end > Integer.MAX_VALUE) {
+                    throw new IOException(fileName + " would be larger than 2GB");
+                }
+            }
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(temp, "rw")) {
+            raf.seek(END_OFFSET);
+            raf.writeLong(end);
+            raf.seek(SEQUENCE_OFFSET);
+            raf.writeLong(map.size());
+            raf.getFD().sync(); // on disk before it replaces the target
+        }
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // ===============================
+    // FILE FORMAT
+    // ===============================
+
+    private static void writeHeader(ByteBuffer header, String recordType) throws IOException {
+        header.putInt(0, MAGIC);
+        header.putShort(FORMAT_OFFSET, FORMAT);
+        header.putLong(END_OFFSET, HEADER_SIZE);
+        header.putLong(DEAD_OFFSET, 0);
+        header.putLong(SEQUENCE_OFFSET, 0);
+        ByteArrayOutputStream type = new ByteArrayOutputStream();
+        new DataOutputStream(type).writeUTF(recordType);
+        if (TYPE_OFFSET + type.size() > HEADER_SIZE) {
+            throw new IOException("Record type name too long: " + recordType);
+        }
+        ByteBuffer at = header.duplicate();
+        at.position(TYPE_OFFSET);
+        at.put(type.toByteArray());
+    }
+
+    private void readHeader(long length) throws IOException {
+        if (length < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException(fileName + " is not an entity table");
+        }
+        if (buffer.getShort(FORMAT_OFFSET) > FORMAT) {
+            throw new IOException(fileName + " was written by a newer version of the table format");
+        }
+        String recordType = new DataInputStream(new BufferInput(TYPE_OFFSET)).readUTF();
+        if (!recordType.equals(codec.recordType())) {
+            throw new IOException(fileName + " holds " + recordType + " records, expected " + codec.recordType());
+        }
+        long storedEnd = buffer.getLong(END_OFFSET);
+        if (storedEnd < HEADER_SIZE || storedEnd > length) {
+            throw new IOException(fileName + " has an invalid end offset: " + storedEnd);
+        }
+        end = (int) storedEnd;
+        dead = buffer.getLong(DEAD_OFFSET);
+        nextSequence = (int) buffer.getLong(SEQUENCE_OFFSET);
+    }
+
+    /**
+     * Rewrites the file without its deleted records when they take more space than the
+     * live ones. Runs before the file is mapped, since a mapped file cannot be replaced
+     * on every platform.
+     */
+    private static void compactIfWorthwhile(File source) throws IOException {
+        long storedEnd;
+        long storedDead;
+        byte[] header = new byte[HEADER_SIZE];
+        try (RandomAccessFile raf = new RandomAccessFile(source, "r")) {
+            raf.readFully(header);
+            ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+            if (headerBuffer.getInt(0) != MAGIC) {
+                return; // reported when the file is opened
+            }
+            storedEnd = headerBuffer.getLong(END_OFFSET);
+            storedDead = headerBuffer.getLong(DEAD_OFFSET);
+        }
+        long live = storedEnd - HEADER_SIZE - storedDead;
+        if (storedDead < COMPACT_MIN_BYTES || storedDead < live || storedEnd > source.length()) {
+            return;
+        }
+
+        File temp = new File(source.getPath() + ".compacting");
+        long newEnd = HEADER_SIZE;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(source)));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            in.readFully(new byte[HEADER_SIZE]);
+            out.write(header);
+            long pos = HEADER_SIZE;
+            while (pos < storedEnd) {
+                int length = in.readInt();
+                if (length < KEY + 2 || length > storedEnd - pos) {
+                    break; // torn record; dropped here as it would be on open
+                }
+                byte[] record = new byte[length - 4];
+                in.readFully(record);
+                if (record[0] == LIVE) {
+                    out.writeInt(length);
+                    out.write(record);
+                    newEnd += length;
+                }
+                pos += length;
+            }
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(temp, "rw")) {
+            raf.seek(END_OFFSET);
+            raf.writeLong(newEnd);
+            raf.writeLong(0);
+            raf.getFD().sync();
+        }
+        Files.move(temp.toPath(), source.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Builds the index from the live records, in sequence order. If a crash left two
+     * live records for one entry, the later one wins.
+     */
+    private void scan() {
+        int[] bySequence = new int[Math.max(nextSequence, INITIAL_CAPACITY)];
+        int pos = HEADER_SIZE;
+        while (pos < end) {
+            int length = buffer.getInt(pos);
+            if (length < KEY + 2 || length > end - pos) {
+                System.out.println("Ignoring torn record at " + pos + " in " + fileName);
+                end = pos;
+                buffer.putLong(END_OFFSET, end);
+                break;
+            }
+            if (buffer.get(pos + STATE) == LIVE) {
+                int sequence = buffer.getInt(pos + SEQUENCE);
+                if (sequence < 0) {
+                    System.out.println("Ignoring record with invalid sequence at " + pos + " in " + fileName);
+                    markDeleted(pos);
+                    pos += length;
+                    continue;
+                }
+                if (sequence >= bySequence.length) {
+                    int[] grown = new int[Math.max(sequence + 1, bySequence.length * 2)];
+                    System.arraycopy(bySequence, 0, grown, 0, bySequence.length);
+                    bySequence = grown;
+                }
+                if (bySequence[sequence] != 0) {
+                    markDeleted(bySequence[sequence]);
+                }
+                bySequence[sequence] = pos;
+                nextSequence = Math.max(nextSequence, sequence + 1);
+            }
+            pos += length;
+        }
+
+        for (int sequence = 0; sequence < bySequence.length; sequence++) {
+            int offset = bySequence[sequence];
+            if (offset == 0) continue;
+            int hash = recordHash(offset);
+            int slot = findRecordSlot(hash, offset);
+            if (slot >= 0) {
+                // Same key under two sequence numbers; keep the newer record
+                int existing = slots[slot] - 1;
+                if (offsets[existing] < offset) {
+                    markDeleted(offsets[existing]);
+                    offsets[existing] = offset;
+                } else {
+                    markDeleted(offset);
+                }
+                continue;
+            }
+            addEntry(offset, hash);
+        }
+    }
+
+    private int append(byte[] body, int sequence) {
+        int length = KEY + body.length;
+        if ((long) end + length > Integer.MAX_VALUE) {
+            throw new UncheckedIOException(new IOException(fileName + " would be larger than 2GB"));
+        }
+        ensureMapped(end + length);
+        int offset = end;
+        buffer.putInt(offset, length);
+        buffer.put(offset + STATE, LIVE);
+        buffer.putShort(offset + VERSION, (short) codec.version());
+        buffer.putInt(offset + SEQUENCE, sequence);
+        ByteBuffer at = buffer.duplicate();
+        at.position(offset + KEY);
+        at.put(body);
+        buffer.force(offset, length); // the record is on disk before the header points past it
+
+        end = offset + length;
+        buffer.putLong(SEQUENCE_OFFSET, nextSequence);
+        buffer.putLong(END_OFFSET, end);
+        buffer.force(0, HEADER_SIZE);
+        return offset;
+    }
+
+    private void ensureMapped(int needed) {
+        if (needed <= buffer.capacity()) return;
+        long grown = Math.min(Integer.MAX_VALUE, Math.max((long) needed, (long) buffer.capacity() * 2));
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, grown);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void markDeleted(int offset) {
+        buffer.put(offset + STATE, DELETED);
+        dead += buffer.getInt(offset);
+        buffer.putLong(DEAD_OFFSET, dead);
+    }
+
+    private static <V> byte[] encode(String key, V value, EntityCodec<V> codec) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(key);
+            codec.write(out, value);
+        }
+        return bytes.toByteArray();
+    }
+
+    private V read(int offset) {
+        int version = buffer.getShort(offset + VERSION) & 0xFFFF;
+        try {
+            if (version > codec.version()) {
+                throw new IOException(fileName + " holds a record written by a newer version (" + version + ")");
+            }
+            DataInputStream in = new DataInputStream(new BufferInput(offset + KEY));
+            in.readUTF();
+            return codec.read(in, version);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String readKey(int offset) {
+        try {
+            return new DataInputStream(new BufferInput(offset + KEY)).readUTF();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Reads the mapping from a position without copying it
+    private final class BufferInput extends InputStream {
+        private int pos;
+
+        BufferInput(int pos) {
+            this.pos = pos;
+        }
+
+        @Override
+        public int read() {
+            return pos < buffer.capacity() ? buffer.get(pos++) & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (pos >= buffer.capacity()) return -1;
+            int n = Math.min(len, buffer.capacity() - pos);
+            ByteBuffer at = buffer.duplicate();
+            at.position(pos);
+            at.get(b, off, n);
+            pos += n;
+            return n;
+        }
+    }
+
+    // ===============================
+    // INDEX
+    // ===============================
+
+    private static int spread(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // Smallest power of two that keeps the slot table at most half full
+    private static int slotCapacityFor(int entries) {
+        int n = Integer.highestOneBit(Math.max(entries, 2) * 2 - 1) << 1;
+        return n < 0 ? 1 << 30 : n;
+    }
+
+    private void allocateIndex(int capacity) {
+        offsets = new int[capacity];
+        hashes = new int[capacity];
+        slots = new int[slotCapacityFor(capacity)];
+        mask = slots.length - 1;
+    }
+
+    /**
+     * String.hashCode of the record's key, computed from the stored bytes without
+     * decoding them when the key is ASCII
+     */
+    private int recordHash(int offset) {
+        int at = offset + KEY;
+        int length = buffer.getShort(at) & 0xFFFF;
+        int h = 0;
+        for (int i = 0; i < length; i++) {
+            byte b = buffer.get(at + 2 + i);
+            if (b < 0) {
+                return spread(readKey(offset).hashCode());
+            }
+            h = 31 * h + b;
+        }
+        return spread(h);
+    }
+
+    private boolean keyEquals(int offset, String key) {
+        int at = offset + KEY;
+        int length = buffer.getShort(at) & 0xFFFF;
+        if (length != key.length()) {
+            // Non-ASCII characters take more than one byte
+            return length > key.length() && readKey(offset).equals(key);
+        }
+        for (int i = 0; i < length; i++) {
+            byte b = buffer.get(at + 2 + i);
+            if (b < 0) {
+                return readKey(offset).equals(key);
+            }
+            if (b != key.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean sameKey(int offset, int other) {
+        int length = (buffer.getShort(offset + KEY) & 0xFFFF) + 2;
+        if (length != (buffer.getShort(other + KEY) & 0xFFFF) + 2) {
+            return false;
+        }
+        for (int i = 2; i < length; i++) {
+            if (buffer.get(offset + KEY + i) != buffer.get(other + KEY + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Returns the slot holding the key, or -1 if the key is absent
+    private int findSlot(int hash, String key) {
+        int slot = hash & mask;
+        int entry;
+        while ((entry = slots[slot]) != 0) {
+            if (hashes[entry - 1] == hash && keyEquals(offsets[entry - 1], key)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int findRecordSlot(int hash, int offset) {
+        int slot = hash & mask;
+        int entry;
+        while ((entry = slots[slot]) != 0) {
+            if (hashes[entry - 1] == hash && sameKey(offsets[entry - 1], offset)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void insertSlot(int hash, int pos) {
+        int slot = hash & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = pos + 1;
+    }
+
+    // Backward-shift deletion, so no tombstones are needed in the slot table
+    private void deleteSlot(int slot) {
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (slots[next] != 0) {
+            int home = hashes[slots[next] - 1] & mask;
+            boolean movable = (next > gap) ? (home <= gap || home > next) : (home <= gap && home > next);
+            if (movable) {
+                slots[gap] = slots[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        slots[gap] = 0;
+    }
+
+    private void addEntry(int offset, int hash) {
+        if (used == offsets.length) {
+            compactIndex(size < offsets.length / 2 ? offsets.length : offsets.length * 2);
+        }
+        int pos = used++;
+        offsets[pos] = offset;
+        hashes[pos] = hash;
+        insertSlot(hash, pos);
+        size++;
+    }
+
+    // Moves the live entries to positions [0, size), growing the arrays to newCapacity
+    private void compactIndex(int newCapacity) {
+        int[] oldOffsets = offsets;
+        int[] oldHashes = hashes;
+        int oldUsed = used;
+        allocateIndex(newCapacity);
+        used = 0;
+        for (int pos = 0; pos < oldUsed; pos++) {
+            if (oldOffsets[pos] != 0) {
+                offsets[used] = oldOffsets[pos];
+                hashes[used] = oldHashes[pos];
+                insertSlot(hashes[used], used);
+                used++;
+            }
+        }
+    }
+
+    private int positionOf(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (used != size) {
+            compactIndex(offsets.length);
+            modCount++; // positions moved under any open iterator
+        }
+        return index;
+    }
+
+    // ===============================
+    // TABLE OPERATIONS
+    // ===============================
+
+    @Override
+    public synchronized V put(String key, V value) {
+        if (key == null || value == null) {
+            throw new IllegalArgumentException("Keys and values must not be null");
+        }
+        byte[] body;
+        try {
+            body = encode(key, value, codec);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        int hash = spread(key.hashCode());
+        int slot = findSlot(hash, key);
+        if (slot >= 0) {
+            int pos = slots[slot] - 1;
+            int oldOffset = offsets[pos];
+            V oldValue = read(oldOffset);
+            offsets[pos] = append(body, buffer.getInt(oldOffset + SEQUENCE));
+            markDeleted(oldOffset); // if lost in a crash, the newer record still wins on open
+            return oldValue;
+        }
+
+        addEntry(append(body, nextSequence++), hash);
+        modCount++;
+        return null;
+    }
+
+    @Override
+    public synchronized V remove(String key) {
+        if (key == null) return null;
+        int slot = findSlot(spread(key.hashCode()), key);
+        if (slot < 0) return null;
+
+        int pos = slots[slot] - 1;
+        int offset = offsets[pos];
+        V oldValue = read(offset);
+        markDeleted(offset);
+        buffer.force(offset + STATE, 1);
+        buffer.force(0, HEADER_SIZE);
+        deleteSlot(slot);
+        offsets[pos] = 0;
+        size--;
+        modCount++;
+        while (used > 0 && offsets[used - 1] == 0) {
+            used--;
+        }
+        return oldValue;
+    }
+
+    @Override
+    public synchronized V get(String key) {
+        if (key == null) return null;
+        int slot = findSlot(spread(key.hashCode()), key);
+        return slot < 0 ? null : read(offsets[slots[slot] - 1]);
+    }
+
+    @Override
+    public synchronized boolean containsKey(String key) {
+        return key != null && findSlot(spread(key.hashCode()), key) >= 0;
+    }
+
+    @Override
+    public synchronized V get(int index) {
+        int pos = positionOf(index);
+        return read(offsets[pos]);
+    }
+
+    @Override
+    public synchronized String getKey(int index) {
+        int pos = positionOf(index);
+        return readKey(offsets[pos]);
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized V[] toArray(V[] array) {
+        if (array.length < size) {
+            array = (V[]) java.lang.reflect.Array.newInstance(array.getClass().getComponentType(), size);
+        }
+        int i = 0;
+        for (int pos = 0; pos < used; pos++) {
+            if (offsets[pos] != 0) {
+                array[i++] = read(offsets[pos]);
+            }
+        }
+        return array;
+    }
+
+    @Override
+    public boolean isSorted(Comparator<V> comparator) {
+        V previous = null;
+        for (V value : this) {
+            if (previous != null && comparator.compare(previous, value) > 0) {
+                return false;
+            }
+            previous = value;
+        }
+        return true;
+    }
+
+    /**
+     * @return bytes of the file taken by deleted records, reclaimed on the next open
+     */
+    public synchronized long getDeletedBytes() {
+        return dead;
+    }
+
+    /**
+     * Writes every changed page of the mapping to the storage device; put and remove
+     * already force their own changes
+     */
+    public synchronized void flush() {
+        buffer.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        file.close();
+    }
+
+    /**
+     * Returns an iterator over the entities in entry order, each decoded as it is reached
+     */
+    @Override
+    public Iterator<V> iterator() {
+        return new Iterator<V>() {
+            private int pos = skipRemoved(0);
+            private final int expectedModCount = modCount;
+
+            private int skipRemoved(int from) {
+                synchronized (MappedEntityTable.this) {
+                    while (from < used && offsets[from] == 0) {
+                        from++;
+                    }
+                    return from;
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                checkForConcurrentModification();
+                return pos < used;
+            }
+
+            @Override
+            public V next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException("No more elements in iteration");
+                }
+                V value;
+                synchronized (MappedEntityTable.this) {
+                    value = read(offsets[pos]);
+                }
+                pos = skipRemoved(pos + 1);
+                return value;
+            }
+
+            private void checkForConcurrentModification() {
+                if (expectedModCount != modCount) {
+                    throw new ConcurrentModificationException("Collection modified during iteration");
+                }
+            }
+        };
+    }
+}
@@ -5,11 +5,30 @@ import entity.Medicine;
 import java.io.*;
 
 public class MedicineDAO {
-    private final String fileName = "src/data/medicine.dat";
+    private final String fileName = DataFiles.path("medicine.dat");
+    private final WriteAheadLog<Medicine> wal = new WriteAheadLog<>(fileName, this::writeSnapshot, EntityCodecs.MEDICINE);
 
     public void saveToFile(OrderedMap<String, Medicine> medicines) {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(fileName))){
-            oos.writeObject(medicines);
+        wal.checkpoint(medicines);
+    }
+
+    /**
+     * Persists a single added, updated or removed medicine (appended to the log in WAL mode)
+     */
+    public void saveChange(OrderedMap<String, Medicine> medicines, String key) {
+        wal.logChange(medicines, key);
+    }
+
+    /**
+     * Persists changes to several medicines at once, e.g. the stock updates of one dispensing
+     */
+    public void saveChanges(OrderedMap<String, Medicine> medicines, String[] keys) {
+        wal.logChanges(medicines, keys);
+    }
+
+    private void writeSnapshot(OrderedMap<String, Medicine> medicines) {
+        try {
+            BinaryMapFile.write(fileName, medicines, EntityCodecs.MEDICINE);
         } catch (IOException e){
             System.out.println("Error saving medicines to file: " + e.getMessage());
             e.printStackTrace();
@@ -18,14 +37,15 @@ public class MedicineDAO {
 
     public OrderedMap<String, Medicine> retrieveFromFile() {
         OrderedMap<String, Medicine> medicines = new OrderedMap<>();
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(fileName))) {
-            medicines = (OrderedMap<String, Medicine>) ois.readObject();
+        try {
+            medicines = BinaryMapFile.load(fileName, EntityCodecs.MEDICINE);
         } catch (FileNotFoundException e) {
             System.out.println("File not found: " + fileName);
         } catch (IOException | ClassNotFoundException e) {
             System.out.println("Error retrieving medicines from file: " + e.getMessage());
             e.printStackTrace();
         }
+        wal.recover(medicines);
         return medicines;
     }
 }
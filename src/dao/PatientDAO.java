@@ -5,12 +5,23 @@ import entity.Patient;
 import java.io.*;
 
 public class PatientDAO {
-    private final String fileName = "src/data/patients.dat";
-    public void saveToFile(OrderedMap<String, Patient> patientList) { // 2. Update method signature
-        File file = new File(fileName);
-        // Use try-with-resources for automatic stream closing
-        try (ObjectOutputStream ooStream = new ObjectOutputStream(new FileOutputStream(file))) {
-            ooStream.writeObject(patientList);
+    private final String fileName = DataFiles.path("patients.dat");
+    private final WriteAheadLog<Patient> wal = new WriteAheadLog<>(fileName, this::writeSnapshot, EntityCodecs.PATIENT);
+
+    public void saveToFile(OrderedMap<String, Patient> patientList) {
+        wal.checkpoint(patientList);
+    }
+
+    /**
+     * Persists a single added, updated or removed patient (appended to the log in WAL mode)
+     */
+    public void saveChange(OrderedMap<String, Patient> patientList, String patientId) {
+        wal.logChange(patientList, patientId);
+    }
+
+    private void writeSnapshot(OrderedMap<String, Patient> patientList) { // 2. Update method signature
+        try {
+            BinaryMapFile.write(fileName, patientList, EntityCodecs.PATIENT);
         } catch (FileNotFoundException ex) {
             System.out.println("\nFile not found: " + fileName);
         } catch (IOException ex) {
@@ -22,13 +33,16 @@ public class PatientDAO {
         File file = new File(fileName);
         if (!file.exists()) {
             // Return a new, empty list if the file doesn't exist yet.
-            return new OrderedMap<>();
+            OrderedMap<String, Patient> patients = new OrderedMap<>();
+            wal.recover(patients);
+            return patients;
         }
 
-        // Use try-with-resources for automatic stream closing
-        try (ObjectInputStream oiStream = new ObjectInputStream(new FileInputStream(file))) {
-            // 4. Cast to the correct interface
-            return (OrderedMap<String, Patient>) oiStream.readObject();
+        // Reads the binary format, or a legacy serialized file written before the migration
+        try {
+            OrderedMap<String, Patient> patients = BinaryMapFile.load(fileName, EntityCodecs.PATIENT);
+            wal.recover(patients);
+            return patients;
         } catch (FileNotFoundException ex) {
             // This case is handled by the file.exists() check above, but good to have.
             System.out.println("\nFile not found during retrieval: " + fileName);
@@ -40,7 +40,6 @@ public class PatientInitializer {
            }
        }
        IDGenerator.updatePatientCounterFromHighestID(highestID);
-       IDGenerator.saveCounters("counter.dat");
        for (int i = 0; i < patients.size(); i++) {
            Patient patient = patients.get(i);
            System.out.println("Patient ID: " + patient.getPatientId() + ", Name: " + patient.getName());
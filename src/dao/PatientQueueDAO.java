@@ -7,8 +7,8 @@ import java.io.*;
 
 public class PatientQueueDAO {
     private String fileName;
-    private final String fileName1 = "src/data/patientEmergencyQueue.dat";
-    private final String fileName2 = "src/data/patientNormalQueue.dat";
+    private final String fileName1 = DataFiles.path("patientEmergencyQueue.dat");
+    private final String fileName2 = DataFiles.path("patientNormalQueue.dat");
 
     public PatientQueueDAO(int type) {
         if (type == 1) {
@@ -21,8 +21,15 @@ public class PatientQueueDAO {
     }
 
     public void saveToFile(OrderedMap<String, Patient> patients) {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(fileName))){
+        WriteBehindPersister.save(fileName, patients, this::writeSnapshot);
+    }
+
+    private void writeSnapshot(OrderedMap<String, Patient> patients) {
+        try (AtomicFileOutputStream file = new AtomicFileOutputStream(fileName);
+             ObjectOutputStream oos = new ObjectOutputStream(file)) {
             oos.writeObject(patients);
+            oos.flush();
+            file.commit();
         } catch (IOException e){
             System.out.println("Error saving patient queue to file: " + e.getMessage());
             e.printStackTrace();
@@ -5,11 +5,18 @@ import entity.Payment;
 import java.io.*;
 
 public class PaymentDAO {
-    private final String fileName = "src/data/payments.dat";
+    private final String fileName = DataFiles.path("payments.dat");
 
     public void saveToFile(OrderedMap<String, Payment> payments) {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(fileName))) {
+        WriteBehindPersister.save(fileName, payments, this::writeSnapshot);
+    }
+
+    private void writeSnapshot(OrderedMap<String, Payment> payments) {
+        try (AtomicFileOutputStream file = new AtomicFileOutputStream(fileName);
+             ObjectOutputStream oos = new ObjectOutputStream(file)) {
             oos.writeObject(payments);
+            oos.flush();
+            file.commit();
         } catch (IOException e) {
             System.out.println("Error saving payments to file: " + e.getMessage());
         }
@@ -4,15 +4,15 @@ import adt.OrderedMap;
 import entity.Prescription;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 
 public class PrescriptionDAO {
     private String fileName;
-    private final String fileName1 = "src/data/pending_prescriptions.dat";
-    private final String fileName2 = "src/data/processed_prescriptions.dat";
+    private final String fileName1 = DataFiles.path("pending_prescriptions.dat");
+    private final String fileName2 = DataFiles.path("processed_prescriptions.dat");
+    private final WriteAheadLog<Prescription> wal;
 
     public PrescriptionDAO(int type) {
         if (type == 1) {
@@ -22,11 +22,26 @@ public class PrescriptionDAO {
         } else {
             throw new IllegalArgumentException("Invalid prescription type.");
         }
+        this.wal = new WriteAheadLog<>(fileName, this::writeSnapshot);
     }
 
     public void saveToFile(OrderedMap<String, Prescription> prescriptions) {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(fileName))){
+        wal.checkpoint(prescriptions);
+    }
+
+    /**
+     * Persists a single added, updated or removed prescription (appended to the log in WAL mode)
+     */
+    public void saveChange(OrderedMap<String, Prescription> prescriptions, String prescriptionId) {
+        wal.logChange(prescriptions, prescriptionId);
+    }
+
+    private void writeSnapshot(OrderedMap<String, Prescription> prescriptions) {
+        try (AtomicFileOutputStream file = new AtomicFileOutputStream(fileName);
+             ObjectOutputStream oos = new ObjectOutputStream(file)) {
             oos.writeObject(prescriptions);
+            oos.flush();
+            file.commit();
         } catch (IOException e){
             System.out.println("Error saving prescriptions to file: " + e.getMessage());
             e.printStackTrace();
@@ -43,6 +58,7 @@ public class PrescriptionDAO {
             System.out.println("Error retrieving prescriptions from file: " + e.getMessage());
             e.printStackTrace();
         }
+        wal.recover(prescriptions);
         return prescriptions;
     }
 }
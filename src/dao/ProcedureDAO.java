@@ -7,7 +7,7 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 
 public class ProcedureDAO {
-    private static final String DATA_DIRECTORY = "src/data/";
+    private static final String DATA_DIRECTORY = DataFiles.DIRECTORY + "/";
     private static final String PROCEDURES_FILE = DATA_DIRECTORY + "procedures.dat";
 
     public ProcedureDAO() {
@@ -25,11 +25,20 @@ public class ProcedureDAO {
     /**
      * Save procedures to file
      * @param procedures OrderedMap of procedures to save
-     * @return true if successful, false otherwise
+     * @return true if successful (or encoded and queued, with write-behind persistence), false otherwise
      */
     public boolean saveToFile(OrderedMap<String, Procedure> procedures) {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(PROCEDURES_FILE))) {
+        boolean[] saved = { false };
+        WriteBehindPersister.save(PROCEDURES_FILE, procedures, map -> saved[0] = writeSnapshot(map));
+        return saved[0];
+    }
+
+    private boolean writeSnapshot(OrderedMap<String, Procedure> procedures) {
+        try (AtomicFileOutputStream file = new AtomicFileOutputStream(PROCEDURES_FILE);
+             ObjectOutputStream oos = new ObjectOutputStream(file)) {
             oos.writeObject(procedures);
+            oos.flush();
+            file.commit();
             System.out.println("Successfully saved " + procedures.size() + " procedures to " + PROCEDURES_FILE);
             return true;
         } catch (IOException e) {
@@ -0,0 +1,22 @@
+package dao;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+
+/**
+ * ObjectInputStream that links {@link EntityRef} IDs (and embedded copies from older
+ * files) back to the instances held by the {@link DataRepository}.
+ */
+class ReferenceObjectInputStream extends ObjectInputStream {
+
+    ReferenceObjectInputStream(InputStream in) throws IOException {
+        super(in);
+        enableResolveObject(true);
+    }
+
+    @Override
+    protected Object resolveObject(Object obj) throws IOException {
+        return EntityRef.resolve(obj);
+    }
+}
@@ -0,0 +1,22 @@
+package dao;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+
+/**
+ * ObjectOutputStream that writes patients, doctors, appointments and prescriptions
+ * as {@link EntityRef} IDs instead of full copies. Read back with {@link ReferenceObjectInputStream}.
+ */
+class ReferenceObjectOutputStream extends ObjectOutputStream {
+
+    ReferenceObjectOutputStream(OutputStream out) throws IOException {
+        super(out);
+        enableReplaceObject(true);
+    }
+
+    @Override
+    protected Object replaceObject(Object obj) throws IOException {
+        return EntityRef.toReference(obj);
+    }
+}
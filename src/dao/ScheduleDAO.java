@@ -6,20 +6,35 @@ import java.io.*;
 
 public class ScheduleDAO {
     private final String fileName;
+    private final WriteAheadLog<Schedule> wal;
 
     public ScheduleDAO() {
-        this.fileName = "src/data/schedules.dat";
+        this.fileName = DataFiles.path("schedules.dat");
+        this.wal = new WriteAheadLog<>(fileName, this::writeSnapshot, EntityCodecs.SCHEDULE);
     }
 
     public void saveToFile(OrderedMap<String, Schedule> schedules) {
+        wal.checkpoint(schedules);
+    }
+
+    /**
+     * Persists a single added, updated or removed schedule (appended to the log in WAL mode)
+     */
+    public void saveChange(OrderedMap<String, Schedule> schedules, String key) {
+        wal.logChange(schedules, key);
+    }
+
+    /**
+     * Persists changes to several schedules at once, e.g. freeing one slot and booking another
+     */
+    public void saveChanges(OrderedMap<String, Schedule> schedules, String[] keys) {
+        wal.logChanges(schedules, keys);
+    }
+
+    private void writeSnapshot(OrderedMap<String, Schedule> schedules) {
         try {
-            // Ensure the directory exists
-            File file = new File(fileName);
-            
-            try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(fileName))) {
-                oos.writeObject(schedules);
-                System.out.println("Schedules saved successfully to: " + fileName);
-            }
+            BinaryMapFile.write(fileName, schedules, EntityCodecs.SCHEDULE);
+            System.out.println("Schedules saved successfully to: " + fileName);
         } catch (IOException e) {
             System.out.println("Error saving schedules to file: " + e.getMessage());
         }
@@ -27,15 +42,14 @@ public class ScheduleDAO {
 
     public OrderedMap<String, Schedule> retrieveFromFile() {
         OrderedMap<String, Schedule> schedules = new OrderedMap<>();
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(fileName))) {
-            @SuppressWarnings("unchecked")
-            OrderedMap<String, Schedule> loadedSchedules = (OrderedMap<String, Schedule>) ois.readObject();
-            schedules = loadedSchedules;
+        try {
+            schedules = BinaryMapFile.load(fileName, EntityCodecs.SCHEDULE);
             System.out.println("Schedules loaded successfully from: " + fileName);
         } catch (IOException | ClassNotFoundException e) {
             System.out.println("No existing schedule file found at: " + fileName);
             System.out.println("Error details: " + e.getMessage());
         }
+        wal.recover(schedules);
         return schedules;
     }
 }
\ No newline at end of file
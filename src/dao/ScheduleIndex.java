@@ -0,0 +1,426 @@
+package dao;
+
+import adt.OrderedMap;
+import entity.Schedule;
+
+/**
+ * Secondary indexes over the schedule map, so lookups by doctor, date and status
+ * do not scan every schedule ever recorded.
+ *
+ * - doctor -&gt; date -&gt; slots of that day, kept sorted by time slot
+ * - date -&gt; schedules on that date (in insertion order), plus per-date status counts
+ * - bitsets of used and available slot numbers, so status queries only visit matching schedules
+ * - doctor -&gt; timeline of schedules sorted by start minute, for "free slots from now on" lookups
+ *
+ * Doctor IDs are matched case-insensitively, as in the rest of the schedule module.
+ * The index is shared through {@link DataRepository}; code that adds, removes or
+ * changes the status of a schedule in the map must report it here as well.
+ */
+public class ScheduleIndex {
+
+    private final OrderedMap<String, OrderedMap<String, OrderedMap<String, Schedule>>> byDoctorDate = new OrderedMap<>();
+    private final OrderedMap<String, OrderedMap<String, Schedule>> byDate = new OrderedMap<>();
+    private final OrderedMap<String, int[]> statusCountsByDate = new OrderedMap<>(); // {available, unavailable}
+    private final OrderedMap<String, Timeline> timelineByDoctor = new OrderedMap<>();
+
+    // Each indexed schedule gets a slot number; freed numbers are reused
+    private final OrderedMap<String, Integer> slotOfKey = new OrderedMap<>();
+    private Schedule[] schedulesBySlot = new Schedule[64];
+    private long[] usedBits = new long[1];
+    private long[] availableBits = new long[1];
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int nextSlot;   // slots below this have been handed out at least once
+    private int availableCount;
+
+    /**
+     * Builds the index over all schedules in the map
+     * @param schedules schedule map keyed by doctor_date_slot
+     */
+    public ScheduleIndex(OrderedMap<String, Schedule> schedules) {
+        for (int i = 0; i < schedules.size(); i++) {
+            add(schedules.getKey(i), schedules.get(i));
+        }
+    }
+
+    // ===============================
+    // MAINTENANCE
+    // ===============================
+
+    /**
+     * Indexes a schedule that was put into the schedule map under the given key
+     */
+    public synchronized void add(String key, Schedule schedule) {
+        if (key == null || schedule == null) return;
+        if (slotOfKey.containsKey(key)) {
+            remove(key);
+        }
+
+        int slot = allocateSlot();
+        slotOfKey.put(key, slot);
+        schedulesBySlot[slot] = schedule;
+        setAvailable(slot, schedule.getStatus());
+        countStatus(schedule.getDate(), schedule.getStatus(), 1);
+
+        OrderedMap<String, Schedule> onDate = byDate.get(schedule.getDate());
+        if (onDate == null) {
+            onDate = new OrderedMap<>();
+            byDate.put(schedule.getDate(), onDate);
+        }
+        onDate.put(key, schedule);
+
+        String doctor = doctorKey(schedule.getDoctorID());
+        OrderedMap<String, OrderedMap<String, Schedule>> dates = byDoctorDate.get(doctor);
+        if (dates == null) {
+            dates = new OrderedMap<>();
+            byDoctorDate.put(doctor, dates);
+        }
+        OrderedMap<String, Schedule> slots = dates.get(schedule.getDate());
+        if (slots == null) {
+            slots = new OrderedMap<>();
+            dates.put(schedule.getDate(), slots);
+        }
+        slots.put(key, schedule);
+
+        Timeline timeline = timelineByDoctor.get(doctor);
+        if (timeline == null) {
+            timeline = new Timeline();
+            timelineByDoctor.put(doctor, timeline);
+        }
+        timeline.insert(schedule);
+
+        // Keep the day's slots in time order; a day holds at most a few dozen slots
+        if (slots.size() > 1 && compareSlots(slots.get(slots.size() - 2), schedule) > 0) {
+            slots.sort(ScheduleIndex::compareSlots);
+        }
+    }
+
+    /**
+     * Drops a schedule that was removed from the schedule map
+     */
+    public synchronized void remove(String key) {
+        Integer slot = slotOfKey.remove(key);
+        if (slot == null) return;
+
+        Schedule schedule = schedulesBySlot[slot];
+        countStatus(schedule.getDate(), isAvailable(slot), -1);
+        setAvailable(slot, false);
+        schedulesBySlot[slot] = null;
+        releaseSlot(slot);
+
+        OrderedMap<String, Schedule> onDate = byDate.get(schedule.getDate());
+        if (onDate != null) {
+            onDate.remove(key);
+            if (onDate.isEmpty()) byDate.remove(schedule.getDate());
+        }
+
+        String doctor = doctorKey(schedule.getDoctorID());
+        OrderedMap<String, OrderedMap<String, Schedule>> dates = byDoctorDate.get(doctor);
+        if (dates != null) {
+            OrderedMap<String, Schedule> slots = dates.get(schedule.getDate());
+            if (slots != null) {
+                slots.remove(key);
+                if (slots.isEmpty()) dates.remove(schedule.getDate());
+            }
+            if (dates.isEmpty()) byDoctorDate.remove(doctor);
+        }
+
+        Timeline timeline = timelineByDoctor.get(doctor);
+        if (timeline != null) {
+            timeline.delete(schedule);
+            if (timeline.size == 0) timelineByDoctor.remove(doctor);
+        }
+    }
+
+    /**
+     * Re-reads the status of a schedule after setStatus was called on it
+     */
+    public synchronized void statusChanged(String key) {
+        Integer slot = slotOfKey.get(key);
+        if (slot == null) return;
+
+        Schedule schedule = schedulesBySlot[slot];
+        boolean was = isAvailable(slot);
+        boolean now = schedule.getStatus();
+        if (was != now) {
+            countStatus(schedule.getDate(), was, -1);
+            countStatus(schedule.getDate(), now, 1);
+            setAvailable(slot, now);
+        }
+    }
+
+    // ===============================
+    // QUERIES
+    // ===============================
+
+    /**
+     * @return true if at least one schedule exists on the date
+     */
+    public synchronized boolean hasDate(String date) {
+        return byDate.containsKey(date);
+    }
+
+    /**
+     * @return true if the doctor has at least one schedule on the date
+     */
+    public synchronized boolean hasDoctorOnDate(String doctorID, String date) {
+        OrderedMap<String, OrderedMap<String, Schedule>> dates = byDoctorDate.get(doctorKey(doctorID));
+        return dates != null && dates.containsKey(date);
+    }
+
+    /**
+     * @return true if a schedule with the given status exists on the date
+     */
+    public synchronized boolean hasStatusOnDate(boolean status, String date) {
+        int[] counts = statusCountsByDate.get(date);
+        return counts != null && counts[status ? 0 : 1] > 0;
+    }
+
+    /**
+     * @return schedules on the date, in the order they were added
+     */
+    public synchronized Schedule[] getByDate(String date) {
+        OrderedMap<String, Schedule> onDate = byDate.get(date);
+        return onDate == null ? new Schedule[0] : onDate.toArray(new Schedule[0]);
+    }
+
+    /**
+     * @return the doctor's schedules on the date, sorted by time slot
+     */
+    public synchronized Schedule[] getByDoctorAndDate(String doctorID, String date) {
+        OrderedMap<String, OrderedMap<String, Schedule>> dates = byDoctorDate.get(doctorKey(doctorID));
+        OrderedMap<String, Schedule> slots = dates == null ? null : dates.get(date);
+        return slots == null ? new Schedule[0] : slots.toArray(new Schedule[0]);
+    }
+
+    /**
+     * @return all of the doctor's schedules, grouped by date and sorted by time slot within a date
+     */
+    public synchronized Schedule[] getByDoctor(String doctorID) {
+        OrderedMap<String, OrderedMap<String, Schedule>> dates = byDoctorDate.get(doctorKey(doctorID));
+        if (dates == null) return new Schedule[0];
+
+        int total = 0;
+        for (OrderedMap<String, Schedule> slots : dates) {
+            total += slots.size();
+        }
+        Schedule[] result = new Schedule[total];
+        int idx = 0;
+        for (OrderedMap<String, Schedule> slots : dates) {
+            for (Schedule s : slots) {
+                result[idx++] = s;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param afterMinute only slots starting strictly after this epoch minute are returned,
+     *                    e.g. {@code Schedule.toEpochMinute(LocalDateTime.now())}
+     * @return the doctor's available schedules starting after the given minute, in chronological order;
+     *         schedules whose date or timeslot cannot be read are left out
+     */
+    public synchronized Schedule[] getAvailableForDoctor(String doctorID, long afterMinute) {
+        Timeline timeline = timelineByDoctor.get(doctorKey(doctorID));
+        if (timeline == null) return new Schedule[0];
+
+        int from = timeline.firstAfter(afterMinute);
+        int count = 0;
+        for (int i = from; i < timeline.size; i++) {
+            if (timeline.schedules[i].getStatus()) count++;
+        }
+        Schedule[] result = new Schedule[count];
+        int idx = 0;
+        for (int i = from; i < timeline.size; i++) {
+            if (timeline.schedules[i].getStatus()) result[idx++] = timeline.schedules[i];
+        }
+        return result;
+    }
+
+    /**
+     * @return IDs of the doctors with at least one schedule on the date, as stored on their first schedule
+     */
+    public synchronized String[] getDoctorIDsOnDate(String date) {
+        OrderedMap<String, Schedule> onDate = byDate.get(date);
+        if (onDate == null) return new String[0];
+
+        OrderedMap<String, String> doctors = new OrderedMap<>();
+        for (Schedule s : onDate) {
+            String doctor = doctorKey(s.getDoctorID());
+            if (!doctors.containsKey(doctor)) {
+                doctors.put(doctor, s.getDoctorID());
+            }
+        }
+        return doctors.toArray(new String[0]);
+    }
+
+    /**
+     * @return schedules with the given status, in slot-number order
+     */
+    public synchronized Schedule[] getByStatus(boolean status) {
+        Schedule[] result = new Schedule[status ? availableCount : slotOfKey.size() - availableCount];
+        int idx = 0;
+        for (int w = 0; w < usedBits.length; w++) {
+            long word = status ? availableBits[w] : usedBits[w] & ~availableBits[w];
+            while (word != 0) {
+                int bit = Long.numberOfTrailingZeros(word);
+                result[idx++] = schedulesBySlot[(w << 6) + bit];
+                word &= word - 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return number of schedules with the given status
+     */
+    public synchronized int countByStatus(boolean status) {
+        return status ? availableCount : slotOfKey.size() - availableCount;
+    }
+
+    // ===============================
+    // HELPERS
+    // ===============================
+
+    private static String doctorKey(String doctorID) {
+        return doctorID == null ? "" : doctorID.toUpperCase();
+    }
+
+    private static int compareSlots(Schedule a, Schedule b) {
+        String x = a.getTimeslot() == null ? "" : a.getTimeslot();
+        String y = b.getTimeslot() == null ? "" : b.getTimeslot();
+        return x.compareTo(y);
+    }
+
+    private void countStatus(String date, boolean available, int delta) {
+        int[] counts = statusCountsByDate.get(date);
+        if (counts == null) {
+            counts = new int[2];
+            statusCountsByDate.put(date, counts);
+        }
+        counts[available ? 0 : 1] += delta;
+        if (counts[0] == 0 && counts[1] == 0) {
+            statusCountsByDate.remove(date);
+        }
+    }
+
+    private int allocateSlot() {
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            if (nextSlot == schedulesBySlot.length) {
+                Schedule[] grown = new Schedule[schedulesBySlot.length * 2];
+                System.arraycopy(schedulesBySlot, 0, grown, 0, schedulesBySlot.length);
+                schedulesBySlot = grown;
+            }
+            slot = nextSlot++;
+            int word = slot >>> 6;
+            if (word >= usedBits.length) {
+                int length = Math.max(word + 1, usedBits.length * 2);
+                long[] grownUsed = new long[length];
+                long[] grownAvailable = new long[length];
+                System.arraycopy(usedBits, 0, grownUsed, 0, usedBits.length);
+                System.arraycopy(availableBits, 0, grownAvailable, 0, availableBits.length);
+                usedBits = grownUsed;
+                availableBits = grownAvailable;
+            }
+        }
+        usedBits[slot >>> 6] |= 1L << slot;
+        return slot;
+    }
+
+    private void releaseSlot(int slot) {
+        usedBits[slot >>> 6] &= ~(1L << slot);
+        if (freeCount == freeSlots.length) {
+            int[] grown = new int[freeSlots.length * 2];
+            System.arraycopy(freeSlots, 0, grown, 0, freeSlots.length);
+            freeSlots = grown;
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    private boolean isAvailable(int slot) {
+        return (availableBits[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    // The slot must be allocated, which guarantees the bit arrays cover it
+    private void setAvailable(int slot, boolean available) {
+        int word = slot >>> 6;
+        boolean was = (availableBits[word] & (1L << slot)) != 0;
+        if (available && !was) {
+            availableBits[word] |= 1L << slot;
+            availableCount++;
+        } else if (!available && was) {
+            availableBits[word] &= ~(1L << slot);
+            availableCount--;
+        }
+    }
+
+    /**
+     * One doctor's schedules in start order, as parallel arrays so a range lookup is
+     * a binary search over primitive longs
+     */
+    private static final class Timeline {
+        private long[] starts = new long[8];
+        private Schedule[] schedules = new Schedule[8];
+        private int size;
+
+        void insert(Schedule schedule) {
+            long start = schedule.getStartMinute();
+            if (start == Schedule.UNKNOWN_MINUTE) return;
+            if (size == starts.length) {
+                long[] grownStarts = new long[size * 2];
+                Schedule[] grownSchedules = new Schedule[size * 2];
+                System.arraycopy(starts, 0, grownStarts, 0, size);
+                System.arraycopy(schedules, 0, grownSchedules, 0, size);
+                starts = grownStarts;
+                schedules = grownSchedules;
+            }
+            // Insert after any equal starts so same-minute slots keep insertion order
+            int pos = firstAfter(start);
+            System.arraycopy(starts, pos, starts, pos + 1, size - pos);
+            System.arraycopy(schedules, pos, schedules, pos + 1, size - pos);
+            starts[pos] = start;
+            schedules[pos] = schedule;
+            size++;
+        }
+
+        void delete(Schedule schedule) {
+            int pos = -1;
+            // The schedule is filed under the start it had when inserted, which is normally its current one
+            for (int i = firstAfter(schedule.getStartMinute() - 1); i < size && starts[i] == schedule.getStartMinute(); i++) {
+                if (schedules[i] == schedule) {
+                    pos = i;
+                    break;
+                }
+            }
+            if (pos < 0) {
+                for (int i = 0; i < size; i++) {
+                    if (schedules[i] == schedule) {
+                        pos = i;
+                        break;
+                    }
+                }
+                if (pos < 0) return;
+            }
+            System.arraycopy(starts, pos + 1, starts, pos, size - pos - 1);
+            System.arraycopy(schedules, pos + 1, schedules, pos, size - pos - 1);
+            schedules[--size] = null;
+        }
+
+        // Index of the first entry whose start is greater than the given minute
+        int firstAfter(long minute) {
+            int low = 0, high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (starts[mid] <= minute) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
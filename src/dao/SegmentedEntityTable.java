@@ -0,0 +1,643 @@
+package dao;
+
+import adt.OrderedMap;
+import java.io.*;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * {@link EntityTable} for append-heavy, dated records (transactions, visits) split into
+ * one segment file per calendar month.
+ *
+ * The table lives in a directory: "YYYY-MM.dat" segments in the binary snapshot format,
+ * plus "segments.dir", an append-only log of which month each key is stored in. Opening
+ * the table reads only the directory; a segment is loaded the first time an entry or a
+ * period in it is requested, and the least recently used segments are dropped from
+ * memory once more than -Dclinic.segments.maxLoaded (4 by default) are loaded. A change
+ * rewrites just the month it belongs to.
+ *
+ * The directory is the source of truth. A new key is logged only after its segment is
+ * on disk, and a removal is logged before the segment is rewritten, so after a crash
+ * a segment may hold an entry the directory does not list; such entries are dropped
+ * when the segment is loaded. Keys listed for a month whose segment was never written
+ * are removed from the directory. A segment that exists but cannot be read makes the
+ * operation fail with an UncheckedIOException and is left unloaded, with the directory
+ * untouched, so it can be read again once the problem is fixed.
+ *
+ * Entries are ordered by month, then by insertion within the month. An entity whose
+ * date moves it to another month is moved to the end of that month.
+ *
+ * @param <V> the entity type
+ */
+public final class SegmentedEntityTable<V> implements EntityTable<V>, Closeable {
+
+    private static final int MAGIC = 0x434C5344; // "CLSD"
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final String DIRECTORY_FILE = "segments.dir";
+    private static final String UNDATED = "undated";
+    private static final int MAX_LOADED = Integer.getInteger("clinic.segments.maxLoaded", 4);
+
+    // One month of entries; entries is null while the segment is not loaded
+    private static final class Segment<V> {
+        final String month;
+        int count;
+        OrderedMap<String, V> entries;
+        long lastUsed;
+
+        Segment(String month) {
+            this.month = month;
+        }
+    }
+
+    private final File directory;
+    private final EntityCodec<V> codec;
+    private final Function<V, LocalDateTime> dateOf;
+
+    // Key -> month of the segment holding it, as recorded in segments.dir
+    private final OrderedMap<String, String> keyMonths = new OrderedMap<>();
+    // Segments by month, kept in month order
+    private final OrderedMap<String, Segment<V>> segments = new OrderedMap<>();
+
+    private FileOutputStream logStream;
+    private DataOutputStream log;
+    private int logRecords;
+    private long useClock;
+    private int modCount;
+
+    // Statistics
+    private int loadedSegments;
+    private long segmentLoads;
+    private long evictions;
+
+    private SegmentedEntityTable(File directory, EntityCodec<V> codec, Function<V, LocalDateTime> dateOf) {
+        this.directory = directory;
+        this.codec = codec;
+        this.dateOf = dateOf;
+    }
+
+    /**
+     * @return true if a table has been created in the directory
+     */
+    public static boolean exists(String directory) {
+        return new File(directory, DIRECTORY_FILE).exists();
+    }
+
+    /**
+     * Opens the table in the directory, reading only its segment directory
+     * @param directory the directory holding the segments
+     * @param codec codec for the entities
+     * @param dateOf the date that decides an entity's month
+     */
+    public static <V> SegmentedEntityTable<V> open(String directory, EntityCodec<V> codec,
+                                                   Function<V, LocalDateTime> dateOf) throws IOException {
+        SegmentedEntityTable<V> table = new SegmentedEntityTable<>(new File(directory), codec, dateOf);
+        table.readDirectory();
+        return table;
+    }
+
+    /**
+     * Writes the map as a new table in the directory, replacing any table there, and opens it
+     */
+    public static <V> SegmentedEntityTable<V> create(String directory, OrderedMap<String, V> map, EntityCodec<V> codec,
+                                                     Function<V, LocalDateTime> dateOf) throws IOException {
+        SegmentedEntityTable<V> table = new SegmentedEntityTable<>(new File(directory), codec, dateOf);
+        table.directory.mkdirs();
+        for (int i = 0; i < map.size(); i++) {
+            Segment<V> segment = table.segmentFor(table.monthOf(map.get(i)));
+            if (segment.entries == null) {
+                segment.entries = new OrderedMap<>();
+            }
+            if (segment.entries.put(map.getKey(i), map.get(i)) == null) {
+                segment.count++;
+                table.keyMonths.put(map.getKey(i), segment.month);
+            }
+        }
+
+        // The segments and their directory replace the old table together
+        IOException[] failure = new IOException[1];
+        SnapshotTransaction.run(() -> {
+            try {
+                for (Segment<V> segment : table.segments) {
+                    BinaryMapFile.write(table.segmentFile(segment.month).getPath(), segment.entries, codec);
+                }
+                table.writeDirectory();
+            } catch (IOException e) {
+                failure[0] = e;
+                throw new UncheckedIOException(e);
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+
+        // Segments of the old table that the new one does not have
+        File[] files = table.directory.listFiles((dir, name) -> name.endsWith(".dat"));
+        if (files != null) {
+            for (File file : files) {
+                String month = file.getName().substring(0, file.getName().length() - 4);
+                if (!table.segments.containsKey(month)) {
+                    file.delete();
+                }
+            }
+        }
+        for (Segment<V> segment : table.segments) {
+            segment.entries = null;
+        }
+        return table;
+    }
+
+    // ===============================
+    // ENTITY TABLE
+    // ===============================
+
+    @Override
+    public synchronized V put(String key, V value) {
+        if (key == null || value == null) {
+            throw new NullPointerException("Key and value must not be null");
+        }
+        evictIfNeeded();
+        Segment<V> target = load(segmentFor(monthOf(value)));
+        String oldMonth = keyMonths.get(key);
+        modCount++;
+
+        if (oldMonth == null || oldMonth.equals(target.month)) {
+            V oldValue = target.entries.put(key, value);
+            saveSegment(target);
+            if (oldValue == null) {
+                target.count++;
+                keyMonths.put(key, target.month);
+                // Listed only once the segment holding it has been written
+                SnapshotTransaction.afterCommit(() -> appendPut(key, target.month), () -> { });
+            }
+            return oldValue;
+        }
+
+        // Moved to another month: written to the new segment, listed there, then dropped from the old one
+        Segment<V> source = load(segments.get(oldMonth));
+        V oldValue = source.entries.remove(key);
+        source.count--;
+        target.entries.put(key, value);
+        target.count++;
+        keyMonths.put(key, target.month);
+        saveSegment(target);
+        SnapshotTransaction.afterCommit(() -> {
+            synchronized (this) {
+                appendPut(key, target.month);
+                saveSegment(load(source)); // reloaded if dropped meanwhile; the moved entry is filtered out
+            }
+        }, () -> { });
+        return oldValue;
+    }
+
+    @Override
+    public synchronized V remove(String key) {
+        String month = keyMonths.get(key);
+        if (month == null) return null;
+        evictIfNeeded();
+        Segment<V> segment = load(segments.get(month));
+        keyMonths.remove(key);
+        modCount++;
+        appendRemove(key);
+        V oldValue = segment.entries.remove(key);
+        segment.count--;
+        saveSegment(segment);
+        return oldValue;
+    }
+
+    @Override
+    public synchronized V get(String key) {
+        String month = keyMonths.get(key);
+        if (month == null) return null;
+        evictIfNeeded();
+        return load(segments.get(month)).entries.get(key);
+    }
+
+    @Override
+    public synchronized boolean containsKey(String key) {
+        return keyMonths.containsKey(key);
+    }
+
+    @Override
+    public synchronized V get(int index) {
+        Segment<V> segment = segmentAt(index);
+        return segment.entries.get(index - countBefore(segment));
+    }
+
+    @Override
+    public synchronized String getKey(int index) {
+        Segment<V> segment = segmentAt(index);
+        return segment.entries.getKey(index - countBefore(segment));
+    }
+
+    @Override
+    public synchronized int size() {
+        return keyMonths.size();
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return keyMonths.isEmpty();
+    }
+
+    @Override
+    public synchronized V[] toArray(V[] array) {
+        if (array.length < size()) {
+            array = java.util.Arrays.copyOf(array, size());
+        }
+        int i = 0;
+        for (V value : this) {
+            array[i++] = value;
+        }
+        return array;
+    }
+
+    @Override
+    public synchronized boolean isSorted(Comparator<V> comparator) {
+        V previous = null;
+        for (V value : this) {
+            if (previous != null && comparator.compare(previous, value) > 0) {
+                return false;
+            }
+            previous = value;
+        }
+        return true;
+    }
+
+    /**
+     * Iterates month by month, loading each segment in turn; earlier months may be
+     * dropped from memory again as later ones are loaded
+     */
+    @Override
+    public Iterator<V> iterator() {
+        return new Iterator<V>() {
+            private final int expectedModCount = modCount;
+            private int segmentIndex;
+            private int entryIndex;
+
+            @Override
+            public boolean hasNext() {
+                synchronized (SegmentedEntityTable.this) {
+                    while (segmentIndex < segments.size() && entryIndex >= segments.get(segmentIndex).count) {
+                        segmentIndex++;
+                        entryIndex = 0;
+                    }
+                    return segmentIndex < segments.size();
+                }
+            }
+
+            @Override
+            public V next() {
+                synchronized (SegmentedEntityTable.this) {
+                    if (modCount != expectedModCount) {
+                        throw new ConcurrentModificationException();
+                    }
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    Segment<V> segment = segments.get(segmentIndex);
+                    if (segment.entries == null) {
+                        evictIfNeeded();
+                    }
+                    return load(segment).entries.get(entryIndex++);
+                }
+            }
+        };
+    }
+
+    // ===============================
+    // PERIODS
+    // ===============================
+
+    /**
+     * Returns the entries of one month, loading only that month's segment
+     * @return a copy of the month's entries in insertion order; empty if there are none
+     */
+    public synchronized OrderedMap<String, V> getMonth(int year, int month) {
+        Segment<V> segment = segments.get(monthKey(year, month));
+        if (segment == null || segment.count == 0) {
+            return new OrderedMap<>();
+        }
+        if (segment.entries == null) {
+            evictIfNeeded();
+        }
+        return new OrderedMap<>(load(segment).entries);
+    }
+
+    /**
+     * @return number of entries per month ("YYYY-MM"), in month order, without loading any segment
+     */
+    public synchronized OrderedMap<String, Integer> getMonthCounts() {
+        OrderedMap<String, Integer> counts = new OrderedMap<>(segments.size());
+        for (Segment<V> segment : segments) {
+            if (segment.count > 0) {
+                counts.put(segment.month, segment.count);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Drops every loaded segment from memory; they are read again when next used
+     */
+    public synchronized void evictAll() {
+        for (Segment<V> segment : segments) {
+            if (segment.entries != null) {
+                segment.entries = null;
+                loadedSegments--;
+                evictions++;
+            }
+        }
+    }
+
+    public synchronized int getLoadedSegmentCount() {
+        return loadedSegments;
+    }
+
+    /**
+     * @return one line with the segment count and how often segments were loaded and dropped
+     */
+    public synchronized String getReport() {
+        return String.format("%s: %d entries in %d month segments, loaded=%d loads=%d evictions=%d%n",
+                directory.getName(), keyMonths.size(), segments.size(), loadedSegments, segmentLoads, evictions);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (log != null) {
+            try {
+                log.close();
+            } catch (IOException e) {
+                System.out.println("Error closing " + directoryFile() + ": " + e.getMessage());
+            }
+            log = null;
+            logStream = null;
+        }
+    }
+
+    // ===============================
+    // SEGMENTS
+    // ===============================
+
+    private String monthOf(V value) {
+        LocalDateTime date = dateOf.apply(value);
+        return date == null ? UNDATED : monthKey(date.getYear(), date.getMonthValue());
+    }
+
+    private static String monthKey(int year, int month) {
+        return year + (month < 10 ? "-0" : "-") + month;
+    }
+
+    private File segmentFile(String month) {
+        return new File(directory, month + ".dat");
+    }
+
+    // The segment for the month, created empty (and kept in month order) if there is none
+    private Segment<V> segmentFor(String month) {
+        Segment<V> segment = segments.get(month);
+        if (segment != null) return segment;
+
+        segment = new Segment<>(month);
+        boolean last = segments.isEmpty() || segments.getKey(segments.size() - 1).compareTo(month) < 0;
+        segments.put(month, segment);
+        if (!last) {
+            segments.sort(Comparator.comparing(s -> s.month));
+        }
+        return segment;
+    }
+
+    private Segment<V> segmentAt(int index) {
+        if (index < 0 || index >= keyMonths.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + keyMonths.size());
+        }
+        int before = 0;
+        for (Segment<V> segment : segments) {
+            if (index < before + segment.count) {
+                if (segment.entries == null) {
+                    evictIfNeeded();
+                }
+                return load(segment);
+            }
+            before += segment.count;
+        }
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + keyMonths.size());
+    }
+
+    private int countBefore(Segment<V> target) {
+        int before = 0;
+        for (Segment<V> segment : segments) {
+            if (segment == target) break;
+            before += segment.count;
+        }
+        return before;
+    }
+
+    // Reads the segment if it is not in memory; callers drop other segments first (evictIfNeeded)
+    private Segment<V> load(Segment<V> segment) {
+        segment.lastUsed = ++useClock;
+        if (segment.entries != null) return segment;
+
+        File file = segmentFile(segment.month);
+        OrderedMap<String, V> entries;
+        try {
+            entries = readSegment(file);
+        } catch (IOException e) {
+            // Left unloaded: a segment that cannot be read must never pass for an empty month
+            throw new UncheckedIOException("Error loading " + file + ": " + e, e);
+        }
+        boolean written = entries != null;
+        segment.entries = written ? entries : new OrderedMap<>();
+        reconcile(segment, written);
+        segmentLoads++;
+        loadedSegments++;
+        return segment;
+    }
+
+    // The segment's newest content, including a save not yet on disk; null if it was never written
+    private OrderedMap<String, V> readSegment(File file) throws IOException {
+        byte[] queued = WriteBehindPersister.isEnabled()
+                ? WriteBehindPersister.getInstance().pendingContent(file.getPath()) : null;
+        if (queued != null) {
+            return BinaryMapFile.read(queued, file.getPath(), codec);
+        }
+        SnapshotTransaction.finishInterrupted(); // a committed write whose rename failed earlier
+        if (!file.exists()) {
+            return null;
+        }
+        OrderedMap<String, V> entries = BinaryMapFile.read(file.getPath(), codec);
+        if (entries == null) {
+            throw new IOException("not a segment file");
+        }
+        return entries;
+    }
+
+    // Drops the least recently used segments; called before an operation loads any, so the
+    // segments an operation works on are never dropped under it
+    private void evictIfNeeded() {
+        while (loadedSegments >= MAX_LOADED) {
+            Segment<V> oldest = null;
+            for (Segment<V> candidate : segments) {
+                if (candidate.entries != null && (oldest == null || candidate.lastUsed < oldest.lastUsed)) {
+                    oldest = candidate;
+                }
+            }
+            if (oldest == null) break;
+            oldest.entries = null;
+            loadedSegments--;
+            evictions++;
+        }
+    }
+
+    // Makes a freshly read segment agree with the directory after a crash between the two
+    // writes. Only a segment that was never written can make the directory drop keys.
+    private void reconcile(Segment<V> segment, boolean written) {
+        OrderedMap<String, V> entries = segment.entries;
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            if (!segment.month.equals(keyMonths.get(entries.getKey(i)))) {
+                entries.remove(entries.getKey(i)); // never listed, or since moved or removed
+            }
+        }
+        if (entries.size() == segment.count) return;
+
+        // Listed keys the segment does not hold: their segment write never happened
+        int missing = 0;
+        for (int i = keyMonths.size() - 1; i >= 0; i--) {
+            if (segment.month.equals(keyMonths.get(i)) && !entries.containsKey(keyMonths.getKey(i))) {
+                String key = keyMonths.getKey(i);
+                keyMonths.remove(key);
+                if (!written) {
+                    appendRemove(key);
+                }
+                missing++;
+            }
+        }
+        segment.count = entries.size();
+        if (written) {
+            // Not logged: the segment file exists, so only this run skips the keys
+            System.out.println(missing + " key(s) listed for " + segmentFile(segment.month) + " are not in it; skipped");
+        }
+    }
+
+    private void saveSegment(Segment<V> segment) {
+        String fileName = segmentFile(segment.month).getPath();
+        WriteBehindPersister.save(fileName, segment.entries, map -> {
+            try {
+                BinaryMapFile.write(fileName, map, codec);
+            } catch (IOException e) {
+                System.out.println("Error saving " + fileName + ": " + e.getMessage());
+            }
+        });
+    }
+
+    // ===============================
+    // DIRECTORY
+    // ===============================
+
+    private File directoryFile() {
+        return new File(directory, DIRECTORY_FILE);
+    }
+
+    private void readDirectory() throws IOException {
+        File file = directoryFile();
+        if (!file.exists()) {
+            directory.mkdirs();
+            writeDirectory();
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file + " is not a segment directory");
+            }
+            String recordType = in.readUTF();
+            if (!recordType.equals(codec.recordType())) {
+                throw new IOException(file + " lists " + recordType + " records, expected " + codec.recordType());
+            }
+            while (true) {
+                byte op;
+                try {
+                    op = in.readByte();
+                } catch (EOFException e) {
+                    break;
+                }
+                String key = in.readUTF();
+                if (op == PUT) {
+                    String month = segmentFor(in.readUTF()).month;
+                    String oldMonth = keyMonths.put(key, month);
+                    if (oldMonth != null) {
+                        segments.get(oldMonth).count--;
+                    }
+                    segments.get(month).count++;
+                } else if (op == REMOVE) {
+                    String oldMonth = keyMonths.remove(key);
+                    if (oldMonth != null) {
+                        segments.get(oldMonth).count--;
+                    }
+                } else {
+                    System.out.println("Unknown record type in " + file + ", ignoring the rest of the directory.");
+                    break;
+                }
+                logRecords++;
+            }
+        } catch (EOFException e) {
+            System.out.println("Ignoring incomplete last record in " + file);
+        }
+        if (logRecords > 2 * keyMonths.size() + 1024) {
+            writeDirectory();
+        }
+    }
+
+    // Rewrites the directory with one PUT per key, dropping the history of moves and removals
+    private void writeDirectory() throws IOException {
+        close();
+        String fileName = directoryFile().getPath();
+        try (AtomicFileOutputStream file = new AtomicFileOutputStream(fileName);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            out.writeInt(MAGIC);
+            out.writeUTF(codec.recordType());
+            for (int i = 0; i < keyMonths.size(); i++) {
+                out.writeByte(PUT);
+                out.writeUTF(keyMonths.getKey(i));
+                out.writeUTF(keyMonths.get(i));
+            }
+            out.flush();
+            file.commit();
+        }
+        logRecords = keyMonths.size();
+    }
+
+    private synchronized void appendPut(String key, String month) {
+        appendRecord(PUT, key, month);
+    }
+
+    private synchronized void appendRemove(String key) {
+        appendRecord(REMOVE, key, null);
+    }
+
+    private void appendRecord(byte op, String key, String month) {
+        try {
+            if (log == null) {
+                logStream = new FileOutputStream(directoryFile(), true);
+                log = new DataOutputStream(new BufferedOutputStream(logStream));
+            }
+            log.writeByte(op);
+            log.writeUTF(key);
+            if (month != null) {
+                log.writeUTF(month);
+            }
+            log.flush();
+            logStream.getChannel().force(false);
+            logRecords++;
+
+            // Compacted outside transactions only, since the rewrite is a file replace
+            if (logRecords > 2 * keyMonths.size() + 1024 && SnapshotTransaction.current() == null) {
+                writeDirectory();
+            }
+        } catch (IOException e) {
+            System.out.println("Error updating " + directoryFile() + ": " + e.getMessage());
+        }
+    }
+}
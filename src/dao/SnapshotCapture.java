@@ -0,0 +1,100 @@
+package dao;
+
+import adt.OrderedMap;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The files and completion callbacks produced by one snapshot writer, held in memory.
+ *
+ * {@link WriteBehindPersister} runs a save's writer on the saving thread inside a
+ * capture: files written with {@link AtomicFileOutputStream} are kept as bytes instead
+ * of going to disk, and {@link SnapshotTransaction#afterCommit} callbacks are kept with
+ * them. The writer thread later writes the bytes and registers the callbacks in the
+ * transaction of its batch, so it never reads the entities themselves.
+ */
+final class SnapshotCapture {
+
+    private static final ThreadLocal<SnapshotCapture> CURRENT = new ThreadLocal<>();
+
+    // Target path -> new content
+    private final OrderedMap<String, byte[]> files = new OrderedMap<>();
+    // Completion callbacks: {on commit, on rollback}
+    private final OrderedMap<Integer, Runnable[]> callbacks = new OrderedMap<>();
+
+    private SnapshotCapture() {
+    }
+
+    /**
+     * @return the capture running on this thread, or null
+     */
+    static SnapshotCapture current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Runs the writer with its file output captured
+     */
+    static SnapshotCapture capture(Runnable writer) {
+        SnapshotCapture outer = CURRENT.get();
+        SnapshotCapture capture = new SnapshotCapture();
+        CURRENT.set(capture);
+        try {
+            writer.run();
+        } finally {
+            if (outer == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(outer);
+            }
+        }
+        return capture;
+    }
+
+    void addFile(File target, byte[] content) {
+        files.put(target.getPath(), content);
+    }
+
+    /**
+     * @return the captured content of the file, or null if the writer did not write it
+     */
+    byte[] getFile(String fileName) {
+        return files.get(new File(fileName).getPath());
+    }
+
+    void addCallbacks(Runnable onCommit, Runnable onRollback) {
+        callbacks.put(callbacks.size(), new Runnable[] { onCommit, onRollback });
+    }
+
+    /**
+     * Keeps the callbacks of a capture this one replaces, ahead of its own; they were
+     * registered for older content of the same files
+     */
+    void inheritCallbacks(SnapshotCapture replaced) {
+        if (replaced.callbacks.isEmpty()) return;
+        OrderedMap<Integer, Runnable[]> own = new OrderedMap<>(callbacks);
+        callbacks.clear();
+        for (Runnable[] callback : replaced.callbacks) {
+            addCallbacks(callback[0], callback[1]);
+        }
+        for (Runnable[] callback : own) {
+            addCallbacks(callback[0], callback[1]);
+        }
+    }
+
+    /**
+     * Writes the captured files and registers the callbacks; inside a
+     * {@link SnapshotTransaction} both take effect when it commits
+     */
+    void write() throws IOException {
+        for (int i = 0; i < files.size(); i++) {
+            try (AtomicFileOutputStream file = new AtomicFileOutputStream(files.getKey(i))) {
+                file.write(files.get(i));
+                file.commit();
+            }
+        }
+        for (Runnable[] callback : callbacks) {
+            SnapshotTransaction.afterCommit(callback[0], callback[1]);
+        }
+    }
+}
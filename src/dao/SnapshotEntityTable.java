@@ -0,0 +1,73 @@
+package dao;
+
+import adt.OrderedMap;
+import java.util.Comparator;
+import java.util.Iterator;
+
+/**
+ * {@link EntityTable} over an on-heap OrderedMap that writes the whole map through the
+ * DAO's snapshot writer after every change; the storage used when memory-mapped
+ * tables are not enabled.
+ *
+ * @param <V> the entity type
+ */
+final class SnapshotEntityTable<V> implements EntityTable<V> {
+
+    private final OrderedMap<String, V> map;
+    private final WriteAheadLog.SnapshotWriter<V> writer;
+
+    SnapshotEntityTable(OrderedMap<String, V> map, WriteAheadLog.SnapshotWriter<V> writer) {
+        this.map = map;
+        this.writer = writer;
+    }
+
+    /**
+     * @return the backing map, for statistics
+     */
+    OrderedMap<String, V> getMap() {
+        return map;
+    }
+
+    @Override
+    public V put(String key, V value) {
+        V oldValue = map.put(key, value);
+        writer.write(map);
+        return oldValue;
+    }
+
+    @Override
+    public V remove(String key) {
+        V oldValue = map.remove(key);
+        if (oldValue != null) {
+            writer.write(map);
+        }
+        return oldValue;
+    }
+
+    @Override
+    public V get(String key) { return map.get(key); }
+
+    @Override
+    public boolean containsKey(String key) { return map.containsKey(key); }
+
+    @Override
+    public V get(int index) { return map.get(index); }
+
+    @Override
+    public String getKey(int index) { return map.getKey(index); }
+
+    @Override
+    public int size() { return map.size(); }
+
+    @Override
+    public boolean isEmpty() { return map.isEmpty(); }
+
+    @Override
+    public V[] toArray(V[] array) { return map.toArray(array); }
+
+    @Override
+    public boolean isSorted(Comparator<V> comparator) { return map.isSorted(comparator); }
+
+    @Override
+    public Iterator<V> iterator() { return map.iterator(); }
+}
@@ -0,0 +1,471 @@
+package dao;
+
+import adt.OrderedMap;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Commits the data files written by one operation together, e.g. the medicine stock,
+ * prescriptions and transactions changed by dispensing a prescription.
+ *
+ * Files written with {@link AtomicFileOutputStream} inside {@link #run} are synced to
+ * temporary files and only renamed over their targets when the work finishes. For a
+ * commit of more than one file a record listing the renames is first appended to the
+ * manifest (src/data/snapshot.manifest) and synced; that record is the commit point.
+ * {@link #recover()} runs before any data is loaded: it redoes the renames of committed
+ * transactions that were cut short and deletes the temporary files of the rest, so after
+ * a crash either all of a transaction's files are replaced or none are. If a rename fails
+ * after the commit point in a running program, the temporary files and the record are
+ * kept and the renames are retried before the next commit (and by recovery), which waits
+ * for them so that files are never replaced out of order.
+ *
+ * The fsyncs of the manifest and of the data directory are group commits (see
+ * {@link GroupSync}): transactions committing at the same time share them.
+ *
+ * With write-behind persistence the files are written later by the writer thread,
+ * which commits each batch it writes as one transaction; {@link #run} then only keeps
+ * the operation's saves in the same batch. In WAL mode single changes are log appends,
+ * which are durable one by one but not grouped with other files.
+ */
+public final class SnapshotTransaction {
+
+    private static final String MANIFEST_FILE = DataFiles.path("snapshot.manifest");
+    private static final byte COMMIT = 1;
+    private static final byte DONE = 2;
+    private static final long MANIFEST_TRUNCATE_BYTES = 1 << 20;
+
+    private static final ThreadLocal<SnapshotTransaction> CURRENT = new ThreadLocal<>();
+    private static final AtomicLong nextId = new AtomicLong(1);
+
+    // Manifest channel, opened on the first multi-file commit; guarded by the class
+    private static FileChannel manifest;
+    // Commit records without their DONE record yet; guarded by the class
+    private static int inFlight;
+    private static final GroupSync manifestSync = new GroupSync(SnapshotTransaction::syncManifest);
+    // One group sync per data directory, for the renames
+    private static final OrderedMap<String, GroupSync> directorySyncs = new OrderedMap<>();
+    private static volatile boolean directorySyncSupported = true;
+    // Commits whose renames failed after the commit point, oldest first; guarded by finishLock
+    private static final OrderedMap<Long, SnapshotTransaction> interrupted = new OrderedMap<>();
+    private static final Object finishLock = new Object();
+
+    private final long id = nextId.getAndIncrement();
+    // Target path -> temporary file holding its new content
+    private final OrderedMap<String, File> files = new OrderedMap<>();
+    // Completion callbacks: {on commit, on rollback}
+    private final OrderedMap<Integer, Runnable[]> callbacks = new OrderedMap<>();
+    private int depth;
+
+    private SnapshotTransaction() {
+    }
+
+    /**
+     * @return the transaction running on this thread, or null
+     */
+    static SnapshotTransaction current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Runs the work so that every file it saves is committed together once it returns.
+     * If the work throws, none of its files are replaced. A run inside another run joins
+     * the outer transaction.
+     */
+    public static void run(Runnable work) {
+        SnapshotTransaction transaction = CURRENT.get();
+        if (transaction == null) {
+            transaction = new SnapshotTransaction();
+            CURRENT.set(transaction);
+        }
+        boolean persisterHeld = WriteBehindPersister.isEnabled();
+        if (persisterHeld) {
+            WriteBehindPersister.getInstance().hold();
+        }
+
+        boolean completed = false;
+        transaction.depth++;
+        try {
+            work.run();
+            completed = true;
+        } finally {
+            transaction.depth--;
+            if (transaction.depth == 0) {
+                CURRENT.remove();
+                if (completed) {
+                    transaction.commit();
+                } else {
+                    transaction.discard();
+                }
+            }
+            if (persisterHeld) {
+                WriteBehindPersister.getInstance().release();
+            }
+        }
+    }
+
+    /**
+     * Runs onCommit once the current transaction has committed, or now if there is none;
+     * used to drop state (such as a WAL log) that the committed files make redundant.
+     * onRollback runs instead if the transaction's files are discarded. Under a
+     * {@link SnapshotCapture} both are kept with the captured files.
+     */
+    static void afterCommit(Runnable onCommit, Runnable onRollback) {
+        SnapshotCapture capture = SnapshotCapture.current();
+        if (capture != null) {
+            capture.addCallbacks(onCommit, onRollback);
+            return;
+        }
+        SnapshotTransaction transaction = CURRENT.get();
+        if (transaction == null) {
+            onCommit.run();
+        } else {
+            transaction.callbacks.put(transaction.callbacks.size(), new Runnable[] { onCommit, onRollback });
+        }
+    }
+
+    /**
+     * Records a synced temporary file as the new content of the target
+     */
+    void addFile(File target, File temp) {
+        File previous = files.put(target.getPath(), temp);
+        if (previous != null) {
+            previous.delete(); // saved twice in one transaction; the later content wins
+        }
+    }
+
+    // ===============================
+    // COMMIT
+    // ===============================
+
+    private void commit() {
+        try {
+            finishInterrupted();
+        } catch (IOException e) {
+            System.out.println("Error committing " + files.size() + " data file(s): an earlier commit is still unfinished. "
+                    + e.getMessage());
+            discard();
+            return;
+        }
+
+        if (files.size() > 1) {
+            try {
+                long ticket = appendManifest(COMMIT, true);
+                try {
+                    manifestSync.syncThrough(ticket);
+                } catch (IOException e) {
+                    synchronized (SnapshotTransaction.class) {
+                        inFlight--; // not committed; recovery finds none of the temporary files deleted below
+                    }
+                    throw e;
+                }
+            } catch (IOException e) {
+                System.out.println("Error committing " + files.size() + " data file(s): " + e.getMessage());
+                discard();
+                return;
+            }
+            // Past the commit point: the files are put in place now, by a later commit or by recovery
+            try {
+                completeRenames();
+            } catch (IOException e) {
+                System.out.println("Error putting " + files.size() + " committed data file(s) in place: " + e.getMessage()
+                        + ". Retried before the next commit and at the next start.");
+                synchronized (finishLock) {
+                    interrupted.put(id, this);
+                }
+                return;
+            }
+        } else {
+            try {
+                for (int i = 0; i < files.size(); i++) {
+                    move(files.get(i), new File(files.getKey(i))); // one rename: the target is replaced or left as it was
+                }
+            } catch (IOException e) {
+                System.out.println("Error committing " + files.size() + " data file(s): " + e.getMessage());
+                discard();
+                return;
+            }
+            try {
+                syncDirectories();
+            } catch (IOException e) {
+                System.out.println("Error syncing the data directory: " + e.getMessage());
+            }
+        }
+        runCallbacks(0);
+    }
+
+    // Renames the files over their targets and records the commit as done; safe to repeat
+    private void completeRenames() throws IOException {
+        for (int i = 0; i < files.size(); i++) {
+            move(files.get(i), new File(files.getKey(i)));
+        }
+        syncDirectories();
+        appendManifest(DONE, false); // recovery redoes the renames if this is lost
+    }
+
+    /**
+     * Puts the files of commits that failed after their commit point in place, oldest first.
+     * Every later commit waits for them, so a file is never replaced by older content.
+     * @throws IOException if one of them still cannot be finished
+     */
+    static void finishInterrupted() throws IOException {
+        OrderedMap<Long, SnapshotTransaction> finished = new OrderedMap<>();
+        try {
+            synchronized (finishLock) {
+                while (!interrupted.isEmpty()) {
+                    SnapshotTransaction transaction = interrupted.get(0);
+                    transaction.completeRenames();
+                    interrupted.remove(transaction.id);
+                    finished.put(transaction.id, transaction);
+                }
+            }
+        } finally {
+            for (SnapshotTransaction transaction : finished) {
+                transaction.runCallbacks(0);
+            }
+        }
+    }
+
+    private void discard() {
+        for (File temp : files) {
+            temp.delete();
+        }
+        runCallbacks(1);
+    }
+
+    // Runs the commit (0) or rollback (1) callbacks
+    private void runCallbacks(int which) {
+        for (Runnable[] callback : callbacks) {
+            callback[which].run();
+        }
+    }
+
+    /**
+     * Renames a synced temporary file over its target outside any transaction
+     */
+    static void replace(File temp, File target) throws IOException {
+        finishInterrupted();
+        move(temp, target);
+        syncDirectory(target.getAbsoluteFile().getParentFile());
+    }
+
+    private static void move(File temp, File target) throws IOException {
+        if (!temp.exists()) return; // already moved by an earlier attempt
+        try {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void syncDirectories() throws IOException {
+        OrderedMap<String, File> directories = new OrderedMap<>();
+        for (int i = 0; i < files.size(); i++) {
+            File directory = new File(files.getKey(i)).getAbsoluteFile().getParentFile();
+            directories.put(directory.getPath(), directory);
+        }
+        for (File directory : directories) {
+            syncDirectory(directory);
+        }
+    }
+
+    // Makes the renames in the directory durable; not supported on every platform
+    private static void syncDirectory(File directory) throws IOException {
+        if (!directorySyncSupported || directory == null) return;
+        GroupSync sync;
+        synchronized (directorySyncs) {
+            sync = directorySyncs.get(directory.getPath());
+            if (sync == null) {
+                sync = new GroupSync(() -> {
+                    try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+                        channel.force(true);
+                    } catch (IOException e) {
+                        directorySyncSupported = false; // e.g. Windows cannot open a directory
+                    }
+                });
+                directorySyncs.put(directory.getPath(), sync);
+            }
+        }
+        sync.syncThrough(sync.request());
+    }
+
+    /**
+     * @return a new, unused temporary file next to the target
+     */
+    static File newTempFile(File target) {
+        return new File(target.getPath() + "." + nextId.getAndIncrement() + ".tmp");
+    }
+
+    // ===============================
+    // MANIFEST
+    // ===============================
+
+    // Record layout: payload length (int), CRC32 of the payload (int), payload:
+    // type (byte), transaction id (long), file count (int), then target and temp path (UTF) per file
+    private long appendManifest(byte type, boolean withFiles) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(type);
+            out.writeLong(id);
+            out.writeInt(withFiles ? files.size() : 0);
+            if (withFiles) {
+                for (int i = 0; i < files.size(); i++) {
+                    out.writeUTF(files.getKey(i));
+                    out.writeUTF(files.get(i).getPath());
+                }
+            }
+        }
+        byte[] payload = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer record = ByteBuffer.allocate(8 + payload.length);
+        record.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+
+        synchronized (SnapshotTransaction.class) {
+            if (manifest == null) {
+                File file = new File(MANIFEST_FILE);
+                file.getAbsoluteFile().getParentFile().mkdirs();
+                manifest = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND);
+            }
+            while (record.hasRemaining()) {
+                manifest.write(record);
+            }
+            if (type == COMMIT) {
+                inFlight++;
+            } else {
+                inFlight--;
+                // Every recorded transaction is finished, so the manifest can start over
+                if (inFlight == 0 && manifest.size() > MANIFEST_TRUNCATE_BYTES) {
+                    manifest.truncate(0);
+                }
+            }
+            // Only the commit record needs to be durable before the renames
+            return type == COMMIT ? manifestSync.request() : 0;
+        }
+    }
+
+    private static void syncManifest() throws IOException {
+        FileChannel channel;
+        synchronized (SnapshotTransaction.class) {
+            channel = manifest;
+        }
+        if (channel != null) {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Finishes or rolls back the transactions interrupted by a crash, then empties the
+     * manifest; called before any data file is loaded
+     */
+    public static synchronized void recover() {
+        if (manifest != null) {
+            try {
+                manifest.close(); // reopened by the next commit once the file is replaced
+            } catch (IOException e) {
+                System.out.println("Error closing " + MANIFEST_FILE + ": " + e.getMessage());
+            }
+            manifest = null;
+        }
+        File manifestFile = new File(MANIFEST_FILE);
+        OrderedMap<Long, String[]> committed = new OrderedMap<>();
+        if (manifestFile.exists()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(manifestFile)))) {
+                while (true) {
+                    int length;
+                    try {
+                        length = in.readInt();
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    int expectedCrc = in.readInt();
+                    byte[] payload = new byte[length];
+                    in.readFully(payload);
+                    CRC32 crc = new CRC32();
+                    crc.update(payload);
+                    if ((int) crc.getValue() != expectedCrc) {
+                        break; // torn record: that transaction never committed
+                    }
+                    DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                    byte type = record.readByte();
+                    long id = record.readLong();
+                    int count = record.readInt();
+                    if (type == COMMIT) {
+                        String[] paths = new String[count * 2];
+                        for (int i = 0; i < paths.length; i++) {
+                            paths[i] = record.readUTF();
+                        }
+                        committed.put(id, paths);
+                    } else if (type == DONE) {
+                        committed.remove(id);
+                    }
+                }
+            } catch (EOFException e) {
+                // torn last record; ignored like a bad checksum
+            } catch (IOException e) {
+                System.out.println("Error reading " + MANIFEST_FILE + ": " + e.getMessage());
+                return; // leave everything in place for the next attempt
+            }
+        }
+
+        OrderedMap<String, Boolean> keep = new OrderedMap<>();
+        for (String[] paths : committed) {
+            for (int i = 0; i < paths.length; i += 2) {
+                try {
+                    move(new File(paths[i + 1]), new File(paths[i]));
+                } catch (IOException e) {
+                    System.out.println("Error finishing commit of " + paths[i] + ": " + e.getMessage());
+                    keep.put(new File(paths[i + 1]).getName(), true);
+                }
+            }
+        }
+        if (committed.size() > 0) {
+            System.out.println("Finished " + committed.size() + " interrupted data commit(s)");
+        }
+
+        // Temporary files not finished above belong to writes that never committed
+        File directory = manifestFile.getAbsoluteFile().getParentFile();
+        deleteLeftovers(directory, keep);
+        File[] subdirectories = directory == null ? null : directory.listFiles(File::isDirectory);
+        if (subdirectories != null) {
+            for (File subdirectory : subdirectories) {
+                deleteLeftovers(subdirectory, keep); // e.g. the monthly segments
+            }
+        }
+
+        if (keep.isEmpty()) {
+            manifestFile.delete();
+        }
+    }
+
+    private static void deleteLeftovers(File directory, OrderedMap<String, Boolean> keep) {
+        File[] leftovers = directory == null ? null : directory.listFiles((dir, name) -> name.matches(".+\\.\\d+\\.tmp"));
+        if (leftovers != null) {
+            for (File leftover : leftovers) {
+                if (!keep.containsKey(leftover.getName())) {
+                    leftover.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return one line with the multi-file commits, the manifest fsyncs they shared and the
+     *         commits still waiting for their renames
+     */
+    public static String getReport() {
+        int unfinished;
+        synchronized (finishLock) {
+            unfinished = interrupted.size();
+        }
+        return String.format("multi-file commits=%d manifest fsyncs=%d unfinished=%d%n",
+                manifestSync.getRequestCount(), manifestSync.getSyncCount(), unfinished);
+    }
+}
@@ -4,30 +4,88 @@ import adt.OrderedMap;
 import entity.Transaction;
 import java.io.*;
 
+/**
+ * Transactions are stored in monthly segments under src/data/transactions (see
+ * {@link SegmentedEntityTable}); transactions.dat, the single-file format used before,
+ * is imported the first time the table is opened.
+ */
 public class TransactionDAO {
-    private final String fileName = "src/data/transactions.dat";
+    private final String fileName = DataFiles.path("transactions.dat");
+    private final String segmentDirectory = DataFiles.path("transactions");
+    // Only read, to import transactions.dat together with any changes still in its log
+    private final WriteAheadLog<Transaction> wal = new WriteAheadLog<>(fileName, this::writeSnapshot, EntityCodecs.TRANSACTION);
 
+    /**
+     * Replaces every stored transaction with the given ones
+     */
     public void saveToFile(OrderedMap<String, Transaction> transactions) {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(fileName))){
-            oos.writeObject(transactions);
+        try {
+            SegmentedEntityTable.create(segmentDirectory, transactions, EntityCodecs.TRANSACTION, Transaction::getDate).close();
+        } catch (IOException e) {
+            System.out.println("Error saving transactions to file: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private void writeSnapshot(OrderedMap<String, Transaction> transactions) {
+        try {
+            BinaryMapFile.write(fileName, transactions, EntityCodecs.TRANSACTION);
         } catch (IOException e){
             System.out.println("Error saving transactions to file: " + e.getMessage());
             e.printStackTrace();
         }
     }
 
+    /**
+     * Loads every transaction of every month into one map
+     */
     public OrderedMap<String, Transaction> retrieveFromFile() {
+        if (SegmentedEntityTable.exists(segmentDirectory)) {
+            try (SegmentedEntityTable<Transaction> table = openSegments()) {
+                OrderedMap<String, Transaction> transactions = new OrderedMap<>(table.size());
+                for (Transaction transaction : table) {
+                    transactions.put(transaction.getTransactionID(), transaction);
+                }
+                return transactions;
+            } catch (IOException e) {
+                System.out.println("Error retrieving transactions from file: " + e.getMessage());
+                return new OrderedMap<>();
+            }
+        }
+        return retrieveSingleFile();
+    }
+
+    private OrderedMap<String, Transaction> retrieveSingleFile() {
         OrderedMap<String, Transaction> transactions = new OrderedMap<>();
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(fileName))) {
-            transactions = (OrderedMap<String, Transaction>) ois.readObject();
+        try {
+            transactions = BinaryMapFile.load(fileName, EntityCodecs.TRANSACTION);
         } catch (FileNotFoundException e) {
             System.out.println("File not found: " + fileName);
         } catch (IOException | ClassNotFoundException e) {
             System.out.println("Error retrieving transactions from file: " + e.getMessage());
             e.printStackTrace();
         }
+        wal.recover(transactions);
         return transactions;
     }
-}
 
+    /**
+     * Opens the transactions as a table that saves its own changes and loads a month's
+     * segment only when that month is used
+     */
+    public SegmentedEntityTable<Transaction> openTable() {
+        try {
+            if (!SegmentedEntityTable.exists(segmentDirectory)) {
+                return SegmentedEntityTable.create(segmentDirectory, retrieveSingleFile(), EntityCodecs.TRANSACTION,
+                        Transaction::getDate);
+            }
+            return openSegments();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error opening " + segmentDirectory, e);
+        }
+    }
 
+    private SegmentedEntityTable<Transaction> openSegments() throws IOException {
+        return SegmentedEntityTable.open(segmentDirectory, EntityCodecs.TRANSACTION, Transaction::getDate);
+    }
+}
@@ -8,7 +8,7 @@ import java.nio.file.Paths;
 import java.util.logging.Logger;
 
 public class TreatmentDAO {
-    private static final String DATA_DIRECTORY = "src/data/";
+    private static final String DATA_DIRECTORY = DataFiles.DIRECTORY + "/";
     private static final String TREATMENTS_FILE = DATA_DIRECTORY + "treatments.dat";
     private static final String RECENT_TREATMENTS_FILE = DATA_DIRECTORY + "recent_treatments.dat";
 
@@ -26,9 +26,21 @@ public class TreatmentDAO {
         }
     }
 
+    /**
+     * @return true if saved (or encoded and queued, with write-behind persistence), false otherwise
+     */
     public boolean saveToFile(OrderedMap<String, Treatment> treatments) {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(TREATMENTS_FILE))) {
+        boolean[] saved = { false };
+        WriteBehindPersister.save(TREATMENTS_FILE, treatments, map -> saved[0] = writeSnapshot(map));
+        return saved[0];
+    }
+
+    private boolean writeSnapshot(OrderedMap<String, Treatment> treatments) {
+        try (AtomicFileOutputStream file = new AtomicFileOutputStream(TREATMENTS_FILE);
+             ObjectOutputStream oos = new ReferenceObjectOutputStream(file)) {
             oos.writeObject(treatments);
+            oos.flush();
+            file.commit();
             System.out.println("Successfully saved treatments to file.");
             return true;
         } catch (IOException e) {
@@ -48,7 +60,7 @@ public class TreatmentDAO {
             return treatments;
         }
 
-        try (ObjectInputStream ois = new ObjectInputStream(
+        try (ObjectInputStream ois = new ReferenceObjectInputStream(
                 new FileInputStream(TREATMENTS_FILE))) {
             treatments = (OrderedMap<String, Treatment>) ois.readObject();
             System.out.println("Treatments loaded from " + TREATMENTS_FILE);
@@ -59,9 +71,17 @@ public class TreatmentDAO {
     }
 
     public boolean saveRecentActivities(OrderedMap<String, String> recentActivities) {
-        try (ObjectOutputStream oos = new ObjectOutputStream(
-                new FileOutputStream(RECENT_TREATMENTS_FILE))) {
+        boolean[] saved = { false };
+        WriteBehindPersister.save(RECENT_TREATMENTS_FILE, recentActivities, map -> saved[0] = writeRecentActivities(map));
+        return saved[0];
+    }
+
+    private boolean writeRecentActivities(OrderedMap<String, String> recentActivities) {
+        try (AtomicFileOutputStream file = new AtomicFileOutputStream(RECENT_TREATMENTS_FILE);
+             ObjectOutputStream oos = new ObjectOutputStream(file)) {
             oos.writeObject(recentActivities);
+            oos.flush();
+            file.commit();
             System.out.println("Recent activities saved to " + RECENT_TREATMENTS_FILE);
             return true;
         } catch (IOException e) {
@@ -5,20 +5,59 @@ import entity.VisitHistory;
 import java.io.*;
 
 public class VisitHistoryDAO {
-    private static final String FILE_NAME = "src/data/visithistory.dat";
+    private static final String FILE_NAME = DataFiles.path("visithistory.dat");
+    private static final String TABLE_NAME = DataFiles.path("visithistory.tbl");
+    private static final String SEGMENT_DIRECTORY = DataFiles.path("visithistory");
 
+    // Run with -Dclinic.storage=mapped to keep visit history in a memory-mapped table
+    private static final boolean MAPPED = "mapped".equalsIgnoreCase(System.getProperty("clinic.storage"));
+
+    public static boolean isMapped() {
+        return MAPPED;
+    }
+
+    /**
+     * Replaces every stored visit with the given ones
+     */
     public void saveToFile(OrderedMap<String, VisitHistory> visitHistoryMap) {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(FILE_NAME))) {
-            oos.writeObject(visitHistoryMap);
+        try {
+            SegmentedEntityTable.create(SEGMENT_DIRECTORY, visitHistoryMap, EntityCodecs.VISIT_HISTORY,
+                    VisitHistory::getVisitDate).close();
+        } catch (IOException e) {
+            System.err.println("Error saving visit history data: " + e.getMessage());
+        }
+    }
+
+    private void writeSnapshot(OrderedMap<String, VisitHistory> visitHistoryMap) {
+        try {
+            BinaryMapFile.write(FILE_NAME, visitHistoryMap, EntityCodecs.VISIT_HISTORY);
         } catch (IOException e) {
             System.err.println("Error saving visit history data: " + e.getMessage());
         }
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Loads every visit of every month into one map
+     */
     public OrderedMap<String, VisitHistory> retrieveFromFile() {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(FILE_NAME))) {
-            return (OrderedMap<String, VisitHistory>) ois.readObject();
+        if (SegmentedEntityTable.exists(SEGMENT_DIRECTORY)) {
+            try (SegmentedEntityTable<VisitHistory> table = openSegments()) {
+                OrderedMap<String, VisitHistory> visits = new OrderedMap<>(table.size());
+                for (VisitHistory visit : table) {
+                    visits.put(visit.getVisitId(), visit);
+                }
+                return visits;
+            } catch (IOException e) {
+                System.err.println("Error loading visit history data: " + e.getMessage());
+                return new OrderedMap<>();
+            }
+        }
+        return retrieveSingleFile();
+    }
+
+    private OrderedMap<String, VisitHistory> retrieveSingleFile() {
+        try {
+            return BinaryMapFile.load(FILE_NAME, EntityCodecs.VISIT_HISTORY);
         } catch (FileNotFoundException e) {
             System.out.println("Visit history file not found. Starting with empty data.");
             return new OrderedMap<>();
@@ -27,4 +66,40 @@ public class VisitHistoryDAO {
             return new OrderedMap<>();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Opens the visit history as a table that saves its own changes. In mapped mode the
+     * visits stay in visithistory.tbl and are decoded on demand; otherwise they are kept
+     * in monthly segments under src/data/visithistory, loaded a month at a time. Either
+     * table imports the stored visits the first time it is opened.
+     */
+    public EntityTable<VisitHistory> openTable() {
+        if (MAPPED) {
+            try {
+                if (!new File(TABLE_NAME).exists()
+                        && (new File(FILE_NAME).exists() || SegmentedEntityTable.exists(SEGMENT_DIRECTORY))) {
+                    MappedEntityTable.create(TABLE_NAME, retrieveFromFile(), EntityCodecs.VISIT_HISTORY);
+                }
+                return MappedEntityTable.open(TABLE_NAME, EntityCodecs.VISIT_HISTORY);
+            } catch (IOException e) {
+                System.out.println("Error opening " + TABLE_NAME + ": " + e.getMessage() + ". Loading visit history into memory instead.");
+            }
+        } else {
+            try {
+                if (!SegmentedEntityTable.exists(SEGMENT_DIRECTORY)) {
+                    return SegmentedEntityTable.create(SEGMENT_DIRECTORY, retrieveSingleFile(), EntityCodecs.VISIT_HISTORY,
+                            VisitHistory::getVisitDate);
+                }
+                return openSegments();
+            } catch (IOException e) {
+                System.out.println("Error opening " + SEGMENT_DIRECTORY + ": " + e.getMessage() + ". Loading visit history into memory instead.");
+            }
+        }
+        return new SnapshotEntityTable<>(retrieveFromFile(),
+                map -> WriteBehindPersister.save(FILE_NAME, map, this::writeSnapshot));
+    }
+
+    private SegmentedEntityTable<VisitHistory> openSegments() throws IOException {
+        return SegmentedEntityTable.open(SEGMENT_DIRECTORY, EntityCodecs.VISIT_HISTORY, VisitHistory::getVisitDate);
+    }
+}
@@ -0,0 +1,401 @@
+package dao;
+
+import adt.OrderedMap;
+import java.io.*;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only change log that sits next to a DAO's snapshot file.
+ *
+ * When WAL mode is enabled (run with -Dclinic.persistence=wal) each put/remove is
+ * appended to "&lt;name&gt;.wal" as a small record instead of rewriting the whole
+ * snapshot, so a save costs time proportional to the change. After a number of
+ * records the log is rotated and folded into a fresh snapshot on a background
+ * thread. Loading reads the snapshot and replays any outstanding log records.
+ *
+ * Record layout: op byte (PUT/PUT_ENCODED/REMOVE), key (UTF), and for a put the value
+ * prefixed by its length. PUT_ENCODED values are written with the DAO's binary codec
+ * (preceded by the schema version); PUT values are Java-serialized, which is used when
+ * no codec is given and is still replayed from logs written before the binary format.
+ * A torn record at the end of the log (crash mid-append) is ignored on replay and cut
+ * off the file before anything is appended after it.
+ *
+ * Appends are synced before logChanges returns. Concurrent appenders share one fsync
+ * through a {@link GroupSync}. Log appends are durable one change at a time; only whole
+ * snapshots take part in a {@link SnapshotTransaction}.
+ *
+ * With WAL mode off every change is written as a full snapshot, as before.
+ *
+ * @param <V> the type of values stored by the owning DAO
+ */
+public class WriteAheadLog<V> {
+
+    /**
+     * Writes a complete snapshot of the map; supplied by the owning DAO
+     */
+    public interface SnapshotWriter<V> {
+        void write(OrderedMap<String, V> map);
+    }
+
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final byte PUT_ENCODED = 3;
+
+    private static final boolean ENABLED = "wal".equalsIgnoreCase(System.getProperty("clinic.persistence"));
+    private static final int COMPACT_EVERY = Integer.getInteger("clinic.wal.compactEvery", 1000);
+
+    private final String snapshotFileName;
+    private final File logFile;
+    private final File compactingFile;
+    private final SnapshotWriter<V> snapshotWriter;
+    private final EntityCodec<V> codec;
+
+    // Held while a snapshot file is written; always taken before the monitor on this object
+    private final Object snapshotLock = new Object();
+
+    private FileOutputStream logStream;
+    private DataOutputStream out;
+    private final GroupSync logSync = new GroupSync(this::forceLog);
+    private int recordCount;
+    private int generation;      // bumped on every checkpoint so stale compactions are dropped
+    private boolean compacting;
+    private boolean checkpointPending; // a snapshot waits for its SnapshotTransaction to commit
+
+    public WriteAheadLog(String snapshotFileName, SnapshotWriter<V> snapshotWriter) {
+        this(snapshotFileName, snapshotWriter, null);
+    }
+
+    /**
+     * @param codec binary codec for logged values, or null to use Java serialization
+     */
+    public WriteAheadLog(String snapshotFileName, SnapshotWriter<V> snapshotWriter, EntityCodec<V> codec) {
+        String base = snapshotFileName.endsWith(".dat")
+                ? snapshotFileName.substring(0, snapshotFileName.length() - 4)
+                : snapshotFileName;
+        this.snapshotFileName = snapshotFileName;
+        this.logFile = new File(base + ".wal");
+        this.compactingFile = new File(base + ".wal.compacting");
+        this.snapshotWriter = snapshotWriter;
+        this.codec = codec;
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    private synchronized boolean isCheckpointPending() {
+        return checkpointPending;
+    }
+
+    /**
+     * Persists the change made to one key of the map. In WAL mode this appends a PUT
+     * (with the key's current value) or a REMOVE (if the key is gone); otherwise it
+     * writes the whole map.
+     */
+    public void logChange(OrderedMap<String, V> map, String key) {
+        logChanges(map, new String[] { key });
+    }
+
+    /**
+     * Persists changes made to several keys at once; with WAL mode off this is a single snapshot write
+     */
+    public void logChanges(OrderedMap<String, V> map, String[] keys) {
+        if (!ENABLED || isCheckpointPending()) {
+            // The log is discarded when the pending snapshot commits, so it must include this change too
+            checkpoint(map);
+            return;
+        }
+
+        boolean appended = false;
+        long ticket = 0;
+        synchronized (this) {
+            try {
+                if (out == null) {
+                    logStream = new FileOutputStream(logFile, true);
+                    out = new DataOutputStream(new BufferedOutputStream(logStream));
+                }
+                for (String key : keys) {
+                    V value = map.get(key);
+                    if (value == null) {
+                        out.writeByte(REMOVE);
+                        out.writeUTF(key);
+                    } else if (codec != null) {
+                        byte[] bytes = BinaryMapFile.encode(value, codec);
+                        out.writeByte(PUT_ENCODED);
+                        out.writeUTF(key);
+                        out.writeShort(codec.version());
+                        out.writeInt(bytes.length);
+                        out.write(bytes);
+                    } else {
+                        byte[] bytes = serialize(value);
+                        out.writeByte(PUT);
+                        out.writeUTF(key);
+                        out.writeInt(bytes.length);
+                        out.write(bytes);
+                    }
+                    recordCount++;
+                }
+                out.flush();
+                ticket = logSync.request();
+                appended = true;
+            } catch (IOException e) {
+                System.out.println("Error appending to " + logFile + ": " + e.getMessage() + ". Writing full snapshot instead.");
+            }
+        }
+        if (appended) {
+            try {
+                logSync.syncThrough(ticket);
+            } catch (IOException e) {
+                System.out.println("Error syncing " + logFile + ": " + e.getMessage());
+            }
+        }
+        if (!appended) {
+            checkpoint(map);
+            return;
+        }
+
+        if (recordCount >= COMPACT_EVERY) {
+            startCompaction(map);
+        }
+    }
+
+    /**
+     * Writes a full snapshot and discards the log, since the snapshot now contains every change.
+     * With write-behind persistence the snapshot is queued instead (see {@link WriteBehindPersister}).
+     */
+    public void checkpoint(OrderedMap<String, V> map) {
+        WriteBehindPersister.save(snapshotFileName, map, this::writeCheckpoint);
+    }
+
+    private void writeCheckpoint(OrderedMap<String, V> map) {
+        synchronized (snapshotLock) {
+            snapshotWriter.write(map);
+            synchronized (this) {
+                generation++;
+                checkpointPending = true;
+            }
+            // Inside a SnapshotTransaction the snapshot is not in place until the commit
+            SnapshotTransaction.afterCommit(() -> {
+                synchronized (this) {
+                    checkpointPending = false;
+                    closeLog();
+                    logFile.delete();
+                    compactingFile.delete();
+                    recordCount = 0;
+                }
+            }, () -> {
+                synchronized (this) {
+                    checkpointPending = false; // the log still holds every change
+                }
+            });
+        }
+    }
+
+    /**
+     * Applies outstanding log records (from an unfinished compaction, then the live log) to a freshly loaded snapshot
+     */
+    public void recover(OrderedMap<String, V> map) {
+        boolean interruptedCompaction;
+        boolean repaired = true;
+        int replayed;
+        synchronized (this) {
+            interruptedCompaction = compactingFile.exists();
+            replayed = replay(compactingFile, map).records;
+            Replay live = replay(logFile, map);
+            recordCount = live.records;
+            replayed += recordCount;
+            if (live.unreadFrom >= 0) {
+                // Appends must follow the last complete record, or the next replay stops at the bad one again
+                repaired = truncateLog(live.unreadFrom);
+            }
+        }
+        if (replayed > 0) {
+            System.out.println("Replayed " + replayed + " logged change(s) from " + logFile);
+        }
+        if (interruptedCompaction || !repaired) {
+            // Finish the compaction that was cut short so the next rotation has a free slot;
+            // a log that could not be cut is discarded the same way
+            checkpoint(map);
+        }
+    }
+
+    // Records replayed from one file, and where replay stopped if it did not reach the end
+    private static final class Replay {
+        int records;
+        long unreadFrom = -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Replay replay(File file, OrderedMap<String, V> map) {
+        Replay result = new Replay();
+        if (!file.exists()) return result;
+
+        long recordStart = 0;
+        try (CountingInputStream counted = new CountingInputStream(new BufferedInputStream(new FileInputStream(file)));
+             DataInputStream in = new DataInputStream(counted)) {
+            while (true) {
+                recordStart = counted.count;
+                byte op;
+                try {
+                    op = in.readByte();
+                } catch (EOFException e) {
+                    break;
+                }
+                String key = in.readUTF();
+                if (op == PUT) {
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    map.put(key, (V) deserialize(bytes));
+                } else if (op == PUT_ENCODED && codec != null) {
+                    int version = in.readUnsignedShort();
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    map.put(key, BinaryMapFile.decode(bytes, version, codec));
+                } else if (op == REMOVE) {
+                    map.remove(key);
+                } else {
+                    System.out.println("Unknown record type in " + file + ", ignoring the rest of the log.");
+                    result.unreadFrom = recordStart;
+                    break;
+                }
+                result.records++;
+            }
+        } catch (EOFException e) {
+            System.out.println("Ignoring incomplete last record in " + file);
+            result.unreadFrom = recordStart;
+        } catch (IOException | ClassNotFoundException e) {
+            System.out.println("Error replaying " + file + ": " + e.getMessage() + ", ignoring the rest of the log.");
+            result.unreadFrom = recordStart;
+        }
+        return result;
+    }
+
+    // Cuts the live log back to the given length; false if that failed
+    private boolean truncateLog(long length) {
+        try (FileChannel channel = FileChannel.open(logFile.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(length);
+            channel.force(false);
+            return true;
+        } catch (IOException e) {
+            System.out.println("Error truncating " + logFile + ": " + e.getMessage() + ". Writing full snapshot instead.");
+            return false;
+        }
+    }
+
+    // Counts the bytes read through it, so replay knows where each record starts
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+    /**
+     * Rotates the live log aside and folds it into a new snapshot on a background thread.
+     * The map is copied here, on the caller's thread, so the writer sees a consistent state.
+     */
+    private void startCompaction(OrderedMap<String, V> map) {
+        final OrderedMap<String, V> copy;
+        final int startGeneration;
+        synchronized (this) {
+            if (compacting || compactingFile.exists()) return;
+
+            closeLog();
+            if (!logFile.renameTo(compactingFile)) {
+                return; // try again after the next batch of records
+            }
+            compacting = true;
+            recordCount = 0;
+            startGeneration = generation;
+            copy = new OrderedMap<>(map);
+        }
+
+        // Appends keep going while the snapshot is written; only checkpoints wait for it
+        Thread compactor = new Thread(() -> {
+            synchronized (snapshotLock) {
+                try {
+                    boolean stale;
+                    synchronized (WriteAheadLog.this) {
+                        stale = generation != startGeneration;
+                    }
+                    if (!stale) {
+                        snapshotWriter.write(copy);
+                        compactingFile.delete();
+                    }
+                } finally {
+                    synchronized (WriteAheadLog.this) {
+                        compacting = false;
+                    }
+                }
+            }
+        }, "wal-compactor-" + logFile.getName());
+        compactor.setDaemon(true);
+        compactor.start();
+    }
+
+    // Syncs the records appended so far; run by one of the waiting appenders
+    private void forceLog() throws IOException {
+        FileChannel channel;
+        synchronized (this) {
+            channel = logStream == null ? null : logStream.getChannel();
+        }
+        if (channel == null) return;
+        try {
+            channel.force(false);
+        } catch (ClosedChannelException e) {
+            // closed by closeLog, which synced it first
+        }
+    }
+
+    private void closeLog() {
+        if (out != null) {
+            try {
+                out.flush();
+                logStream.getChannel().force(false);
+                out.close();
+            } catch (IOException e) {
+                System.out.println("Error closing " + logFile + ": " + e.getMessage());
+            }
+            out = null;
+            logStream = null;
+        }
+    }
+
+    private static byte[] serialize(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return ois.readObject();
+        }
+    }
+}
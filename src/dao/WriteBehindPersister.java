@@ -0,0 +1,344 @@
+package dao;
+
+import adt.ConcurrentOrderedMap;
+import adt.OrderedMap;
+import java.io.IOException;
+
+/**
+ * Write-behind saving of whole data files, so controllers do not wait on the disk.
+ *
+ * When enabled (run with -Dclinic.persistence=async) a save runs the DAO's snapshot
+ * writer on the caller's thread inside a {@link SnapshotCapture}, which keeps the
+ * encoded file in memory, and queues it under the file's name; a later save of the same
+ * file replaces the queued bytes, so a burst of changes costs one disk write. A daemon
+ * writer thread writes the queued files once the oldest has waited the flush interval
+ * (-Dclinic.persistence.intervalMillis, 500 by default). {@link #flush} writes
+ * everything queued on the calling thread, and a shutdown hook flushes on exit.
+ * A file that cannot be written, or whose batch fails to commit, is queued again and
+ * retried one interval later, unless a newer save of it is already waiting.
+ *
+ * A save stays in the queue (a {@link ConcurrentOrderedMap}) until its batch has
+ * committed, so {@link #pendingContent} and the queue depth are read without the
+ * persister's lock while the writer thread and the saving threads change the queue.
+ *
+ * Encoding on the caller's thread costs time proportional to the map, like the copy it
+ * replaces, but it is a consistent deep copy: the writer thread only handles bytes and
+ * never reads entities that the UI may be changing. What is deferred and coalesced is
+ * the file write, its sync and the rename.
+ *
+ * With write-behind off, {@link #save} writes the file immediately, as before.
+ */
+public final class WriteBehindPersister {
+
+    private static final boolean ENABLED = "async".equalsIgnoreCase(System.getProperty("clinic.persistence"));
+    private static final long INTERVAL_MILLIS = Long.getLong("clinic.persistence.intervalMillis", 500);
+
+    private static WriteBehindPersister instance;
+
+    // The encoded content of one file, waiting to be written
+    private static final class PendingWrite {
+        final String name;
+        final SnapshotCapture content;
+        final long queuedAt;
+        // Taken by a drain and not committed yet; guarded by the persister
+        boolean writing;
+
+        PendingWrite(String name, SnapshotCapture content, long queuedAt) {
+            this.name = name;
+            this.content = content;
+            this.queuedAt = queuedAt;
+        }
+    }
+
+    // Saves not yet committed, by file name; changed only while holding this, read without it
+    private final ConcurrentOrderedMap<String, PendingWrite> pending = new ConcurrentOrderedMap<>();
+    private Thread writerThread;
+    private boolean stopping;
+    // Open SnapshotTransaction runs; the writer thread waits for them so it never splits one
+    private int holds;
+
+    // Held while files are written, so two drains never write the same file out of order
+    private final Object writeLock = new Object();
+
+    // Statistics; guarded by this
+    private long saves;
+    private long coalesced;
+    private long writes;
+    private long failures;
+    private int maxQueueDepth;
+    private long totalWriteNanos;
+    private long maxWriteNanos;
+    private long totalLagNanos;
+    private long maxLagNanos;
+
+    private WriteBehindPersister() {
+    }
+
+    public static synchronized WriteBehindPersister getInstance() {
+        if (instance == null) {
+            instance = new WriteBehindPersister();
+        }
+        return instance;
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Saves a map through the given writer: queued for the writer thread when
+     * write-behind is on, written immediately otherwise
+     * @param name the file the writer writes; saves of the same name are coalesced
+     * @param map the map to save
+     * @param writer writes a complete snapshot of the map
+     */
+    public static <V> void save(String name, OrderedMap<String, V> map, WriteAheadLog.SnapshotWriter<V> writer) {
+        if (ENABLED) {
+            getInstance().submit(name, SnapshotCapture.capture(() -> writer.write(map)));
+        } else {
+            writer.write(map);
+        }
+    }
+
+    /**
+     * Queues the encoded file, replacing any content of the same file still waiting
+     */
+    private void submit(String name, SnapshotCapture content) {
+        boolean writeNow;
+        synchronized (this) {
+            PendingWrite previous = pending.get(name);
+            // A save being written keeps its own callbacks; this one waits for the next batch
+            boolean replaces = previous != null && !previous.writing;
+            long queuedAt = replaces ? previous.queuedAt : System.nanoTime();
+            if (replaces) {
+                content.inheritCallbacks(previous.content);
+            }
+            pending.put(name, new PendingWrite(name, content, queuedAt));
+            saves++;
+            if (replaces) {
+                coalesced++;
+            }
+            maxQueueDepth = Math.max(maxQueueDepth, pending.size());
+            // Once shutting down nothing will drain the queue again, so write it here
+            writeNow = stopping;
+            if (!writeNow) {
+                startWriter();
+                notifyAll();
+            }
+        }
+        if (writeNow) {
+            drain();
+        }
+    }
+
+    private void startWriter() {
+        if (writerThread != null) return;
+        writerThread = new Thread(this::runWriter, "write-behind-persister");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "write-behind-shutdown"));
+    }
+
+    private void runWriter() {
+        while (true) {
+            synchronized (this) {
+                try {
+                    while ((nextDue() == NOTHING_DUE || holds > 0) && !stopping) {
+                        wait();
+                    }
+                    if (stopping) return;
+
+                    // Let further saves of the queued files coalesce until the oldest is due
+                    long due = nextDue();
+                    long remaining;
+                    while (!stopping && due != NOTHING_DUE && (remaining = due - System.nanoTime()) > 0) {
+                        wait(Math.max(1, remaining / 1_000_000));
+                        due = nextDue();
+                    }
+                    while (!stopping && holds > 0) {
+                        wait();
+                    }
+                    if (stopping) return;
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            drain();
+        }
+    }
+
+    private static final long NOTHING_DUE = Long.MAX_VALUE;
+
+    // When the oldest save not being written is due; caller holds this
+    private long nextDue() {
+        long oldest = NOTHING_DUE;
+        for (PendingWrite write : pending) {
+            if (!write.writing) {
+                oldest = Math.min(oldest, write.queuedAt);
+            }
+        }
+        return oldest == NOTHING_DUE ? NOTHING_DUE : oldest + INTERVAL_MILLIS * 1_000_000;
+    }
+
+    /**
+     * Keeps the writer thread from starting a batch until {@link #release}, so the saves
+     * of one {@link SnapshotTransaction} are written and committed together
+     */
+    synchronized void hold() {
+        holds++;
+    }
+
+    synchronized void release() {
+        holds--;
+        if (holds == 0) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Writes every queued file on the calling thread and returns once they are on disk,
+     * or queued again after a failure
+     */
+    public void flush() {
+        drain();
+    }
+
+    /**
+     * Stops the writer thread and writes whatever is still queued; later saves are written immediately
+     */
+    public void shutdown() {
+        synchronized (this) {
+            stopping = true;
+            notifyAll();
+        }
+        drain();
+    }
+
+    private void drain() {
+        synchronized (writeLock) {
+            OrderedMap<String, PendingWrite> batch = new OrderedMap<>();
+            synchronized (this) {
+                for (PendingWrite write : pending) {
+                    if (!write.writing) {
+                        write.writing = true;
+                        batch.put(write.name, write);
+                    }
+                }
+            }
+            if (batch.isEmpty()) return;
+
+            // The batch replaces its files together, like the operations that queued them
+            SnapshotTransaction.run(() -> writeBatch(batch));
+        }
+    }
+
+    /**
+     * @return the newest saved content of the file if it is queued or being written, i.e.
+     *         may not be on disk yet; null otherwise
+     */
+    byte[] pendingContent(String fileName) {
+        PendingWrite write = pending.get(fileName);
+        return write == null ? null : write.content.getFile(fileName);
+    }
+
+    private void writeBatch(OrderedMap<String, PendingWrite> batch) {
+        for (PendingWrite write : batch) {
+            long start = System.nanoTime();
+            try {
+                write.content.write();
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Error saving " + write.name + " in the background: " + e.getMessage()
+                        + ". Retrying later.");
+                requeue(write);
+                continue;
+            }
+            // On disk only once the batch commits
+            SnapshotTransaction.afterCommit(() -> written(write), () -> requeue(write));
+            long end = System.nanoTime();
+            synchronized (this) {
+                writes++;
+                totalWriteNanos += end - start;
+                maxWriteNanos = Math.max(maxWriteNanos, end - start);
+                totalLagNanos += end - write.queuedAt;
+                maxLagNanos = Math.max(maxLagNanos, end - write.queuedAt);
+            }
+        }
+    }
+
+    // Drops a committed save from the queue, unless a newer save of the file replaced it
+    private synchronized void written(PendingWrite write) {
+        if (pending.get(write.name) == write) {
+            pending.remove(write.name);
+        }
+    }
+
+    /**
+     * Queues a write that failed again, so the next drain retries it; a newer save of
+     * the same file already waiting takes its place and keeps its callbacks
+     */
+    private synchronized void requeue(PendingWrite write) {
+        failures++;
+        PendingWrite newer = pending.get(write.name);
+        if (newer != null && newer != write) {
+            newer.content.inheritCallbacks(write.content);
+            return;
+        }
+        // Queued as new, so the retry waits one interval instead of spinning on a failing disk
+        pending.put(write.name, new PendingWrite(write.name, write.content, System.nanoTime()));
+        if (!stopping) {
+            startWriter();
+            notifyAll();
+        }
+    }
+
+    // ===============================
+    // STATISTICS
+    // ===============================
+
+    /**
+     * @return number of files waiting to be written or being written
+     */
+    public int getQueueDepth() {
+        return pending.size();
+    }
+
+    public synchronized int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    /**
+     * @return saves that replaced a copy still waiting, i.e. writes avoided
+     */
+    public synchronized long getCoalescedCount() {
+        return coalesced;
+    }
+
+    public synchronized long getWriteCount() {
+        return writes;
+    }
+
+    /**
+     * @return average time to write one file, in milliseconds
+     */
+    public synchronized double getAverageWriteMillis() {
+        return writes == 0 ? 0 : totalWriteNanos / 1_000_000.0 / writes;
+    }
+
+    /**
+     * @return average time from a file's first queued save to it being written, in milliseconds
+     */
+    public synchronized double getAverageLagMillis() {
+        return writes == 0 ? 0 : totalLagNanos / 1_000_000.0 / writes;
+    }
+
+    /**
+     * @return one line with the queue and write statistics
+     */
+    public synchronized String getReport() {
+        return String.format("saves=%d coalesced=%d writes=%d failures=%d queued=%d maxQueued=%d "
+                        + "write avg=%.1fms max=%.1fms lag avg=%.1fms max=%.1fms%n",
+                saves, coalesced, writes, failures, pending.size(), maxQueueDepth,
+                getAverageWriteMillis(), maxWriteNanos / 1_000_000.0,
+                getAverageLagMillis(), maxLagNanos / 1_000_000.0);
+    }
+}
@@ -1,19 +1,37 @@
 package entity;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 
 public class Schedule implements Serializable {
+    // Value computed for the original field layout, pinned so existing schedule files still load
+    private static final long serialVersionUID = -5191692407267239391L;
+
     private String scheduleID;
     private String doctorID;
     private String date;
     private String timeslot;
     private boolean status; // true = available, false = not available
 
+    // Marks a start/end that could not be derived from the date and timeslot strings
+    public static final long UNKNOWN_MINUTE = Long.MIN_VALUE;
+
+    // Slot start and end in minutes since 1970-01-01T00:00 (clinic local time), derived
+    // from date and timeslot so time comparisons need no parsing; the strings stay the display form
+    private transient long startMinute;
+    private transient long endMinute;
+
     public Schedule(String scheduleID, String doctorID, String date, String timeslot, boolean status) {
         this.scheduleID = scheduleID;
         this.doctorID = doctorID;
         this.date = date;
         this.timeslot = timeslot;
         this.status = status;
+        computeSlotMinutes();
     }
 
     public String getScheduleID() {
@@ -36,6 +54,20 @@ public class Schedule implements Serializable {
         return status;
     }
 
+    /**
+     * @return slot start in epoch minutes, or UNKNOWN_MINUTE if the date or timeslot is malformed
+     */
+    public long getStartMinute() {
+        return startMinute;
+    }
+
+    /**
+     * @return slot end in epoch minutes, or UNKNOWN_MINUTE if the date or timeslot is malformed
+     */
+    public long getEndMinute() {
+        return endMinute;
+    }
+
     public void setScheduleID(String scheduleID) {
         this.scheduleID = scheduleID;
     }
@@ -46,16 +78,62 @@ public class Schedule implements Serializable {
 
     public void setDate(String date) {
         this.date = date;
+        computeSlotMinutes();
     }
 
     public void setTimeslot(String timeslot) {
         this.timeslot = timeslot;
+        computeSlotMinutes();
     }
 
     public void setStatus(boolean status){
         this.status = status;
     }
 
+    /**
+     * Converts a date-time to the epoch-minute scale used for slot start and end
+     */
+    public static long toEpochMinute(LocalDateTime dateTime) {
+        return Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    // date is "yyyy-MM-dd"; timeslot is "HH:mm–HH:mm" (en dash, or a hyphen/em dash in older data)
+    private void computeSlotMinutes() {
+        startMinute = UNKNOWN_MINUTE;
+        endMinute = UNKNOWN_MINUTE;
+        if (date == null || timeslot == null || date.length() != 10 || timeslot.length() != 11) return;
+
+        int year = digits(date, 0, 4), month = digits(date, 5, 2), day = digits(date, 8, 2);
+        int startHour = digits(timeslot, 0, 2), startMin = digits(timeslot, 3, 2);
+        int endHour = digits(timeslot, 6, 2), endMin = digits(timeslot, 9, 2);
+        if (year < 0 || month < 0 || day < 0 || startHour < 0 || startMin < 0 || endHour < 0 || endMin < 0) return;
+
+        long dayMinute;
+        try {
+            dayMinute = LocalDate.of(year, month, day).toEpochDay() * 24 * 60;
+        } catch (DateTimeException e) {
+            return;
+        }
+        startMinute = dayMinute + startHour * 60 + startMin;
+        endMinute = dayMinute + endHour * 60 + endMin;
+    }
+
+    // Parses a run of decimal digits, or returns -1 if any character is not a digit
+    private static int digits(String text, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        computeSlotMinutes();
+    }
+
     @Override
     public String toString(){
         return String.format("Schedule ID: %s | Doctor ID: %s | Date: %s | Time Slot: %s | Available: %s",
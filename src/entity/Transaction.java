@@ -6,6 +6,9 @@ import utility.*;
 import java.time.LocalDateTime;
 
 public class Transaction implements Serializable {
+    // Value computed for the original field layout, pinned so existing transaction files still load
+    private static final long serialVersionUID = -308564307788501811L;
+
     private String transactionID;
     private String patientID;
     private OrderedMap<String, PrescribedMedicine> medicines;
@@ -28,6 +31,15 @@ public class Transaction implements Serializable {
         this.date = LocalDateTime.now();
     }
 
+    // Used when loading a stored transaction; medicines are added through getMedicines()
+    public Transaction(String transactionID, String patientID, LocalDateTime date, double totalPrice) {
+        this.transactionID = transactionID;
+        this.patientID = patientID;
+        this.medicines = new OrderedMap<>();
+        this.date = date;
+        this.totalPrice = totalPrice;
+    }
+
     public void addMedicine(PrescribedMedicine prescribedMedicine) {
         if (prescribedMedicine != null && prescribedMedicine.getMedicine() != null) {
             medicines.put(prescribedMedicine.getMedicine().getId(), prescribedMedicine);
@@ -0,0 +1,73 @@
+package utility;
+
+import adt.OrderedMap;
+import dao.BinaryMapFile;
+import dao.DataFiles;
+import dao.EntityCodec;
+import dao.EntityCodecs;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * One-time migration of the data files from Java serialization to the compact binary format.
+ *
+ * The DAOs already read both formats and write binary on their next save, so running this
+ * is optional; it converts every file up front. Each original file is kept as "&lt;name&gt;.bak".
+ * Files that are missing, already binary, or cannot be read are left untouched.
+ */
+public class DataMigration {
+
+    public static void main(String[] args) {
+        System.out.println("🔄 CLINIC MANAGEMENT SYSTEM - DATA FORMAT MIGRATION");
+        System.out.println("=".repeat(65));
+
+        migrate(DataFiles.path("patients.dat"), EntityCodecs.PATIENT);
+        migrate(DataFiles.path("doctors.dat"), EntityCodecs.DOCTOR);
+        migrate(DataFiles.path("schedules.dat"), EntityCodecs.SCHEDULE);
+        migrate(DataFiles.path("appointment.dat"), EntityCodecs.APPOINTMENT);
+        migrate(DataFiles.path("medicine.dat"), EntityCodecs.MEDICINE);
+        migrate(DataFiles.path("transactions.dat"), EntityCodecs.TRANSACTION);
+        migrate(DataFiles.path("visithistory.dat"), EntityCodecs.VISIT_HISTORY);
+
+        System.out.println("=".repeat(65));
+        System.out.println("✅ Migration finished");
+    }
+
+    private static <V> void migrate(String fileName, EntityCodec<V> codec) {
+        System.out.printf("📦 %-32s ", fileName);
+        File file = new File(fileName);
+        if (!file.exists()) {
+            System.out.println("⏭️ not found, skipped");
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        try {
+            if (BinaryMapFile.read(fileName, codec) != null) {
+                System.out.println("⏭️ already binary");
+                return;
+            }
+            long oldSize = file.length();
+            OrderedMap<String, V> map = BinaryMapFile.load(fileName, codec);
+
+            Files.copy(file.toPath(), new File(fileName + ".bak").toPath(), StandardCopyOption.REPLACE_EXISTING);
+            BinaryMapFile.write(fileName, map, codec);
+
+            // Read it back before reporting success
+            OrderedMap<String, V> check = BinaryMapFile.read(fileName, codec);
+            if (check == null || check.size() != map.size()) {
+                Files.copy(new File(fileName + ".bak").toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                System.out.println("❌ verification failed, original restored");
+                return;
+            }
+
+            long duration = System.currentTimeMillis() - startTime;
+            System.out.printf("✅ %d records, %d -> %d bytes (%d ms)\n", map.size(), oldSize, file.length(), duration);
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            System.out.println("❌ FAILED");
+            System.out.println("   Error: " + e.getMessage());
+        }
+    }
+}
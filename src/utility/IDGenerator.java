@@ -1,132 +1,120 @@
 package utility;
 
-import java.io.*;
+import java.util.function.Function;
 
+/**
+ * Generates the IDs of new records. IDs come from {@link IdAllocator}, which reserves
+ * them in blocks recorded in src/data/id_blocks.dat, so they are unique across
+ * controllers and threads and nothing needs to be saved after generating one.
+ */
 public class IDGenerator {
-    private static int appointmentCounter  = 1;
-    private static int consultationCounter = 1;
-    private static int diagnosisCounter = 1;
-    private static int doctorCounter = 1;
-    private static int patientCounter = 1;
-    private static int procedureCounter = 1;
-    private static int scheduleCounter = 1;
-    private static int transactionCounter = 1;
-    private static int treatmentCounter = 1;
-    private static int visitCounter = 1;
-    private static int medicineCounter = 6;
-    private static int prescriptionCounter = 1;
+    public static final String APPOINTMENT = "appointment";
+    public static final String CONSULTATION = "consultation";
+    public static final String DIAGNOSIS = "diagnosis";
+    public static final String DOCTOR = "doctor";
+    public static final String MEDICINE = "medicine";
+    public static final String PATIENT = "patient";
+    public static final String PRESCRIPTION = "prescription";
+    public static final String PROCEDURE = "procedure";
+    public static final String SCHEDULE = "schedule";
+    public static final String TRANSACTION = "transaction";
+    public static final String TREATMENT = "treatment";
+    public static final String VISIT = "visit";
+
+    private static final IdAllocator allocator = IdAllocator.getInstance();
+
+    static {
+        allocator.register(APPOINTMENT, "A", 1);
+        allocator.register(CONSULTATION, "C", 1);
+        allocator.register(DIAGNOSIS, "D", 1);
+        allocator.register(DOCTOR, "DC", 1);
+        allocator.register(MEDICINE, "M", 6); // M001-M005 are the initial medicines
+        allocator.register(PATIENT, "P", 1);
+        allocator.register(PRESCRIPTION, "PS", 1);
+        allocator.register(PROCEDURE, "P", 1);
+        allocator.register(SCHEDULE, "S", 1);
+        allocator.register(TRANSACTION, "TX", 1);
+        allocator.register(TREATMENT, "T", 1);
+        allocator.register(VISIT, "V", 1);
+    }
 
     public static String generateAppointmentID() {
-        return "A" + String.format("%03d", appointmentCounter++);
+        return allocator.next(APPOINTMENT);
     }
 
     public static String generateConsultationID() {
-        return "C" + String.format("%03d", consultationCounter++);
+        return allocator.next(CONSULTATION);
     }
 
     public static String generateDiagnosisID() {
-        return "D" + String.format("%03d", diagnosisCounter++);
+        return allocator.next(DIAGNOSIS);
     }
 
     public static String generateDoctorID() {
-        return "DC" + String.format("%03d", doctorCounter++);
+        return allocator.next(DOCTOR);
     }
 
     public static String generateMedicineID(){
-        return "M" + String.format("%03d", medicineCounter++);
+        return allocator.next(MEDICINE);
     }
 
     public static String generatePatientID() {
-        return "P" + String.format("%03d", patientCounter++);
+        return allocator.next(PATIENT);
     }
 
     public static String generatePrescriptionID() {
-        return "PS" + String.format("%03d", prescriptionCounter++);
+        return allocator.next(PRESCRIPTION);
     }
 
     public static String generateProcedureID() {
-        return "P" + String.format("%03d", procedureCounter++);
+        return allocator.next(PROCEDURE);
     }
 
-    public static String generateScheduleID() {return "S" + String.format("%03d", scheduleCounter++);}
+    public static String generateScheduleID() {return allocator.next(SCHEDULE);}
 
-    public static String generateTransactionID() { return "TX" + String.format("%03d", transactionCounter++);}
+    public static String generateTransactionID() { return allocator.next(TRANSACTION);}
 
     public static String generateTreatmentID() {
-        return "T" + String.format("%03d", treatmentCounter++);
+        return allocator.next(TREATMENT);
     }
 
     public static String generateVisitID() {
-        return "V" + String.format("%03d", visitCounter++);
-    }
-
-    public static void saveCounters(String filename){
-        try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
-            writer.println(appointmentCounter);
-            writer.println(consultationCounter);
-            writer.println(diagnosisCounter);
-            writer.println(doctorCounter);
-            writer.println(medicineCounter);
-            writer.println(patientCounter);
-            writer.println(prescriptionCounter);
-            writer.println(procedureCounter);
-            writer.println(transactionCounter);
-            writer.println(treatmentCounter);
-            writer.println(scheduleCounter);
-            writer.println(visitCounter);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-    }
-
-    public static void loadCounter(String filename){
-        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
-            appointmentCounter = Integer.parseInt(reader.readLine());
-            consultationCounter = Integer.parseInt(reader.readLine());
-            diagnosisCounter = Integer.parseInt(reader.readLine());
-            doctorCounter = Integer.parseInt(reader.readLine());
-            medicineCounter = Integer.parseInt(reader.readLine());
-            patientCounter = Integer.parseInt(reader.readLine());
-            procedureCounter = Integer.parseInt(reader.readLine());
-            prescriptionCounter = Integer.parseInt(reader.readLine());
-            scheduleCounter = Integer.parseInt(reader.readLine());
-            transactionCounter = Integer.parseInt(reader.readLine());
-            treatmentCounter = Integer.parseInt(reader.readLine());
-            visitCounter = Integer.parseInt(reader.readLine());
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        return allocator.next(VISIT);
     }
 
-    public static void updatePatientCounterFromHighestID(String highestID) {
-        int num = Integer.parseInt(highestID.substring(1)); // "P005" => 5
-        patientCounter = num + 1;
+    /**
+     * Moves a sequence past the IDs of existing records the first time the sequence is
+     * used; later runs skip the scan, as the block file already covers those IDs
+     * @param sequence one of the sequence names above
+     * @param records the stored records
+     * @param idOf the record's ID
+     */
+    public static <T> void seedFromExisting(String sequence, Iterable<T> records, Function<T, String> idOf) {
+        allocator.seed(sequence, records, idOf);
     }
 
     // for initializer that the counter didnt recorded in file
+    public static void updatePatientCounterFromHighestID(String highestID) {
+        allocator.ensureAbove(PATIENT, highestID); // "P005" => next is P006
+    }
+
     public static void updateDoctorCounterFromHighestID(String highestID) {
-        int num = Integer.parseInt(highestID.substring(2)); // "DC005" => 5
-        doctorCounter = num + 1;
+        allocator.ensureAbove(DOCTOR, highestID);
     }
 
     public static void updateScheduleCounterFromHighestID(String highestID) {
-        int num = Integer.parseInt(highestID.substring(1)); // "S005" => 5
-        scheduleCounter = num + 1;
+        allocator.ensureAbove(SCHEDULE, highestID);
     }
 
     public static void updateAppointmentCounterFromHighestID(String highestID) {
-        int num = Integer.parseInt(highestID.substring(1)); // "A005" => 5
-        appointmentCounter = num + 1;
+        allocator.ensureAbove(APPOINTMENT, highestID);
     }
 
     public static void updateConsultationCounterFromHighestID(String highestID) {
-        int num = Integer.parseInt(highestID.substring(1)); // "C005" => 5
-        consultationCounter = num + 1;
+        allocator.ensureAbove(CONSULTATION, highestID);
     }
 
     public static void main(String[] args){
-        IDGenerator.saveCounters("counter.dat");
-        System.out.println("Counters saved to counter.dat");
+        System.out.print("ID blocks: " + allocator.getReport());
     }
 }
-
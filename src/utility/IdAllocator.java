@@ -0,0 +1,283 @@
+package utility;
+
+import adt.OrderedMap;
+import dao.AtomicFileOutputStream;
+import dao.DataFiles;
+import java.io.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Hands out sequential IDs from blocks reserved on disk (hi/lo allocation).
+ *
+ * Each sequence keeps its next number in memory and a limit recorded in
+ * src/data/id_blocks.dat. Numbers below the limit are handed out with a compare-and-set,
+ * so threads and controllers never receive the same ID. Only when a block runs out is
+ * a new one reserved: the file is rewritten, synced, and renamed into place before
+ * the new limit is published to {@link #next}. If the file cannot be written the
+ * limit stays where it was and the call fails, so no ID is ever handed out from a
+ * block that is not on disk. After a restart each sequence continues from
+ * its recorded limit; the unused rest of the last block is skipped, never reused.
+ * The block size is -Dclinic.ids.blockSize (20 by default).
+ *
+ * The first time a sequence is used it starts from the legacy counter.dat, if there
+ * is one, and from whatever {@link #seed} finds in the existing data.
+ */
+public final class IdAllocator {
+
+    private static final String FILE_NAME = DataFiles.path("id_blocks.dat");
+    private static final String LEGACY_FILE_NAME = "counter.dat";
+    // Order in which IDGenerator.saveCounters wrote legacy counter.dat
+    private static final String[] LEGACY_ORDER = {
+            "appointment", "consultation", "diagnosis", "doctor", "medicine", "patient",
+            "prescription", "procedure", "transaction", "treatment", "schedule", "visit" };
+    private static final int BLOCK_SIZE = Math.max(1, Integer.getInteger("clinic.ids.blockSize", 20));
+
+    private static IdAllocator instance;
+
+    // One ID sequence; numbers in [next, limit) may be handed out without touching the file
+    private static final class Sequence {
+        final String prefix;
+        final AtomicLong next;
+        volatile long limit;
+        boolean persisted;       // false until the sequence has a block in id_blocks.dat
+        final boolean recorded;  // already in id_blocks.dat when this run started
+
+        Sequence(String prefix, long first, boolean recorded) {
+            this.prefix = prefix;
+            this.next = new AtomicLong(first);
+            this.limit = first;
+            this.persisted = recorded;
+            this.recorded = recorded;
+        }
+    }
+
+    private final OrderedMap<String, Sequence> sequences = new OrderedMap<>();
+    // Limits read from id_blocks.dat and counter.dat, applied when the sequence is registered
+    private final OrderedMap<String, Long> stored = new OrderedMap<>();
+    private final OrderedMap<String, Long> legacy = new OrderedMap<>();
+
+    // Statistics; guarded by this
+    private long blocksReserved;
+
+    private IdAllocator() {
+        readLimits(FILE_NAME, stored, null);
+        // Only consulted for sequences that have no block yet
+        readLimits(LEGACY_FILE_NAME, legacy, LEGACY_ORDER);
+    }
+
+    public static synchronized IdAllocator getInstance() {
+        if (instance == null) {
+            instance = new IdAllocator();
+        }
+        return instance;
+    }
+
+    /**
+     * Registers an ID sequence
+     * @param name the sequence's name in the block file
+     * @param prefix the letters that start its IDs
+     * @param first the first number handed out when nothing is recorded for it
+     */
+    public synchronized void register(String name, String prefix, long first) {
+        if (sequences.containsKey(name)) return;
+        Long limit = stored.get(name);
+        Sequence sequence;
+        if (limit != null) {
+            sequence = new Sequence(prefix, limit, true);
+        } else {
+            Long legacyNext = legacy.get(name);
+            sequence = new Sequence(prefix, legacyNext != null ? Math.max(first, legacyNext) : first, false);
+        }
+        sequences.put(name, sequence);
+    }
+
+    /**
+     * @return the next ID of the sequence, e.g. "P021"
+     * @throws UncheckedIOException if a new block is needed and cannot be recorded
+     */
+    public String next(String name) {
+        Sequence sequence = sequence(name);
+        while (true) {
+            long number = sequence.next.get();
+            if (number < sequence.limit) {
+                if (sequence.next.compareAndSet(number, number + 1)) {
+                    return format(sequence.prefix, number);
+                }
+            } else {
+                reserveBlock(sequence);
+            }
+        }
+    }
+
+    /**
+     * Makes sure the sequence will not hand out the given ID or any lower one; for IDs
+     * assigned outside the allocator, such as sample data
+     * @throws UncheckedIOException if the new limit cannot be recorded
+     */
+    public void ensureAbove(String name, String existingId) {
+        Sequence sequence = sequence(name);
+        long number = parse(sequence.prefix, existingId);
+        if (number < 0) return;
+        sequence.next.accumulateAndGet(number + 1, Math::max);
+        if (sequence.next.get() > sequence.limit) {
+            reserveBlock(sequence);
+        }
+    }
+
+    /**
+     * Moves a sequence that was not yet in the block file past the IDs already in use.
+     * The existing records are read only in that first run; afterwards the block file
+     * records how far the sequence has got.
+     */
+    public <T> void seed(String name, Iterable<T> existing, Function<T, String> idOf) {
+        Sequence sequence = sequence(name);
+        if (sequence.recorded) return;
+        String highest = null;
+        long highestNumber = -1;
+        for (T record : existing) {
+            String id = idOf.apply(record);
+            long number = parse(sequence.prefix, id);
+            if (number > highestNumber) {
+                highestNumber = number;
+                highest = id;
+            }
+        }
+        if (highestNumber >= 0) {
+            sequence.next.accumulateAndGet(highestNumber + 1, Math::max);
+        }
+        synchronized (this) {
+            if (!sequence.persisted || sequence.next.get() > sequence.limit) {
+                try {
+                    reserve(sequence);
+                } catch (UncheckedIOException e) {
+                    // Not fatal here: next() reserves the block again before handing out an ID
+                    System.out.println(e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * @return one line with the next number of each sequence and the blocks reserved
+     */
+    public synchronized String getReport() {
+        StringBuilder report = new StringBuilder();
+        for (int i = 0; i < sequences.size(); i++) {
+            Sequence sequence = sequences.get(i);
+            report.append(sequences.getKey(i)).append('=').append(sequence.next.get())
+                    .append('/').append(sequence.limit).append(' ');
+        }
+        return report.append("blocks=").append(blocksReserved).append('\n').toString();
+    }
+
+    // ===============================
+    // BLOCKS
+    // ===============================
+
+    private synchronized Sequence sequence(String name) {
+        Sequence sequence = sequences.get(name);
+        if (sequence == null) {
+            throw new IllegalArgumentException("Unknown ID sequence: " + name);
+        }
+        return sequence;
+    }
+
+    private synchronized void reserveBlock(Sequence sequence) {
+        if (sequence.next.get() >= sequence.limit) {
+            reserve(sequence);
+        }
+    }
+
+    // Raises the sequence's limit by a block; next() sees the new limit only once it is on disk
+    private void reserve(Sequence sequence) {
+        long limit = Math.max(sequence.next.get(), sequence.limit) + BLOCK_SIZE;
+        try {
+            writeLimits(sequence, limit);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error saving ID blocks to " + FILE_NAME + ": " + e.getMessage(), e);
+        }
+        sequence.persisted = true;
+        sequence.limit = limit;
+        blocksReserved++;
+    }
+
+    // Writes the recorded limits, with the given sequence at its new limit
+    private void writeLimits(Sequence reserved, long reservedLimit) throws IOException {
+        // Not part of any SnapshotTransaction: a reserved block must stay reserved
+        try (AtomicFileOutputStream file = new AtomicFileOutputStream(FILE_NAME, false);
+             PrintWriter writer = new PrintWriter(new OutputStreamWriter(file, "UTF-8"))) {
+            for (int i = 0; i < sequences.size(); i++) {
+                Sequence sequence = sequences.get(i);
+                if (sequence == reserved || sequence.persisted) {
+                    writer.print(sequences.getKey(i));
+                    writer.print(' ');
+                    writer.println(sequence == reserved ? reservedLimit : sequence.limit);
+                }
+            }
+            // Blocks of sequences not registered in this run
+            for (int i = 0; i < stored.size(); i++) {
+                if (!sequences.containsKey(stored.getKey(i))) {
+                    writer.print(stored.getKey(i));
+                    writer.print(' ');
+                    writer.println(stored.get(i));
+                }
+            }
+            writer.flush();
+            if (writer.checkError()) {
+                throw new IOException("write failed");
+            }
+            file.commit();
+        }
+    }
+
+    // Reads "name limit" lines, or bare numbers in the given order (legacy counter.dat)
+    private static void readLimits(String fileName, OrderedMap<String, Long> limits, String[] order) {
+        File file = new File(fileName);
+        if (!file.exists()) return;
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            int index = 0;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) continue;
+                if (order != null) {
+                    if (index < order.length) {
+                        limits.put(order[index++], Long.parseLong(line));
+                    }
+                } else {
+                    int space = line.indexOf(' ');
+                    limits.put(line.substring(0, space), Long.parseLong(line.substring(space + 1).trim()));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Error reading ID counters from " + fileName + ": " + e.getMessage());
+        }
+    }
+
+    // ===============================
+    // FORMAT
+    // ===============================
+
+    /**
+     * @return the prefix followed by the number, zero-padded to at least three digits
+     */
+    static String format(String prefix, long number) {
+        StringBuilder id = new StringBuilder(prefix.length() + 6).append(prefix);
+        if (number < 100) id.append('0');
+        if (number < 10) id.append('0');
+        return id.append(number).toString();
+    }
+
+    // The number in an ID with the given prefix, or -1 if it is not one
+    private static long parse(String prefix, String id) {
+        if (id == null || !id.startsWith(prefix) || id.length() == prefix.length()) return -1;
+        long number = 0;
+        for (int i = prefix.length(); i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9' || number > Long.MAX_VALUE / 10 - 1) return -1;
+            number = number * 10 + (c - '0');
+        }
+        return number;
+    }
+}
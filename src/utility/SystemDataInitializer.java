@@ -13,7 +13,7 @@ public class SystemDataInitializer {
         System.out.println("=".repeat(65));
         
         // Create data directory if it doesn't exist
-        File dataDir = new File("src/data");
+        File dataDir = new File(DataFiles.DIRECTORY);
         if (!dataDir.exists()) {
             System.out.println("📁 Creating data directory...");
             boolean created = dataDir.mkdirs();
@@ -88,7 +88,7 @@ public class SystemDataInitializer {
         System.out.println("\n📋 DATA FILES CREATED:");
         System.out.println("-".repeat(50));
         
-        File dataDir = new File("src/data");
+        File dataDir = new File(DataFiles.DIRECTORY);
         if (dataDir.exists() && dataDir.isDirectory()) {
             File[] files = dataDir.listFiles();
             if (files != null && files.length > 0) {
@@ -133,7 +133,7 @@ public class SystemDataInitializer {
             "visithistory.dat"
         };
         
-        File dataDir = new File("src/data");
+        File dataDir = new File(DataFiles.DIRECTORY);
         int existingFiles = 0;
         
         for (String fileName : expectedFiles) {
@@ -167,7 +167,7 @@ public class SystemDataInitializer {
     public static boolean isDataInitialized(String dataType) {
         String fileName = getFileNameForDataType(dataType);
         if (fileName != null) {
-            File file = new File("src/data/" + fileName);
+            File file = new File(DataFiles.path(fileName));
             return file.exists() && file.length() > 0;
         }
         return false;
@@ -0,0 +1,169 @@
+package adt;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ConcurrentOrderedMapTest {
+
+    @Test
+    public void testMatchesOrderedMap() {
+        Random random = new Random(13);
+        ConcurrentOrderedMap<String, Integer> map = new ConcurrentOrderedMap<>();
+        OrderedMap<String, Integer> expected = new OrderedMap<>();
+        for (int i = 0; i < 5000; i++) {
+            String key = "K" + random.nextInt(300);
+            switch (random.nextInt(5)) {
+                case 0:
+                    assertEquals(expected.remove(key), map.remove(key));
+                    break;
+                case 1:
+                    if (!expected.isEmpty()) {
+                        int index = random.nextInt(expected.size());
+                        assertEquals(expected.removeAt(index), map.removeAt(index));
+                    }
+                    break;
+                default:
+                    assertEquals(expected.put(key, i), map.put(key, i));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getKey(i), map.getKey(i));
+            assertEquals(expected.get(i), map.get(i));
+            assertEquals(expected.get(i), map.get(expected.getKey(i)));
+        }
+        map.sort(Integer::compare);
+        assertTrue(map.isSorted(Integer::compare));
+    }
+
+    @Test
+    public void testQueueAndStackEnds() {
+        ConcurrentOrderedMap<String, String> map = new ConcurrentOrderedMap<>();
+        assertNull(map.peek());
+        assertNull(map.poll());
+        map.offer("a", "a");
+        map.offer("b", "b");
+        map.push("c", "c");
+        map.add(1, "x", "x");
+
+        assertEquals("a", map.peek());
+        assertEquals("c", map.top());
+        assertEquals("c", map.pop());
+        assertEquals("a", map.poll());
+        assertEquals("x", map.poll());
+        assertEquals("b", map.poll());
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void testIteratorKeepsItsSnapshot() {
+        ConcurrentOrderedMap<String, String> map = new ConcurrentOrderedMap<>();
+        map.put("a", "a");
+        map.put("b", "b");
+        Iterator<String> it = map.iterator();
+        map.put("c", "c");
+        map.remove("a");
+
+        assertEquals("a", it.next());
+        assertEquals("b", it.next());
+        assertFalse(it.hasNext());
+        assertEquals(2, map.size());
+        assertEquals("b", map.get(0));
+    }
+
+    @Test
+    public void testSerializationKeepsOrder() throws IOException, ClassNotFoundException {
+        ConcurrentOrderedMap<String, Integer> map = new ConcurrentOrderedMap<>();
+        for (int i = 50; i > 0; i--) {
+            map.put("K" + i, i);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(map);
+        }
+        ConcurrentOrderedMap<?, ?> copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (ConcurrentOrderedMap<?, ?>) in.readObject();
+        }
+
+        assertEquals(map.size(), copy.size());
+        for (int i = 0; i < map.size(); i++) {
+            assertEquals(map.getKey(i), copy.getKey(i));
+            assertEquals(map.get(i), copy.get(i));
+        }
+    }
+
+    @Test
+    public void testReadersSeeConsistentStateWhileWritersChangeIt() throws InterruptedException {
+        ConcurrentOrderedMap<Integer, Integer> map = new ConcurrentOrderedMap<>();
+        final int writers = 4;
+        final int keysPerWriter = 2000;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int w = 0; w < writers; w++) {
+            final int base = w * keysPerWriter;
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < keysPerWriter; i++) {
+                        map.put(base + i, base + i);
+                        if (i % 3 == 0) {
+                            map.remove(base + i);
+                        }
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            }));
+        }
+        for (int r = 0; r < 2; r++) {
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                    for (int round = 0; round < 200; round++) {
+                        // Every value is its own key, so a torn read shows up as a mismatch
+                        for (Integer value : map) {
+                            Integer current = map.get(value);
+                            assertTrue(current == null || current.equals(value));
+                        }
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            }));
+        }
+
+        for (Thread t : threads) {
+            t.start();
+        }
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+
+        assertEquals(writers * (keysPerWriter - (keysPerWriter + 2) / 3), map.size());
+        for (int w = 0; w < writers; w++) {
+            for (int i = 0; i < keysPerWriter; i++) {
+                int key = w * keysPerWriter + i;
+                assertEquals(i % 3 == 0 ? null : Integer.valueOf(key), map.get(Integer.valueOf(key)));
+            }
+        }
+    }
+}
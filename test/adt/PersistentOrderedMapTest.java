@@ -0,0 +1,151 @@
+package adt;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PersistentOrderedMapTest {
+
+    // Keys whose hash codes are all equal, to reach the collision nodes
+    private static final class CollidingKey {
+        final String name;
+
+        CollidingKey(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CollidingKey && ((CollidingKey) o).name.equals(name);
+        }
+
+        @Override
+        public int hashCode() {
+            return 42;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    // Collects what diff reports as key -> {before, after}, failing on a key reported twice
+    private static <K, V> Map<K, Object[]> diff(PersistentOrderedMap<K, V> from, PersistentOrderedMap<K, V> to) {
+        Map<K, Object[]> changes = new HashMap<>();
+        from.diff(to, (key, before, after) -> {
+            assertNull("reported twice: " + key, changes.put(key, new Object[] { before, after }));
+        });
+        return changes;
+    }
+
+    // The differences between two plain maps, comparing values by identity like diff
+    private static <K, V> Map<K, Object[]> expectedDiff(Map<K, V> from, Map<K, V> to) {
+        Map<K, Object[]> changes = new HashMap<>();
+        for (Map.Entry<K, V> e : from.entrySet()) {
+            V after = to.get(e.getKey());
+            if (after != e.getValue()) {
+                changes.put(e.getKey(), new Object[] { e.getValue(), after });
+            }
+        }
+        for (Map.Entry<K, V> e : to.entrySet()) {
+            if (!from.containsKey(e.getKey())) {
+                changes.put(e.getKey(), new Object[] { null, e.getValue() });
+            }
+        }
+        return changes;
+    }
+
+    private static <K> void assertSameChanges(Map<K, Object[]> expected, Map<K, Object[]> actual) {
+        assertEquals(expected.keySet(), actual.keySet());
+        for (Map.Entry<K, Object[]> e : expected.entrySet()) {
+            assertSame("before " + e.getKey(), e.getValue()[0], actual.get(e.getKey())[0]);
+            assertSame("after " + e.getKey(), e.getValue()[1], actual.get(e.getKey())[1]);
+        }
+    }
+
+    @Test
+    public void testDiffOfSameVersionIsEmpty() {
+        PersistentOrderedMap<String, String> map = PersistentOrderedMap.empty();
+        for (int i = 0; i < 100; i++) {
+            map = map.put("K" + i, "V" + i);
+        }
+        assertTrue(diff(map, map).isEmpty());
+        assertTrue(diff(PersistentOrderedMap.<String, String>empty(), PersistentOrderedMap.<String, String>empty()).isEmpty());
+    }
+
+    @Test
+    public void testDiffReportsAddedRemovedAndChangedKeys() {
+        PersistentOrderedMap<String, String> before = PersistentOrderedMap.empty();
+        before = before.put("kept", "k").put("changed", "old").put("removed", "r");
+        PersistentOrderedMap<String, String> after = before.put("changed", "new").remove("removed").put("added", "a");
+
+        Map<String, Object[]> changes = diff(before, after);
+        assertEquals(3, changes.size());
+        assertArrayEquals(new Object[] { "old", "new" }, changes.get("changed"));
+        assertArrayEquals(new Object[] { "r", null }, changes.get("removed"));
+        assertArrayEquals(new Object[] { null, "a" }, changes.get("added"));
+
+        // The old version is untouched
+        assertEquals(3, before.size());
+        assertEquals("old", before.get("changed"));
+        assertEquals("r", before.get("removed"));
+        assertNull(before.get("added"));
+    }
+
+    @Test
+    public void testDiffMatchesPlainMaps() {
+        Random random = new Random(11);
+        PersistentOrderedMap<String, Object> base = PersistentOrderedMap.empty();
+        Map<String, Object> baseModel = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            Object value = new Object();
+            base = base.put("K" + i, value);
+            baseModel.put("K" + i, value);
+        }
+
+        for (int round = 0; round < 20; round++) {
+            PersistentOrderedMap<String, Object> version = base;
+            Map<String, Object> model = new HashMap<>(baseModel);
+            int changes = 1 + random.nextInt(round < 10 ? 10 : 3000);
+            for (int i = 0; i < changes; i++) {
+                String key = "K" + random.nextInt(7000);
+                if (random.nextInt(3) == 0) {
+                    version = version.remove(key);
+                    model.remove(key);
+                } else {
+                    Object value = new Object();
+                    version = version.put(key, value);
+                    model.put(key, value);
+                }
+            }
+            assertEquals(model.size(), version.size());
+            assertSameChanges(expectedDiff(baseModel, model), diff(base, version));
+            assertSameChanges(expectedDiff(model, baseModel), diff(version, base));
+        }
+    }
+
+    @Test
+    public void testDiffWithCollidingKeys() {
+        PersistentOrderedMap<CollidingKey, String> before = PersistentOrderedMap.empty();
+        Map<CollidingKey, String> beforeModel = new HashMap<>();
+        for (int i = 0; i < 6; i++) {
+            CollidingKey key = new CollidingKey("C" + i);
+            before = before.put(key, "v" + i);
+            beforeModel.put(key, before.get(key));
+        }
+        CollidingKey changed = new CollidingKey("C1");
+        CollidingKey removed = new CollidingKey("C4");
+        CollidingKey added = new CollidingKey("C9");
+        PersistentOrderedMap<CollidingKey, String> after = before.put(changed, "w1").remove(removed).put(added, "v9");
+        Map<CollidingKey, String> afterModel = new HashMap<>(beforeModel);
+        afterModel.put(changed, after.get(changed));
+        afterModel.remove(removed);
+        afterModel.put(added, after.get(added));
+
+        assertSameChanges(expectedDiff(beforeModel, afterModel), diff(before, after));
+        assertSameChanges(expectedDiff(afterModel, beforeModel), diff(after, before));
+    }
+}
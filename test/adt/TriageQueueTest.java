@@ -0,0 +1,114 @@
+package adt;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class TriageQueueTest {
+
+    // An entry as the test expects the queue to order it
+    private static final class Expected {
+        final String key;
+        final int level;
+        final long arrival;
+        final int sequence;
+
+        Expected(String key, int level, long arrival, int sequence) {
+            this.key = key;
+            this.level = level;
+            this.arrival = arrival;
+            this.sequence = sequence;
+        }
+    }
+
+    // Service order from the class description: effective time, then level, then arrival order
+    private static Comparator<Expected> serviceOrder(long agingMillis) {
+        Comparator<Expected> byTime = Comparator.comparingLong(
+                e -> agingMillis > 0 ? e.arrival + e.level * agingMillis : 0);
+        return byTime.thenComparingInt(e -> e.level)
+                .thenComparingLong(e -> e.arrival)
+                .thenComparingInt(e -> e.sequence);
+    }
+
+    @Test
+    public void testStrictLevelsServeMostUrgentFirst() {
+        TriageQueue<String, String> queue = new TriageQueue<>(3, 0);
+        queue.offer("a", "a", 2, 100);
+        queue.offer("b", "b", 0, 300);
+        queue.offer("c", "c", 1, 50);
+        queue.offer("d", "d", 0, 200);
+
+        assertEquals("d", queue.peek());
+        assertEquals("d", queue.poll());
+        assertEquals("b", queue.poll());
+        assertEquals("c", queue.poll());
+        assertEquals("a", queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void testAgingLetsLongWaitOvertakeMoreUrgentLevel() {
+        TriageQueue<String, String> queue = new TriageQueue<>(2, 100);
+        queue.offer("waiting", "waiting", 1, 0);   // effective 100
+        queue.offer("urgent", "urgent", 0, 150);   // effective 150
+        queue.offer("tie", "tie", 0, 100);         // effective 100, more urgent than "waiting"
+
+        assertEquals(0, queue.positionOf("tie"));
+        assertEquals(1, queue.positionOf("waiting"));
+        assertEquals(2, queue.positionOf("urgent"));
+        assertEquals("tie", queue.poll());
+        assertEquals("waiting", queue.poll());
+        assertEquals("urgent", queue.poll());
+    }
+
+    @Test
+    public void testOfferOfQueuedKeyKeepsItsPlace() {
+        TriageQueue<String, String> queue = new TriageQueue<>(2, 0);
+        queue.offer("a", "first", 1, 10);
+        queue.offer("b", "b", 1, 20);
+        queue.offer("a", "second", 0, 30);
+
+        assertEquals(1, queue.levelOf("a"));
+        assertEquals(0, queue.positionOf("a"));
+        assertEquals("second", queue.poll());
+        assertEquals(-1, queue.positionOf("a"));
+        assertEquals(-1, queue.levelOf("a"));
+    }
+
+    @Test
+    public void testPositionOfMatchesServiceOrder() {
+        for (long agingMillis : new long[] { 0, 25 }) {
+            Random random = new Random(7);
+            TriageQueue<String, String> queue = new TriageQueue<>(4, agingMillis);
+            List<Expected> expected = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                String key = "K" + i;
+                if (!expected.isEmpty() && random.nextInt(4) == 0) {
+                    Expected removed = expected.remove(random.nextInt(expected.size()));
+                    assertEquals(removed.key, queue.remove(removed.key));
+                }
+                // Few distinct arrival times, so equal effective times are common
+                Expected entry = new Expected(key, random.nextInt(4), random.nextInt(200), i);
+                queue.offer(key, key, entry.level, entry.arrival);
+                expected.add(entry);
+            }
+            expected.sort(serviceOrder(agingMillis));
+
+            assertEquals(expected.size(), queue.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals("aging " + agingMillis, i, queue.positionOf(expected.get(i).key));
+            }
+            int i = 0;
+            for (String value : queue) {
+                assertEquals(expected.get(i++).key, value);
+            }
+            for (Expected entry : expected) {
+                assertEquals(entry.key, queue.poll());
+            }
+            assertTrue(queue.isEmpty());
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package control;
+
+import adt.OrderedMap;
+import dao.DataRepository;
+import entity.Appointment;
+import entity.Consultation;
+import entity.ConsultationService;
+import entity.Doctor;
+import entity.Patient;
+import java.time.LocalDateTime;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ * Undo and report snapshots with several ConsultationMaintenance instances, as the
+ * UIs create them. The data files go to a temporary directory.
+ */
+public class ConsultationMaintenanceTest {
+
+    @ClassRule
+    public static TemporaryFolder folder = new TemporaryFolder();
+
+    private static Patient patient;
+    private static Doctor doctor;
+    private static Appointment appointment;
+    private static int nextId;
+
+    @BeforeClass
+    public static void setUpClass() {
+        // Read once, before the first DAO opens a file
+        System.setProperty("clinic.dataDir", folder.getRoot().getPath());
+
+        // Only in memory: addConsultation checks them but does not save them
+        DataRepository repository = DataRepository.getInstance();
+        patient = new Patient("PTEST", "Test Patient", 20, "F", "0123456789", "Test address", false);
+        doctor = new Doctor("DCTEST", "Test Doctor", "General", "0123456789", "test@clinic.my", "Test address", "M", 5);
+        appointment = new Appointment("A999", "PTEST", "DCTEST", LocalDateTime.now(), "Completed", "Walk-in");
+        repository.getPatients().put(patient.getPatientId(), patient);
+        repository.getDoctors().put(doctor.getDoctorID(), doctor);
+        repository.getAppointments().put(appointment.getAppointmentId(), appointment);
+    }
+
+    private static Consultation newConsultation() {
+        return new Consultation(String.format("C9%02d", nextId++), appointment, patient, doctor, LocalDateTime.now(),
+                null, null, "test", null, false, null);
+    }
+
+    @Test
+    public void testSnapshotIncludesChangesFromOtherInstances() {
+        ConsultationMaintenance first = new ConsultationMaintenance();
+        ConsultationMaintenance second = new ConsultationMaintenance();
+        Consultation consultation = newConsultation();
+
+        second.addConsultation(consultation);
+
+        assertNotNull(first.getConsultationSnapshot().get(consultation.getConsultationId()));
+        first.removeConsultation(consultation.getConsultationId());
+        assertNull(second.getConsultationSnapshot().get(consultation.getConsultationId()));
+    }
+
+    @Test
+    public void testUndoRemoveOfConsultationAddedByOtherInstance() {
+        ConsultationMaintenance adding = new ConsultationMaintenance();
+        ConsultationMaintenance removing = new ConsultationMaintenance();
+        Consultation consultation = newConsultation();
+        String id = consultation.getConsultationId();
+        adding.addConsultation(consultation);
+
+        assertTrue(removing.removeConsultation(id));
+        assertNull(adding.getConsultation(id));
+
+        assertEquals("Undo Remove: Consultation restored.", removing.undoLastAction());
+        assertNotNull(removing.getConsultation(id));
+        assertNotNull(adding.getConsultationSnapshot().get(id));
+        removing.removeConsultation(id);
+    }
+
+    @Test
+    public void testUndoKeepsLaterChangesFromOtherInstances() {
+        ConsultationMaintenance first = new ConsultationMaintenance();
+        ConsultationMaintenance second = new ConsultationMaintenance();
+        Consultation mine = newConsultation();
+        Consultation theirs = newConsultation();
+        first.addConsultation(mine);
+        second.addConsultation(theirs);
+
+        assertEquals("Undo Add: Consultation removed.", first.undoLastAction());
+
+        assertNull(first.getConsultation(mine.getConsultationId()));
+        assertNull(first.getConsultationSnapshot().get(mine.getConsultationId()));
+        assertNotNull(first.getConsultation(theirs.getConsultationId()));
+        assertNotNull(second.getConsultationSnapshot().get(theirs.getConsultationId()));
+        second.removeConsultation(theirs.getConsultationId());
+    }
+
+    @Test
+    public void testInPlaceEditReachesSnapshotOnUpdate() {
+        ConsultationMaintenance maintenance = new ConsultationMaintenance();
+        Consultation consultation = newConsultation();
+        String id = consultation.getConsultationId();
+        maintenance.addConsultation(consultation);
+
+        // As the update screen does: edit the live consultation, then save it
+        Consultation live = maintenance.getConsultation(id);
+        live.setNotes("edited");
+        assertEquals("test", maintenance.getConsultationSnapshot().get(id).getNotes());
+        maintenance.updateConsultation(live);
+        assertEquals("edited", maintenance.getConsultationSnapshot().get(id).getNotes());
+
+        assertEquals("Undo Update: Consultation reverted.", maintenance.undoLastAction());
+        assertEquals("test", maintenance.getConsultation(id).getNotes());
+        assertEquals("test", maintenance.getConsultationSnapshot().get(id).getNotes());
+        maintenance.removeConsultation(id);
+    }
+
+    @Test
+    public void testSnapshotKeepsItsOwnServices() {
+        ConsultationMaintenance maintenance = new ConsultationMaintenance();
+        Consultation consultation = newConsultation();
+        String id = consultation.getConsultationId();
+        OrderedMap<String, ConsultationService> services = new OrderedMap<>();
+        services.put("1", new ConsultationService("S001", "Checkup", 30));
+        consultation.setServicesUsed(services);
+        maintenance.addConsultation(consultation);
+
+        maintenance.getConsultation(id).getServicesUsed().put("2", new ConsultationService("S002", "X-Ray", 80));
+        assertEquals(1, maintenance.getConsultationSnapshot().get(id).getServicesUsed().size());
+        maintenance.updateConsultation(maintenance.getConsultation(id));
+        assertEquals(2, maintenance.getConsultationSnapshot().get(id).getServicesUsed().size());
+
+        // Undo puts back the list as it was, not the one edited since
+        maintenance.undoLastAction();
+        assertEquals(1, maintenance.getConsultation(id).getServicesUsed().size());
+        maintenance.removeConsultation(id);
+    }
+}
@@ -0,0 +1,144 @@
+package dao;
+
+import adt.OrderedMap;
+import entity.Doctor;
+import entity.Patient;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+public class MappedEntityTableTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String fileName;
+
+    @Before
+    public void setUp() {
+        fileName = new File(folder.getRoot(), "patients.tbl").getPath();
+    }
+
+    private static Patient patient(String id, String name) {
+        return new Patient(id, name, 30, "F", "0123456789", "Address of " + id, false);
+    }
+
+    private MappedEntityTable<Patient> open() throws IOException {
+        return MappedEntityTable.open(fileName, EntityCodecs.PATIENT);
+    }
+
+    private static void assertSameEntries(OrderedMap<String, Patient> expected, MappedEntityTable<Patient> table) {
+        assertEquals(expected.size(), table.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getKey(i), table.getKey(i));
+            assertEquals(expected.get(i).getName(), table.get(i).getName());
+            assertEquals(expected.get(i).getName(), table.get(expected.getKey(i)).getName());
+        }
+    }
+
+    @Test
+    public void testChangesSurviveReopenInEntryOrder() throws IOException {
+        Random random = new Random(5);
+        OrderedMap<String, Patient> expected = new OrderedMap<>();
+        try (MappedEntityTable<Patient> table = open()) {
+            for (int i = 0; i < 3000; i++) {
+                String key = "P" + random.nextInt(500);
+                if (random.nextInt(4) == 0) {
+                    assertEquals(expected.remove(key) == null, table.remove(key) == null);
+                } else {
+                    Patient value = patient(key, "Name " + i);
+                    assertEquals(expected.put(key, value) == null, table.put(key, value) == null);
+                }
+            }
+            assertSameEntries(expected, table);
+        }
+
+        try (MappedEntityTable<Patient> table = open()) {
+            assertSameEntries(expected, table);
+            int i = 0;
+            for (Patient p : table) {
+                assertEquals(expected.getKey(i++), p.getPatientId());
+            }
+        }
+    }
+
+    @Test
+    public void testBytesPastEndAreIgnored() throws IOException {
+        try (MappedEntityTable<Patient> table = open()) {
+            table.put("P1", patient("P1", "One"));
+            table.put("P2", patient("P2", "Two"));
+        }
+        // A record that was being written when the process died: the header never covered it
+        try (RandomAccessFile raf = new RandomAccessFile(fileName, "rw")) {
+            raf.seek(8); // end offset in the header
+            long end = raf.readLong();
+            raf.seek(end);
+            raf.writeInt(64);
+            raf.writeByte(1);
+        }
+
+        try (MappedEntityTable<Patient> table = open()) {
+            assertEquals(2, table.size());
+            table.put("P3", patient("P3", "Three"));
+        }
+        try (MappedEntityTable<Patient> table = open()) {
+            assertEquals(3, table.size());
+            assertEquals("Three", table.get("P3").getName());
+        }
+    }
+
+    @Test
+    public void testDeletedRecordsAreCompactedOnOpen() throws IOException {
+        StringBuilder longName = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            longName.append("0123456789");
+        }
+        try (MappedEntityTable<Patient> table = open()) {
+            for (int round = 0; round < 150; round++) {
+                table.put("P1", patient("P1", longName + " " + round));
+                table.put("P2", patient("P2", "Two " + round));
+            }
+            assertTrue(table.getDeletedBytes() > 1 << 20);
+        }
+        long before = new File(fileName).length();
+
+        try (MappedEntityTable<Patient> table = open()) {
+            assertEquals(0, table.getDeletedBytes());
+            assertEquals(2, table.size());
+            assertEquals("P1", table.getKey(0));
+            assertEquals(longName + " 149", table.get("P1").getName());
+            assertEquals("Two 149", table.get("P2").getName());
+        }
+        assertTrue(new File(fileName).length() < before);
+    }
+
+    @Test
+    public void testCreateImportsMapInOrder() throws IOException {
+        OrderedMap<String, Patient> map = new OrderedMap<>();
+        for (int i = 9; i >= 0; i--) {
+            map.put("P" + i, patient("P" + i, "Name " + i));
+        }
+        MappedEntityTable.create(fileName, map, EntityCodecs.PATIENT);
+
+        try (MappedEntityTable<Patient> table = open()) {
+            assertSameEntries(map, table);
+            table.put("P10", patient("P10", "Name 10"));
+            assertEquals("P10", table.getKey(10));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testOpenRejectsOtherRecordType() throws IOException {
+        try (MappedEntityTable<Patient> table = open()) {
+            table.put("P1", patient("P1", "One"));
+        }
+        MappedEntityTable<Doctor> doctors = MappedEntityTable.open(fileName, EntityCodecs.DOCTOR);
+        doctors.close();
+    }
+}
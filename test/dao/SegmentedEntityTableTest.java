@@ -0,0 +1,155 @@
+package dao;
+
+import adt.OrderedMap;
+import entity.Transaction;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+public class SegmentedEntityTableTest {
+
+    private static final LocalDateTime MAY = LocalDateTime.of(2024, 5, 3, 9, 0);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String directory;
+
+    @Before
+    public void setUp() {
+        directory = new File(folder.getRoot(), "transactions").getPath();
+    }
+
+    private static Transaction transaction(String id, LocalDateTime date, double price) {
+        return new Transaction(id, "P" + id, date, price);
+    }
+
+    private SegmentedEntityTable<Transaction> create() throws IOException {
+        return SegmentedEntityTable.create(directory, new OrderedMap<>(), EntityCodecs.TRANSACTION, Transaction::getDate);
+    }
+
+    private SegmentedEntityTable<Transaction> open() throws IOException {
+        return SegmentedEntityTable.open(directory, EntityCodecs.TRANSACTION, Transaction::getDate);
+    }
+
+    private Path segment(String month) {
+        return new File(directory, month + ".dat").toPath();
+    }
+
+    private static void assertSameEntries(OrderedMap<String, Transaction> expected, SegmentedEntityTable<Transaction> table) {
+        assertEquals(expected.size(), table.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Transaction actual = table.get(expected.getKey(i));
+            assertNotNull(expected.getKey(i), actual);
+            assertEquals(expected.get(i).getTotalPrice(), actual.getTotalPrice(), 0);
+            assertEquals(expected.get(i).getDate(), actual.getDate());
+        }
+    }
+
+    @Test
+    public void testChangesSurviveReopen() throws IOException {
+        Random random = new Random(3);
+        OrderedMap<String, Transaction> expected = new OrderedMap<>();
+        try (SegmentedEntityTable<Transaction> table = create()) {
+            for (int i = 0; i < 1000; i++) {
+                String key = "T" + random.nextInt(150);
+                if (random.nextInt(4) == 0) {
+                    assertEquals(expected.remove(key) == null, table.remove(key) == null);
+                } else {
+                    Transaction value = transaction(key, MAY.plusDays(random.nextInt(200)), random.nextInt(1000));
+                    assertEquals(expected.put(key, value) == null, table.put(key, value) == null);
+                }
+            }
+            assertSameEntries(expected, table);
+        }
+
+        try (SegmentedEntityTable<Transaction> table = open()) {
+            assertEquals(0, table.getLoadedSegmentCount());
+            assertSameEntries(expected, table);
+            int june = 0;
+            for (Transaction t : expected) {
+                if (t.getDate().getMonthValue() == 6) june++;
+            }
+            assertEquals(june, table.getMonth(2024, 6).size());
+        }
+    }
+
+    @Test
+    public void testUnreadableSegmentFailsAndKeepsItsKeys() throws IOException {
+        try (SegmentedEntityTable<Transaction> table = create()) {
+            for (int i = 0; i < 5; i++) {
+                table.put("T" + i, transaction("T" + i, MAY, i));
+            }
+        }
+        byte[] good = Files.readAllBytes(segment("2024-05"));
+        Files.write(segment("2024-05"), Arrays.copyOf(good, good.length - 3));
+
+        try (SegmentedEntityTable<Transaction> table = open()) {
+            assertEquals(5, table.size());
+            try {
+                table.get("T1");
+                fail("read a truncated segment");
+            } catch (UncheckedIOException expected) {
+            }
+            try {
+                table.getMonth(2024, 5);
+                fail("read a truncated segment");
+            } catch (UncheckedIOException expected) {
+            }
+            assertEquals(5, table.size());
+        }
+
+        Files.write(segment("2024-05"), good);
+        try (SegmentedEntityTable<Transaction> table = open()) {
+            assertEquals(5, table.size());
+            assertEquals(5, table.getMonth(2024, 5).size());
+            assertNotNull(table.get("T4"));
+        }
+    }
+
+    @Test
+    public void testKeysOfMissingSegmentAreDropped() throws IOException {
+        try (SegmentedEntityTable<Transaction> table = create()) {
+            table.put("MAY", transaction("MAY", MAY, 1));
+            table.put("JUNE", transaction("JUNE", MAY.plusMonths(1), 2));
+        }
+        Files.delete(segment("2024-06"));
+
+        try (SegmentedEntityTable<Transaction> table = open()) {
+            assertTrue(table.getMonth(2024, 6).isEmpty());
+            assertNull(table.get("JUNE"));
+            assertEquals(1, table.size());
+        }
+        try (SegmentedEntityTable<Transaction> table = open()) {
+            assertEquals(1, table.size());
+            assertNotNull(table.get("MAY"));
+        }
+    }
+
+    @Test
+    public void testEntryMissingFromDirectoryIsIgnored() throws IOException {
+        try (SegmentedEntityTable<Transaction> table = create()) {
+            table.put("T1", transaction("T1", MAY, 1));
+        }
+        // As if a crash came after the segment was written but before the key was logged
+        OrderedMap<String, Transaction> entries = BinaryMapFile.read(segment("2024-05").toString(), EntityCodecs.TRANSACTION);
+        entries.put("GHOST", transaction("GHOST", MAY, 2));
+        BinaryMapFile.write(segment("2024-05").toString(), entries, EntityCodecs.TRANSACTION);
+
+        try (SegmentedEntityTable<Transaction> table = open()) {
+            assertNull(table.get("GHOST"));
+            assertEquals(1, table.getMonth(2024, 5).size());
+            assertEquals(1, table.size());
+        }
+    }
+}
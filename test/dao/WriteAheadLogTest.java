@@ -0,0 +1,99 @@
+package dao;
+
+import adt.OrderedMap;
+import entity.Patient;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+public class WriteAheadLogTest {
+
+    static {
+        // Read once when WriteAheadLog is loaded
+        System.setProperty("clinic.persistence", "wal");
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String snapshotFile;
+    private File logFile;
+
+    @Before
+    public void setUp() {
+        snapshotFile = new File(folder.getRoot(), "patients.dat").getPath();
+        logFile = new File(folder.getRoot(), "patients.wal");
+    }
+
+    private static Patient patient(String id) {
+        return new Patient(id, "Name " + id, 30, "F", "0123456789", "Address", false);
+    }
+
+    private WriteAheadLog<Patient> newLog() {
+        return new WriteAheadLog<>(snapshotFile, map -> {
+            try {
+                BinaryMapFile.write(snapshotFile, map, EntityCodecs.PATIENT);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, EntityCodecs.PATIENT);
+    }
+
+    // Loads the map as a DAO does after a restart
+    private OrderedMap<String, Patient> load(WriteAheadLog<Patient> log) throws IOException {
+        OrderedMap<String, Patient> map = new File(snapshotFile).exists()
+                ? BinaryMapFile.read(snapshotFile, EntityCodecs.PATIENT) : new OrderedMap<>();
+        log.recover(map);
+        return map;
+    }
+
+    private static void put(WriteAheadLog<Patient> log, OrderedMap<String, Patient> map, String id) {
+        map.put(id, patient(id));
+        log.logChange(map, id);
+    }
+
+    @Test
+    public void testReplaysLoggedChanges() throws IOException {
+        WriteAheadLog<Patient> log = newLog();
+        OrderedMap<String, Patient> map = load(log);
+        put(log, map, "P0");
+        put(log, map, "P1");
+        map.remove("P0");
+        log.logChange(map, "P0");
+        assertTrue(logFile.exists());
+
+        OrderedMap<String, Patient> loaded = load(newLog());
+        assertEquals(1, loaded.size());
+        assertNotNull(loaded.get("P1"));
+    }
+
+    @Test
+    public void testAppendAfterTornRecordSurvivesRestart() throws IOException {
+        WriteAheadLog<Patient> log = newLog();
+        OrderedMap<String, Patient> map = load(log);
+        for (int i = 0; i < 3; i++) {
+            put(log, map, "P" + i);
+        }
+        // A crash in the middle of appending the last record
+        try (RandomAccessFile raf = new RandomAccessFile(logFile, "rw")) {
+            raf.setLength(raf.length() - 5);
+        }
+
+        log = newLog();
+        map = load(log);
+        assertEquals(2, map.size());
+        put(log, map, "P9");
+
+        OrderedMap<String, Patient> loaded = load(newLog());
+        assertEquals(3, loaded.size());
+        assertNotNull(loaded.get("P0"));
+        assertNotNull(loaded.get("P1"));
+        assertNotNull(loaded.get("P9"));
+    }
+}
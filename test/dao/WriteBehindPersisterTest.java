@@ -0,0 +1,93 @@
+package dao;
+
+import adt.OrderedMap;
+import entity.Patient;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+public class WriteBehindPersisterTest {
+
+    static {
+        // Read once when WriteBehindPersister is loaded
+        System.setProperty("clinic.persistence", "async");
+        System.setProperty("clinic.persistence.intervalMillis", "20");
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static OrderedMap<String, Patient> patients(int count) {
+        OrderedMap<String, Patient> map = new OrderedMap<>();
+        for (int i = 0; i < count; i++) {
+            map.put("P" + i, new Patient("P" + i, "Name " + i, 30, "F", "0123456789", "Address", false));
+        }
+        return map;
+    }
+
+    private static void save(String fileName, OrderedMap<String, Patient> map) {
+        WriteBehindPersister.save(fileName, map, m -> {
+            try {
+                BinaryMapFile.write(fileName, m, EntityCodecs.PATIENT);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @Test
+    public void testQueuedContentIsReadableUntilWritten() throws IOException {
+        String fileName = new File(folder.getRoot(), "patients.dat").getPath();
+        WriteBehindPersister persister = WriteBehindPersister.getInstance();
+
+        save(fileName, patients(1));
+        save(fileName, patients(4));
+        byte[] queued = persister.pendingContent(fileName);
+        if (queued != null) { // unless the writer thread already wrote it
+            assertEquals(4, BinaryMapFile.read(queued, fileName, EntityCodecs.PATIENT).size());
+        }
+        persister.flush();
+        assertNull(persister.pendingContent(fileName));
+        assertEquals(4, BinaryMapFile.read(fileName, EntityCodecs.PATIENT).size());
+    }
+
+    @Test
+    public void testFailedWriteIsRetried() throws IOException {
+        File directory = new File(folder.getRoot(), "data");
+        assertTrue(directory.createNewFile()); // a file where the directory should be
+        String fileName = new File(directory, "patients.dat").getPath();
+        WriteBehindPersister persister = WriteBehindPersister.getInstance();
+
+        save(fileName, patients(3));
+        persister.flush();
+        assertFalse(new File(fileName).exists());
+
+        assertTrue(directory.delete());
+        assertTrue(directory.mkdir());
+        persister.flush();
+        assertEquals(3, BinaryMapFile.read(fileName, EntityCodecs.PATIENT).size());
+    }
+
+    @Test
+    public void testWriteOfFailedCommitIsRetried() throws IOException {
+        File target = new File(folder.getRoot(), "patients.dat");
+        // The rename over the target fails while a non-empty directory is in its place
+        assertTrue(new File(target, "blocker").mkdirs());
+        String fileName = target.getPath();
+        WriteBehindPersister persister = WriteBehindPersister.getInstance();
+
+        save(fileName, patients(2));
+        persister.flush();
+        assertTrue(target.isDirectory());
+
+        Files.delete(new File(target, "blocker").toPath());
+        Files.delete(target.toPath());
+        persister.flush();
+        assertEquals(2, BinaryMapFile.read(fileName, EntityCodecs.PATIENT).size());
+    }
+}